@@ -32,28 +32,68 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.module.annotations.ReactModule;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import com.reactnativethermalprinter.benchmark.BenchmarkResult;
+import com.reactnativethermalprinter.benchmark.PrintBenchmark;
+import com.reactnativethermalprinter.benchmark.PrinterCalibrator;
 import com.reactnativethermalprinter.connection.BluetoothConnectionManager;
-import com.reactnativethermalprinter.connection.FastBluetoothConnection;
+import com.reactnativethermalprinter.connection.BluetoothDeviceRegistry;
+import com.reactnativethermalprinter.connection.ConnectionPool;
 import com.reactnativethermalprinter.connection.FastDeviceConnection;
-import com.reactnativethermalprinter.connection.FastTcpConnection;
+import com.reactnativethermalprinter.connection.PrinterCapabilities;
+import com.reactnativethermalprinter.connection.PrinterWriteException;
+import com.reactnativethermalprinter.core.BatchPrinter;
 import com.reactnativethermalprinter.core.EscPosImagePrinter;
+import com.reactnativethermalprinter.core.ImageProcessing;
+import com.reactnativethermalprinter.core.PackedBitmap;
+import com.reactnativethermalprinter.core.PreparePool;
+import com.reactnativethermalprinter.core.Segment;
+import com.reactnativethermalprinter.emulator.EmulatorSettings;
+import com.reactnativethermalprinter.emulator.PrinterEmulator;
+import com.reactnativethermalprinter.jobs.PrintInputException;
+import com.reactnativethermalprinter.jobs.PrintJob;
+import com.reactnativethermalprinter.jobs.PrintJobCancelledException;
+import com.reactnativethermalprinter.jobs.PrintJobScheduler;
+import com.reactnativethermalprinter.metrics.HistogramSnapshot;
+import com.reactnativethermalprinter.metrics.JobTrace;
+import com.reactnativethermalprinter.metrics.MemoryMeter;
+import com.reactnativethermalprinter.metrics.MetricsRegistry;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.metrics.Stage;
+import com.reactnativethermalprinter.settings.PrinterProfile;
 import com.reactnativethermalprinter.settings.PrinterSettings;
-
+import com.reactnativethermalprinter.settings.ProfileStore;
+import com.reactnativethermalprinter.spool.JobSpool;
+import com.reactnativethermalprinter.spool.SpoolRecorder;
+import com.reactnativethermalprinter.spool.SpooledJob;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 @ReactModule(name = ThermalPrinterModule.NAME)
 public class ThermalPrinterModule extends ReactContextBaseJavaModule {
   private static final String TAG = "RNTP.ThermalPrinterModule";
@@ -62,12 +102,66 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
 
   public static final int VERSION = 2;
 
-  private Promise jsPromise;
+  // Bonded Bluetooth printers by MAC, with learned pacing / throughput
+  private final BluetoothDeviceRegistry btDevices = new BluetoothDeviceRegistry();
+
+  // Emitted when a job submitted through enqueueBase64Image completes
+  public static final String EVENT_JOB_FINISHED = "ThermalPrinterJobFinished";
+
+  // Emitted every metricsEventIntervalMs (see setMetricsEventInterval)
+  public static final String EVENT_METRICS = "ThermalPrinterMetrics";
+
+  // Cancellation check interval while a job waits (prepared image,
+  // reconnect backoff)
+  private static final long PREPARE_POLL_MS = 50;
+
+  // Reconnect-and-resume after the link drops mid-job: attempts, and the
+  // delay before each, doubling up to the cap
+  private static final int RESUME_ATTEMPTS = 3;
+  private static final long RESUME_BACKOFF_MS = 250;
+  private static final long RESUME_BACKOFF_MAX_MS = 2_000;
+
+  // Per-printer stage latencies and counters
+  private final MetricsRegistry metrics = new MetricsRegistry();
+
+  private ScheduledExecutorService metricsTimer = null;
+  private ScheduledFuture<?> metricsTask = null;
 
-  private ArrayList<BluetoothDevice> btDevicesList = new ArrayList();
+  // Warm per-printer connections shared by all print calls
+  private final ConnectionPool connectionPool = new ConnectionPool(
+      ConnectionPool.DEFAULT_IDLE_TIMEOUT_MS,
+      ConnectionPool.DEFAULT_MAX_CONNECTIONS);
+
+  // One serial lane per printer, lanes run in parallel
+  private final PrintJobScheduler jobScheduler = new PrintJobScheduler(
+      PrintJobScheduler.DEFAULT_WORKERS,
+      PrintJobScheduler.DEFAULT_LANE_DEPTH);
+
+  // Local test printer (startEmulator / stopEmulator)
+  private PrinterEmulator emulator = null;
+
+  // Calibrated settings by printer key (calibratePrinter)
+  private final ProfileStore profiles;
+
+  // Encoded image jobs on disk, for reprint / resume
+  private final JobSpool spool;
+
+  // Image preparation budget (configureMemoryBudget); 0 = default
+  private volatile long memoryBudgetBytes = 0;
+
+  // What each printer reported about itself (GS I), by printer key
+  private final ConcurrentHashMap<String, PrinterCapabilities> capabilities = new ConcurrentHashMap<>();
+
+  // Per query; printers that do not answer cost this once
+  private static final int CAPABILITY_PROBE_TIMEOUT_MS = 300;
 
   public ThermalPrinterModule(ReactApplicationContext reactContext) {
     super(reactContext);
+    this.connectionPool.setMetrics(this.metrics);
+    this.connectionPool.setDeviceRegistry(this.btDevices);
+    this.profiles = new ProfileStore(new File(reactContext.getFilesDir(), "rntp-profiles"));
+    this.profiles.load();
+    this.spool = new JobSpool(new File(reactContext.getFilesDir(), "rntp-spool"), JobSpool.DEFAULT_MAX_JOBS);
   }
 
   @Override
@@ -76,6 +170,24 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
     return NAME;
   }
 
+  @Override
+  public void invalidate() {
+    this.jobScheduler.shutdown();
+    this.connectionPool.shutdown();
+    this.stopEmulatorIfRunning();
+    this.stopMetricsEvents();
+    if (this.metricsTimer != null) {
+      this.metricsTimer.shutdownNow();
+    }
+    super.invalidate();
+  }
+
+  @ReactMethod
+  public void configureConnectionPool(double idleTimeoutMs, double maxConnections, Promise promise) {
+    this.connectionPool.configure((int) idleTimeoutMs, (int) maxConnections);
+    promise.resolve(true);
+  }
+
   @ReactMethod
   public void printTcp(String ipAddress, double port, String payload, boolean autoCut, boolean openCashbox,
       double mmFeedPaper, double printerDpi, double printerWidthMM, double printerNbrCharactersPerLine, double timeout,
@@ -112,19 +224,17 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
     // float -> number
     //
 
-    this.jsPromise = promise;
-
     try {
       TcpConnection connection = new TcpConnection(ipAddress, (int) port, (int) timeout);
       if (payloadIsBase64EncodedImage) {
         this.printBase64EncodedImage(connection, payload, printerDpi, printerWidthMM, printerNbrCharactersPerLine,
-            mmFeedPaper, autoCut, openCashbox, usePrinterCommands, useEscAsteriskCommand);
+            mmFeedPaper, autoCut, openCashbox, usePrinterCommands, useEscAsteriskCommand, promise);
       } else {
         this.printIt(connection, payload, autoCut, openCashbox, mmFeedPaper, printerDpi, printerWidthMM,
-            printerNbrCharactersPerLine);
+            printerNbrCharactersPerLine, promise);
       }
     } catch (Exception e) {
-      this.jsPromise.reject("Connection Error", e.getMessage());
+      promise.reject("Connection Error", e.getMessage());
     }
   }
 
@@ -162,8 +272,6 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
       return;
     }
 
-    this.jsPromise = promise;
-
     BluetoothConnection btPrinter = null;
 
     if (TextUtils.isEmpty(macAddress)) {
@@ -176,7 +284,9 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
     }
 
     if (btPrinter == null) {
-      this.jsPromise.reject("Connection Error", "Bluetooth Device Not Found");
+      promise.reject("Connection Error", "Bluetooth Device Not Found");
+
+      return;
     }
 
     int permissionCheck = ContextCompat.checkSelfPermission(getCurrentActivity(), Manifest.permission.BLUETOOTH);
@@ -185,7 +295,7 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
 
       ActivityCompat.requestPermissions(getCurrentActivity(), new String[] { Manifest.permission.BLUETOOTH }, 1);
 
-      this.jsPromise.reject("Connection Error", "Bluetooth Permission Not Granted");
+      promise.reject("Connection Error", "Bluetooth Permission Not Granted");
 
       return;
     }
@@ -204,7 +314,8 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
             autoCut,
             openCashbox,
             usePrinterCommands,
-            useEscAsteriskCommand);
+            useEscAsteriskCommand,
+            promise);
 
       } else {
 
@@ -216,63 +327,56 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
             mmFeedPaper,
             printerDpi,
             printerWidthMM,
-            printerNbrCharactersPerLine);
+            printerNbrCharactersPerLine,
+            promise);
 
       }
 
     } catch (Exception e) {
 
-      this.jsPromise.reject("Connection Error", e.getMessage());
+      promise.reject("Connection Error", e.getMessage());
     }
   }
 
   @ReactMethod
   public void getBluetoothDeviceList(Promise promise) {
 
-    this.jsPromise = promise;
-
     int permissionCheck = ContextCompat.checkSelfPermission(getCurrentActivity(), Manifest.permission.BLUETOOTH);
 
     if (permissionCheck != PackageManager.PERMISSION_GRANTED) {
 
       ActivityCompat.requestPermissions(getCurrentActivity(), new String[] { Manifest.permission.BLUETOOTH }, 1);
 
-      this.jsPromise.reject("Connection Error", "Bluetooth Permission Not Granted");
+      promise.reject("Connection Error", "Bluetooth Permission Not Granted");
 
       return;
     }
 
     try {
 
-      Set<BluetoothDevice> pairedDevices = BluetoothAdapter.getDefaultAdapter().getBondedDevices();
+      this.btDevices.refresh(BluetoothAdapter.getDefaultAdapter().getBondedDevices());
 
       WritableArray rnArray = new WritableNativeArray();
 
-      if (pairedDevices.size() > 0) {
+      for (BluetoothDeviceRegistry.Entry device : this.btDevices.getAll()) {
 
-        for (BluetoothDevice device : pairedDevices) {
+        WritableMap wmap = new WritableNativeMap();
 
-          this.btDevicesList.add(device);
+        wmap.putString("deviceName", device.getName());
+        wmap.putString("macAddress", device.getDevice().getAddress());
 
-          String deviceName = device.getName();
-          String macAddress = device.getAddress();
+        // Learned by earlier print jobs (0 = unknown)
+        wmap.putDouble("lastConnectedAt", device.getLastConnectMillis());
+        wmap.putDouble("bytesPerSecond", device.getBytesPerSecond());
 
-          JSONObject jsonObj = new JSONObject();
-
-          jsonObj.put("deviceName", deviceName);
-          jsonObj.put("macAddress", macAddress);
-
-          WritableMap wmap = convertJsonToMap(jsonObj);
-
-          rnArray.pushMap(wmap);
-        }
+        rnArray.pushMap(wmap);
       }
 
-      this.jsPromise.resolve(rnArray);
+      promise.resolve(rnArray);
 
     } catch (Exception e) {
 
-      this.jsPromise.reject("Bluetooth Error", e.getMessage());
+      promise.reject("Bluetooth Error", e.getMessage());
     }
   }
 
@@ -310,7 +414,8 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
   }
 
   private void printIt(DeviceConnection printerConnection, String payload, boolean autoCut, boolean openCashbox,
-      double mmFeedPaper, double printerDpi, double printerWidthMM, double printerNbrCharactersPerLine) {
+      double mmFeedPaper, double printerDpi, double printerWidthMM, double printerNbrCharactersPerLine,
+      Promise promise) {
     try {
       EscPosPrinter printer = new EscPosPrinter(printerConnection, (int) printerDpi, (float) printerWidthMM,
           (int) printerNbrCharactersPerLine);
@@ -325,23 +430,23 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
       }
 
       printer.disconnectPrinter();
-      this.jsPromise.resolve(true);
+      promise.resolve(true);
     } catch (EscPosConnectionException e) {
-      this.jsPromise.reject("Broken connection", e.getMessage());
+      promise.reject("Broken connection", e.getMessage());
     } catch (EscPosParserException e) {
-      this.jsPromise.reject("Invalid formatted text", e.getMessage());
+      promise.reject("Invalid formatted text", e.getMessage());
     } catch (EscPosEncodingException e) {
-      this.jsPromise.reject("Bad selected encoding", e.getMessage());
+      promise.reject("Bad selected encoding", e.getMessage());
     } catch (EscPosBarcodeException e) {
-      this.jsPromise.reject("Invalid barcode", e.getMessage());
+      promise.reject("Invalid barcode", e.getMessage());
     } catch (Exception e) {
-      this.jsPromise.reject("ERROR", e.getMessage());
+      promise.reject("ERROR", e.getMessage());
     }
   }
 
   private void printBase64EncodedImage(DeviceConnection printerConnection, String base64EncodedImage, double printerDpi,
       double printerWidthMM, double printerNbrCharactersPerLine, double mmFeedPaper, boolean cutPaper,
-      boolean openCashBox, boolean usePrinterCommands, boolean useEscAsteriskCommand) {
+      boolean openCashBox, boolean usePrinterCommands, boolean useEscAsteriskCommand, Promise promise) {
     try {
       final String base64EncodedImageWithoutPrefix = base64EncodedImage.substring(base64EncodedImage.indexOf(",") + 1);
       final byte[] decodedBytes = Base64.decode(base64EncodedImageWithoutPrefix, Base64.DEFAULT);
@@ -456,46 +561,28 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
         printer.disconnectPrinter();
       }
 
-      this.jsPromise.resolve(true);
+      promise.resolve(true);
 
     } catch (EscPosConnectionException e) {
-      this.jsPromise.reject("Broken connection", e.getMessage());
+      promise.reject("Broken connection", e.getMessage());
     } catch (Exception e) {
-      this.jsPromise.reject("ERROR", e.getMessage());
+      promise.reject("ERROR", e.getMessage());
     }
   }
 
   private BluetoothDevice getBluetoothDeviceWithMacAddress(String macAddress) {
-    for (BluetoothDevice device : this.btDevicesList) {
-      if (device.getAddress().contentEquals(macAddress)) {
-        return device;
-      }
-    }
-    return null;
-  }
-
-  private static WritableMap convertJsonToMap(JSONObject jsonObject) throws JSONException {
-    WritableMap map = new WritableNativeMap();
-
-    Iterator<String> iterator = jsonObject.keys();
-    while (iterator.hasNext()) {
-      String key = iterator.next();
-      Object value = jsonObject.get(key);
-      if (value instanceof JSONObject) {
-        map.putMap(key, convertJsonToMap((JSONObject) value));
-      } else if (value instanceof Boolean) {
-        map.putBoolean(key, (Boolean) value);
-      } else if (value instanceof Integer) {
-        map.putInt(key, (Integer) value);
-      } else if (value instanceof Double) {
-        map.putDouble(key, (Double) value);
-      } else if (value instanceof String) {
-        map.putString(key, (String) value);
-      } else {
-        map.putString(key, value.toString());
+    BluetoothDevice device = this.btDevices.getDevice(macAddress);
+
+    // Not listed yet (or paired since): pick up the bonded set once
+    if (device == null) {
+      BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+
+      if (adapter != null && this.btDevices.refresh(adapter.getBondedDevices())) {
+        device = this.btDevices.getDevice(macAddress);
       }
     }
-    return map;
+
+    return device;
   }
 
   @ReactMethod
@@ -521,95 +608,1375 @@ public class ThermalPrinterModule extends ReactContextBaseJavaModule {
 
       Promise promise) {
 
-    final long start = System.nanoTime();
+    try {
+      final PrinterSettings settings = this.buildImageSettings(
+          connectionMode,
+          ipAddress,
+          port,
+          macAddress,
+          timeoutMs,
+          printerDpi,
+          printerWidthMM,
+          printerNbrCharactersPerLine);
 
-    FastDeviceConnection conn = null;
+      // Runs on the printer's lane; the promise settles when the job is done
+      this.jobScheduler.submit(
+          settings.getPrinterKey(),
+          0,
+          job -> promise.resolve(this.runImageJob(job, settings, base64Image, autoCut, openCashBox)),
+          (job, error) -> {
+            if (error != null) {
+              Log.e(TAG, "Encountered exception: " + error.getMessage(), error);
+              promise.reject("ThermalPrinterModule.print: encountered exception", error.getMessage(), error);
+            }
+          });
 
-    try {
-      PrinterSettings settings = null;
+    } catch (Exception e) {
 
-      if ("TCP".equals(connectionMode)) {
+      Log.e(TAG, "Encountered exception: " + e.getMessage(), e);
+
+      promise.reject("ThermalPrinterModule.print: encountered exception", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Same as printBase64Image, but resolves immediately with the job ID.
+   * Completion is reported through the EVENT_JOB_FINISHED event. The job is
+   * cancelled once deadlineMs (0 = none) have passed since submission.
+   * rasterScale (PrinterSettings.RasterScale, null = NORMAL) selects a
+   * draft resolution the printer scales up; tone (see applyTone) adjusts
+   * the image before dithering.
+   */
+  @ReactMethod
+  public void enqueueBase64Image(
+      String connectionMode,
 
-        settings = new PrinterSettings(ipAddress, (int) port);
+      String ipAddress,
+      double port,
 
-      } else if ("BLUETOOTH".equals(connectionMode)) {
+      String macAddress,
 
-        settings = new PrinterSettings(macAddress);
+      double timeoutMs,
 
-      } else {
+      String base64Image,
 
-        throw new Exception("Invalid connection mode");
+      boolean autoCut,
+      boolean openCashBox,
+      double mmFeedPaper,
+
+      double printerDpi,
+      double printerWidthMM,
+      double printerNbrCharactersPerLine,
+
+      double deadlineMs,
+
+      String rasterScale,
+
+      ReadableMap tone,
+
+      Promise promise) {
+
+    try {
+      final PrinterSettings settings = this.buildImageSettings(
+          connectionMode,
+          ipAddress,
+          port,
+          macAddress,
+          timeoutMs,
+          printerDpi,
+          printerWidthMM,
+          printerNbrCharactersPerLine);
+
+      if (rasterScale != null) {
+        settings.setRasterScale(PrinterSettings.RasterScale.valueOf(rasterScale));
       }
 
-      settings.setTimeoutMs((int) timeoutMs);
+      applyTone(settings, tone);
+
+      PrintJob job = this.jobScheduler.submit(
+          settings.getPrinterKey(),
+          (long) deadlineMs,
+          j -> {
+            if (!this.runImageJob(j, settings, base64Image, autoCut, openCashBox)) {
+              throw new Exception("Print job failed");
+            }
+          },
+          this::emitJobFinished);
+
+      promise.resolve(job.getId());
+
+    } catch (Exception e) {
+
+      Log.e(TAG, "Encountered exception: " + e.getMessage(), e);
+
+      promise.reject("ThermalPrinterModule.enqueue: encountered exception", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Prints items (maps of type "IMAGE" | "TEXT", payload, autoCut,
+   * openCashbox, feedLines) in order over one connection, with a single
+   * init and drain. Resolves with one { success, error } per item.
+   */
+  @ReactMethod
+  public void printBatch(
+      String connectionMode,
+
+      String ipAddress,
+      double port,
 
-      settings.setPrinterDpi((int) printerDpi);
-      settings.setPrinterWidthMm((int) printerWidthMM);
-      settings.setPrinterCharPerLine((int) printerNbrCharactersPerLine);
+      String macAddress,
 
-      settings.setPrintMode(PrinterSettings.PrintMode.RASTER_GSV0);
-      settings.setDitherMode(PrinterSettings.DitherMode.ATKINSON);
+      double timeoutMs,
 
-      settings.setChunkHeight(256);
+      ReadableArray items,
 
-      settings.setPacketSize(1024);
+      double printerDpi,
+      double printerWidthMM,
+      double printerNbrCharactersPerLine,
 
-      settings.setPacketMicroDelayMs(2);
+      ReadableMap tone,
 
-      settings.setUseQueueForWrites(true);
+      Promise promise) {
 
-      if ("TCP".equals(connectionMode)) {
+    try {
+      final PrinterSettings settings = this.buildImageSettings(
+          connectionMode,
+          ipAddress,
+          port,
+          macAddress,
+          timeoutMs,
+          printerDpi,
+          printerWidthMM,
+          printerNbrCharactersPerLine);
 
-        conn = new FastTcpConnection(
-            settings.getIpAddress(),
-            settings.getIpPort(),
-            settings.getTimeoutMs(),
-            settings.getPacketSize(),
-            settings.getUseQueueForWrites(),
-            settings.getPacketMicroDelayMs());
+      applyTone(settings, tone);
 
-      } else if ("BLUETOOTH".equals(connectionMode)) {
+      final List<BatchPrinter.Item> batch = toBatchItems(items);
 
-        BluetoothConnectionManager connectionManager = new BluetoothConnectionManager(
-            getCurrentActivity(),
-            settings.getMacAddress());
+      this.jobScheduler.submit(
+          settings.getPrinterKey(),
+          0,
+          job -> {
+            final List<BatchPrinter.ItemResult> results = new ArrayList<>();
 
-        if (!connectionManager.hasBluetoothPermissions()) {
+            this.runPrinterJob(job, settings, false, false, (conn, m) -> {
+              BatchPrinter printer = new BatchPrinter(settings, conn);
 
-          connectionManager.requestBluetoothPermissions();
+              printer.setJob(job);
 
-          throw new Exception("Bluetooth permissions not granted");
-        }
+              printer.setMetrics(m);
 
-        conn = new FastBluetoothConnection(
-            settings.getMacAddress(),
-            settings.getPacketSize(),
-            settings.getUseQueueForWrites(),
-            settings.getPacketMicroDelayMs());
-      }
+              results.addAll(printer.print(batch));
 
-      conn.connect();
+              // Failed items do not make the connection unusable
+              return conn.isConnected() && !conn.isClosed() && conn.getWriteError() == null;
+            });
 
-      EscPosImagePrinter printer = new EscPosImagePrinter(settings, conn);
+            WritableArray out = new WritableNativeArray();
 
-      boolean status = printer.printBase64Image(base64Image, autoCut, openCashBox, 4);
+            for (BatchPrinter.ItemResult r : results) {
+              WritableMap item = new WritableNativeMap();
+              item.putBoolean("success", r.success);
+              if (r.error != null) {
+                item.putString("error", r.error);
+              }
+              out.pushMap(item);
+            }
 
-      promise.resolve(status);
+            promise.resolve(out);
+          },
+          (job, error) -> {
+            if (error != null) {
+              Log.e(TAG, "Encountered exception: " + error.getMessage(), error);
+              promise.reject("ThermalPrinterModule.printBatch: encountered exception", error.getMessage(), error);
+            }
+          });
 
     } catch (Exception e) {
 
       Log.e(TAG, "Encountered exception: " + e.getMessage(), e);
 
-      promise.reject("ThermalPrinterModule.print: encountered exception", e.getMessage(), e);
+      promise.reject("ThermalPrinterModule.printBatch: encountered exception", e.getMessage(), e);
+    }
+  }
 
-    } finally {
+  /**
+   * Like enqueueBase64Image, for a job made of segments (maps of type
+   * "IMAGE" | "QR" | "BARCODE" | "TEXT" | "FEED" | "CUT", see toSegments)
+   * printed in order. QR codes and barcodes are rendered by the printer.
+   */
+  @ReactMethod
+  public void enqueueSegments(
+      String connectionMode,
+
+      String ipAddress,
+      double port,
 
-      if (conn != null) {
-        conn.close();
+      String macAddress,
+
+      double timeoutMs,
+
+      ReadableArray segments,
+
+      boolean openCashBox,
+
+      double printerDpi,
+      double printerWidthMM,
+      double printerNbrCharactersPerLine,
+
+      double deadlineMs,
+
+      ReadableMap tone,
+
+      Promise promise) {
+
+    try {
+      final PrinterSettings settings = this.buildImageSettings(
+          connectionMode,
+          ipAddress,
+          port,
+          macAddress,
+          timeoutMs,
+          printerDpi,
+          printerWidthMM,
+          printerNbrCharactersPerLine);
+
+      applyTone(settings, tone);
+
+      final List<Segment> parsed = toSegments(segments);
+
+      PrintJob job = this.jobScheduler.submit(
+          settings.getPrinterKey(),
+          (long) deadlineMs,
+          j -> {
+            if (!this.runSegmentsJob(j, settings, parsed, openCashBox)) {
+              throw new Exception("Print job failed");
+            }
+          },
+          this::emitJobFinished);
+
+      promise.resolve(job.getId());
+
+    } catch (Exception e) {
+
+      Log.e(TAG, "Encountered exception: " + e.getMessage(), e);
+
+      promise.reject("ThermalPrinterModule.enqueueSegments: encountered exception", e.getMessage(), e);
+    }
+  }
+
+  // { brightness, contrast, gamma, blackPoint, whitePoint }, each optional;
+  // null = unchanged
+  private static void applyTone(PrinterSettings settings, ReadableMap tone) {
+    if (tone == null) {
+      return;
+    }
+
+    if (tone.hasKey("brightness")) {
+      settings.setBrightness((float) tone.getDouble("brightness"));
+    }
+    if (tone.hasKey("contrast")) {
+      settings.setContrast((float) tone.getDouble("contrast"));
+    }
+    if (tone.hasKey("gamma")) {
+      settings.setGamma((float) tone.getDouble("gamma"));
+    }
+    if (tone.hasKey("blackPoint")) {
+      settings.setBlackPoint(tone.getInt("blackPoint"));
+    }
+    if (tone.hasKey("whitePoint")) {
+      settings.setWhitePoint(tone.getInt("whitePoint"));
+    }
+  }
+
+  private static List<BatchPrinter.Item> toBatchItems(ReadableArray items) throws Exception {
+    List<BatchPrinter.Item> list = new ArrayList<>(items.size());
+
+    for (int i = 0; i < items.size(); i++) {
+      ReadableMap item = items.getMap(i);
+
+      BatchPrinter.ItemType type;
+
+      try {
+        type = BatchPrinter.ItemType.valueOf(item.getString("type").toUpperCase());
+      } catch (RuntimeException e) {
+        throw new Exception("Invalid type of batch item " + i);
+      }
+
+      list.add(new BatchPrinter.Item(
+          type,
+          item.getString("payload"),
+          item.hasKey("autoCut") && item.getBoolean("autoCut"),
+          item.hasKey("openCashbox") && item.getBoolean("openCashbox"),
+          item.hasKey("feedLines") ? item.getInt("feedLines") : 4));
+    }
+
+    return list;
+  }
+
+  // IMAGE { payload }, QR { payload, moduleSize, errorCorrection, align },
+  // BARCODE { payload, symbology, height, moduleWidth, hri, align },
+  // TEXT { payload, align, bold, size }, FEED { lines }, CUT { partial }
+  private static List<Segment> toSegments(ReadableArray segments) throws Exception {
+    List<Segment> list = new ArrayList<>(segments.size());
+
+    for (int i = 0; i < segments.size(); i++) {
+      ReadableMap s = segments.getMap(i);
+
+      try {
+        final Segment.Align align = s.hasKey("align")
+            ? Segment.Align.valueOf(s.getString("align").toUpperCase())
+            : Segment.Align.LEFT;
+
+        switch (Segment.Type.valueOf(s.getString("type").toUpperCase())) {
+          case IMAGE:
+            list.add(Segment.image(s.getString("payload")));
+            break;
+
+          case QR:
+            list.add(Segment.qr(
+                s.getString("payload"),
+                s.hasKey("moduleSize") ? s.getInt("moduleSize") : 6,
+                s.hasKey("errorCorrection")
+                    ? Segment.QrErrorCorrection.valueOf(s.getString("errorCorrection").toUpperCase())
+                    : Segment.QrErrorCorrection.M,
+                align));
+            break;
+
+          case BARCODE:
+            list.add(Segment.barcode(
+                Segment.Symbology.valueOf(s.getString("symbology").toUpperCase()),
+                s.getString("payload"),
+                s.hasKey("height") ? s.getInt("height") : 80,
+                s.hasKey("moduleWidth") ? s.getInt("moduleWidth") : 3,
+                !s.hasKey("hri") || s.getBoolean("hri"),
+                align));
+            break;
+
+          case TEXT:
+            list.add(Segment.text(
+                s.getString("payload"),
+                align,
+                s.hasKey("bold") && s.getBoolean("bold"),
+                s.hasKey("size") ? s.getInt("size") : 1));
+            break;
+
+          case FEED:
+            list.add(Segment.feed(s.hasKey("lines") ? s.getInt("lines") : 4));
+            break;
+
+          case CUT:
+            list.add(Segment.cut(s.hasKey("partial") && s.getBoolean("partial")));
+            break;
+        }
+
+      } catch (RuntimeException e) {
+        throw new Exception("Invalid segment " + i + ": " + e.getMessage());
+      }
+    }
+
+    return list;
+  }
+
+  // Cancel a queued or running job; resolves false if it already finished
+  @ReactMethod
+  public void cancelJob(String jobId, Promise promise) {
+    promise.resolve(this.jobScheduler.cancel(jobId, "Cancelled"));
+  }
+
+  @ReactMethod
+  public void configureScheduler(double workers, double laneDepth, Promise promise) {
+    this.jobScheduler.configure((int) workers, (int) laneDepth);
+    promise.resolve(true);
+  }
+
+  // Required by NativeEventEmitter
+  @ReactMethod
+  public void addListener(String eventName) {
+  }
+
+  // Required by NativeEventEmitter
+  @ReactMethod
+  public void removeListeners(double count) {
+  }
+
+  // ----------------------------------------------------------
+  // METRICS: per-printer stage latency histograms
+  // ----------------------------------------------------------
+
+  // { [printerKey]: { jobs, failures, bytesSent, retries, stages } }
+  @ReactMethod
+  public void getMetrics(boolean reset, Promise promise) {
+    promise.resolve(this.snapshotMetrics(reset));
+  }
+
+  // Push EVENT_METRICS every intervalMs (0 = stop); each event covers the
+  // interval since the previous one
+  @ReactMethod
+  public synchronized void setMetricsEventInterval(double intervalMs, Promise promise) {
+    this.stopMetricsEvents();
+
+    if (intervalMs > 0) {
+      if (this.metricsTimer == null) {
+        this.metricsTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+          Thread t = new Thread(r, "RNTP-metrics");
+          t.setDaemon(true);
+          return t;
+        });
+      }
+
+      final long period = Math.max(1_000, (long) intervalMs);
+
+      this.metricsTask = this.metricsTimer.scheduleWithFixedDelay(
+          () -> this.emit(EVENT_METRICS, this.snapshotMetrics(true)), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    promise.resolve(true);
+  }
+
+  private synchronized void stopMetricsEvents() {
+    if (this.metricsTask != null) {
+      this.metricsTask.cancel(false);
+      this.metricsTask = null;
+    }
+  }
+
+  // Dumps the job trace ring buffer as Chrome trace JSON (chrome://tracing,
+  // ui.perfetto.dev) and resolves with the file path
+  @ReactMethod
+  public void exportTrace(boolean clear, Promise promise) {
+    File dir = new File(getReactApplicationContext().getCacheDir(), "rntp-trace");
+
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      promise.reject("Trace export error", "Cannot create " + dir);
+      return;
+    }
+
+    File file = new File(dir, "trace-" + System.currentTimeMillis() + ".json");
+
+    try (Writer out = new BufferedWriter(new FileWriter(file))) {
+
+      JobTrace.writeChromeJson(out);
+
+    } catch (IOException e) {
+
+      promise.reject("Trace export error", e.getMessage());
+      return;
+    }
+
+    if (clear) {
+      JobTrace.clear();
+    }
+
+    promise.resolve(file.getPath());
+  }
+
+  private WritableMap snapshotMetrics(boolean reset) {
+    WritableMap result = new WritableNativeMap();
+
+    for (PrinterMetrics m : this.metrics.getAll()) {
+      WritableMap printer = new WritableNativeMap();
+
+      printer.putDouble("jobs", m.getJobs());
+      printer.putDouble("failures", m.getFailures());
+      printer.putDouble("bytesSent", m.getBytesSent());
+      printer.putDouble("retries", m.getRetries());
+
+      WritableMap stages = new WritableNativeMap();
+
+      for (Map.Entry<Stage, HistogramSnapshot> e : m.snapshotStages().entrySet()) {
+        HistogramSnapshot h = e.getValue();
+        WritableMap stage = new WritableNativeMap();
+
+        stage.putDouble("count", h.count);
+        stage.putDouble("meanMs", h.meanMicros / 1_000.0);
+        stage.putDouble("p50Ms", h.p50Micros / 1_000.0);
+        stage.putDouble("p90Ms", h.p90Micros / 1_000.0);
+        stage.putDouble("p99Ms", h.p99Micros / 1_000.0);
+        stage.putDouble("maxMs", h.maxMicros / 1_000.0);
+
+        stages.putMap(e.getKey().key, stage);
       }
 
-      Log.i(TAG, "printBase64Image took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+      printer.putMap("stages", stages);
+
+      if (reset) {
+        m.reset();
+      }
+
+      result.putMap(m.getPrinterKey(), printer);
+    }
+
+    return result;
+  }
+
+  // ----------------------------------------------------------
+  // EMULATOR: loopback ESC/POS printer for tests and tuning
+  // ----------------------------------------------------------
+
+  // Resolves with the TCP port to print to (ip 127.0.0.1)
+  @ReactMethod
+  public void startEmulator(double port, double dotsPerLine, double receiveBufferBytes, double bytesPerSecond,
+      double stallEveryBytes, double stallMs, boolean paperEnd, boolean answerStatus, Promise promise) {
+    try {
+      this.stopEmulatorIfRunning();
+
+      EmulatorSettings settings = new EmulatorSettings();
+
+      settings.setPort((int) port);
+      settings.setDotsPerLine((int) dotsPerLine);
+      settings.setReceiveBufferBytes((int) receiveBufferBytes);
+      settings.setBytesPerSecond((int) bytesPerSecond);
+      settings.setStallEveryBytes((int) stallEveryBytes);
+      settings.setStallMs((int) stallMs);
+      settings.setPaperEnd(paperEnd);
+      settings.setAnswerStatus(answerStatus);
+      settings.setOutputDir(new File(getReactApplicationContext().getCacheDir(), "rntp-emulator").getPath());
+
+      PrinterEmulator emulator = new PrinterEmulator(settings);
+
+      emulator.start();
+
+      this.emulator = emulator;
+
+      promise.resolve(emulator.getPort());
+
+    } catch (Exception e) {
+
+      promise.reject("Emulator Error", e.getMessage());
     }
   }
 
+  // Stops the emulator and resolves with what it received
+  @ReactMethod
+  public void stopEmulator(Promise promise) {
+    PrinterEmulator emulator = this.emulator;
+
+    if (emulator == null) {
+      promise.reject("Emulator Error", "Emulator is not running");
+      return;
+    }
+
+    this.stopEmulatorIfRunning();
+
+    WritableMap result = new WritableNativeMap();
+
+    result.putDouble("bytesReceived", emulator.getBytesReceived());
+    result.putDouble("connections", emulator.getConnectionCount());
+    result.putDouble("stalledMs", emulator.getStalledNanos() / 1_000_000.0);
+
+    WritableArray pages = new WritableNativeArray();
+    for (String page : emulator.getPages()) {
+      pages.pushString(page);
+    }
+    result.putArray("pages", pages);
+
+    WritableMap commands = new WritableNativeMap();
+    for (Map.Entry<String, PrinterEmulator.CommandStats> e : emulator.getCommandStats().entrySet()) {
+      WritableMap c = new WritableNativeMap();
+      c.putDouble("count", e.getValue().count);
+      c.putDouble("bytes", e.getValue().bytes);
+      c.putDouble("ms", e.getValue().nanos / 1_000_000.0);
+      commands.putMap(e.getKey(), c);
+    }
+    result.putMap("commands", commands);
+
+    promise.resolve(result);
+  }
+
+  // ----------------------------------------------------------
+  // BENCHMARK: sweep settings against a printer or the emulator
+  // ----------------------------------------------------------
+
+  // connectionMode "EMULATOR" prints to a local emulator throttled to
+  // emulatorBytesPerSecond (0 = unlimited). Empty arrays keep the defaults.
+  // Resolves with one entry per configuration, fastest first.
+  @ReactMethod
+  public void runBenchmark(
+      String connectionMode,
+      String ipAddress,
+      double port,
+      String macAddress,
+      String base64Image,
+      double printerDpi,
+      double printerWidthMM,
+      ReadableArray printModes,
+      ReadableArray pacingModes,
+      ReadableArray chunkHeights,
+      ReadableArray packetSizes,
+      ReadableArray packetMicroDelaysMs,
+      ReadableArray useQueueForWrites,
+      double iterations,
+      double emulatorBytesPerSecond,
+      Promise promise) {
+
+    try {
+      final boolean useEmulator = "EMULATOR".equals(connectionMode);
+
+      final PrinterSettings settings = this.buildImageSettings(
+          useEmulator ? "TCP" : connectionMode,
+          useEmulator ? "127.0.0.1" : ipAddress,
+          port,
+          macAddress,
+          0,
+          printerDpi,
+          printerWidthMM,
+          42);
+
+      final Bitmap bitmap = ImageProcessing.fromBase64(base64Image);
+
+      if (bitmap == null) {
+        promise.reject("Benchmark Error", "Failed to decode Base64 image");
+        return;
+      }
+
+      final PrintBenchmark benchmark = new PrintBenchmark(settings, bitmap);
+
+      if (printModes.size() > 0) {
+        ArrayList<PrinterSettings.PrintMode> modes = new ArrayList<>();
+        for (int i = 0; i < printModes.size(); i++) {
+          modes.add(PrinterSettings.PrintMode.valueOf(printModes.getString(i)));
+        }
+        benchmark.setPrintModes(modes);
+      }
+
+      if (pacingModes.size() > 0) {
+        ArrayList<PrinterSettings.PacingMode> modes = new ArrayList<>();
+        for (int i = 0; i < pacingModes.size(); i++) {
+          modes.add(PrinterSettings.PacingMode.valueOf(pacingModes.getString(i)));
+        }
+        benchmark.setPacingModes(modes);
+      }
+
+      if (chunkHeights.size() > 0) {
+        benchmark.setChunkHeights(toIntList(chunkHeights));
+      }
+
+      if (packetSizes.size() > 0) {
+        benchmark.setPacketSizes(toIntList(packetSizes));
+      }
+
+      if (packetMicroDelaysMs.size() > 0) {
+        benchmark.setPacketMicroDelaysMs(toIntList(packetMicroDelaysMs));
+      }
+
+      if (useQueueForWrites.size() > 0) {
+        ArrayList<Boolean> values = new ArrayList<>();
+        for (int i = 0; i < useQueueForWrites.size(); i++) {
+          values.add(useQueueForWrites.getBoolean(i));
+        }
+        benchmark.setUseQueueForWrites(values);
+      }
+
+      benchmark.setIterations((int) iterations);
+
+      if (useEmulator) {
+        EmulatorSettings emulatorSettings = new EmulatorSettings();
+        emulatorSettings.setDotsPerLine(settings.getPrinterWidthPx());
+        emulatorSettings.setBytesPerSecond((int) emulatorBytesPerSecond);
+        benchmark.useEmulator(emulatorSettings);
+      }
+
+      // On the printer's lane, so real jobs are not interleaved with it
+      this.jobScheduler.submit(
+          useEmulator ? "emulator" : settings.getPrinterKey(),
+          0,
+          job -> {
+            if (!useEmulator) {
+              // Runs open their own connections (a BT printer takes one)
+              this.connectionPool.evict(settings.getPrinterKey());
+            }
+
+            promise.resolve(toWritableArray(benchmark.run(job)));
+          },
+          (job, error) -> {
+            if (error != null) {
+              promise.reject("Benchmark Error", error.getMessage(), error);
+            }
+          });
+
+    } catch (Exception e) {
+
+      promise.reject("Benchmark Error", e.getMessage(), e);
+    }
+  }
+
+  private static List<Integer> toIntList(ReadableArray array) {
+    ArrayList<Integer> list = new ArrayList<>();
+    for (int i = 0; i < array.size(); i++) {
+      list.add((int) array.getDouble(i));
+    }
+    return list;
+  }
+
+  private static WritableArray toWritableArray(List<BenchmarkResult> results) {
+    WritableArray array = new WritableNativeArray();
+
+    for (BenchmarkResult r : results) {
+      WritableMap m = new WritableNativeMap();
+
+      m.putString("printMode", r.printMode.name());
+      m.putString("pacingMode", r.pacingMode.name());
+      m.putInt("chunkHeight", r.chunkHeight);
+      m.putInt("packetSize", r.packetSize);
+      m.putInt("packetMicroDelayMs", r.packetMicroDelayMs);
+      m.putBoolean("useQueueForWrites", r.useQueueForWrites);
+      m.putInt("runs", r.runs);
+      m.putDouble("connectMs", r.connectNanos / 1_000_000.0);
+      m.putDouble("ttfbMs", r.ttfbNanos / 1_000_000.0);
+      m.putDouble("totalMs", r.totalNanos / 1_000_000.0);
+      m.putDouble("closeMs", r.closeNanos / 1_000_000.0);
+      m.putDouble("bytes", r.bytes);
+      m.putDouble("bytesPerSecond", r.getBytesPerSecond());
+      m.putDouble("stalls", r.stalls);
+      m.putDouble("threadCpuMs", r.threadCpuNanos / 1_000_000.0);
+      m.putDouble("processCpuMs", r.processCpuNanos / 1_000_000.0);
+
+      if (r.error != null) {
+        m.putString("error", r.error);
+      }
+
+      array.pushMap(m);
+    }
+
+    return array;
+  }
+
+  // ----------------------------------------------------------
+  // PROFILES: per-printer settings found by calibration / probing
+  // ----------------------------------------------------------
+
+  // Prints test payloads (base64Image, or a generated pattern if empty) with
+  // increasingly aggressive settings, saves the fastest safe profile for the
+  // printer and resolves with it. Later jobs to the printer use it.
+  @ReactMethod
+  public void calibratePrinter(
+      String connectionMode,
+      String ipAddress,
+      double port,
+      String macAddress,
+      double timeoutMs,
+      String base64Image,
+      double printerDpi,
+      double printerWidthMM,
+      Promise promise) {
+
+    try {
+      final PrinterSettings settings = this.buildImageSettings(
+          connectionMode,
+          ipAddress,
+          port,
+          macAddress,
+          timeoutMs,
+          printerDpi,
+          printerWidthMM,
+          42);
+
+      final String key = settings.getPrinterKey();
+
+      // On the printer's lane, so real jobs are not interleaved with it
+      this.jobScheduler.submit(
+          key,
+          0,
+          job -> {
+            PackedBitmap payload = TextUtils.isEmpty(base64Image)
+                ? null
+                : prepareImage(base64Image, settings, PrinterMetrics.NONE, job.getMemoryMeter());
+
+            // Probes open their own connections (a BT printer takes one)
+            this.connectionPool.evict(key);
+
+            PrinterCalibrator calibrator = new PrinterCalibrator(settings, payload);
+
+            calibrator.setJob(job);
+
+            PrinterProfile profile = calibrator.calibrate();
+
+            this.profiles.put(key, profile);
+
+            WritableMap result = toWritableMap(profile);
+            result.putInt("probes", calibrator.getProbeCount());
+
+            promise.resolve(result);
+          },
+          (job, error) -> {
+            if (error != null) {
+              promise.reject("Calibration Error", error.getMessage(), error);
+            }
+          });
+
+    } catch (Exception e) {
+
+      promise.reject("Calibration Error", e.getMessage(), e);
+    }
+  }
+
+  // Resolves with { [printerKey]: profile }
+  @ReactMethod
+  public void getPrinterProfiles(Promise promise) {
+    WritableMap result = new WritableNativeMap();
+
+    for (Map.Entry<String, PrinterProfile> e : this.profiles.getAll().entrySet()) {
+      result.putMap(e.getKey(), toWritableMap(e.getValue()));
+    }
+
+    promise.resolve(result);
+  }
+
+  // Back to the default settings; resolves with whether a profile existed
+  @ReactMethod
+  public void clearPrinterProfile(String printerKey, Promise promise) {
+    try {
+      final boolean removed = this.profiles.remove(printerKey);
+
+      // Warm connection was opened with the profile's packet size / pacing
+      this.connectionPool.evict(printerKey);
+
+      promise.resolve(removed);
+
+    } catch (IOException e) {
+
+      promise.reject("Profile Error", e.getMessage(), e);
+    }
+  }
+
+  // Resolves with { [printerKey]: capabilities } of the printers printed to
+  // so far
+  @ReactMethod
+  public void getPrinterCapabilities(Promise promise) {
+    WritableMap result = new WritableNativeMap();
+
+    for (Map.Entry<String, PrinterCapabilities> e : this.capabilities.entrySet()) {
+      PrinterCapabilities c = e.getValue();
+
+      WritableMap m = new WritableNativeMap();
+
+      m.putBoolean("statusBack", c.statusBack);
+      m.putBoolean("drainMarkerMissed", c.hasMissedDrainMarker());
+      m.putBoolean("identified", c.identified);
+      m.putString("maker", c.maker);
+      m.putString("model", c.model);
+      m.putString("firmware", c.firmware);
+      m.putBoolean("autoCutter", c.autoCutter);
+      m.putBoolean("graphics", c.graphics);
+      m.putBoolean("nvGraphics", c.nvGraphics);
+      m.putString("printMode", c.printMode != null ? c.printMode.name() : null);
+      m.putInt("maxChunkHeight", c.maxChunkHeight);
+
+      result.putMap(e.getKey(), m);
+    }
+
+    promise.resolve(result);
+  }
+
+  private static WritableMap toWritableMap(PrinterProfile p) {
+    WritableMap m = new WritableNativeMap();
+
+    m.putString("printMode", p.printMode.name());
+    m.putString("pacingMode", p.pacingMode.name());
+    m.putInt("chunkHeight", p.chunkHeight);
+    m.putInt("packetSize", p.packetSize);
+    m.putInt("packetMicroDelayMs", p.packetMicroDelayMs);
+    m.putBoolean("useQueueForWrites", p.useQueueForWrites);
+    m.putDouble("bytesPerSecond", p.bytesPerSecond);
+    m.putDouble("calibratedAt", p.calibratedAtMillis);
+
+    return m;
+  }
+
+  // ----------------------------------------------------------
+  // SPOOL: encoded image jobs kept on disk
+  // ----------------------------------------------------------
+
+  // Peak bytes an image may take while prepared; over it, images are
+  // prepared in bands (0 = a quarter of the heap limit)
+  @ReactMethod
+  public void configureMemoryBudget(double bytes, Promise promise) {
+    this.memoryBudgetBytes = (long) bytes;
+    promise.resolve(true);
+  }
+
+  // Printed jobs kept for reprints (0 = stop spooling); unprinted ones are
+  // kept until replayed or deleted
+  @ReactMethod
+  public void configureSpool(double maxJobs, Promise promise) {
+    this.spool.setMaxJobs((int) maxJobs);
+    promise.resolve(true);
+  }
+
+  // Oldest first; printed = false for jobs cut off by an error or app death
+  @ReactMethod
+  public void getSpooledJobs(Promise promise) {
+    WritableArray result = new WritableNativeArray();
+
+    for (SpooledJob j : this.spool.list()) {
+      WritableMap m = new WritableNativeMap();
+
+      m.putString("spoolId", j.spoolId);
+      m.putString("printerKey", j.printerKey);
+      m.putDouble("createdAt", j.createdMillis);
+      m.putBoolean("printed", j.isPrinted());
+      m.putInt("bands", j.getBandCount());
+      m.putInt("ackedBands", j.getAckedBands());
+      m.putDouble("bytes", j.getByteCount());
+
+      result.pushMap(m);
+    }
+
+    promise.resolve(result);
+  }
+
+  // Sends a spooled job again, on its printer's lane: all of it, or with
+  // resume only the bands the last transfer did not get through. Resolves
+  // with whether it printed.
+  @ReactMethod
+  public void replaySpooledJob(String spoolId, boolean resume, Promise promise) {
+    try {
+      final SpooledJob spooled = this.spool.open(spoolId);
+
+      if (spooled == null) {
+        promise.reject("Spool Error", "No spooled job " + spoolId);
+        return;
+      }
+
+      final PrinterSettings settings = this.settingsForPrinterKey(spooled.printerKey);
+
+      final int fromBand = resume ? spooled.getAckedBands() : 0;
+
+      this.jobScheduler.submit(
+          spooled.printerKey,
+          0,
+          job -> {
+            final boolean printed = this.runPrinterJob(job, settings, false, true, (conn, m) -> {
+              EscPosImagePrinter printer = new EscPosImagePrinter(settings, conn);
+
+              printer.setJob(job);
+
+              printer.setMetrics(m);
+
+              return printer.printSpooled(spooled, fromBand);
+            });
+
+            if (printed && !spooled.isPrinted()) {
+              this.spool.markPrinted(spooled);
+            }
+
+            promise.resolve(printed);
+          },
+          (job, error) -> {
+            if (error != null) {
+              promise.reject("Spool Error", error.getMessage(), error);
+            }
+          });
+
+    } catch (Exception e) {
+
+      promise.reject("Spool Error", e.getMessage(), e);
+    }
+  }
+
+  @ReactMethod
+  public void deleteSpooledJob(String spoolId, Promise promise) {
+    promise.resolve(this.spool.delete(spoolId));
+  }
+
+  // Transport settings for a printer key ("tcp:ip:port" / "bt:MAC"). The
+  // image geometry is irrelevant: spooled bytes are already encoded.
+  private PrinterSettings settingsForPrinterKey(String key) throws Exception {
+    if (key.startsWith("bt:")) {
+      return this.buildImageSettings("BLUETOOTH", null, 0, key.substring(3), 0, 203, 80, 42);
+    }
+
+    final int colon = key.lastIndexOf(':');
+
+    if (!key.startsWith("tcp:") || colon <= 4) {
+      throw new Exception("Unknown printer key " + key);
+    }
+
+    return this.buildImageSettings("TCP", key.substring(4, colon), Integer.parseInt(key.substring(colon + 1)), null,
+        0, 203, 80, 42);
+  }
+
+  private synchronized void stopEmulatorIfRunning() {
+    if (this.emulator != null) {
+      this.emulator.stop();
+      this.emulator = null;
+    }
+  }
+
+  private void emitJobFinished(PrintJob job, Throwable error) {
+    WritableMap event = new WritableNativeMap();
+
+    event.putString("jobId", job.getId());
+    event.putString("printerKey", job.getPrinterKey());
+    event.putBoolean("success", error == null);
+    event.putBoolean("cancelled", job.getState() == PrintJob.State.CANCELLED);
+    event.putDouble("bytesQueued", job.getBytesQueued());
+    event.putDouble("bytesDelivered", job.getBytesDelivered());
+    event.putInt("reconnects", job.getReconnects());
+    event.putDouble("peakMemoryBytes", job.getMemoryMeter().getPeakBytes());
+    event.putDouble("bytesPerSecond", job.getBytesPerSecond());
+    event.putDouble("pacingSleepMs", job.getPacingSleepNanos() / 1_000_000.0);
+
+    if (error != null) {
+      event.putString("error", error.getMessage());
+    }
+
+    this.emit(EVENT_JOB_FINISHED, event);
+  }
+
+  private void emit(String eventName, Object data) {
+    ReactApplicationContext context = getReactApplicationContext();
+
+    if (context == null || !context.hasActiveReactInstance()) {
+      return;
+    }
+
+    context
+        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+        .emit(eventName, data);
+  }
+
+  // Settings for the image pipeline (also checks Bluetooth permissions, which
+  // needs the activity: done on the calling thread, before scheduling)
+  private PrinterSettings buildImageSettings(
+      String connectionMode,
+      String ipAddress,
+      double port,
+      String macAddress,
+      double timeoutMs,
+      double printerDpi,
+      double printerWidthMM,
+      double printerNbrCharactersPerLine) throws Exception {
+
+    PrinterSettings settings = null;
+
+    if ("TCP".equals(connectionMode)) {
+
+      settings = new PrinterSettings(ipAddress, (int) port);
+
+    } else if ("BLUETOOTH".equals(connectionMode)) {
+
+      settings = new PrinterSettings(macAddress);
+
+    } else {
+
+      throw new Exception("Invalid connection mode");
+    }
+
+    if (timeoutMs > 0) {
+      settings.setTimeoutMs((int) timeoutMs);
+    }
+
+    settings.setPrinterDpi((int) printerDpi);
+    settings.setPrinterWidthMm((int) printerWidthMM);
+    settings.setPrinterCharPerLine((int) printerNbrCharactersPerLine);
+
+    settings.setPrintMode(PrinterSettings.PrintMode.RASTER_GSV0);
+    settings.setDitherMode(PrinterSettings.DitherMode.AUTO);
+
+    settings.setChunkHeight(256);
+
+    settings.setPacketSize(1024);
+
+    settings.setPacketMicroDelayMs(2);
+
+    settings.setUseQueueForWrites(true);
+
+    settings.setPacingMode(PrinterSettings.PacingMode.ADAPTIVE);
+
+    settings.setUseStatusReadBack(true);
+
+    settings.setMemoryBudgetBytes(this.memoryBudgetBytes);
+
+    // Calibrated printer: its own packet size / pacing / print mode
+    PrinterProfile profile = this.profiles.get(settings.getPrinterKey());
+
+    if (profile != null) {
+      profile.applyTo(settings);
+    }
+
+    if ("BLUETOOTH".equals(connectionMode)) {
+
+      BluetoothConnectionManager connectionManager = new BluetoothConnectionManager(
+          getCurrentActivity(),
+          settings.getMacAddress());
+
+      if (!connectionManager.hasBluetoothPermissions()) {
+
+        connectionManager.requestBluetoothPermissions();
+
+        throw new Exception("Bluetooth permissions not granted");
+      }
+    }
+
+    return settings;
+  }
+
+  // Runs on a scheduler worker. The image is decoded and dithered on the
+  // PreparePool while the connection is set up, so time to paper is
+  // max(connect, prepare) instead of their sum.
+  private boolean runImageJob(PrintJob job, PrinterSettings settings, String base64Image, boolean autoCut,
+      boolean openCashBox) throws Exception {
+
+    final PrinterMetrics m = this.metrics.forPrinter(settings.getPrinterKey());
+
+    final Future<PackedBitmap> prepared = PreparePool.get()
+        .submit(() -> prepareImage(base64Image, settings, m, job.getMemoryMeter()));
+
+    try {
+      return this.runPrinterJob(job, settings, true, true, (conn, jobMetrics) -> {
+        PackedBitmap image = awaitPrepared(job, prepared);
+
+        EscPosImagePrinter printer = new EscPosImagePrinter(settings, conn);
+
+        printer.setJob(job);
+
+        printer.setMetrics(jobMetrics);
+
+        return printer.printPrepared(image, autoCut, openCashBox, 4);
+      });
+
+    } finally {
+
+      // Connect failed / job cancelled: stop the CPU work early
+      prepared.cancel(true);
+    }
+  }
+
+  // Images are prepared once, so a resumed attempt re-sends identical bands
+  private boolean runSegmentsJob(PrintJob job, PrinterSettings settings, List<Segment> segments,
+      boolean openCashBox) throws Exception {
+
+    final PrinterMetrics m = this.metrics.forPrinter(settings.getPrinterKey());
+
+    final Future<List<Segment>> prepared = PreparePool.get()
+        .submit(() -> ImageProcessing.prepareSegments(segments, settings, m, job.getMemoryMeter()));
+
+    try {
+      return this.runPrinterJob(job, settings, true, true, (conn, jobMetrics) -> {
+        List<Segment> ready = awaitPrepared(job, prepared);
+
+        EscPosImagePrinter printer = new EscPosImagePrinter(settings, conn);
+
+        printer.setJob(job);
+
+        printer.setMetrics(jobMetrics);
+
+        return printer.printSegments(ready, openCashBox);
+      });
+
+    } finally {
+
+      prepared.cancel(true);
+    }
+  }
+
+  // Planned from the image header to fit the memory budget
+  private static PackedBitmap prepareImage(String base64Image, PrinterSettings settings, PrinterMetrics m,
+      MemoryMeter meter) throws Exception {
+
+    return ImageProcessing.preparePacked(base64Image, settings, m, meter);
+  }
+
+  // Waits for the prepared image(s), still honouring cancel / deadline
+  private static <T> T awaitPrepared(PrintJob job, Future<T> prepared) throws Exception {
+    while (true) {
+      job.checkpoint();
+
+      try {
+        return prepared.get(PREPARE_POLL_MS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // check for cancellation again
+      } catch (ExecutionException e) {
+        throw new PrintInputException("Preparing image failed: " + e.getCause().getMessage(), e.getCause());
+      }
+    }
+  }
+
+  // Cached per printer; probed once on its first connection
+  private PrinterCapabilities capabilitiesFor(PrinterSettings settings, FastDeviceConnection conn) {
+    final String key = settings.getPrinterKey();
+
+    PrinterCapabilities caps = this.capabilities.get(key);
+
+    if (caps != null || !settings.getUseStatusReadBack()) {
+      return caps != null ? caps : PrinterCapabilities.UNKNOWN;
+    }
+
+    try {
+      caps = conn.queryCapabilities(CAPABILITY_PROBE_TIMEOUT_MS);
+    } catch (IOException e) {
+      Log.w(TAG, "Capability probe failed: " + e.getMessage());
+      return PrinterCapabilities.UNKNOWN; // not cached: retried on the next connection
+    }
+
+    Log.i(TAG, key + ": " + caps);
+
+    this.capabilities.put(key, caps);
+
+    return caps;
+  }
+
+  // Work done on a pooled connection; returns whether the job succeeded
+  private interface ConnectionWork {
+    boolean run(FastDeviceConnection conn, PrinterMetrics m) throws Exception;
+  }
+
+  // Acquires a pooled connection for job, runs work on it and records the
+  // job's metrics. Failed jobs close the connection instead of pooling it.
+  // With spool, the bytes sent are recorded for reprint / resume. With
+  // resume, a link that drops mid-job is reconnected (growing delays) and
+  // work runs again, skipping the bands the printer confirmed; work must
+  // then write the same bands every time.
+  private boolean runPrinterJob(PrintJob job, PrinterSettings settings, boolean spool, boolean resume,
+      ConnectionWork work) throws Exception {
+
+    final PrinterMetrics m = this.metrics.forPrinter(settings.getPrinterKey());
+
+    boolean succeeded = false;
+
+    JobTrace.complete("queued", job.getSubmittedNanos(), System.nanoTime(), job.getId(), 0);
+
+    try {
+      int resumeBand = 0;
+      long backoffMs = RESUME_BACKOFF_MS;
+
+      for (int attempt = 0;; attempt++) {
+
+        FastDeviceConnection conn = null;
+        SpoolRecorder recorder = null;
+
+        boolean reusable = false;
+        boolean retry = false;
+
+        try {
+          job.checkpoint();
+
+          // Warm connection from the pool, or a new one
+          conn = this.connectionPool.acquire(settings);
+
+          conn.resetDelivery();
+          conn.resetPacingStats(); // not the previous job's, if this one fails early
+          conn.resumeFromBand(resumeBand);
+
+          if (conn.getCapabilities() == null) {
+            conn.setCapabilities(this.capabilitiesFor(settings, conn));
+          }
+
+          if (resume && settings.getUseStatusReadBack()) {
+            conn.setBandConfirmation(FastDeviceConnection.DEFAULT_CONFIRM_BANDS, settings.getTimeoutMs());
+          }
+
+          if (spool) {
+            recorder = this.spool.begin(job.getId(), settings.getPrinterKey(), conn);
+            conn.setRecorder(recorder);
+          }
+
+          // Cancel / deadline on a stuck write: close the socket under it
+          job.setAbortHandler(conn::abort);
+
+          boolean status = work.run(conn, m);
+
+          reusable = status;
+          succeeded = status;
+
+          return status;
+
+        } catch (PrinterWriteException e) {
+
+          if (!resume || attempt == RESUME_ATTEMPTS || job.isCancelled()) {
+            throw e;
+          }
+
+          // Bands the transport took may have died in the socket buffers with
+          // the link: resume after the last one the printer confirmed, which
+          // without status read-back is none (the job starts over)
+          resumeBand = Math.max(resumeBand, e.getBandsConfirmed());
+          retry = true;
+
+          Log.w(TAG, job.getId() + ": " + e.getMessage() + "; resuming at band " + resumeBand);
+
+        } catch (PrintJobCancelledException e) {
+
+          // Cancelled at a band boundary: the printer was reset, keep the socket
+          reusable = conn != null && !conn.isClosed();
+
+          throw e;
+
+        } catch (PrintInputException e) {
+
+          // Bad image: nothing was written, the printer is fine
+          reusable = conn != null && !conn.isClosed();
+
+          throw e;
+
+        } catch (Exception e) {
+
+          // Reconnecting after a dropped link: the printer may need a moment
+          if (conn != null || attempt == 0 || attempt == RESUME_ATTEMPTS || job.isCancelled()) {
+            throw e;
+          }
+
+          retry = true;
+
+          Log.w(TAG, job.getId() + ": reconnect failed: " + e.getMessage());
+
+        } finally {
+
+          job.setAbortHandler(null);
+
+          if (recorder != null) {
+            conn.setRecorder(null);
+            recorder.close(succeeded);
+
+            if (retry) {
+              this.spool.delete(recorder.getSpoolId()); // the next attempt records the whole job
+            }
+          }
+
+          if (conn != null) {
+            job.addBytes(conn.getBytesQueued(), conn.getBytesDelivered());
+            job.addPacing(conn.getPacingStats());
+          }
+
+          // Back to the pool; closed instead if the job failed
+          this.connectionPool.release(conn, reusable);
+        }
+
+        pause(job, backoffMs);
+
+        backoffMs = Math.min(backoffMs * 2, RESUME_BACKOFF_MAX_MS);
+
+        m.incrementRetries();
+        job.addReconnect();
+      }
+
+    } finally {
+
+      // Submit to done, as the caller sees it
+      final long now = System.nanoTime();
+
+      m.record(Stage.JOB, now - job.getSubmittedNanos());
+      m.recordJob(succeeded);
+
+      JobTrace.complete(Stage.JOB.key, job.getSubmittedNanos(), now, job.getId(), succeeded ? 1 : 0);
+    }
+  }
+
+  // Sleeps ms, still honouring cancel / deadline
+  private static void pause(PrintJob job, long ms) throws Exception {
+    final long end = System.currentTimeMillis() + ms;
+
+    long left;
+
+    while ((left = end - System.currentTimeMillis()) > 0) {
+      job.checkpoint();
+      Thread.sleep(Math.min(left, PREPARE_POLL_MS));
+    }
+
+    job.checkpoint();
+  }
+
 }
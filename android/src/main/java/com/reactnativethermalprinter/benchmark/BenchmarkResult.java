@@ -0,0 +1,80 @@
+package com.reactnativethermalprinter.benchmark;
+
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+/**
+ * One benchmarked configuration: the median of its runs.
+ */
+public class BenchmarkResult {
+
+  public final PrinterSettings.PrintMode printMode;
+  public final PrinterSettings.PacingMode pacingMode;
+  public final int chunkHeight;
+  public final int packetSize;
+  public final int packetMicroDelayMs;
+  public final boolean useQueueForWrites;
+
+  public final int runs; // successful runs
+  public final String error; // last failure, null if every run succeeded
+
+  public final long connectNanos; // connect()
+  public final long ttfbNanos; // job start (incl. connect) -> first packet on the wire
+  public final long totalNanos; // job start -> printer drained (excl. close)
+  public final long closeNanos; // close() (flush padding / drain delays)
+
+  public final long bytes; // on the wire
+  public final long stalls; // pacer back-offs
+
+  public final long threadCpuNanos; // encoding thread
+  public final long processCpuNanos; // whole process (writer threads, emulator)
+
+  public BenchmarkResult(PrinterSettings settings, int runs, String error, long connectNanos, long ttfbNanos,
+      long totalNanos, long closeNanos, long bytes, long stalls, long threadCpuNanos, long processCpuNanos) {
+    this.printMode = settings.getPrintMode();
+    this.pacingMode = settings.getPacingMode();
+    this.chunkHeight = settings.getChunkHeight();
+    this.packetSize = settings.getPacketSize();
+    this.packetMicroDelayMs = settings.getPacketMicroDelayMs();
+    this.useQueueForWrites = settings.getUseQueueForWrites();
+    this.runs = runs;
+    this.error = error;
+    this.connectNanos = connectNanos;
+    this.ttfbNanos = ttfbNanos;
+    this.totalNanos = totalNanos;
+    this.closeNanos = closeNanos;
+    this.bytes = bytes;
+    this.stalls = stalls;
+    this.threadCpuNanos = threadCpuNanos;
+    this.processCpuNanos = processCpuNanos;
+  }
+
+  public boolean isSuccess() {
+    return this.runs > 0;
+  }
+
+  public long getBytesPerSecond() {
+    if (this.totalNanos <= 0) {
+      return 0;
+    }
+    return this.bytes * 1_000_000_000L / this.totalNanos;
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "BenchmarkResult {" +
+        " printMode: " + this.printMode +
+        ", pacingMode: " + this.pacingMode +
+        ", chunkHeight: " + this.chunkHeight +
+        ", packetSize: " + this.packetSize +
+        ", packetMicroDelayMs: " + this.packetMicroDelayMs +
+        ", useQueueForWrites: " + this.useQueueForWrites +
+        ", runs: " + this.runs +
+        ", ttfbMs: " + (this.ttfbNanos / 1_000_000) +
+        ", totalMs: " + (this.totalNanos / 1_000_000) +
+        ", bytes: " + this.bytes +
+        ", cpuMs: " + (this.threadCpuNanos / 1_000_000) +
+        (this.error != null ? ", error: " + this.error : "") +
+        " }";
+  }
+}
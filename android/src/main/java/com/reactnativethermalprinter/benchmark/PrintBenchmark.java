@@ -0,0 +1,313 @@
+package com.reactnativethermalprinter.benchmark;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+import android.os.Process;
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.ConnectionPool;
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.connection.PacingStats;
+import com.reactnativethermalprinter.core.EscPosImagePrinter;
+import com.reactnativethermalprinter.emulator.EmulatorSettings;
+import com.reactnativethermalprinter.emulator.PrinterEmulator;
+import com.reactnativethermalprinter.jobs.PrintJob;
+import com.reactnativethermalprinter.jobs.PrintJobCancelledException;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sweeps the transport / encoding knobs of PrinterSettings over one image
+ * and measures each combination end to end: connect, time to first byte,
+ * total job time, bytes on the wire and CPU time.
+ *
+ * The target is a real printer (TCP or Bluetooth) or, with useEmulator(),
+ * a PrinterEmulator started for the run. Every configuration gets one
+ * warm-up run and then `iterations` measured runs on a fresh connection;
+ * the report holds the median of each metric.
+ *
+ * Knobs that cannot matter for a configuration are not swept: chunkHeight
+ * only for RASTER_GSV0_CHUNKED, packetMicroDelayMs only for FIXED pacing
+ * (ADAPTIVE starts from the first value).
+ */
+public class PrintBenchmark {
+
+  private static final String TAG = "RNTP.PrintBenchmark";
+
+  private final PrinterSettings target;
+  private final Bitmap image;
+
+  private List<PrinterSettings.PrintMode> printModes = Arrays.asList(PrinterSettings.PrintMode.values());
+  private List<PrinterSettings.PacingMode> pacingModes = Arrays.asList(PrinterSettings.PacingMode.values());
+  private List<Integer> chunkHeights = Arrays.asList(128, 256, 512);
+  private List<Integer> packetSizes = Arrays.asList(256, 1024, 4096);
+  private List<Integer> packetMicroDelaysMs = Arrays.asList(0, 2, 5);
+  private List<Boolean> useQueueForWrites = Arrays.asList(true, false);
+
+  private int iterations = 3;
+
+  // Non-null: print to a local emulator instead of target's address
+  private EmulatorSettings emulatorSettings = null;
+
+  public PrintBenchmark(PrinterSettings target, Bitmap image) {
+    this.target = target;
+    this.image = image;
+  }
+
+  public void setPrintModes(List<PrinterSettings.PrintMode> modes) {
+    this.printModes = modes;
+  }
+
+  public void setPacingModes(List<PrinterSettings.PacingMode> modes) {
+    this.pacingModes = modes;
+  }
+
+  public void setChunkHeights(List<Integer> heights) {
+    this.chunkHeights = heights;
+  }
+
+  public void setPacketSizes(List<Integer> sizes) {
+    this.packetSizes = sizes;
+  }
+
+  public void setPacketMicroDelaysMs(List<Integer> delays) {
+    this.packetMicroDelaysMs = delays;
+  }
+
+  public void setUseQueueForWrites(List<Boolean> values) {
+    this.useQueueForWrites = values;
+  }
+
+  public void setIterations(int iterations) {
+    this.iterations = Math.max(1, iterations);
+  }
+
+  public void useEmulator(EmulatorSettings settings) {
+    this.emulatorSettings = settings;
+  }
+
+  // ----------------------------------------------------------
+  // RUN: results sorted fastest first. job (optional) allows
+  // cancelling between runs.
+  // ----------------------------------------------------------
+  public List<BenchmarkResult> run(PrintJob job) throws Exception {
+    final long start = System.nanoTime();
+
+    PrinterEmulator emulator = null;
+
+    if (this.emulatorSettings != null) {
+      emulator = new PrinterEmulator(this.emulatorSettings);
+      emulator.start();
+    }
+
+    ArrayList<BenchmarkResult> results = new ArrayList<>();
+
+    try {
+      List<PrinterSettings> configs = buildConfigurations(emulator);
+
+      Log.i(TAG, "Benchmarking " + configs.size() + " configurations x " + this.iterations + " runs");
+
+      for (PrinterSettings config : configs) {
+        results.add(measure(config, job));
+      }
+
+    } finally {
+
+      if (emulator != null) {
+        emulator.stop();
+      }
+    }
+
+    Collections.sort(results, (a, b) -> {
+      if (a.isSuccess() != b.isSuccess()) {
+        return a.isSuccess() ? -1 : 1;
+      }
+      return Long.compare(a.totalNanos, b.totalNanos);
+    });
+
+    Log.i(TAG, "Benchmark took " + ((System.nanoTime() - start) / 1_000_000) + " ms\n" + formatReport(results));
+
+    return results;
+  }
+
+  // Fixed-width comparison table, one row per configuration
+  public static String formatReport(List<BenchmarkResult> results) {
+    StringBuilder sb = new StringBuilder();
+
+    sb.append(String.format(Locale.US, "%-22s %-8s %6s %6s %5s %5s %4s %8s %8s %8s %9s %8s %7s%n",
+        "printMode", "pacing", "chunk", "packet", "delay", "queue", "runs",
+        "connect", "ttfb", "total", "bytes", "B/s", "cpu"));
+
+    for (BenchmarkResult r : results) {
+      sb.append(String.format(Locale.US, "%-22s %-8s %6d %6d %5d %5s %4d %8d %8d %8d %9d %8d %7d%s%n",
+          r.printMode, r.pacingMode, r.chunkHeight, r.packetSize, r.packetMicroDelayMs, r.useQueueForWrites,
+          r.runs, r.connectNanos / 1_000_000, r.ttfbNanos / 1_000_000, r.totalNanos / 1_000_000, r.bytes,
+          r.getBytesPerSecond(), r.threadCpuNanos / 1_000_000,
+          r.error != null ? "  " + r.error : ""));
+    }
+
+    return sb.toString();
+  }
+
+  // ----------------------------------------------------------
+  // CONFIGURATIONS
+  // ----------------------------------------------------------
+  private List<PrinterSettings> buildConfigurations(PrinterEmulator emulator) {
+    ArrayList<PrinterSettings> configs = new ArrayList<>();
+
+    for (PrinterSettings.PrintMode mode : this.printModes) {
+
+      List<Integer> heights = mode == PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED
+          ? this.chunkHeights
+          : Collections.singletonList(this.target.getChunkHeight());
+
+      for (PrinterSettings.PacingMode pacing : this.pacingModes) {
+
+        List<Integer> delays = pacing == PrinterSettings.PacingMode.FIXED
+            ? this.packetMicroDelaysMs
+            : this.packetMicroDelaysMs.subList(0, Math.min(1, this.packetMicroDelaysMs.size()));
+
+        for (int height : heights) {
+          for (int packetSize : this.packetSizes) {
+            for (int delay : delays) {
+              for (boolean useQueue : this.useQueueForWrites) {
+
+                PrinterSettings s = copyTarget(emulator);
+
+                s.setPrintMode(mode);
+                s.setPacingMode(pacing);
+                s.setChunkHeight(height);
+                s.setPacketSize(packetSize);
+                s.setPacketMicroDelayMs(delay);
+                s.setUseQueueForWrites(useQueue);
+
+                configs.add(s);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    return configs;
+  }
+
+  private PrinterSettings copyTarget(PrinterEmulator emulator) {
+    PrinterSettings s = emulator != null
+        ? new PrinterSettings("127.0.0.1", emulator.getPort())
+        : this.target.getMacAddress() != null
+            ? new PrinterSettings(this.target.getMacAddress())
+            : new PrinterSettings(this.target.getIpAddress(), this.target.getIpPort());
+
+    s.setTimeoutMs(this.target.getTimeoutMs());
+    s.setPrinterDpi(this.target.getPrinterDpi());
+    s.setPrinterWidthMm(this.target.getPrinterWidthMm());
+    s.setPrinterCharPerLine(this.target.getPrinterCharPerLine());
+    s.setDitherMode(this.target.getDitherMode());
+    s.setUseStatusReadBack(this.target.getUseStatusReadBack());
+
+    return s;
+  }
+
+  // ----------------------------------------------------------
+  // MEASURE: warm-up + iterations, median of each metric
+  // ----------------------------------------------------------
+  private BenchmarkResult measure(PrinterSettings settings, PrintJob job) throws PrintJobCancelledException {
+    long[][] samples = new long[8][this.iterations];
+
+    int runs = 0;
+    String error = null;
+
+    for (int i = -1; i < this.iterations; i++) {
+
+      if (job != null) {
+        job.checkpoint();
+      }
+
+      try {
+        long[] sample = runOnce(settings);
+
+        if (i >= 0) {
+          for (int m = 0; m < sample.length; m++) {
+            samples[m][runs] = sample[m];
+          }
+          runs++;
+        }
+
+      } catch (PrintJobCancelledException e) {
+        throw e;
+      } catch (Exception e) {
+        Log.w(TAG, "Run failed: " + e.getMessage());
+        error = e.getMessage();
+      }
+    }
+
+    return new BenchmarkResult(settings, runs, error,
+        median(samples[0], runs), median(samples[1], runs), median(samples[2], runs), median(samples[3], runs),
+        median(samples[4], runs), median(samples[5], runs), median(samples[6], runs), median(samples[7], runs));
+  }
+
+  // One job on a fresh connection:
+  // { connect, ttfb, total, close, bytes, stalls, threadCpu, processCpu }
+  private long[] runOnce(PrinterSettings settings) throws Exception {
+    final long threadCpu0 = Debug.threadCpuTimeNanos();
+    final long processCpu0 = Process.getElapsedCpuTime();
+
+    final long start = System.nanoTime();
+
+    FastDeviceConnection conn = ConnectionPool.newConnection(settings);
+
+    try {
+      conn.connect();
+
+      final long connected = System.nanoTime();
+
+      EscPosImagePrinter printer = new EscPosImagePrinter(settings, conn);
+
+      if (!printer.printBitmap(this.image, false, false, 0)) {
+        throw new Exception("Print failed");
+      }
+
+      final long done = System.nanoTime();
+
+      PacingStats stats = printer.getLastPacingStats();
+
+      final long threadCpu = Debug.threadCpuTimeNanos() - threadCpu0;
+
+      conn.close();
+
+      final long closed = System.nanoTime();
+
+      return new long[] {
+          connected - start,
+          conn.getFirstWriteNanos() - start,
+          done - start,
+          closed - done,
+          stats.bytes,
+          stats.stalls,
+          threadCpu,
+          (Process.getElapsedCpuTime() - processCpu0) * 1_000_000L
+      };
+
+    } finally {
+
+      conn.close();
+    }
+  }
+
+  private static long median(long[] values, int n) {
+    if (n == 0) {
+      return 0;
+    }
+
+    long[] sorted = Arrays.copyOf(values, n);
+    Arrays.sort(sorted);
+
+    return sorted[n / 2];
+  }
+}
@@ -0,0 +1,319 @@
+package com.reactnativethermalprinter.benchmark;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.ConnectionPool;
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.connection.PacingStats;
+import com.reactnativethermalprinter.core.EscPosImagePrinter;
+import com.reactnativethermalprinter.core.PackedBitmap;
+import com.reactnativethermalprinter.jobs.PrintJob;
+import com.reactnativethermalprinter.jobs.PrintJobCancelledException;
+import com.reactnativethermalprinter.settings.PrinterProfile;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the fastest settings a printer handles reliably by printing a test
+ * payload with increasingly aggressive settings:
+ *
+ * 1. Print mode: the first of GS v0, chunked GS v0 (largest chunk that
+ *    works) and ESC * that prints at conservative transport settings.
+ * 2. Transport: packet sizes upwards and, for each, micro delays downwards
+ *    until a print fails or the pacer reports stalls. A packet size that
+ *    fails even at the longest delay ends the sweep.
+ * 3. Queue: the fastest candidate is also tried with direct writes.
+ * 4. Verify: the fastest candidate prints once more; if it fails, the next
+ *    fastest is tried, so the result passed at least twice.
+ *
+ * Each probe is one job on a fresh, unpooled connection.
+ */
+public class PrinterCalibrator {
+
+  private static final String TAG = "RNTP.PrinterCalibrator";
+
+  private static final PrinterSettings.PrintMode[] PRINT_MODES = {
+      PrinterSettings.PrintMode.RASTER_GSV0,
+      PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED,
+      PrinterSettings.PrintMode.LEGACY_ESC
+  };
+
+  private static final int[] CHUNK_HEIGHTS = { 128, 256, 512 };
+  private static final int[] PACKET_SIZES = { 256, 512, 1024, 2048, 4096 };
+  private static final int[] MICRO_DELAYS_MS = { 4, 2, 1, 0 };
+
+  // Print mode selection runs at the slowest transport settings
+  private static final int SAFE_PACKET_SIZE = 256;
+  private static final int SAFE_MICRO_DELAY_MS = 4;
+
+  // A probe with more pacer back-offs than this hit the printer's limit
+  private static final long MAX_STALLS = 2;
+
+  // Generated payload: ~24mm of diagonal hatching (25% black) at 203 dpi
+  private static final int TEST_PATTERN_HEIGHT = 192;
+
+  private static class Probe {
+    final PrinterSettings settings;
+    final long bytesPerSecond;
+    final String error; // null = passed
+
+    Probe(PrinterSettings settings, long bytesPerSecond, String error) {
+      this.settings = settings;
+      this.bytesPerSecond = bytesPerSecond;
+      this.error = error;
+    }
+
+    boolean passed() {
+      return this.error == null;
+    }
+  }
+
+  private final PrinterSettings target;
+  private final PackedBitmap payload;
+
+  private PrintJob job = null;
+
+  private int probes = 0;
+
+  // payload null = generated test pattern
+  public PrinterCalibrator(PrinterSettings target, PackedBitmap payload) {
+    this.target = target;
+    this.payload = payload != null
+        ? payload
+        : testPattern(target.getPrinterWidthPx(), TEST_PATTERN_HEIGHT);
+  }
+
+  // Allows cancelling between (and during) probes
+  public void setJob(PrintJob job) {
+    this.job = job;
+  }
+
+  // Prints made by the last calibrate()
+  public int getProbeCount() {
+    return this.probes;
+  }
+
+  // ----------------------------------------------------------
+  // CALIBRATE
+  // ----------------------------------------------------------
+  public PrinterProfile calibrate() throws Exception {
+    final long start = System.nanoTime();
+
+    this.probes = 0;
+
+    ArrayList<Probe> passed = new ArrayList<>();
+
+    // 1. PRINT MODE
+    Probe base = null;
+
+    for (PrinterSettings.PrintMode mode : PRINT_MODES) {
+
+      if (mode == PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED) {
+        for (int height : CHUNK_HEIGHTS) {
+          Probe p = this.probe(this.configure(mode, height, SAFE_PACKET_SIZE, SAFE_MICRO_DELAY_MS, true));
+          if (!p.passed()) {
+            break;
+          }
+          base = p;
+        }
+      } else {
+        Probe p = this.probe(this.configure(mode, this.target.getChunkHeight(), SAFE_PACKET_SIZE,
+            SAFE_MICRO_DELAY_MS, true));
+        if (p.passed()) {
+          base = p;
+        }
+      }
+
+      if (base != null) {
+        break;
+      }
+    }
+
+    if (base == null) {
+      throw new Exception("Printer failed every calibration print");
+    }
+
+    passed.add(base);
+
+    final PrinterSettings.PrintMode mode = base.settings.getPrintMode();
+    final int chunkHeight = base.settings.getChunkHeight();
+
+    // 2. PACKET SIZE UP, MICRO DELAY DOWN
+    int lastPacketSize = 0;
+
+    for (int requested : PACKET_SIZES) {
+
+      final int packetSize = effectivePacketSize(this.configure(mode, chunkHeight, requested, 0, true));
+
+      if (packetSize <= lastPacketSize) {
+        break; // clamped by the transport: nothing new to try
+      }
+      lastPacketSize = packetSize;
+
+      boolean sizeWorks = false;
+
+      for (int delay : MICRO_DELAYS_MS) {
+        Probe p = this.probe(this.configure(mode, chunkHeight, packetSize, delay, true));
+
+        if (!p.passed()) {
+          break;
+        }
+
+        passed.add(p);
+        sizeWorks = true;
+      }
+
+      if (!sizeWorks) {
+        break;
+      }
+    }
+
+    sortFastestFirst(passed);
+
+    // 3. QUEUE VS DIRECT WRITES
+    final PrinterSettings fastest = passed.get(0).settings;
+
+    Probe direct = this.probe(this.configure(mode, chunkHeight, fastest.getPacketSize(),
+        fastest.getPacketMicroDelayMs(), false));
+
+    if (direct.passed()) {
+      passed.add(direct);
+      sortFastestFirst(passed);
+    }
+
+    // 4. VERIFY
+    for (Probe candidate : passed) {
+      Probe again = this.probe(candidate.settings);
+
+      if (again.passed()) {
+        PrinterProfile profile = PrinterProfile.of(candidate.settings,
+            Math.min(candidate.bytesPerSecond, again.bytesPerSecond));
+
+        Log.i(TAG, "Calibrated in " + this.probes + " prints, "
+            + ((System.nanoTime() - start) / 1_000_000) + " ms: " + profile);
+
+        return profile;
+      }
+
+      Log.w(TAG, "Candidate failed verification: " + again.error);
+    }
+
+    throw new Exception("No calibration candidate passed verification");
+  }
+
+  // One print on a fresh connection
+  private Probe probe(PrinterSettings settings) throws PrintJobCancelledException {
+    if (this.job != null) {
+      this.job.checkpoint();
+    }
+
+    this.probes++;
+
+    FastDeviceConnection conn = ConnectionPool.newConnection(settings);
+
+    try {
+      conn.connect();
+
+      EscPosImagePrinter printer = new EscPosImagePrinter(settings, conn);
+
+      printer.setJob(this.job);
+
+      final long start = System.nanoTime();
+
+      if (!printer.printPrepared(this.payload, false, false, 0)) {
+        return this.failed(settings, "Print failed");
+      }
+
+      final long elapsed = System.nanoTime() - start;
+
+      PacingStats stats = printer.getLastPacingStats();
+
+      if (stats.stalls > MAX_STALLS) {
+        return this.failed(settings, stats.stalls + " stalls");
+      }
+
+      final long bytesPerSecond = elapsed > 0 ? stats.bytes * 1_000_000_000L / elapsed : 0;
+
+      Log.d(TAG, "Probe " + describe(settings) + ": " + bytesPerSecond + " B/s");
+
+      return new Probe(settings, bytesPerSecond, null);
+
+    } catch (PrintJobCancelledException e) {
+      throw e;
+    } catch (Exception e) {
+      return this.failed(settings, e.getMessage());
+    } finally {
+      conn.close();
+    }
+  }
+
+  private Probe failed(PrinterSettings settings, String error) {
+    Log.d(TAG, "Probe " + describe(settings) + " failed: " + error);
+    return new Probe(settings, 0, error != null ? error : "Failed");
+  }
+
+  private PrinterSettings configure(PrinterSettings.PrintMode mode, int chunkHeight, int packetSize,
+      int packetMicroDelayMs, boolean useQueue) {
+
+    PrinterSettings s = this.target.getMacAddress() != null
+        ? new PrinterSettings(this.target.getMacAddress())
+        : new PrinterSettings(this.target.getIpAddress(), this.target.getIpPort());
+
+    s.setTimeoutMs(this.target.getTimeoutMs());
+    s.setPrinterDpi(this.target.getPrinterDpi());
+    s.setPrinterWidthMm(this.target.getPrinterWidthMm());
+    s.setPrinterCharPerLine(this.target.getPrinterCharPerLine());
+    s.setDitherMode(this.target.getDitherMode());
+    s.setPacingMode(this.target.getPacingMode());
+    s.setUseStatusReadBack(this.target.getUseStatusReadBack());
+
+    s.setPrintMode(mode);
+    s.setChunkHeight(chunkHeight);
+    s.setPacketSize(packetSize);
+    s.setPacketMicroDelayMs(packetMicroDelayMs);
+    s.setUseQueueForWrites(useQueue);
+
+    return s;
+  }
+
+  // Packet size after the transport's clamp (BT / TCP MTU limits)
+  private static int effectivePacketSize(PrinterSettings settings) {
+    return ConnectionPool.newConnection(settings).getPacketSize();
+  }
+
+  private static void sortFastestFirst(List<Probe> probes) {
+    Collections.sort(probes, (a, b) -> Long.compare(b.bytesPerSecond, a.bytesPerSecond));
+  }
+
+  private static String describe(PrinterSettings s) {
+    return s.getPrintMode() + "/" + s.getChunkHeight() + " packet " + s.getPacketSize()
+        + " delay " + s.getPacketMicroDelayMs() + (s.getUseQueueForWrites() ? " queued" : " direct");
+  }
+
+  // Diagonal hatching: every row has data, so nothing is skipped or
+  // compressed, at a heat load any printer sustains
+  public static PackedBitmap testPattern(int width, int height) {
+    PackedBitmap pattern = new PackedBitmap(width, height);
+
+    final int tailBits = width & 7;
+
+    for (int y = 0; y < height; y++) {
+      final byte b = (byte) (0x88 >>> ((y >> 1) & 3));
+
+      final int row = y * pattern.bytesPerRow;
+
+      for (int i = 0; i < pattern.bytesPerRow; i++) {
+        pattern.bits[row + i] = b;
+      }
+
+      if (tailBits != 0) {
+        pattern.bits[row + pattern.bytesPerRow - 1] &= (byte) (0xFF << (8 - tailBits));
+      }
+    }
+
+    return pattern;
+  }
+}
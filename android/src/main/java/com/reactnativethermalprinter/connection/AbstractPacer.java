@@ -0,0 +1,93 @@
+package com.reactnativethermalprinter.connection;
+
+import com.reactnativethermalprinter.metrics.JobTrace;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shared parking + statistics for pacers. Subclasses only decide the gap.
+ */
+public abstract class AbstractPacer implements Pacer {
+
+  // Counters are written by the writer thread only, read from the caller
+  private volatile long bytes = 0;
+  private volatile long packets = 0;
+  private volatile long stalls = 0;
+  private volatile long writeNanos = 0;
+  private volatile long sleepNanos = 0;
+  private volatile long startNanos = System.nanoTime();
+
+  private long lastWriteEndNanos = 0;
+
+  // Inter-packet gap to apply before the next packet
+  protected abstract long gapNanos();
+
+  // Feedback hook; returns true when the write is considered a stall
+  protected abstract boolean onWritten(int length, long blockedNanos);
+
+  @Override
+  public void beforeWrite(int length) {
+    final long gap = gapNanos();
+
+    if (gap <= 0 || this.lastWriteEndNanos == 0) {
+      return;
+    }
+
+    // The gap counts from the end of the previous packet; time spent encoding
+    // or waiting for data in between already counts towards it.
+    final long deadline = this.lastWriteEndNanos + gap;
+
+    long now = System.nanoTime();
+
+    if (now >= deadline) {
+      return;
+    }
+
+    final long parkStart = now;
+
+    // parkNanos() may return early (spurious wake-ups / interrupts)
+    while (now < deadline) {
+      LockSupport.parkNanos(deadline - now);
+      now = System.nanoTime();
+    }
+
+    this.sleepNanos += now - parkStart;
+
+    JobTrace.complete("pace", parkStart, now, null, gap);
+  }
+
+  @Override
+  public void afterWrite(int length, long blockedNanos) {
+    this.bytes += length;
+    this.packets++;
+    this.writeNanos += blockedNanos;
+    this.lastWriteEndNanos = System.nanoTime();
+
+    if (onWritten(length, blockedNanos)) {
+      this.stalls++;
+    }
+  }
+
+  @Override
+  public void reset() {
+    this.bytes = 0;
+    this.packets = 0;
+    this.stalls = 0;
+    this.writeNanos = 0;
+    this.sleepNanos = 0;
+    this.startNanos = System.nanoTime();
+    this.lastWriteEndNanos = 0;
+  }
+
+  @Override
+  public PacingStats getStats() {
+    return new PacingStats(
+        this.bytes,
+        this.packets,
+        this.stalls,
+        System.nanoTime() - this.startNanos,
+        this.writeNanos,
+        this.sleepNanos,
+        gapNanos());
+  }
+}
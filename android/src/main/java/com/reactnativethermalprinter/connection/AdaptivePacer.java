@@ -0,0 +1,91 @@
+package com.reactnativethermalprinter.connection;
+
+/**
+ * AIMD pacer.
+ *
+ * The inter-packet gap shrinks by a fixed step after every packet that went
+ * through without blocking (throughput ramps up), and doubles as soon as the
+ * transport write blocks noticeably longer than usual (the printer / RFCOMM
+ * buffer is full and the link is stalling).
+ *
+ * "Usual" is an EWMA of the nanoseconds-per-byte the transport takes on
+ * healthy writes, so a slow-but-steady link is not mistaken for a stall.
+ */
+public class AdaptivePacer extends AbstractPacer {
+
+  // A write is a stall when it blocks this many times longer than expected
+  private static final int STALL_RATIO = 4;
+
+  // EWMA weight = 1 / 2^EWMA_SHIFT
+  private static final int EWMA_SHIFT = 3;
+
+  private final long minGapNanos;
+  private final long maxGapNanos;
+  private final long stepNanos;
+  private final long stallFloorNanos; // never a stall below this
+
+  private volatile long gapNanos;
+
+  // Learned transport cost of a healthy write (fixed point: nanos/byte << 8)
+  private long ewmaNanosPerByteFp = 0;
+
+  public AdaptivePacer(
+      long initialGapNanos,
+      long minGapNanos,
+      long maxGapNanos,
+      long stepNanos,
+      long stallFloorNanos) {
+
+    this.minGapNanos = Math.max(0, minGapNanos);
+    this.maxGapNanos = Math.max(this.minGapNanos, maxGapNanos);
+    this.stepNanos = Math.max(1, stepNanos);
+    this.stallFloorNanos = stallFloorNanos;
+
+    this.gapNanos = clamp(initialGapNanos);
+  }
+
+  @Override
+  protected long gapNanos() {
+    return this.gapNanos;
+  }
+
+  @Override
+  protected boolean onWritten(int length, long blockedNanos) {
+    if (length <= 0) {
+      return false;
+    }
+
+    final long perByteFp = (blockedNanos << 8) / length;
+
+    boolean stalled = false;
+
+    if (blockedNanos > this.stallFloorNanos) {
+      // Without a baseline yet, anything over the floor is a stall
+      stalled = this.ewmaNanosPerByteFp == 0
+          || perByteFp > this.ewmaNanosPerByteFp * STALL_RATIO;
+    }
+
+    if (stalled) {
+      // MULTIPLICATIVE BACK-OFF
+      this.gapNanos = clamp(Math.max(this.gapNanos << 1, this.stepNanos << 3));
+      return true;
+    }
+
+    // Learn the healthy write cost
+    if (this.ewmaNanosPerByteFp == 0) {
+      this.ewmaNanosPerByteFp = Math.max(1, perByteFp);
+    } else {
+      this.ewmaNanosPerByteFp = Math.max(1,
+          this.ewmaNanosPerByteFp + ((perByteFp - this.ewmaNanosPerByteFp) >> EWMA_SHIFT));
+    }
+
+    // ADDITIVE RAMP-UP
+    this.gapNanos = clamp(this.gapNanos - this.stepNanos);
+
+    return false;
+  }
+
+  private long clamp(long gap) {
+    return Math.max(this.minGapNanos, Math.min(this.maxGapNanos, gap));
+  }
+}
@@ -0,0 +1,166 @@
+package com.reactnativethermalprinter.connection;
+
+import android.bluetooth.BluetoothDevice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bonded Bluetooth printers keyed by MAC address, with what was learned
+ * about each of them: last successful connect, achieved throughput and the
+ * inter-packet gap the pacer settled on.
+ *
+ * refresh() applies the bonded set incrementally, so metadata survives
+ * device list refreshes. Lookups are O(1) and lock-free.
+ */
+public class BluetoothDeviceRegistry {
+
+  // Jobs smaller than this say little about throughput
+  private static final long MIN_THROUGHPUT_BYTES = 4096;
+
+  // EWMA weight of a new throughput sample = 1 / 2^EWMA_SHIFT
+  private static final int EWMA_SHIFT = 2;
+
+  public static class Entry {
+    private final String macAddress;
+
+    private volatile BluetoothDevice device;
+    private volatile String name;
+
+    private volatile long lastConnectMillis = 0;
+    private volatile long bytesPerSecond = 0;
+    private volatile long preferredGapNanos = -1;
+
+    Entry(BluetoothDevice device) {
+      this.macAddress = normalize(device.getAddress());
+      this.device = device;
+      this.name = device.getName();
+    }
+
+    public String getMacAddress() {
+      return this.macAddress;
+    }
+
+    public BluetoothDevice getDevice() {
+      return this.device;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    // 0 = never connected through the pool
+    public long getLastConnectMillis() {
+      return this.lastConnectMillis;
+    }
+
+    // Smoothed over recent jobs; 0 = unknown
+    public long getBytesPerSecond() {
+      return this.bytesPerSecond;
+    }
+
+    // Gap the adaptive pacer ended the last job with; -1 = unknown
+    public long getPreferredGapNanos() {
+      return this.preferredGapNanos;
+    }
+  }
+
+  private final ConcurrentHashMap<String, Entry> devices = new ConcurrentHashMap<>();
+
+  public static String normalize(String macAddress) {
+    return macAddress == null ? null : macAddress.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Syncs with the currently bonded devices: adds new ones, updates handles
+   * and names, drops unpaired ones. Returns true if anything changed.
+   */
+  public synchronized boolean refresh(Collection<BluetoothDevice> bonded) {
+    boolean changed = false;
+
+    Set<String> seen = new HashSet<>();
+
+    for (BluetoothDevice device : bonded) {
+      final String mac = normalize(device.getAddress());
+
+      seen.add(mac);
+
+      Entry entry = this.devices.get(mac);
+
+      if (entry == null) {
+        this.devices.put(mac, new Entry(device));
+        changed = true;
+        continue;
+      }
+
+      entry.device = device;
+
+      final String name = device.getName();
+
+      if (name != null && !name.equals(entry.name)) {
+        entry.name = name;
+        changed = true;
+      }
+    }
+
+    for (Iterator<String> it = this.devices.keySet().iterator(); it.hasNext();) {
+      if (!seen.contains(it.next())) {
+        it.remove();
+        changed = true;
+      }
+    }
+
+    return changed;
+  }
+
+  public Entry get(String macAddress) {
+    return macAddress == null ? null : this.devices.get(normalize(macAddress));
+  }
+
+  public BluetoothDevice getDevice(String macAddress) {
+    Entry entry = get(macAddress);
+    return entry != null ? entry.device : null;
+  }
+
+  public List<Entry> getAll() {
+    return new ArrayList<>(this.devices.values());
+  }
+
+  public boolean isEmpty() {
+    return this.devices.isEmpty();
+  }
+
+  // ----------------------------------------------------------
+  // LEARNED METADATA (fed by the connection pool)
+  // ----------------------------------------------------------
+
+  public void recordConnect(String macAddress) {
+    Entry entry = get(macAddress);
+    if (entry != null) {
+      entry.lastConnectMillis = System.currentTimeMillis();
+    }
+  }
+
+  // After a successful job on the printer
+  public void recordJob(String macAddress, PacingStats stats) {
+    Entry entry = get(macAddress);
+    if (entry == null || stats == null) {
+      return;
+    }
+
+    entry.preferredGapNanos = stats.gapNanos;
+
+    if (stats.bytes >= MIN_THROUGHPUT_BYTES) {
+      final long sample = stats.getBytesPerSecond();
+      final long previous = entry.bytesPerSecond;
+
+      entry.bytesPerSecond = previous == 0 ? sample : previous + ((sample - previous) >> EWMA_SHIFT);
+    }
+  }
+}
@@ -0,0 +1,385 @@
+package com.reactnativethermalprinter.connection;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.metrics.MetricsRegistry;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.metrics.Stage;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one warm connection per printer between jobs.
+ *
+ * Connections are keyed by PrinterSettings.getPrinterKey() (IP:port or MAC).
+ * acquire() hands out the idle connection if it is still alive and connects
+ * a new one otherwise; release() puts it back. Idle connections are closed
+ * after idleTimeoutMs, and at most maxConnections (idle + in use) are open at
+ * any time. The shared WriterPool is sized to match.
+ */
+public class ConnectionPool {
+
+  private static final String TAG = "RNTP.ConnectionPool";
+
+  public static final int DEFAULT_IDLE_TIMEOUT_MS = 30_000;
+  public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+  // Wait for a free slot when the caller has no timeout configured
+  private static final int DEFAULT_ACQUIRE_TIMEOUT_MS = 30_000;
+
+  private static class IdleEntry {
+    final FastDeviceConnection conn;
+    final long idleSinceMs;
+
+    IdleEntry(FastDeviceConnection conn, long idleSinceMs) {
+      this.conn = conn;
+      this.idleSinceMs = idleSinceMs;
+    }
+  }
+
+  private final HashMap<String, IdleEntry> idle = new HashMap<>();
+  private final HashMap<FastDeviceConnection, String> inUse = new HashMap<>();
+
+  // Connections being checked / opened by acquire()
+  private int connecting = 0;
+
+  private int idleTimeoutMs;
+  private int maxConnections;
+
+  private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "RNTP-pool-evictor");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private ScheduledFuture<?> evictionTask;
+
+  private boolean shutdown = false;
+
+  // Acquire latency, reconnects; handed to connections (null = off)
+  private volatile MetricsRegistry metrics = null;
+
+  // Learned per-device pacing / throughput (Bluetooth); null = not tracked
+  private volatile BluetoothDeviceRegistry deviceRegistry = null;
+
+  public ConnectionPool(int idleTimeoutMs, int maxConnections) {
+    configure(idleTimeoutMs, maxConnections);
+  }
+
+  public synchronized void configure(int idleTimeoutMs, int maxConnections) {
+    this.idleTimeoutMs = Math.max(0, idleTimeoutMs);
+    this.maxConnections = Math.max(1, maxConnections);
+
+    // One writer per open connection
+    WriterPool.setMaxThreads(this.maxConnections);
+
+    if (this.evictionTask != null) {
+      this.evictionTask.cancel(false);
+      this.evictionTask = null;
+    }
+
+    if (this.idleTimeoutMs > 0 && !this.shutdown) {
+      final long period = Math.max(1_000, this.idleTimeoutMs / 2);
+      this.evictionTask = this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    notifyAll();
+  }
+
+  public void setMetrics(MetricsRegistry metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setDeviceRegistry(BluetoothDeviceRegistry registry) {
+    this.deviceRegistry = registry;
+  }
+
+  // ----------------------------------------------------------
+  // ACQUIRE: warm connection if alive, new connection otherwise
+  // ----------------------------------------------------------
+  public FastDeviceConnection acquire(PrinterSettings settings) throws Exception {
+    final long start = System.nanoTime();
+
+    final String key = settings.getPrinterKey();
+
+    final MetricsRegistry registry = this.metrics;
+    final PrinterMetrics m = registry != null ? registry.forPrinter(key) : PrinterMetrics.NONE;
+
+    FastDeviceConnection warm = null;
+    FastDeviceConnection evicted = null;
+
+    synchronized (this) {
+      if (this.shutdown) {
+        throw new Exception("Connection pool is shut down");
+      }
+
+      IdleEntry entry = this.idle.remove(key);
+
+      if (entry != null) {
+        warm = entry.conn;
+      } else {
+        evicted = reserveSlot(settings.getTimeoutMs());
+      }
+
+      // The slot is held by this call until the connection is handed out
+      this.connecting++;
+    }
+
+    if (evicted != null) {
+      evicted.close();
+    }
+
+    try {
+
+      if (warm != null) {
+
+        // Per transport: SPP round trips are far slower than TCP ones
+        if (warm.checkAlive(warm.getLivenessTimeoutMs())) {
+          markInUse(warm, key);
+
+          warm.setMetrics(m);
+
+          m.recordSince(Stage.CONNECT, start);
+
+          return warm;
+        }
+
+        // Stale socket (printer rebooted, idle drop, ...): reconnect
+        Log.i(TAG, "Warm connection to " + key + " is stale; reconnecting");
+
+        m.incrementRetries();
+
+        warm.close();
+      }
+
+      FastDeviceConnection conn = createConnection(settings);
+
+      final BluetoothDeviceRegistry devices = this.deviceRegistry;
+      final BluetoothDeviceRegistry.Entry device = devices != null ? devices.get(settings.getMacAddress()) : null;
+
+      if (device != null && device.getPreferredGapNanos() >= 0 && conn instanceof FastBluetoothConnection) {
+        ((FastBluetoothConnection) conn).seedPacing(device.getPreferredGapNanos());
+      }
+
+      try {
+        conn.connect();
+      } catch (Exception e) {
+        conn.close();
+        throw e;
+      }
+
+      if (device != null) {
+        devices.recordConnect(settings.getMacAddress());
+      }
+
+      markInUse(conn, key);
+
+      conn.setMetrics(m);
+
+      m.recordSince(Stage.CONNECT, start);
+
+      Log.i(TAG, "Opened connection to " + key);
+
+      return conn;
+
+    } finally {
+
+      synchronized (this) {
+        this.connecting--;
+        notifyAll();
+      }
+    }
+  }
+
+  // ----------------------------------------------------------
+  // RELEASE: back to the pool (healthy) or closed (failed job)
+  // ----------------------------------------------------------
+  public void release(FastDeviceConnection conn, boolean reusable) {
+    if (conn == null) {
+      return;
+    }
+
+    final BluetoothDeviceRegistry devices = this.deviceRegistry;
+
+    // The job went through: remember how fast the link was
+    if (reusable && devices != null && conn instanceof FastBluetoothConnection) {
+      devices.recordJob(((FastBluetoothConnection) conn).getMacAddress(), conn.getPacingStats());
+    }
+
+    FastDeviceConnection toClose = null;
+
+    synchronized (this) {
+      String key = this.inUse.remove(conn);
+
+      if (key == null || this.shutdown || !reusable || conn.isClosed() || this.idleTimeoutMs == 0) {
+        toClose = conn;
+      } else {
+        IdleEntry previous = this.idle.put(key, new IdleEntry(conn, System.currentTimeMillis()));
+        if (previous != null) {
+          toClose = previous.conn; // keep the most recently used one
+        }
+      }
+
+      notifyAll();
+    }
+
+    if (toClose != null) {
+      toClose.close();
+    }
+  }
+
+  // Close every idle connection; in-use connections close on release
+  public void shutdown() {
+    synchronized (this) {
+      this.shutdown = true;
+
+      if (this.evictionTask != null) {
+        this.evictionTask.cancel(false);
+      }
+
+      notifyAll();
+    }
+
+    closeIdle(0);
+
+    this.evictor.shutdown();
+  }
+
+  // Close the printer's idle connection, e.g. before something else needs
+  // the link or after its settings changed
+  public void evict(String printerKey) {
+    IdleEntry entry;
+
+    synchronized (this) {
+      entry = this.idle.remove(printerKey);
+      notifyAll();
+    }
+
+    if (entry != null) {
+      entry.conn.close();
+    }
+  }
+
+  public synchronized int getOpenConnectionCount() {
+    return this.idle.size() + this.inUse.size() + this.connecting;
+  }
+
+  // Builds (but does not connect) the transport for a printer
+  protected FastDeviceConnection createConnection(PrinterSettings settings) {
+    return newConnection(settings);
+  }
+
+  // Unpooled transport for a printer (Bluetooth if a MAC is set, TCP
+  // otherwise), not connected yet
+  public static FastDeviceConnection newConnection(PrinterSettings settings) {
+    FastDeviceConnection conn;
+
+    if (settings.getMacAddress() != null) {
+      conn = new FastBluetoothConnection(
+          settings.getMacAddress(),
+          settings.getPacketSize(),
+          settings.getUseQueueForWrites(),
+          settings.getPacketMicroDelayMs());
+    } else {
+      conn = new FastTcpConnection(
+          settings.getIpAddress(),
+          settings.getIpPort(),
+          settings.getTimeoutMs(),
+          settings.getPacketSize(),
+          settings.getUseQueueForWrites(),
+          settings.getPacketMicroDelayMs());
+    }
+
+    if (settings.getPacingMode() == PrinterSettings.PacingMode.FIXED) {
+      conn.setPacer(new FixedPacer(settings.getPacketMicroDelayMs() * 1_000_000L));
+    }
+
+    return conn;
+  }
+
+  private synchronized void markInUse(FastDeviceConnection conn, String key) {
+    this.inUse.put(conn, key);
+  }
+
+  // Wait for room under maxConnections; an idle connection to another
+  // printer is evicted (returned, to be closed outside the lock) when that
+  // makes room. Called with the lock held.
+  private FastDeviceConnection reserveSlot(int timeoutMs) throws Exception {
+    final long deadline = System.currentTimeMillis() + (timeoutMs > 0 ? timeoutMs : DEFAULT_ACQUIRE_TIMEOUT_MS);
+
+    while (getOpenConnectionCount() >= this.maxConnections) {
+
+      IdleEntry oldest = null;
+      String oldestKey = null;
+
+      for (Map.Entry<String, IdleEntry> e : this.idle.entrySet()) {
+        if (oldest == null || e.getValue().idleSinceMs < oldest.idleSinceMs) {
+          oldest = e.getValue();
+          oldestKey = e.getKey();
+        }
+      }
+
+      if (oldest != null) {
+        this.idle.remove(oldestKey);
+        return oldest.conn;
+      }
+
+      long remaining = deadline - System.currentTimeMillis();
+
+      if (remaining <= 0) {
+        throw new Exception("Connection pool exhausted: " + this.maxConnections + " connections in use");
+      }
+
+      wait(remaining);
+
+      if (this.shutdown) {
+        throw new Exception("Connection pool is shut down");
+      }
+    }
+
+    return null;
+  }
+
+  private void evictIdle() {
+    try {
+      closeIdle(this.idleTimeoutMs);
+    } catch (Exception e) {
+      Log.e(TAG, "Idle eviction failed: " + e.getMessage(), e);
+    }
+  }
+
+  // Close connections idle for at least maxIdleMs
+  private void closeIdle(long maxIdleMs) {
+    final long now = System.currentTimeMillis();
+
+    ArrayList<FastDeviceConnection> expired = new ArrayList<>();
+
+    synchronized (this) {
+      Iterator<Map.Entry<String, IdleEntry>> it = this.idle.entrySet().iterator();
+
+      while (it.hasNext()) {
+        IdleEntry entry = it.next().getValue();
+
+        if (now - entry.idleSinceMs >= maxIdleMs) {
+          expired.add(entry.conn);
+          it.remove();
+        }
+      }
+
+      notifyAll();
+    }
+
+    for (FastDeviceConnection conn : expired) {
+      Log.i(TAG, "Closing idle connection");
+      conn.close();
+    }
+  }
+}
@@ -7,6 +7,7 @@ import android.util.Log;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.UUID;
@@ -25,13 +26,25 @@ public class FastBluetoothConnection extends FastDeviceConnection {
   // BT timing constants
   // Prevent GS-v0 fragmentation
   // Cheap ESC/POS modules cannot handle back-to-back packets without pacing
-  private static final int PRE_WRITE_DELAY_MS = 1; // before each packet
-  private static final int POST_WRITE_DELAY_MS = 1; // after flush
   private static final int POST_FINISH_DRAIN_MS = 60; // before closing socket
 
+  // Two DLE EOT round trips over SPP often take several hundred ms; a
+  // failed check costs a 1-2 s reconnect
+  private static final int LIVENESS_TIMEOUT_MS = 1_000;
+
+  // BT pacing bounds (AdaptivePacer)
+  // The historical fixed pacing was 1ms before + 1ms after each packet on top
+  // of microDelayMs; that is the starting gap, the pacer ramps down from there
+  // until RFCOMM starts blocking.
+  private static final long LEGACY_PACKET_DELAY_NANOS = 2_000_000L;
+  private static final long MAX_GAP_NANOS = 50_000_000L;
+  private static final long GAP_STEP_NANOS = 100_000L;
+  private static final long STALL_FLOOR_NANOS = 15_000_000L;
+
   private final String macAddress;
   private BluetoothSocket socket;
   private OutputStream out;
+  private InputStream in;
 
   public FastBluetoothConnection(
       String macAddress,
@@ -49,8 +62,6 @@ public class FastBluetoothConnection extends FastDeviceConnection {
   }
 
   public void connect() throws Exception {
-    final long start = System.nanoTime();
-
     if (this.macAddress == null || this.macAddress.isEmpty()) {
       throw new Exception("MAC address not specified");
     }
@@ -88,6 +99,7 @@ public class FastBluetoothConnection extends FastDeviceConnection {
       this.socket.connect();
 
       this.out = new BufferedOutputStream(this.socket.getOutputStream());
+      this.in = this.socket.getInputStream();
 
       Log.i(TAG, "Connected to Bluetooth device: " + this.macAddress);
 
@@ -96,13 +108,36 @@ public class FastBluetoothConnection extends FastDeviceConnection {
       safeCloseSocket();
 
       throw new Exception("Failed to connect to " + this.macAddress + ": " + e.getMessage(), e);
+    }
+  }
 
-    } finally {
+  public String getMacAddress() {
+    return this.macAddress;
+  }
 
-      Log.i(TAG, "connect took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+  // BT PACING (AIMD, starts at the legacy fixed pacing)
+  @Override
+  protected Pacer createDefaultPacer(int microDelayMs) {
+    return createAdaptivePacer(microDelayMs * 1_000_000L + LEGACY_PACKET_DELAY_NANOS);
+  }
+
+  // Start the adaptive pacer at a gap learned on an earlier connection
+  // (BluetoothDeviceRegistry) instead of ramping down from the legacy gap
+  public void seedPacing(long gapNanos) {
+    if (this.pacer instanceof AdaptivePacer) {
+      this.pacer = createAdaptivePacer(gapNanos);
     }
   }
 
+  private static Pacer createAdaptivePacer(long initialGapNanos) {
+    return new AdaptivePacer(
+        initialGapNanos,
+        0,
+        MAX_GAP_NANOS,
+        GAP_STEP_NANOS,
+        STALL_FLOOR_NANOS);
+  }
+
   // WRITE PACKET (called from parent class)
   @Override
   protected void writeToDevice(byte[] buffer, int offset, int length) throws IOException {
@@ -111,23 +146,9 @@ public class FastBluetoothConnection extends FastDeviceConnection {
     }
 
     try {
-      // Bluetooth SPP is extremely sensitive to pacing
-      if (PRE_WRITE_DELAY_MS > 0) {
-        try {
-          Thread.sleep(PRE_WRITE_DELAY_MS);
-        } catch (InterruptedException ignored) {
-        }
-      }
-
+      // Bluetooth SPP is extremely sensitive to pacing; the pacer handles it
       this.out.write(buffer, offset, length);
       this.out.flush(); // REQUIRED for cheap BT printers
-
-      if (POST_WRITE_DELAY_MS > 0) {
-        try {
-          Thread.sleep(POST_WRITE_DELAY_MS);
-        } catch (InterruptedException ignored) {
-        }
-      }
     } catch (IOException ex) {
       Log.e(TAG, "BT write failed: " + ex.getMessage(), ex);
       safeCloseSocket();
@@ -141,9 +162,18 @@ public class FastBluetoothConnection extends FastDeviceConnection {
     safeCloseSocket();
   }
 
-  private void safeCloseSocket() {
+  @Override
+  public int getLivenessTimeoutMs() {
+    return LIVENESS_TIMEOUT_MS;
+  }
 
-    final long start = System.nanoTime();
+  // STATUS RESPONSES (called by FastDeviceConnection)
+  @Override
+  protected InputStream getDeviceInputStream() {
+    return this.in;
+  }
+
+  private void safeCloseSocket() {
 
     Log.i(TAG, "Closing Bluetooth connection");
 
@@ -154,54 +184,60 @@ public class FastBluetoothConnection extends FastDeviceConnection {
       // Note: this.conn.flush() only flushes the Java's OutputStream buffer, not the
       // RFComm buffer.
 
-      // --------------------------------------------------------
-      // STEP 1 — Write ASCII space padding to force
-      // Android -> BT chipset -> printer flush.
-      // --------------------------------------------------------
-      // Using ASCII 0x20 ensures:
-      // - Printer firmware must process it -> forces flush
-      // - Does NOT print anything after cut/reset
-      // - Works on ALL cheap clone printers
+      // Printer confirmed (GS r) that it processed every byte: nothing is
+      // left in flight, skip the padding and drain delays. Same on abort:
+      // the link is dead or the job is being thrown away.
+      if (!isDrainConfirmed() && !isAborted()) {
 
-      byte[] padding = new byte[2048];
-      Arrays.fill(padding, (byte) 0x20);
+        // --------------------------------------------------------
+        // STEP 1 — Write ASCII space padding to force
+        // Android -> BT chipset -> printer flush.
+        // --------------------------------------------------------
+        // Using ASCII 0x20 ensures:
+        // - Printer firmware must process it -> forces flush
+        // - Does NOT print anything after cut/reset
+        // - Works on ALL cheap clone printers
 
-      try {
-        if (this.out != null) {
-          this.out.write(padding);
-          this.out.flush(); // First flush: ensure padding exits Java buffers
-        }
-      } catch (Exception ignored) {
-        // Even if padding write fails, continue closing gracefully
-      }
+        byte[] padding = new byte[2048];
+        Arrays.fill(padding, (byte) 0x20);
 
-      // --------------------------------------------------------
-      // STEP 2 — Allow RFCOMM + printer UART to drain fully.
-      // --------------------------------------------------------
-      if (POST_FINISH_DRAIN_MS > 0) {
         try {
-          Thread.sleep(POST_FINISH_DRAIN_MS);
-        } catch (InterruptedException ignored) {
+          if (this.out != null) {
+            this.out.write(padding);
+            this.out.flush(); // First flush: ensure padding exits Java buffers
+          }
+        } catch (Exception ignored) {
+          // Even if padding write fails, continue closing gracefully
         }
-      }
 
-      // --------------------------------------------------------
-      // STEP 3 — Final flush to ensure NO padding remains
-      // inside BufferedOutputStream.
-      // --------------------------------------------------------
-      try {
-        if (this.out != null) {
-          this.out.flush();
+        // --------------------------------------------------------
+        // STEP 2 — Allow RFCOMM + printer UART to drain fully.
+        // --------------------------------------------------------
+        if (POST_FINISH_DRAIN_MS > 0) {
+          try {
+            Thread.sleep(POST_FINISH_DRAIN_MS);
+          } catch (InterruptedException ignored) {
+          }
         }
-      } catch (Exception ignored) {
-      }
 
-      // --------------------------------------------------------
-      // STEP 4 — Short delay after final flush.
-      // --------------------------------------------------------
-      try {
-        Thread.sleep(40);
-      } catch (InterruptedException ignored) {
+        // --------------------------------------------------------
+        // STEP 3 — Final flush to ensure NO padding remains
+        // inside BufferedOutputStream.
+        // --------------------------------------------------------
+        try {
+          if (this.out != null) {
+            this.out.flush();
+          }
+        } catch (Exception ignored) {
+        }
+
+        // --------------------------------------------------------
+        // STEP 4 — Short delay after final flush.
+        // --------------------------------------------------------
+        try {
+          Thread.sleep(40);
+        } catch (InterruptedException ignored) {
+        }
       }
 
       // --------------------------------------------------------
@@ -224,10 +260,8 @@ public class FastBluetoothConnection extends FastDeviceConnection {
     } finally {
 
       this.out = null;
+      this.in = null;
       this.socket = null;
-
-      Log.i(TAG,
-          "Bluetooth connection closed; safeCloseSocket took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
     }
   }
 
@@ -244,6 +278,7 @@ public class FastBluetoothConnection extends FastDeviceConnection {
   }
 
   // CONNECTION STATE
+  @Override
   public boolean isConnected() {
     return this.socket != null && this.socket.isConnected();
   }
@@ -254,9 +289,9 @@ public class FastBluetoothConnection extends FastDeviceConnection {
   // Some cheap printers (ZJ, POS-80 clones) require slightly
   // longer pacing after certain operations.
   //
-  // FastDeviceConnection microDelay() handles per-packet
-  // pacing. This method is for adding extended delays if
-  // needed for debugging or compatibility.
+  // The connection's Pacer handles per-packet pacing. This
+  // method is for adding extended delays if needed for
+  // debugging or compatibility.
   // ----------------------------------------------------------
   public void longPace(int ms) {
     try {
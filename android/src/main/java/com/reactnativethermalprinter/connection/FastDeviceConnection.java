@@ -2,10 +2,18 @@ package com.reactnativethermalprinter.connection;
 
 import android.util.Log;
 
+import com.reactnativethermalprinter.metrics.JobTrace;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.metrics.Stage;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public abstract class FastDeviceConnection {
 
@@ -13,20 +21,112 @@ public abstract class FastDeviceConnection {
 
   protected final ConcurrentLinkedQueue<WriteChunk> queue = new ConcurrentLinkedQueue<>();
 
-  protected ExecutorService executor;
+  // Shared writer threads (WriterPool); this connection runs at most one
+  // writer task at a time
+  protected Executor executor = WriterPool.get();
   protected boolean useQueue = true;
 
   protected int packetSize = 1024;
   protected int microDelayMs = 2;
 
+  // Inter-packet pacing (replaces fixed per-packet sleeps)
+  protected Pacer pacer;
+
+  // Packet write / close latencies and bytes sent
+  private volatile PrinterMetrics metrics = PrinterMetrics.NONE;
+
   private volatile boolean closed = false;
-  private volatile boolean writerRunning = false;
+  private volatile boolean aborted = false;
+  // A writer task is queued or running on the shared pool
+  private final AtomicBoolean writerRunning = new AtomicBoolean(false);
+  // First transport error of a write; the writer dropped the queue and
+  // further writes fail with it
+  private volatile IOException writeError = null;
+
+  // Job bytes accepted by write() / handed to the transport
+  private volatile long bytesQueued = 0;
+  private volatile long bytesDelivered = 0;
+
+  // Last write ticket of each band of the job (markBand)
+  private long[] bandTickets = new long[64];
+  private int bands = 0;
+
+  // Resumed job: bands 1 .. resumeBand - 1 got through on an earlier
+  // connection and are not sent again
+  private int resumeBand = 0;
+
+  // Leading bands / job bytes the printer confirmed it processed (GS r
+  // drain marker); bytes in the send buffers are lost with a dropped link
+  private int bandsConfirmed = 0;
+  private long bytesConfirmed = 0;
+
+  // Bands between drain markers on jobs that can resume: each marker lets
+  // the printer's buffer run empty once
+  public static final int DEFAULT_CONFIRM_BANDS = 16;
+
+  // Drain marker every confirmEveryBands bands (0 = only at the end)
+  private int confirmEveryBands = 0;
+  private int confirmTimeoutMs = 0;
+
+  // Queue mode chunk tickets: last handed out / last fully written
+  private final AtomicLong queuedChunks = new AtomicLong();
+  private volatile long writtenChunks = 0;
+
+  // Poll interval while waiting for a chunk to be written
+  private static final long WRITE_POLL_NANOS = 100_000L;
+
+  // GS r 1 -> transmit paper sensor status. Unlike DLE EOT it is not
+  // real-time: the printer answers once it has processed everything sent
+  // before it, which makes it a drain marker.
+  private static final byte[] CMD_PAPER_STATUS = new byte[] { 0x1D, 0x72, 0x01 };
+
+  // Drain wait: a fixed allowance plus the unconfirmed bytes at a slow
+  // print rate (text-heavy jobs on a 58 mm clone), capped by the caller
+  private static final int DRAIN_BASE_MS = 1_000;
+  private static final int DRAIN_MIN_BYTES_PER_SECOND = 8_000;
+
+  // checkAlive() budget: two DLE EOT round trips on a LAN printer
+  private static final int LIVENESS_TIMEOUT_MS = 200;
+
+  // Poll interval while waiting for a status byte
+  private static final long STATUS_POLL_NANOS = 200_000L;
+
+  // GS I n -> transmit printer ID
+  private static final byte GS = 0x1D;
+  private static final byte ID_TYPE = 2;
+  private static final byte ID_FIRMWARE = 65;
+  private static final byte ID_MAKER = 66;
+  private static final byte ID_MODEL = 67;
+
+  // GS I 65+ answers: header, ASCII, NUL
+  private static final int ID_STRING_HEADER = 0x5F;
+  private static final int ID_STRING_MAX = 80;
+
+  // Status read-back support: null = not probed yet
+  private volatile Boolean statusSupported = null;
+
+  // Set by whoever probed the printer (see queryCapabilities); null = unknown
+  private volatile PrinterCapabilities capabilities = null;
+
+  // Tap on the current job's writes (spooling); null = none
+  private WriteRecorder recorder = null;
+
+  // True once the printer confirmed it processed every byte written so far
+  private volatile boolean drainConfirmed = false;
+  // Bytes written since the last drain confirmation
+  private volatile long undrainedBytes = 0;
+  // The printer answers DLE EOT but let a GS r marker time out: drain
+  // delays from then on
+  private volatile boolean drainMarkerMissed = false;
+
+  // When the first packet of the current job hit the transport (0 = none yet)
+  private volatile long firstWriteNanos = 0;
 
   public FastDeviceConnection(int packetSize, boolean useQueue, int microDelayMs) {
     this.packetSize = packetSize;
     this.useQueue = useQueue;
     this.microDelayMs = microDelayMs;
-    this.executor = Executors.newSingleThreadExecutor();
+    this.pacer = createDefaultPacer(microDelayMs);
   }
 
   // ----------------------------------------------------------
@@ -36,11 +136,13 @@ public abstract class FastDeviceConnection {
     final byte[] data;
     final int offset;
     final int length;
+    final long ticket;
 
-    WriteChunk(byte[] data, int offset, int length) {
+    WriteChunk(byte[] data, int offset, int length, long ticket) {
       this.data = data;
       this.offset = offset;
       this.length = length;
+      this.ticket = ticket;
     }
   }
 
@@ -50,6 +152,73 @@ public abstract class FastDeviceConnection {
 
   protected abstract void closeDevice() throws IOException;
 
+  // Input side of the transport (status responses); null when not connected
+  protected abstract InputStream getDeviceInputStream() throws IOException;
+
+  public abstract boolean isConnected();
+
+  // Transport-specific default pacing; microDelayMs is the starting gap
+  protected Pacer createDefaultPacer(int microDelayMs) {
+    return new FixedPacer(microDelayMs * 1_000_000L);
+  }
+
+  // ----------------------------------------------------------
+  // PACING
+  // ----------------------------------------------------------
+  public void setPacer(Pacer pacer) {
+    this.pacer = pacer;
+  }
+
+  public Pacer getPacer() {
+    return this.pacer;
+  }
+
+  // Per-job statistics: call at job start
+  public void resetPacingStats() {
+    this.pacer.reset();
+    this.firstWriteNanos = 0;
+  }
+
+  // System.nanoTime() of the job's first packet; 0 if nothing was written
+  public long getFirstWriteNanos() {
+    return this.firstWriteNanos;
+  }
+
+  public PacingStats getPacingStats() {
+    return this.pacer.getStats();
+  }
+
+  // Effective packet size (after the transport's clamp)
+  public int getPacketSize() {
+    return this.packetSize;
+  }
+
+  public void setMetrics(PrinterMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  // Per-job delivery tracking (bytes, bands): call when a job takes the
+  // connection
+  public void resetDelivery() {
+    this.bytesQueued = 0;
+    this.bytesDelivered = 0;
+    this.bands = 0;
+    this.resumeBand = 0;
+    this.bandsConfirmed = 0;
+    this.bytesConfirmed = 0;
+    this.confirmEveryBands = 0;
+  }
+
+  public long getBytesQueued() {
+    return this.bytesQueued;
+  }
+
+  // Bytes the transport accepted; on a dropped link the ones after the
+  // last accepted packet are lost
+  public long getBytesDelivered() {
+    return this.bytesDelivered;
+  }
+
   // PUBLIC WRITE API
   public void write(byte[] data) throws IOException {
     if (data == null || data.length == 0) {
@@ -60,51 +229,138 @@ public abstract class FastDeviceConnection {
   }
 
   public void write(byte[] data, int offset, int length) throws IOException {
+    writeTracked(data, offset, length);
+  }
+
+  /**
+   * Same as write(), returning a ticket for awaitWritten(). In queue mode the
+   * writer reads data until then, so the caller must not reuse it before.
+   * Writes to one connection come from one thread at a time (the job's).
+   */
+  public long writeTracked(byte[] data, int offset, int length) throws IOException {
     if (this.closed) {
       throw new IOException("Connection closed");
     }
 
+    throwIfWriteFailed();
+
+    if (this.bands > 0 && this.bands < this.resumeBand) {
+      // Delivered on the lost connection: spooled, not sent again
+      if (this.recorder != null) {
+        this.recorder.record(data, offset, length, 0);
+      }
+      return 0;
+    }
+
+    this.drainConfirmed = false;
+    this.undrainedBytes += length;
+    this.bytesQueued += length;
+
     if (!this.useQueue) {
       // DIRECT WRITE MODE (synchronous)
-      writeDirect(data, offset, length);
-      return;
+      try {
+        writePackets(data, offset, length);
+      } catch (IOException e) {
+        throwIfWriteFailed();
+        throw e;
+      }
+
+      if (this.recorder != null) {
+        this.recorder.record(data, offset, length, 0);
+      }
+      return 0;
     }
 
     // QUEUE MODE
-    this.queue.add(new WriteChunk(data, offset, length));
+    final long ticket = this.queuedChunks.incrementAndGet();
+
+    this.queue.add(new WriteChunk(data, offset, length, ticket));
     startWriterIfNeeded();
 
+    if (this.recorder != null) {
+      this.recorder.record(data, offset, length, ticket);
+    }
+
     // Backpressure warning
     if (this.queue.size() > 50) {
       Log.w(TAG, "⚠️ Print queue growing large: " + this.queue.size() + " items");
     }
+
+    return ticket;
   }
 
-  // Start writer thread if not running
-  private synchronized void startWriterIfNeeded() {
-    if (this.writerRunning || this.closed) {
+  // True once the chunk of ticket left the writer (always in direct mode)
+  public boolean isWritten(long ticket) {
+    return this.writtenChunks >= ticket;
+  }
+
+  // Blocks until the chunk of ticket left the writer; false if the
+  // connection failed or closed first. Unlike finish(), no settle delay.
+  public boolean awaitWritten(long ticket) {
+    while (this.writtenChunks < ticket) {
+      if (this.closed || this.aborted || this.writeError != null) {
+        return false;
+      }
+      LockSupport.parkNanos(WRITE_POLL_NANOS);
+    }
+    return true;
+  }
+
+  // Start writer task if not running. Lock-free: close() holds the monitor
+  // while it waits for the writer to drain.
+  private void startWriterIfNeeded() {
+    if (this.closed || this.writeError != null || !this.writerRunning.compareAndSet(false, true)) {
       return;
     }
 
-    this.writerRunning = true;
+    this.executor.execute(this::runWriter);
+  }
+
+  // One writer task on the shared pool; drains the queue and returns the
+  // thread to the pool
+  private void runWriter() {
+    try {
+      processQueue();
+    } catch (Exception e) {
+      Log.e(TAG, "Writer task crashed: " + e.getMessage(), e);
+    }
+
+    this.writerRunning.set(false);
 
-    this.executor.execute(() -> {
-      try {
-        processQueue();
-      } catch (Exception e) {
-        Log.e(TAG, "Writer thread crashed: " + e.getMessage(), e);
-      } finally {
-        this.writerRunning = false;
-      }
-    });
+    // Failed or closed: a chunk queued after the error is never sent (the
+    // job sees the error); restarting for it would spin on the pool
+    if (this.writeError != null || this.closed) {
+      this.queue.clear();
+      return;
+    }
+
+    // A chunk queued after the last poll would otherwise wait for the next
+    // write() (and finish() for it forever)
+    if (!this.queue.isEmpty()) {
+      startWriterIfNeeded();
+    }
+  }
+
+  // Throws the transport error that stopped the writer, if any
+  public void throwIfWriteFailed() throws PrinterWriteException {
+    final IOException e = this.writeError;
+
+    if (e != null) {
+      throw new PrinterWriteException(this.bytesDelivered, getBandsWritten(), this.bytesConfirmed,
+          this.bandsConfirmed, e);
+    }
   }
 
-  // DIRECT WRITE MODE (no queue)
-  private void writeDirect(byte[] data, int offset, int length) throws IOException {
+  public IOException getWriteError() {
+    return this.writeError;
+  }
+
+  // Split into packets (direct mode: on the caller thread)
+  private void writePackets(byte[] data, int offset, int length) throws IOException {
     if (this.packetSize <= 0 || length <= this.packetSize) {
       // Small enough: write once
-      writeToDevice(data, offset, length);
-      microDelay();
+      writePacket(data, offset, length);
+      this.bytesDelivered += length;
       return;
     }
 
@@ -114,8 +370,8 @@ public abstract class FastDeviceConnection {
 
     while (pos < end && !this.closed) {
       int chunkLen = Math.min(this.packetSize, end - pos);
-      writeToDevice(data, pos, chunkLen);
-      microDelay();
+      writePacket(data, pos, chunkLen);
+      this.bytesDelivered += chunkLen;
       pos += chunkLen;
     }
   }
@@ -123,7 +379,7 @@ public abstract class FastDeviceConnection {
   // PROCESS QUEUE (Queued Write Mode)
   private void processQueue() {
 
-    while (!this.closed) {
+    while (!this.closed && this.writeError == null) {
 
       WriteChunk chunk = this.queue.poll();
 
@@ -133,52 +389,58 @@ public abstract class FastDeviceConnection {
       }
 
       try {
-        // Split chunk into packets
-        if (this.packetSize <= 0 || chunk.length <= this.packetSize) {
-
-          // Small chunk -> send directly
-          writeToDevice(chunk.data, chunk.offset, chunk.length);
-          microDelay();
-
-        } else {
-
-          // Split into packets
-          int pos = chunk.offset;
-          int end = chunk.offset + chunk.length;
-
-          while (pos < end && !this.closed) {
-            int n = Math.min(this.packetSize, end - pos);
-
-            writeToDevice(chunk.data, pos, n);
-            microDelay();
+        writePackets(chunk.data, chunk.offset, chunk.length);
 
-            pos += n;
-          }
-        }
+        this.writtenChunks = chunk.ticket;
 
       } catch (IOException writeErr) {
         Log.e(TAG, "Writer error: " + writeErr.getMessage(), writeErr);
 
-        // Clear queue so no further writes happen
+        // Clear queue so no further writes happen; the job sees the error
+        // on its next write() / finish()
         this.queue.clear();
         return;
       }
     }
   }
 
-  // MICRO DELAY (Bluetooth requires pacing)
-  public void microDelay() {
-    if (this.microDelayMs <= 0) {
-      return;
+  // PACED PACKET WRITE (measures how long the transport blocks)
+  private void writePacket(byte[] data, int offset, int length) throws IOException {
+    final Pacer p = this.pacer;
+
+    p.beforeWrite(length);
+
+    final long start = System.nanoTime();
+
+    if (this.firstWriteNanos == 0) {
+      this.firstWriteNanos = start;
     }
+
     try {
-      Thread.sleep(this.microDelayMs);
-    } catch (InterruptedException ignored) {
+      writeToDevice(data, offset, length);
+    } catch (IOException e) {
+      if (this.writeError == null) {
+        this.writeError = e;
+      }
+      throw e;
     }
+
+    final long end = System.nanoTime();
+    final long blocked = end - start;
+
+    p.afterWrite(length, blocked);
+
+    final PrinterMetrics m = this.metrics;
+
+    m.record(Stage.WRITE, blocked);
+    m.addBytesSent(length);
+
+    JobTrace.complete("write", start, end, m.getPrinterKey(), length);
   }
 
-  // FINISH - Drain queue fully AND give transport time to flush
-  public void finish() {
+  // FINISH - Drain queue fully AND give transport time to flush. Throws
+  // the writer's error if anything queued was not sent.
+  public void finish() throws PrinterWriteException {
     if (!this.useQueue) {
       return; // direct mode doesn't need draining
     }
@@ -186,21 +448,360 @@ public abstract class FastDeviceConnection {
     final long start = System.nanoTime();
 
     // Wait for queue drain AND write-thread exit
-    while (this.writerRunning || !this.queue.isEmpty()) {
+    while ((this.writerRunning.get() || !this.queue.isEmpty())
+        && !this.aborted && !this.closed && this.writeError == null) {
       try {
-        Log.i(TAG, "waiting to finish; queueSize: " + this.queue.size());
         Thread.sleep(5);
       } catch (InterruptedException ignored) {
       }
     }
 
-    // CRITICAL: Allow OS -> SPP -> printer hardware buffer to drain
+    throwIfWriteFailed();
+
+    // CRITICAL: Allow OS -> SPP -> printer hardware buffer to drain.
+    // Printers that answer status queries get an explicit drain confirmation
+    // at the end of the job instead (awaitPrinterDrained).
+    if (!Boolean.TRUE.equals(this.statusSupported) || this.drainMarkerMissed) {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException ignored) {
+      }
+    }
+
+    JobTrace.complete("finish", start, System.nanoTime(), this.metrics.getPrinterKey(), 0);
+  }
+
+  // ----------------------------------------------------------
+  // STATUS READ-BACK
+  // ----------------------------------------------------------
+
+  /**
+   * Real-time status query (DLE EOT 2 + DLE EOT 4). Only call between
+   * commands: the queue is drained first so the query cannot land inside
+   * raster data.
+   *
+   * Returns null when the printer does not answer; in that case the
+   * connection stops asking and falls back to blind drain delays.
+   */
+  public PrinterStatus queryStatus(int timeoutMs) throws IOException {
+    if (Boolean.FALSE.equals(this.statusSupported)) {
+      return null;
+    }
+
+    finish();
+
+    discardInput();
+
+    int offlineCause = requestStatusByte(
+        new byte[] { PrinterStatus.DLE, PrinterStatus.EOT, PrinterStatus.OFFLINE_CAUSE }, timeoutMs);
+
+    if (!PrinterStatus.isValidDleEotResponse(offlineCause)) {
+      markStatusUnsupported();
+      return null;
+    }
+
+    int paperSensor = requestStatusByte(
+        new byte[] { PrinterStatus.DLE, PrinterStatus.EOT, PrinterStatus.PAPER_SENSOR }, timeoutMs);
+
+    if (!PrinterStatus.isValidDleEotResponse(paperSensor)) {
+      markStatusUnsupported();
+      return null;
+    }
+
+    this.statusSupported = Boolean.TRUE;
+
+    return new PrinterStatus(offlineCause, paperSensor);
+  }
+
+  /**
+   * Wait until the printer has processed everything written so far (GS r 1
+   * round trip). The wait is sized by the bytes written since the last
+   * confirmation and capped at maxTimeoutMs. Returns false when the printer
+   * does not support status read-back or did not answer in time; callers
+   * then fall back to delays. After one miss the connection (and its
+   * capabilities) stop asking.
+   */
+  public boolean awaitPrinterDrained(int maxTimeoutMs) throws IOException {
+    if (!Boolean.TRUE.equals(this.statusSupported) || this.drainMarkerMissed) {
+      return false;
+    }
+
+    final int timeoutMs = drainTimeoutMs(this.undrainedBytes, maxTimeoutMs);
+
+    finish();
+
+    discardInput();
+
+    int b = requestStatusByte(CMD_PAPER_STATUS, timeoutMs);
+
+    if (!PrinterStatus.isValidPaperStatusResponse(b)) {
+      Log.w(TAG, "No drain confirmation from printer within " + timeoutMs + " ms; using drain delays");
+      markDrainMarkerMissed();
+      return false;
+    }
+
+    this.drainConfirmed = true;
+    this.undrainedBytes = 0;
+    this.bandsConfirmed = Math.max(this.bandsConfirmed, this.bands);
+    this.bytesConfirmed = this.bytesQueued;
+
+    return true;
+  }
+
+  static int drainTimeoutMs(long bytes, int maxTimeoutMs) {
+    final long ms = DRAIN_BASE_MS + bytes * 1_000L / DRAIN_MIN_BYTES_PER_SECOND;
+    return (int) Math.min(ms, Math.max(maxTimeoutMs, DRAIN_BASE_MS));
+  }
+
+  private void markDrainMarkerMissed() {
+    this.drainMarkerMissed = true;
+
+    // Cached per printer: later connections skip the marker too
+    PrinterCapabilities caps = this.capabilities;
+    if (caps != null) {
+      caps.markDrainMarkerMissed();
+    }
+
+    // A late answer must not be read as the next status byte
     try {
-      Thread.sleep(50);
-    } catch (InterruptedException ignored) {
+      discardInput();
+    } catch (IOException ignored) {
+    }
+  }
+
+  public Boolean isStatusSupported() {
+    return this.statusSupported;
+  }
+
+  // True when the printer confirmed every byte was processed; transports can
+  // skip their flush padding and drain delays on close
+  protected boolean isDrainConfirmed() {
+    return this.drainConfirmed;
+  }
+
+  private void markStatusUnsupported() {
+    Log.i(TAG, "Printer does not answer status queries; using drain delays");
+    this.statusSupported = Boolean.FALSE;
+  }
+
+  // Called with the writer idle (after finish()), so writing from the caller
+  // thread keeps the one-writer-at-a-time contract
+  private int requestStatusByte(byte[] command, int timeoutMs) throws IOException {
+    writePacket(command, 0, command.length);
+    return readByte(timeoutMs);
+  }
+
+  // Read one byte or return -1 on timeout. Polls available() because
+  // Bluetooth input streams have no read timeout.
+  private int readByte(int timeoutMs) throws IOException {
+    InputStream in = getDeviceInputStream();
+    if (in == null) {
+      throw new IOException("Connection has no input stream");
     }
 
-    Log.i(TAG, "finish took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    final long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+
+    while (System.nanoTime() < deadline) {
+      if (in.available() > 0) {
+        return in.read();
+      }
+      LockSupport.parkNanos(STATUS_POLL_NANOS);
+    }
+
+    return -1;
+  }
+
+  // Drop stale bytes (late answers, automatic status back messages)
+  private void discardInput() throws IOException {
+    InputStream in = getDeviceInputStream();
+    if (in == null) {
+      return;
+    }
+
+    int n;
+    while ((n = in.available()) > 0) {
+      in.skip(n);
+    }
+  }
+
+  // ----------------------------------------------------------
+  // BANDS (spool, resume)
+  // ----------------------------------------------------------
+  public void setRecorder(WriteRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Ask the printer to confirm every bands bands it processed (GS r drain
+   * marker), so a dropped link resumes after the last confirmed band
+   * instead of the last one the transport took. Each marker waits for the
+   * printer to catch up. Only printers with status read-back answer; for
+   * the rest it is a no-op. Call after resetDelivery().
+   */
+  public void setBandConfirmation(int bands, int maxTimeoutMs) {
+    this.confirmEveryBands = bands;
+    this.confirmTimeoutMs = maxTimeoutMs;
+  }
+
+  // Everything written so far forms complete commands (resume point)
+  public void markBand() throws PrinterWriteException {
+    if (this.bands == this.bandTickets.length) {
+      this.bandTickets = Arrays.copyOf(this.bandTickets, this.bands * 2);
+    }
+    this.bandTickets[this.bands++] = this.useQueue ? this.queuedChunks.get() : 0;
+
+    if (this.recorder != null) {
+      this.recorder.endBand();
+    }
+
+    if (this.confirmEveryBands > 0 && this.bands > this.resumeBand
+        && this.bands - this.bandsConfirmed >= this.confirmEveryBands) {
+      confirmBands();
+    }
+  }
+
+  private void confirmBands() throws PrinterWriteException {
+    try {
+      if (!awaitPrinterDrained(this.confirmTimeoutMs)) {
+        this.confirmEveryBands = 0; // no status read-back: nothing to wait for
+      }
+    } catch (IOException e) {
+      throwIfWriteFailed();
+      throw new PrinterWriteException(this.bytesDelivered, getBandsWritten(), this.bytesConfirmed,
+          this.bandsConfirmed, e);
+    }
+  }
+
+  public int getBandsConfirmed() {
+    return this.bandsConfirmed;
+  }
+
+  // Leading bands of the job the transport took completely
+  public int getBandsWritten() {
+    int n = 0;
+    while (n < this.bands && isWritten(this.bandTickets[n])) {
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * Continue a job cut off on another connection: the job is run again
+   * from the start (encoding is deterministic, so its bands are the same),
+   * and its bands 1 .. band - 1 are dropped. Band 0 (ESC @) is sent, so the
+   * printer picks up from defaults. Call after resetDelivery().
+   */
+  public void resumeFromBand(int band) {
+    this.resumeBand = band;
+    // Confirmed on the earlier connection
+    this.bandsConfirmed = Math.max(0, band);
+  }
+
+  // ----------------------------------------------------------
+  // CAPABILITIES (GS I)
+  // ----------------------------------------------------------
+
+  /**
+   * Asks the printer for its type, maker, model and firmware. Only printers
+   * that answer status queries are asked (others are usually one-way
+   * links), and the first unanswered query ends the probe.
+   */
+  public PrinterCapabilities queryCapabilities(int timeoutMs) throws IOException {
+    if (queryStatus(timeoutMs) == null) {
+      return PrinterCapabilities.UNKNOWN;
+    }
+
+    discardInput();
+
+    final int typeId = requestStatusByte(new byte[] { GS, 0x49, ID_TYPE }, timeoutMs);
+
+    if (!PrinterCapabilities.isValidTypeId(typeId)) {
+      discardInput();
+      return new PrinterCapabilities(true, false, null, null, null, -1);
+    }
+
+    final String maker = requestIdString(ID_MAKER, timeoutMs);
+    final String model = maker != null ? requestIdString(ID_MODEL, timeoutMs) : null;
+    final String firmware = model != null ? requestIdString(ID_FIRMWARE, timeoutMs) : null;
+
+    return new PrinterCapabilities(true, true, maker, model, firmware, typeId);
+  }
+
+  public PrinterCapabilities getCapabilities() {
+    return this.capabilities;
+  }
+
+  public void setCapabilities(PrinterCapabilities capabilities) {
+    this.capabilities = capabilities;
+
+    if (capabilities != null && capabilities.hasMissedDrainMarker()) {
+      this.drainMarkerMissed = true;
+    }
+  }
+
+  // "_" + ASCII + NUL; null if the printer does not answer in time
+  private String requestIdString(byte n, int timeoutMs) throws IOException {
+    writePacket(new byte[] { GS, 0x49, n }, 0, 3);
+
+    if (readByte(timeoutMs) != ID_STRING_HEADER) {
+      discardInput();
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder();
+
+    int b;
+    while ((b = readByte(timeoutMs)) > 0) {
+      if (sb.length() < ID_STRING_MAX) {
+        sb.append((char) b);
+      }
+    }
+
+    if (b < 0) {
+      discardInput();
+      return null; // cut off
+    }
+
+    return sb.toString().trim();
+  }
+
+  // ----------------------------------------------------------
+  // LIVENESS (pooled connections)
+  // ----------------------------------------------------------
+
+  // Budget for checkAlive(); transports with slower round trips raise it
+  public int getLivenessTimeoutMs() {
+    return LIVENESS_TIMEOUT_MS;
+  }
+
+  /**
+   * Cheap check that an idle connection can still carry a job. Printers
+   * with status read-back get a real round trip; others a transport probe.
+   */
+  public boolean checkAlive(int timeoutMs) {
+    if (this.closed || !isConnected()) {
+      return false;
+    }
+
+    try {
+      if (Boolean.TRUE.equals(this.statusSupported)) {
+        return queryStatus(timeoutMs) != null;
+      }
+      return probeTransport();
+    } catch (IOException e) {
+      Log.i(TAG, "Connection is stale: " + e.getMessage());
+      return false;
+    }
+  }
+
+  // Transport-level liveness probe; available() throws on a dead socket
+  protected boolean probeTransport() throws IOException {
+    InputStream in = getDeviceInputStream();
+    if (in == null) {
+      return false;
+    }
+    in.available();
+    return true;
   }
 
   // CLOSE CONNECTION (safe shutdown)
@@ -211,26 +812,47 @@ public abstract class FastDeviceConnection {
 
     Log.i(TAG, "Closing connection");
 
-    this.closed = true;
+    final long start = System.nanoTime();
 
     try {
       finish(); // ensure queue fully written
     } catch (Exception ignored) {
     }
 
+    // Only now: the writer stops at the first packet boundary once closed
+    this.closed = true;
+
     try {
       closeDevice();
     } catch (IOException e) {
       Log.e(TAG, "Error closing device: " + e.getMessage());
     }
 
-    // Shutdown executor
+    this.metrics.recordSince(Stage.CLOSE, start);
+  }
+
+  // ABORT (another thread; unblocks a write stuck on a dead link)
+  // Pending data is dropped and the socket is closed without the flush
+  // ritual, which would block on the same dead link.
+  public void abort() {
+    Log.w(TAG, "Aborting connection");
+
+    this.aborted = true;
+    this.closed = true;
+
+    this.queue.clear();
+
     try {
-      this.executor.shutdownNow();
-    } catch (Exception ignored) {
+      closeDevice();
+    } catch (IOException e) {
+      Log.e(TAG, "Error aborting device: " + e.getMessage());
     }
   }
 
+  protected boolean isAborted() {
+    return this.aborted;
+  }
+
   // CHECK IF CLOSED
   public boolean isClosed() {
     return this.closed;
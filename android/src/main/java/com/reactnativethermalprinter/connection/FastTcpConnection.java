@@ -4,9 +4,11 @@ import android.util.Log;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.Arrays;
 
 public class FastTcpConnection extends FastDeviceConnection {
@@ -22,12 +24,17 @@ public class FastTcpConnection extends FastDeviceConnection {
 
   private Socket socket;
   private OutputStream out;
+  private InputStream in;
 
   // Final pacing values (TCP needs far less than Bluetooth)
-  private static final int PRE_WRITE_DELAY_MS = 0; // TCP is fast, avoid BT-like delays
-  private static final int POST_WRITE_DELAY_MS = 0;
   private static final int POST_FINISH_DRAIN_MS = 10; // allow NIC -> printer module drain
 
+  // TCP pacing bounds (AdaptivePacer): LAN printers mostly run at gap 0, but
+  // serial-bridge modules stall once their UART buffer fills up.
+  private static final long MAX_GAP_NANOS = 20_000_000L;
+  private static final long GAP_STEP_NANOS = 250_000L;
+  private static final long STALL_FLOOR_NANOS = 5_000_000L;
+
   public FastTcpConnection(
       String host,
       int port,
@@ -49,8 +56,6 @@ public class FastTcpConnection extends FastDeviceConnection {
 
   // CONNECT
   public void connect() throws IOException {
-    final long start = System.nanoTime();
-
     this.socket = new Socket();
 
     try {
@@ -60,6 +65,7 @@ public class FastTcpConnection extends FastDeviceConnection {
       this.socket.setKeepAlive(true);
 
       this.out = new BufferedOutputStream(this.socket.getOutputStream());
+      this.in = this.socket.getInputStream();
 
       Log.i(TAG, "Connected to TCP printer: " + this.host + ":" + this.port);
 
@@ -68,13 +74,20 @@ public class FastTcpConnection extends FastDeviceConnection {
       safeCloseSocket();
 
       throw new IOException("Failed to connect to " + this.host + ":" + this.port + " - " + e.getMessage(), e);
-
-    } finally {
-
-      Log.i(TAG, "connect took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
     }
   }
 
+  // TCP PACING (AIMD)
+  @Override
+  protected Pacer createDefaultPacer(int microDelayMs) {
+    return new AdaptivePacer(
+        microDelayMs * 1_000_000L,
+        0,
+        MAX_GAP_NANOS,
+        GAP_STEP_NANOS,
+        STALL_FLOOR_NANOS);
+  }
+
   // WRITE PACKET (called by FastDeviceConnection)
   @Override
   protected void writeToDevice(byte[] buffer, int offset, int length) throws IOException {
@@ -83,24 +96,11 @@ public class FastTcpConnection extends FastDeviceConnection {
     }
 
     try {
-      // TCP generally doesn't need pacing, but some serial-bridge modules do
-      if (PRE_WRITE_DELAY_MS > 0) {
-        try {
-          Thread.sleep(PRE_WRITE_DELAY_MS);
-        } catch (InterruptedException ignored) {
-        }
-      }
-
+      // TCP generally doesn't need pacing, but some serial-bridge modules do;
+      // the pacer backs off when they stall
       this.out.write(buffer, offset, length);
       this.out.flush(); // LAN printers flush safely and quickly
 
-      if (POST_WRITE_DELAY_MS > 0) {
-        try {
-          Thread.sleep(POST_WRITE_DELAY_MS);
-        } catch (InterruptedException ignored) {
-        }
-      }
-
     } catch (IOException ex) {
       Log.e(TAG, "TCP write failed: " + ex.getMessage(), ex);
       safeCloseSocket();
@@ -114,9 +114,13 @@ public class FastTcpConnection extends FastDeviceConnection {
     safeCloseSocket();
   }
 
-  private void safeCloseSocket() {
+  // STATUS RESPONSES (called by FastDeviceConnection)
+  @Override
+  protected InputStream getDeviceInputStream() {
+    return this.in;
+  }
 
-    final long start = System.nanoTime();
+  private void safeCloseSocket() {
 
     Log.i(TAG, "Closing TCP connection");
 
@@ -125,54 +129,60 @@ public class FastTcpConnection extends FastDeviceConnection {
       // bytes unsent. Note: this.conn.flush() only flushes the Java's OutputStream
       // buffer, not the RFComm buffer.
 
-      // --------------------------------------------------------
-      // STEP 1 — Write ASCII space padding to force
-      // Android -> RF chipset -> printer flush.
-      // --------------------------------------------------------
-      // Using ASCII 0x20 ensures:
-      // - Printer firmware must process it -> forces flush
-      // - Does NOT print anything after cut/reset
-      // - Works on ALL cheap clone printers
+      // Printer confirmed (GS r) that it processed every byte: nothing is
+      // left in flight, skip the padding and drain delays. Same on abort:
+      // the link is dead or the job is being thrown away.
+      if (!isDrainConfirmed() && !isAborted()) {
 
-      byte[] padding = new byte[2048];
-      Arrays.fill(padding, (byte) 0x20);
+        // --------------------------------------------------------
+        // STEP 1 — Write ASCII space padding to force
+        // Android -> RF chipset -> printer flush.
+        // --------------------------------------------------------
+        // Using ASCII 0x20 ensures:
+        // - Printer firmware must process it -> forces flush
+        // - Does NOT print anything after cut/reset
+        // - Works on ALL cheap clone printers
 
-      try {
-        if (this.out != null) {
-          this.out.write(padding);
-          this.out.flush(); // First flush: ensure padding exits Java buffers
-        }
-      } catch (Exception ignored) {
-        // Even if padding write fails, continue closing gracefully
-      }
+        byte[] padding = new byte[2048];
+        Arrays.fill(padding, (byte) 0x20);
 
-      // --------------------------------------------------------
-      // STEP 2 — Allow RFCOMM + printer UART to drain fully.
-      // --------------------------------------------------------
-      if (POST_FINISH_DRAIN_MS > 0) {
         try {
-          Thread.sleep(POST_FINISH_DRAIN_MS);
-        } catch (InterruptedException ignored) {
+          if (this.out != null) {
+            this.out.write(padding);
+            this.out.flush(); // First flush: ensure padding exits Java buffers
+          }
+        } catch (Exception ignored) {
+          // Even if padding write fails, continue closing gracefully
         }
-      }
 
-      // --------------------------------------------------------
-      // STEP 3 — Final flush to ensure NO padding remains
-      // inside BufferedOutputStream.
-      // --------------------------------------------------------
-      try {
-        if (this.out != null) {
-          this.out.flush();
+        // --------------------------------------------------------
+        // STEP 2 — Allow RFCOMM + printer UART to drain fully.
+        // --------------------------------------------------------
+        if (POST_FINISH_DRAIN_MS > 0) {
+          try {
+            Thread.sleep(POST_FINISH_DRAIN_MS);
+          } catch (InterruptedException ignored) {
+          }
         }
-      } catch (Exception ignored) {
-      }
 
-      // --------------------------------------------------------
-      // STEP 4 — Short delay after final flush.
-      // --------------------------------------------------------
-      try {
-        Thread.sleep(40);
-      } catch (InterruptedException ignored) {
+        // --------------------------------------------------------
+        // STEP 3 — Final flush to ensure NO padding remains
+        // inside BufferedOutputStream.
+        // --------------------------------------------------------
+        try {
+          if (this.out != null) {
+            this.out.flush();
+          }
+        } catch (Exception ignored) {
+        }
+
+        // --------------------------------------------------------
+        // STEP 4 — Short delay after final flush.
+        // --------------------------------------------------------
+        try {
+          Thread.sleep(40);
+        } catch (InterruptedException ignored) {
+        }
       }
 
       // --------------------------------------------------------
@@ -195,15 +205,36 @@ public class FastTcpConnection extends FastDeviceConnection {
     } finally {
 
       this.out = null;
+      this.in = null;
       this.socket = null;
-
-      Log.i(TAG,
-          "TCP connection closed; safeCloseSocket took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
     }
   }
 
   // CONNECTION STATE
+  @Override
   public boolean isConnected() {
-    return this.socket != null && this.socket.isConnected();
+    return this.socket != null && this.socket.isConnected() && !this.socket.isClosed();
+  }
+
+  // A peer that closed the connection only shows up as EOF on read
+  @Override
+  protected boolean probeTransport() throws IOException {
+    if (this.in == null) {
+      return false;
+    }
+
+    final int previousTimeout = this.socket.getSoTimeout();
+
+    try {
+      this.socket.setSoTimeout(1);
+      return this.in.read() != -1; // unsolicited status byte: still alive
+
+    } catch (SocketTimeoutException e) {
+
+      return true; // nothing to read, socket open
+
+    } finally {
+      this.socket.setSoTimeout(previousTimeout);
+    }
   }
 }
@@ -0,0 +1,24 @@
+package com.reactnativethermalprinter.connection;
+
+/**
+ * Constant inter-packet gap (the historical microDelayMs behaviour, but with
+ * sub-millisecond resolution).
+ */
+public class FixedPacer extends AbstractPacer {
+
+  private final long gapNanos;
+
+  public FixedPacer(long gapNanos) {
+    this.gapNanos = Math.max(0, gapNanos);
+  }
+
+  @Override
+  protected long gapNanos() {
+    return this.gapNanos;
+  }
+
+  @Override
+  protected boolean onWritten(int length, long blockedNanos) {
+    return false;
+  }
+}
@@ -0,0 +1,24 @@
+package com.reactnativethermalprinter.connection;
+
+/**
+ * Decides how long the writer waits between packets.
+ *
+ * A pacer is driven by the connection's writer: beforeWrite() is called right
+ * before a packet is handed to the transport, afterWrite() right after, with
+ * the time the transport's write() + flush() blocked. Implementations are only
+ * ever called from one writer at a time.
+ */
+public interface Pacer {
+
+  // Wait (if needed) before sending `length` bytes
+  void beforeWrite(int length);
+
+  // Feedback: `length` bytes were written, the transport blocked for
+  // `blockedNanos`
+  void afterWrite(int length, long blockedNanos);
+
+  // Start a new job: clears the statistics (keeps the learned pacing)
+  void reset();
+
+  PacingStats getStats();
+}
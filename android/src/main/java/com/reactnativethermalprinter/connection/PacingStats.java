@@ -0,0 +1,50 @@
+package com.reactnativethermalprinter.connection;
+
+/**
+ * Immutable snapshot of a pacer's per-job counters.
+ */
+public class PacingStats {
+
+  public final long bytes;
+  public final long packets;
+  public final long stalls;
+
+  public final long elapsedNanos; // since the last reset()
+  public final long writeNanos; // time blocked in the transport write
+  public final long sleepNanos; // time parked by the pacer
+
+  public final long gapNanos; // current inter-packet gap
+
+  public PacingStats(long bytes, long packets, long stalls, long elapsedNanos, long writeNanos, long sleepNanos,
+      long gapNanos) {
+    this.bytes = bytes;
+    this.packets = packets;
+    this.stalls = stalls;
+    this.elapsedNanos = elapsedNanos;
+    this.writeNanos = writeNanos;
+    this.sleepNanos = sleepNanos;
+    this.gapNanos = gapNanos;
+  }
+
+  // Achieved throughput over the job so far
+  public long getBytesPerSecond() {
+    if (this.elapsedNanos <= 0) {
+      return 0;
+    }
+    return this.bytes * 1_000_000_000L / this.elapsedNanos;
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "PacingStats {" +
+        " bytes: " + this.bytes +
+        ", packets: " + this.packets +
+        ", stalls: " + this.stalls +
+        ", bytesPerSecond: " + this.getBytesPerSecond() +
+        ", writeMs: " + (this.writeNanos / 1_000_000) +
+        ", sleepMs: " + (this.sleepNanos / 1_000_000) +
+        ", gapUs: " + (this.gapNanos / 1_000) +
+        " }";
+  }
+}
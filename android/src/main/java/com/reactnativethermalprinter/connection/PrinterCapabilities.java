@@ -0,0 +1,165 @@
+package com.reactnativethermalprinter.connection;
+
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.util.Locale;
+
+/**
+ * What a printer reported about itself (GS I) and what the feature table
+ * knows about its model.
+ *
+ * GS I 2 (type ID):
+ * bit 1 -> auto-cutter installed
+ * bits 4, 7 -> always clear
+ *
+ * GS I 65 / 66 / 67 (firmware / maker / model): "_" + ASCII + NUL.
+ * Many clones answer none of them; those stay at "no opinion" and print
+ * with the configured settings.
+ */
+public class PrinterCapabilities {
+
+  // Printer did not answer: configured settings are used as-is
+  public static final PrinterCapabilities UNKNOWN =
+      new PrinterCapabilities(false, false, null, null, null, -1);
+
+  private static final int TYPE_ID_FIXED_BITS_MASK = 0x90;
+  private static final int TYPE_ID_AUTO_CUTTER = 0x02;
+
+  // ----------------------------------------------------------
+  // FEATURE TABLE: maker / model prefixes, first match wins
+  // ----------------------------------------------------------
+  private static class Feature {
+    final String maker; // null = any
+    final String modelPrefix;
+    final PrinterSettings.PrintMode mode;
+    final int maxChunkHeight; // 0 = no limit
+    final boolean graphics; // GS ( L
+    final boolean nvGraphics; // NV logos
+
+    Feature(String maker, String modelPrefix, PrinterSettings.PrintMode mode, int maxChunkHeight,
+        boolean graphics, boolean nvGraphics) {
+      this.maker = maker;
+      this.modelPrefix = modelPrefix;
+      this.mode = mode;
+      this.maxChunkHeight = maxChunkHeight;
+      this.graphics = graphics;
+      this.nvGraphics = nvGraphics;
+    }
+  }
+
+  private static final Feature[] FEATURES = {
+      // Impact (dot matrix) models: bit images only
+      new Feature("EPSON", "TM-U", PrinterSettings.PrintMode.LEGACY_ESC, 0, false, false),
+      new Feature("EPSON", "TM-", PrinterSettings.PrintMode.RASTER_GSV0, 0, true, true),
+      new Feature("BIXOLON", "", PrinterSettings.PrintMode.RASTER_GSV0, 0, true, true),
+      new Feature("CITIZEN", "", PrinterSettings.PrintMode.RASTER_GSV0, 0, true, true),
+      new Feature("STAR", "", PrinterSettings.PrintMode.RASTER_GSV0, 0, false, true),
+
+      // Clones with small receive buffers: GS v0 in short slices
+      new Feature(null, "ZJ-", PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED, 128, false, false),
+      new Feature(null, "POS-58", PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED, 128, false, false),
+      new Feature(null, "POS58", PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED, 128, false, false),
+      new Feature(null, "MTP-", PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED, 128, false, false),
+      new Feature(null, "PT-2", PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED, 128, false, false),
+      new Feature(null, "XP-", PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED, 256, false, false),
+  };
+
+  public final boolean statusBack; // answers DLE EOT
+  public final boolean identified; // answered GS I
+
+  public final String maker;
+  public final String model;
+  public final String firmware;
+
+  public final int typeId; // GS I 2, -1 = unknown
+
+  public final boolean autoCutter;
+  public final boolean graphics;
+  public final boolean nvGraphics;
+
+  // Safest mode the model needs; null = no opinion
+  public final PrinterSettings.PrintMode printMode;
+  public final int maxChunkHeight;
+
+  // Let a GS r drain marker time out: connections to it use drain delays
+  private volatile boolean drainMarkerMissed = false;
+
+  public PrinterCapabilities(boolean statusBack, boolean identified, String maker, String model, String firmware,
+      int typeId) {
+    this.statusBack = statusBack;
+    this.identified = identified;
+    this.maker = maker;
+    this.model = model;
+    this.firmware = firmware;
+    this.typeId = isValidTypeId(typeId) ? typeId : -1;
+    this.autoCutter = this.typeId >= 0 && (this.typeId & TYPE_ID_AUTO_CUTTER) != 0;
+
+    Feature f = lookup(maker, model);
+
+    this.printMode = f != null ? f.mode : null;
+    this.maxChunkHeight = f != null ? f.maxChunkHeight : 0;
+    this.graphics = f != null && f.graphics;
+    this.nvGraphics = f != null && f.nvGraphics;
+  }
+
+  public static boolean isValidTypeId(int b) {
+    return b >= 0 && (b & TYPE_ID_FIXED_BITS_MASK) == 0;
+  }
+
+  private static Feature lookup(String maker, String model) {
+    if (model == null) {
+      return null;
+    }
+
+    final String mk = maker != null ? maker.toUpperCase(Locale.ROOT) : "";
+    final String md = model.toUpperCase(Locale.ROOT);
+
+    for (Feature f : FEATURES) {
+      if ((f.maker == null || mk.startsWith(f.maker)) && md.startsWith(f.modelPrefix)) {
+        return f;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * The configured mode, or the model's own when that is a safer one.
+   * PrintMode is declared from fastest to most compatible.
+   */
+  public PrinterSettings.PrintMode resolvePrintMode(PrinterSettings.PrintMode configured) {
+    if (this.printMode == null || this.printMode.ordinal() <= configured.ordinal()) {
+      return configured;
+    }
+    return this.printMode;
+  }
+
+  public boolean hasMissedDrainMarker() {
+    return this.drainMarkerMissed;
+  }
+
+  // UNKNOWN is shared by every printer that was not probed: left alone
+  public void markDrainMarkerMissed() {
+    if (this != UNKNOWN) {
+      this.drainMarkerMissed = true;
+    }
+  }
+
+  public int resolveChunkHeight(int configured) {
+    return this.maxChunkHeight > 0 ? Math.min(configured, this.maxChunkHeight) : configured;
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "PrinterCapabilities {" +
+        " maker: " + this.maker +
+        ", model: " + this.model +
+        ", firmware: " + this.firmware +
+        ", typeId: " + this.typeId +
+        ", statusBack: " + this.statusBack +
+        ", drainMarkerMissed: " + this.drainMarkerMissed +
+        ", printMode: " + this.printMode +
+        " }";
+  }
+}
@@ -0,0 +1,84 @@
+package com.reactnativethermalprinter.connection;
+
+/**
+ * Decoded ESC/POS real-time status (DLE EOT n).
+ *
+ * DLE EOT 2 (offline cause):
+ * bit 2 -> cover open
+ * bit 3 -> paper being fed by the FEED button
+ * bit 5 -> printing stopped, paper end
+ * bit 6 -> error occurred
+ *
+ * DLE EOT 4 (roll paper sensor):
+ * bits 2,3 -> paper near end
+ * bits 5,6 -> paper end
+ *
+ * Every DLE EOT response has bit 1 and bit 4 set, bit 0 and bit 7 clear.
+ */
+public class PrinterStatus {
+
+  public static final byte DLE = 0x10;
+  public static final byte EOT = 0x04;
+
+  public static final byte OFFLINE_CAUSE = 2;
+  public static final byte PAPER_SENSOR = 4;
+
+  private static final int FIXED_BITS_MASK = 0x93;
+  private static final int FIXED_BITS_VALUE = 0x12;
+
+  // GS r 1 (paper sensor status) response: bit 4 and bit 7 clear
+  private static final int GS_R_FIXED_BITS_MASK = 0x90;
+
+  public final boolean coverOpen;
+  public final boolean paperEnd;
+  public final boolean paperNearEnd;
+  public final boolean feedButton;
+  public final boolean errorOccurred;
+
+  public PrinterStatus(int offlineCause, int paperSensor) {
+    this.coverOpen = (offlineCause & 0x04) != 0;
+    this.feedButton = (offlineCause & 0x08) != 0;
+    this.errorOccurred = (offlineCause & 0x40) != 0;
+
+    this.paperEnd = (offlineCause & 0x20) != 0 || (paperSensor & 0x60) != 0;
+    this.paperNearEnd = (paperSensor & 0x0C) != 0;
+  }
+
+  public static boolean isValidDleEotResponse(int b) {
+    return b >= 0 && (b & FIXED_BITS_MASK) == FIXED_BITS_VALUE;
+  }
+
+  public static boolean isValidPaperStatusResponse(int b) {
+    return b >= 0 && (b & GS_R_FIXED_BITS_MASK) == 0;
+  }
+
+  // Conditions that stop printing
+  public boolean hasError() {
+    return this.coverOpen || this.paperEnd || this.errorOccurred;
+  }
+
+  public String describeError() {
+    if (this.coverOpen) {
+      return "Printer cover is open";
+    }
+    if (this.paperEnd) {
+      return "Printer is out of paper";
+    }
+    if (this.errorOccurred) {
+      return "Printer reported an error";
+    }
+    return null;
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "PrinterStatus {" +
+        " coverOpen: " + this.coverOpen +
+        ", paperEnd: " + this.paperEnd +
+        ", paperNearEnd: " + this.paperNearEnd +
+        ", feedButton: " + this.feedButton +
+        ", errorOccurred: " + this.errorOccurred +
+        " }";
+  }
+}
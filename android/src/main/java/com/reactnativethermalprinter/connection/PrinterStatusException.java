@@ -0,0 +1,21 @@
+package com.reactnativethermalprinter.connection;
+
+import java.io.IOException;
+
+/**
+ * The printer reported a condition that stops printing (cover open, paper
+ * out, ...).
+ */
+public class PrinterStatusException extends IOException {
+
+  private final PrinterStatus status;
+
+  public PrinterStatusException(PrinterStatus status) {
+    super(status.describeError());
+    this.status = status;
+  }
+
+  public PrinterStatus getStatus() {
+    return this.status;
+  }
+}
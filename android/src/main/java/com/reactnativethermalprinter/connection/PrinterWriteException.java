@@ -0,0 +1,45 @@
+package com.reactnativethermalprinter.connection;
+
+import java.io.IOException;
+
+/**
+ * The transport failed while sending a job (link dropped, socket reset).
+ * Bytes after the last one the transport accepted were not sent; bands
+ * (see FastDeviceConnection.markBand) up to bandsDelivered were. Delivered
+ * is not printed: bytes still in the OS / link buffers die with the link.
+ * Only the bytes and bands up to the last drain marker the printer answered
+ * (bytesConfirmed / bandsConfirmed) are known to have reached it.
+ */
+public class PrinterWriteException extends IOException {
+
+  private final long bytesDelivered;
+  private final int bandsDelivered;
+  private final long bytesConfirmed;
+  private final int bandsConfirmed;
+
+  public PrinterWriteException(long bytesDelivered, int bandsDelivered, long bytesConfirmed, int bandsConfirmed,
+      IOException cause) {
+    super("Printer connection lost after " + bytesDelivered + " bytes (" + bytesConfirmed + " confirmed): "
+        + cause.getMessage(), cause);
+    this.bytesDelivered = bytesDelivered;
+    this.bandsDelivered = bandsDelivered;
+    this.bytesConfirmed = bytesConfirmed;
+    this.bandsConfirmed = bandsConfirmed;
+  }
+
+  public long getBytesDelivered() {
+    return this.bytesDelivered;
+  }
+
+  public int getBandsDelivered() {
+    return this.bandsDelivered;
+  }
+
+  public long getBytesConfirmed() {
+    return this.bytesConfirmed;
+  }
+
+  public int getBandsConfirmed() {
+    return this.bandsConfirmed;
+  }
+}
@@ -0,0 +1,17 @@
+package com.reactnativethermalprinter.connection;
+
+/**
+ * Sees every job byte written through a connection (status queries
+ * excluded), e.g. to spool the job to disk.
+ *
+ * Called on the job's thread: record() for each write with the ticket it
+ * got (see FastDeviceConnection.writeTracked), endBand() when the bytes so
+ * far form complete commands, i.e. a point the job can be resumed from.
+ * Implementations must not throw: recording never fails a print.
+ */
+public interface WriteRecorder {
+
+  void record(byte[] data, int offset, int length, long ticket);
+
+  void endBand();
+}
@@ -0,0 +1,74 @@
+package com.reactnativethermalprinter.connection;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared, bounded thread pool that runs the queued writers of every
+ * FastDeviceConnection.
+ *
+ * A connection submits one writer task at a time (see
+ * FastDeviceConnection.startWriterIfNeeded), which keeps its chunks in
+ * order. Threads stay warm between jobs and time out when idle, so no job
+ * pays for creating or tearing down a thread.
+ *
+ * Each active connection has at most one writer, so the pool is sized to
+ * the connection pool's maxConnections.
+ */
+public final class WriterPool {
+
+  // ConnectionPool.DEFAULT_MAX_CONNECTIONS (not referenced: the print server
+  // shares this class without the Bluetooth-bound pool)
+  public static final int DEFAULT_THREADS = 4;
+
+  private static final int KEEP_ALIVE_SECONDS = 60;
+
+  private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+      DEFAULT_THREADS,
+      DEFAULT_THREADS,
+      KEEP_ALIVE_SECONDS,
+      TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "RNTP-writer-" + this.count.getAndIncrement());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+
+  static {
+    EXECUTOR.allowCoreThreadTimeOut(true);
+  }
+
+  private WriterPool() {
+  }
+
+  public static Executor get() {
+    return EXECUTOR;
+  }
+
+  public static synchronized void setMaxThreads(int threads) {
+    final int n = Math.max(1, threads);
+
+    // Order matters: core size may never exceed max size
+    if (n > EXECUTOR.getMaximumPoolSize()) {
+      EXECUTOR.setMaximumPoolSize(n);
+      EXECUTOR.setCorePoolSize(n);
+    } else {
+      EXECUTOR.setCorePoolSize(n);
+      EXECUTOR.setMaximumPoolSize(n);
+    }
+  }
+
+  public static int getActiveCount() {
+    return EXECUTOR.getActiveCount();
+  }
+}
@@ -0,0 +1,45 @@
+package com.reactnativethermalprinter.core;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+
+import java.io.IOException;
+
+/**
+ * Double-buffered band output: the caller encodes band N+1 into one buffer
+ * while the connection's writer sends band N from the other.
+ *
+ * At most two bands are in flight, so memory stays at two bands however
+ * long the image is. In direct (non-queue) mode writes are synchronous and
+ * the buffers are always free.
+ */
+class BandPipeline {
+
+  private final FastDeviceConnection conn;
+
+  private final byte[][] buffers = new byte[2][];
+  private final long[] tickets = new long[2];
+
+  private int current = 0;
+
+  BandPipeline(FastDeviceConnection conn, int bandBytes) {
+    this.conn = conn;
+    this.buffers[0] = new byte[bandBytes];
+    this.buffers[1] = new byte[bandBytes];
+  }
+
+  // Buffer for the next band; waits while the writer still sends the band
+  // encoded into it two bands ago
+  byte[] acquire() throws IOException {
+    if (!this.conn.awaitWritten(this.tickets[this.current])) {
+      this.conn.throwIfWriteFailed();
+      throw new IOException("Connection closed while sending band");
+    }
+    return this.buffers[this.current];
+  }
+
+  // Queue the first length bytes of the acquired buffer
+  void submit(int length) throws IOException {
+    this.tickets[this.current] = this.conn.writeTracked(this.buffers[this.current], 0, length);
+    this.current ^= 1;
+  }
+}
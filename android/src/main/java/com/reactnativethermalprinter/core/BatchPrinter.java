@@ -0,0 +1,243 @@
+package com.reactnativethermalprinter.core;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.connection.PrinterStatusException;
+import com.reactnativethermalprinter.connection.PrinterWriteException;
+import com.reactnativethermalprinter.jobs.PrintJob;
+import com.reactnativethermalprinter.jobs.PrintJobCancelledException;
+import com.reactnativethermalprinter.metrics.MemoryMeter;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Prints many receipts over one connection: one status probe and init
+ * before the first item, one drain after the last.
+ *
+ * Items are decoded and dithered on the PreparePool a few items ahead of
+ * the one being sent, and sent strictly in order.
+ */
+public class BatchPrinter {
+
+  private static final String TAG = "RNTP.BatchPrinter";
+
+  // Items prepared ahead of the one on the wire (bounds memory)
+  private static final int PREPARE_AHEAD = 4;
+
+  public enum ItemType {
+    IMAGE, // base64 image
+    TEXT // plain text, lines separated by \n
+  }
+
+  public static class Item {
+    public final ItemType type;
+    public final String payload;
+    public final boolean autoCut;
+    public final boolean openCashBox;
+    public final int feedLines;
+
+    public Item(ItemType type, String payload, boolean autoCut, boolean openCashBox, int feedLines) {
+      this.type = type;
+      this.payload = payload;
+      this.autoCut = autoCut;
+      this.openCashBox = openCashBox;
+      this.feedLines = feedLines;
+    }
+  }
+
+  public static class ItemResult {
+    public final boolean success;
+    public final String error; // null on success
+
+    ItemResult(boolean success, String error) {
+      this.success = success;
+      this.error = error;
+    }
+  }
+
+  private static final ItemResult OK = new ItemResult(true, null);
+
+  private final PrinterSettings settings;
+  private final FastDeviceConnection conn;
+
+  private PrintJob job = null;
+  private PrinterMetrics metrics = PrinterMetrics.NONE;
+
+  public BatchPrinter(PrinterSettings settings, FastDeviceConnection conn) {
+    this.settings = settings;
+    this.conn = conn;
+  }
+
+  public void setJob(PrintJob job) {
+    this.job = job;
+  }
+
+  public void setMetrics(PrinterMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Prints items in order and returns one result per item. An item that
+   * fails to decode is skipped; a broken connection fails the rest. A paper
+   * out / cover open reported by the final status check fails every item,
+   * since it is unknown which of them made it onto paper. A dropped link
+   * fails the items the printer had not confirmed (drain markers, with
+   * status read-back); without read-back that is every item.
+   */
+  public List<ItemResult> print(List<Item> items) throws PrinterStatusException, PrintJobCancelledException {
+
+    List<ItemResult> results = new ArrayList<>(items.size());
+
+    List<Future<Object>> prepared = new ArrayList<>(items.size());
+
+    // Connection byte count at the end of each sent item
+    final long[] itemEnds = new long[items.size()];
+
+    for (int i = 0; i < Math.min(PREPARE_AHEAD, items.size()); i++) {
+      prepared.add(this.submitPrepare(items.get(i)));
+    }
+
+    EscPosImagePrinter printer = new EscPosImagePrinter(this.settings, this.conn);
+
+    if (this.settings.getUseStatusReadBack()) {
+      this.conn.setBandConfirmation(FastDeviceConnection.DEFAULT_CONFIRM_BANDS, this.settings.getTimeoutMs());
+    }
+
+    printer.setJob(this.job);
+    printer.setMetrics(this.metrics);
+
+    try {
+      this.checkpoint();
+
+      printer.startBatch();
+
+      for (int i = 0; i < items.size(); i++) {
+
+        this.checkpoint(); // item boundary
+
+        if (i + PREPARE_AHEAD < items.size()) {
+          prepared.add(this.submitPrepare(items.get(i + PREPARE_AHEAD)));
+        }
+
+        final Item item = items.get(i);
+
+        Object data;
+
+        try {
+          data = prepared.get(i).get();
+        } catch (ExecutionException e) {
+          Log.e(TAG, "Item " + i + " could not be prepared: " + e.getCause().getMessage());
+          results.add(new ItemResult(false, e.getCause().getMessage()));
+          continue;
+        }
+
+        if (data instanceof PackedBitmap) {
+          printer.printBatchImage((PackedBitmap) data, item.autoCut, item.openCashBox, item.feedLines);
+        } else {
+          printer.printBatchText((byte[]) data, item.autoCut, item.openCashBox, item.feedLines);
+        }
+
+        itemEnds[i] = this.conn.getBytesQueued();
+
+        results.add(OK);
+      }
+
+      printer.finishBatch();
+
+      return results;
+
+    } catch (PrintJobCancelledException e) {
+
+      Log.i(TAG, "Batch cancelled: " + e.getMessage());
+
+      printer.abortJob();
+
+      throw e;
+
+    } catch (PrinterStatusException e) {
+
+      if (results.isEmpty()) {
+        throw e; // failed the up-front probe: nothing was sent
+      }
+
+      return failAll(results, items.size(), e.getMessage());
+
+    } catch (PrinterWriteException e) {
+
+      Log.e(TAG, "Batch failed: " + e.getMessage(), e);
+
+      return failUnconfirmed(results, itemEnds, e.getBytesConfirmed(), items.size(), e.getMessage());
+
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+
+      return failRemaining(results, items.size(), "Interrupted");
+
+    } catch (Exception e) {
+
+      // Connection lost: nothing after this item was sent
+      Log.e(TAG, "Batch failed: " + e.getMessage(), e);
+
+      return failRemaining(results, items.size(), e.getMessage());
+
+    } finally {
+
+      for (Future<Object> f : prepared) {
+        f.cancel(true);
+      }
+    }
+  }
+
+  private Future<Object> submitPrepare(final Item item) {
+    return PreparePool.get().submit(() -> this.prepare(item));
+  }
+
+  // PackedBitmap for images, command bytes for text
+  private Object prepare(Item item) throws Exception {
+    if (item.type == ItemType.TEXT) {
+      return Segment.encodeText(item.payload);
+    }
+
+    return ImageProcessing.preparePacked(item.payload, this.settings, this.metrics,
+        this.job != null ? this.job.getMemoryMeter() : MemoryMeter.NONE);
+  }
+
+  private void checkpoint() throws PrintJobCancelledException {
+    if (this.job != null) {
+      this.job.checkpoint();
+    }
+  }
+
+  private static List<ItemResult> failRemaining(List<ItemResult> results, int count, String error) {
+    while (results.size() < count) {
+      results.add(new ItemResult(false, error));
+    }
+    return results;
+  }
+
+  private static List<ItemResult> failUnconfirmed(List<ItemResult> results, long[] itemEnds, long confirmed,
+      int count, String error) {
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i).success && itemEnds[i] > confirmed) {
+        results.set(i, new ItemResult(false, error));
+      }
+    }
+    return failRemaining(results, count, error);
+  }
+
+  private static List<ItemResult> failAll(List<ItemResult> results, int count, String error) {
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i).success) {
+        results.set(i, new ItemResult(false, error));
+      }
+    }
+    return failRemaining(results, count, error);
+  }
+}
@@ -0,0 +1,254 @@
+package com.reactnativethermalprinter.core;
+
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+/**
+ * Grayscale + tone and the dither modes of PrinterSettings.DitherMode, on
+ * ARGB pixel buffers (row-major). Output pixels are opaque gray; every
+ * mode but NONE leaves only black and white.
+ */
+public class Dither {
+
+  // AUTO dither: rows classified together, and the sampling grid
+  private static final int CLASSIFY_BAND_ROWS = 32;
+  private static final int CLASSIFY_STEP_X = 3;
+  private static final int CLASSIFY_STEP_Y = 2;
+
+  // Luma at or beyond these counts as paper white / ink black
+  private static final int CLASSIFY_BLACK = 32;
+  private static final int CLASSIFY_WHITE = 224;
+
+  // Sampled mid-tone pixels, in 1/1024: up to BILEVEL is noise / scan dust,
+  // up to TEXT is anti-aliased glyph edges, above is a photo or gradient
+  private static final int CLASSIFY_BILEVEL_MAX = 2;
+  private static final int CLASSIFY_TEXT_MAX = 80;
+
+  // Bayer 8 x 8 index matrix
+  private static final int[] BAYER_8X8 = {
+      0, 32, 8, 40, 2, 34, 10, 42,
+      48, 16, 56, 24, 50, 18, 58, 26,
+      12, 44, 4, 36, 14, 46, 6, 38,
+      60, 28, 52, 20, 62, 30, 54, 22,
+      3, 35, 11, 43, 1, 33, 9, 41,
+      51, 19, 59, 27, 49, 17, 57, 25,
+      15, 47, 7, 39, 13, 45, 5, 37,
+      63, 31, 55, 23, 61, 29, 53, 21
+  };
+
+  // What a band of the image holds, for DitherMode.AUTO
+  enum Content {
+    BILEVEL, // threshold
+    TEXT, // ordered dither
+    PHOTO // error diffusion
+  }
+
+  // Whole w x h image, in place: grayscale with the settings' tone, then
+  // their dither mode
+  public static void apply(int[] argb, int w, int h, PrinterSettings settings) {
+    grayscale(argb, 0, w * h, ToneCurve.lutFor(settings));
+
+    dither(argb, w, h, 0, h, settings.getDitherMode());
+  }
+
+  // Rows y0..y1-1 of an h rows buffer (error diffusion spills below y1)
+  static void dither(int[] pix, int w, int h, int y0, int y1, PrinterSettings.DitherMode ditherMode) {
+    if (ditherMode == PrinterSettings.DitherMode.AUTO) {
+      autoDither(pix, w, h, y0, y1);
+    } else if (ditherMode == PrinterSettings.DitherMode.ATKINSON) {
+      atkinsonDither(pix, w, h, y0, y1);
+    } else if (ditherMode == PrinterSettings.DitherMode.BAYER) {
+      bayerDither(pix, w, y0, y1);
+    } else if (ditherMode == PrinterSettings.DitherMode.THRESHOLD) {
+      thresholdDither(pix, y0 * w, y1 * w);
+    }
+  }
+
+  // ----------------------------------------------------------
+  // AUTO DITHER: the cheapest method that looks the same, per band
+  // ----------------------------------------------------------
+  // Screenshots of black text on white come out of error diffusion exactly
+  // as thresholded, at many times the cost. Bands are classified before any
+  // is dithered, so diffusion spilling into the next band does not change
+  // how that band is classified.
+  private static void autoDither(int[] pix, int w, int h, int from, int to) {
+    final int bands = (to - from + CLASSIFY_BAND_ROWS - 1) / CLASSIFY_BAND_ROWS;
+
+    Content[] content = new Content[bands];
+
+    for (int b = 0; b < bands; b++) {
+      final int y0 = from + b * CLASSIFY_BAND_ROWS;
+      content[b] = classify(pix, w, y0, Math.min(to, y0 + CLASSIFY_BAND_ROWS));
+    }
+
+    for (int b = 0; b < bands; b++) {
+      final int y0 = from + b * CLASSIFY_BAND_ROWS;
+      final int y1 = Math.min(to, y0 + CLASSIFY_BAND_ROWS);
+
+      switch (content[b]) {
+        case BILEVEL:
+          thresholdDither(pix, y0 * w, y1 * w);
+          break;
+        case TEXT:
+          bayerDither(pix, w, y0, y1);
+          break;
+        default:
+          atkinsonDither(pix, w, h, y0, y1);
+      }
+    }
+  }
+
+  // Grayscale rows y0..y1-1, sampled on a sparse grid
+  static Content classify(int[] pix, int w, int y0, int y1) {
+    int samples = 0;
+    int mid = 0;
+
+    for (int y = y0; y < y1; y += CLASSIFY_STEP_Y) {
+      final int row = y * w;
+
+      for (int x = (y >> 1) % CLASSIFY_STEP_X; x < w; x += CLASSIFY_STEP_X) {
+        final int v = pix[row + x] & 0xFF;
+
+        if (v > CLASSIFY_BLACK && v < CLASSIFY_WHITE) {
+          mid++;
+        }
+
+        samples++;
+      }
+    }
+
+    if (samples == 0) {
+      return Content.BILEVEL;
+    }
+
+    final long share = ((long) mid << 10) / samples;
+
+    if (share <= CLASSIFY_BILEVEL_MAX) {
+      return Content.BILEVEL;
+    }
+
+    return share <= CLASSIFY_TEXT_MAX ? Content.TEXT : Content.PHOTO;
+  }
+
+  // ----------------------------------------------------------
+  // FAST GRAYSCALE + TONE (in-place), pixels from..to-1
+  // ----------------------------------------------------------
+  static void grayscale(int[] pix, int from, int to, int[] tone) {
+
+    for (int i = from; i < to; i++) {
+      int c = pix[i];
+
+      int r = (c >> 16) & 0xFF;
+      int g = (c >> 8) & 0xFF;
+      int b = c & 0xFF;
+
+      // Luminance (ITU BT.601), weights in 1/256: no divide
+      int y = tone[(r * 77 + g * 150 + b * 29) >> 8];
+
+      pix[i] = gray(y);
+    }
+  }
+
+  // ----------------------------------------------------------
+  // SIMPLE THRESHOLD DITHER (fallback if no Atkinson), pixels from..to-1
+  // ----------------------------------------------------------
+  private static void thresholdDither(int[] pix, int from, int to) {
+
+    for (int i = from; i < to; i++) {
+      int c = pix[i] & 0xFF; // grayscale already
+      int bw = (c < 128) ? 0 : 255;
+      pix[i] = gray(bw);
+    }
+  }
+
+  // ----------------------------------------------------------
+  // BAYER 8x8 ORDERED DITHER, rows y0..y1-1 (no error to carry)
+  // ----------------------------------------------------------
+  // Thresholds run 2..254, so solid black and white stay solid.
+  private static void bayerDither(int[] pix, int w, int y0, int y1) {
+
+    for (int y = y0; y < y1; y++) {
+
+      final int row = y * w;
+      final int m = (y & 7) << 3;
+
+      for (int x = 0; x < w; x++) {
+        int c = pix[row + x] & 0xFF;
+        int bw = (c < (BAYER_8X8[m + (x & 7)] << 2) + 2) ? 0 : 255;
+        pix[row + x] = gray(bw);
+      }
+    }
+  }
+
+  // ----------------------------------------------------------
+  // ATKINSON DITHER (optimized, in-place), rows y0..y1-1; error still
+  // spreads into the rows below y1
+  // ----------------------------------------------------------
+  private static void atkinsonDither(int[] pix, int w, int h, int y0, int y1) {
+
+    for (int y = y0; y < y1; y++) {
+
+      int row = y * w;
+
+      for (int x = 0; x < w; x++) {
+
+        int i = row + x;
+
+        int old = pix[i] & 0xFF;
+        int newVal = (old < 128) ? 0 : 255;
+        int err = old - newVal;
+
+        // Set pixel
+        pix[i] = gray(newVal);
+
+        // Distribute error to neighbors:
+        // (x+1, y)
+        if (x + 1 < w) {
+          int idx = i + 1;
+          int v = (pix[idx] & 0xFF) + (err >> 3);
+          v = v < 0 ? 0 : (v > 255 ? 255 : v);
+          pix[idx] = gray(v);
+        }
+        // (x+2, y)
+        if (x + 2 < w) {
+          int idx = i + 2;
+          int v = (pix[idx] & 0xFF) + (err >> 3);
+          v = v < 0 ? 0 : (v > 255 ? 255 : v);
+          pix[idx] = gray(v);
+        }
+        // (x-1, y+1)
+        if (y + 1 < h && x - 1 >= 0) {
+          int idx = i + w - 1;
+          int v = (pix[idx] & 0xFF) + (err >> 3);
+          v = v < 0 ? 0 : (v > 255 ? 255 : v);
+          pix[idx] = gray(v);
+        }
+        // (x, y+1)
+        if (y + 1 < h) {
+          int idx = i + w;
+          int v = (pix[idx] & 0xFF) + (err >> 3);
+          v = v < 0 ? 0 : (v > 255 ? 255 : v);
+          pix[idx] = gray(v);
+        }
+        // (x+1, y+1)
+        if (y + 1 < h && x + 1 < w) {
+          int idx = i + w + 1;
+          int v = (pix[idx] & 0xFF) + (err >> 3);
+          v = v < 0 ? 0 : (v > 255 ? 255 : v);
+          pix[idx] = gray(v);
+        }
+        // (x, y+2)
+        if (y + 2 < h) {
+          int idx = i + (w << 1);
+          int v = (pix[idx] & 0xFF) + (err >> 3);
+          v = v < 0 ? 0 : (v > 255 ? 255 : v);
+          pix[idx] = gray(v);
+        }
+      }
+    }
+  }
+
+  // Opaque gray, as android.graphics.Color.rgb(v, v, v)
+  private static int gray(int v) {
+    return 0xFF000000 | (v * 0x010101);
+  }
+}
@@ -0,0 +1,607 @@
+package com.reactnativethermalprinter.core;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.connection.PacingStats;
+import com.reactnativethermalprinter.connection.PrinterCapabilities;
+import com.reactnativethermalprinter.connection.PrinterStatus;
+import com.reactnativethermalprinter.connection.PrinterStatusException;
+import com.reactnativethermalprinter.connection.PrinterWriteException;
+import com.reactnativethermalprinter.jobs.PrintJob;
+import com.reactnativethermalprinter.jobs.PrintJobCancelledException;
+import com.reactnativethermalprinter.metrics.JobTrace;
+import com.reactnativethermalprinter.metrics.MemoryMeter;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.metrics.Stage;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+import com.reactnativethermalprinter.spool.SpooledJob;
+
+import java.util.List;
+
+/**
+ * ESC/POS job framing over a FastDeviceConnection: init and status checks,
+ * packed images in the configured print mode, native segments, feed / cut /
+ * drawer kick and the drain. Plain Java; EscPosImagePrinter adds the
+ * Android image entry points.
+ */
+public class EscPosPrinter {
+
+  private static final String TAG = "RNTP.EscPosPrinter";
+
+  // How long to wait for the first status answer before assuming the printer
+  // has no status read-back
+  private static final int STATUS_PROBE_TIMEOUT_MS = 250;
+
+  protected final PrinterSettings settings;
+  private final FastDeviceConnection conn;
+
+  // JOB TYPE TRACKING
+  private enum PrintJobType {
+    NONE,
+    RASTER_GSV0,
+    RASTER_GSV0_STREAMED,
+    RASTER_GSV0_CHUNKED,
+    LEGACY_ESC
+  }
+
+  private PrintJobType lastJobType = PrintJobType.NONE;
+
+  // Pacing statistics of the last finished job
+  private PacingStats lastPacingStats = null;
+
+  // Cancellation / deadline context (optional)
+  private PrintJob job = null;
+
+  // Stage latencies of this printer
+  protected PrinterMetrics metrics = PrinterMetrics.NONE;
+
+  // Encoding time of the current job (spread over bands)
+  private long encodeNanos = 0;
+
+  public EscPosPrinter(PrinterSettings settings, FastDeviceConnection conn) {
+    this.settings = settings;
+    this.conn = conn;
+    this.lastJobType = PrintJobType.NONE;
+  }
+
+  public PacingStats getLastPacingStats() {
+    return this.lastPacingStats;
+  }
+
+  // Cancellation is checked at band boundaries of this job
+  public void setJob(PrintJob job) {
+    this.job = job;
+  }
+
+  public void setMetrics(PrinterMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  // Image already scaled, dithered and packed (ImageProcessing.preparePacked or Dither),
+  // e.g. while the connection was being set up
+  public boolean printPrepared(PackedBitmap prepared, boolean autoCut, boolean openCashBox, int feedLines)
+      throws PrinterStatusException, PrinterWriteException, PrintJobCancelledException {
+    try {
+      this.checkpoint();
+
+      this.startJob();
+
+      if (!this.printPacked(prepared)) {
+        return false;
+      }
+
+      this.checkpoint();
+
+      this.metrics.record(Stage.ENCODE, this.encodeNanos);
+
+      this.finishJob(autoCut, openCashBox, feedLines);
+
+      return true;
+
+    } catch (PrinterStatusException | PrinterWriteException e) {
+
+      // Paper out / cover open / link lost: the caller must see this as an
+      // error
+      throw e;
+
+    } catch (PrintJobCancelledException e) {
+
+      Log.i(TAG, "Job cancelled: " + e.getMessage());
+
+      this.abortJob();
+
+      throw e;
+
+    } catch (Exception e) {
+
+      Log.e(TAG, "Printing bitmap failed: " + e.getMessage(), e);
+
+      return false;
+    }
+  }
+
+  // ----------------------------------------------------------
+  // SEGMENTS: images interleaved with native QR / barcode / text
+  // ----------------------------------------------------------
+  // Segments must be prepared (ImageProcessing.prepareSegments). Each one is a band, so
+  // a resumed job restarts at the segment the link dropped in.
+  public boolean printSegments(List<Segment> segments, boolean openCashBox)
+      throws PrinterStatusException, PrinterWriteException, PrintJobCancelledException {
+    try {
+      this.checkpoint();
+
+      this.startJob();
+
+      for (Segment segment : segments) {
+
+        this.checkpoint(); // segment boundary
+
+        if (segment.type != Segment.Type.IMAGE) {
+          this.conn.write(segment.getCommands());
+          this.conn.markBand();
+          continue;
+        }
+
+        if (!segment.isPrepared()) {
+          throw new IllegalStateException("Image segment not prepared");
+        }
+
+        if (!this.printPacked(segment.getImage())) {
+          return false;
+        }
+
+        // Native commands after it start from defaults
+        this.endImage();
+        this.conn.markBand();
+      }
+
+      this.checkpoint();
+
+      this.metrics.record(Stage.ENCODE, this.encodeNanos);
+
+      this.finishJob(false, openCashBox, 0);
+
+      return true;
+
+    } catch (PrinterStatusException | PrinterWriteException e) {
+
+      throw e;
+
+    } catch (PrintJobCancelledException e) {
+
+      Log.i(TAG, "Job cancelled: " + e.getMessage());
+
+      this.abortJob();
+
+      throw e;
+
+    } catch (Exception e) {
+
+      Log.e(TAG, "Printing segments failed: " + e.getMessage(), e);
+
+      return false;
+    }
+  }
+
+  // ----------------------------------------------------------
+  // REPLAY: a job recorded by the JobSpool, no encoding
+  // ----------------------------------------------------------
+  // Band 0 is the job's ESC @; starting later sends it first anyway, so the
+  // printer resumes from defaults.
+  public boolean printSpooled(SpooledJob spooled, int fromBand)
+      throws PrinterStatusException, PrinterWriteException, PrintJobCancelledException {
+    try {
+      this.checkpoint();
+
+      this.conn.resetPacingStats();
+
+      if (this.settings.getUseStatusReadBack()) {
+        checkStatus(STATUS_PROBE_TIMEOUT_MS);
+      }
+
+      if (fromBand > 0 && spooled.getBandCount() > 0) {
+        this.conn.write(spooled.getBand(0));
+        this.conn.markBand();
+      }
+
+      for (int i = fromBand; i < spooled.getBandCount(); i++) {
+        this.checkpoint(); // band boundary
+        this.conn.write(spooled.getBand(i));
+        this.conn.markBand();
+      }
+
+      this.conn.finish();
+
+      this.awaitDrain();
+
+      return true;
+
+    } catch (PrinterStatusException | PrinterWriteException e) {
+
+      throw e;
+
+    } catch (PrintJobCancelledException e) {
+
+      Log.i(TAG, "Replay cancelled: " + e.getMessage());
+
+      this.abortJob();
+
+      throw e;
+
+    } catch (Exception e) {
+
+      Log.e(TAG, "Replaying " + spooled.spoolId + " failed: " + e.getMessage(), e);
+
+      return false;
+    }
+  }
+
+  // ----------------------------------------------------------
+  // BATCH: many items between one startJob and one drain
+  // ----------------------------------------------------------
+  // Used by BatchPrinter; exceptions (including cancellation) are left to
+  // the caller, which calls abortJob() on cancel.
+  void startBatch() throws Exception {
+    this.startJob();
+  }
+
+  // Image item: encode and send, then feed / cut / kick
+  void printBatchImage(PackedBitmap image, boolean autoCut, boolean openCashBox, int feedLines)
+      throws Exception {
+    this.encodeNanos = 0;
+
+    if (!this.printPacked(image)) {
+      throw new Exception("Unsupported print mode " + this.settings.getPrintMode());
+    }
+
+    this.metrics.record(Stage.ENCODE, this.encodeNanos);
+
+    this.endItem(autoCut, openCashBox, feedLines);
+  }
+
+  // Text item: bytes as encoded by the caller, then feed / cut / kick
+  void printBatchText(byte[] text, boolean autoCut, boolean openCashBox, int feedLines) throws Exception {
+    this.lastJobType = PrintJobType.NONE;
+
+    this.conn.write(text);
+
+    this.endItem(autoCut, openCashBox, feedLines);
+  }
+
+  // One drain confirmation / status check for the whole batch
+  void finishBatch() throws Exception {
+    this.conn.finish();
+
+    this.awaitDrain();
+  }
+
+  // Encode and send prepared in the configured print mode, or the safer one
+  // the printer's model calls for. A full GS v0 command that does not fit
+  // the memory budget is streamed instead: same bytes, no second copy.
+  private boolean printPacked(PackedBitmap prepared) throws Exception {
+    PrinterSettings.PrintMode mode = this.capabilities().resolvePrintMode(this.settings.getPrintMode());
+
+    if (mode == PrinterSettings.PrintMode.RASTER_GSV0 && !MemoryGovernor.fitsFullRaster(prepared, this.settings)) {
+      Log.i(TAG, "Raster over memory budget, streaming it");
+      mode = PrinterSettings.PrintMode.RASTER_GSV0_STREAMED;
+    }
+
+    switch (mode) {
+
+      case RASTER_GSV0:
+        this.lastJobType = PrintJobType.RASTER_GSV0;
+        this.printRaster(prepared);
+        return true;
+
+      case RASTER_GSV0_STREAMED: {
+        this.lastJobType = PrintJobType.RASTER_GSV0_STREAMED;
+        final long start = System.nanoTime();
+        RasterEncoder.streamRasterGSv0(prepared, this.conn); // encode + write interleaved
+        this.conn.markBand();
+        this.encoded(start);
+        return true;
+      }
+
+      case RASTER_GSV0_CHUNKED:
+        this.lastJobType = PrintJobType.RASTER_GSV0_CHUNKED;
+        this.printChunkedRaster(prepared);
+        return true;
+
+      case LEGACY_ESC:
+        this.lastJobType = PrintJobType.LEGACY_ESC;
+        this.printEscLegacy(prepared);
+        return true;
+
+      default:
+        this.lastJobType = PrintJobType.NONE;
+        return false;
+    }
+  }
+
+  // ----------------------------------------------------------
+  // MODE 1 — FULL RASTER (GS v 0)
+  // ----------------------------------------------------------
+  private void printRaster(PackedBitmap bw) throws Exception {
+
+    final long start = System.nanoTime();
+
+    // Build GS v0 raster command
+    byte[] raster = new byte[RasterEncoder.rasterGSv0Size(bw.width, bw.height)];
+
+    final MemoryMeter meter = this.memoryMeter();
+
+    meter.acquire(raster.length);
+
+    RasterEncoder.encodeRasterGSv0(bw, 0, bw.height, raster);
+
+    this.encoded(start);
+
+    // Connection handles packet splitting internally
+    try {
+      this.conn.write(raster);
+      this.conn.markBand();
+    } finally {
+      meter.release(raster.length);
+    }
+
+    // Flush writer thread if queue mode
+    this.conn.finish();
+  }
+
+  // ----------------------------------------------------------
+  // MODE 2 — CHUNKED RASTER (Vertical GS v0 slices)
+  // ----------------------------------------------------------
+  // Slices are complete GS v0 commands, so the printer needs no flush in
+  // between: slice N+1 is encoded while slice N is on the wire.
+  private void printChunkedRaster(PackedBitmap bw) throws Exception {
+
+    int width = bw.width;
+    int height = bw.height;
+    int sliceH = Math.min(this.capabilities().resolveChunkHeight(settings.getChunkHeight()), height); // typically 256 px
+
+    BandPipeline pipeline = new BandPipeline(this.conn, RasterEncoder.rasterGSv0Size(width, sliceH));
+
+    for (int y = 0; y < height; y += sliceH) {
+
+      this.checkpoint(); // band boundary
+
+      int h = Math.min(sliceH, height - y);
+
+      byte[] band = pipeline.acquire();
+
+      final long start = System.nanoTime();
+
+      int length = RasterEncoder.encodeRasterGSv0(bw, y, h, band);
+
+      this.encoded(start);
+
+      pipeline.submit(length); // WRITE chunking done by connection
+      this.conn.markBand();
+    }
+  }
+
+  // ----------------------------------------------------------
+  // MODE 3 - ESC * 24-DOT LEGACY BIT IMAGE
+  // ----------------------------------------------------------
+  // Same pipeline as MODE 2, one 24-dot band at a time.
+  private void printEscLegacy(PackedBitmap bw) throws Exception {
+
+    int width = bw.width;
+    int height = RasterEncoder.escStarHeight(bw);
+
+    final int bandH = RasterEncoder.ESC_STAR_BAND_HEIGHT;
+
+    BandPipeline pipeline = new BandPipeline(this.conn, RasterEncoder.escStar24Size(width));
+
+    // ESC/POS prints in vertical stripes of 24 dots
+    for (int y = 0; y < height; y += bandH) {
+
+      this.checkpoint(); // band boundary
+
+      byte[] band = pipeline.acquire();
+
+      final long start = System.nanoTime();
+
+      int length = RasterEncoder.encodeEscStar24(bw, y, band, 0); // 8x8 transposes
+
+      this.encoded(start);
+
+      pipeline.submit(length); // Connection handles all packet chunking internally
+      this.conn.markBand();
+    }
+  }
+
+  // Encoding time is reported per job; each band still shows up in the trace
+  private void encoded(long startNanos) {
+    final long now = System.nanoTime();
+
+    this.encodeNanos += now - startNanos;
+
+    JobTrace.complete(Stage.ENCODE.key, startNanos, now, this.metrics.getPrinterKey(), 0);
+  }
+
+  // Probed on the connection by the caller, if at all
+  private PrinterCapabilities capabilities() {
+    final PrinterCapabilities caps = this.conn.getCapabilities();
+    return caps != null ? caps : PrinterCapabilities.UNKNOWN;
+  }
+
+  protected MemoryMeter memoryMeter() {
+    return this.job != null ? this.job.getMemoryMeter() : MemoryMeter.NONE;
+  }
+
+  private void checkpoint() throws PrintJobCancelledException {
+    if (this.job != null) {
+      this.job.checkpoint();
+    }
+  }
+
+  // ----------------------------------------------------------
+  // ABORT JOB: leave the printer in a clean state after cancel
+  // ----------------------------------------------------------
+  // Cancellation only happens at band boundaries, so everything queued is a
+  // complete command: drain it, then reset (ESC @) so the next job starts
+  // from defaults. Nothing is fed or cut.
+  void abortJob() {
+    this.lastJobType = PrintJobType.NONE;
+
+    try {
+      this.conn.finish();
+      this.conn.write(new byte[] { 0x1B, 0x40 });
+      this.conn.markBand();
+      this.conn.finish();
+    } catch (Exception e) {
+      Log.e(TAG, "Failed to reset printer after cancel: " + e.getMessage(), e);
+    }
+  }
+
+  private void startJob() throws Exception {
+
+    // Per-job pacing statistics
+    this.conn.resetPacingStats();
+
+    this.encodeNanos = 0;
+
+    // ---- Fail early on paper out / cover open ----
+    // (the first query also detects whether the printer has status read-back)
+    if (this.settings.getUseStatusReadBack()) {
+      checkStatus(STATUS_PROBE_TIMEOUT_MS);
+    }
+
+    // ---- Initialize printer state (ESC @) ----
+    this.conn.write(new byte[] { 0x1B, 0x40 });
+    this.conn.markBand();
+
+    this.conn.finish();
+  }
+
+  private void checkStatus(int timeoutMs) throws Exception {
+    PrinterStatus status = this.conn.queryStatus(timeoutMs);
+
+    if (status == null) {
+      return; // no status read-back on this printer
+    }
+
+    if (status.paperNearEnd) {
+      Log.w(TAG, "Printer paper near end");
+    }
+
+    if (status.hasError()) {
+      throw new PrinterStatusException(status);
+    }
+  }
+
+  // ----------------------------------------------------------
+  // FINISH JOB: Exit GSv0 (if needed), Reset (if needed),
+  // Feed, Cut, Drawer Kick, Queue Drain, Final Sleep
+  // ----------------------------------------------------------
+  private void finishJob(boolean autoCut, boolean openCashBox, int feedLines) throws Exception {
+
+    this.endItem(autoCut, openCashBox, feedLines);
+
+    // Let the executor drain anything still pending
+    this.conn.finish();
+
+    this.awaitDrain();
+
+    // Close the connection (BT/TCP)
+    // this.conn.close();
+  }
+
+  // STEPS 1-3: end of one printed item
+  private void endItem(boolean autoCut, boolean openCashBox, int feedLines) throws Exception {
+
+    // this.conn.finish();
+
+    this.endImage();
+
+    // Drain queue before feed/cut
+    this.conn.finish();
+
+    // ======================================================
+    // STEP 2: FEED LINES
+    // ======================================================
+    if (feedLines > 0) {
+      byte[] feed = new byte[] { 0x1B, 0x64, (byte) feedLines }; // ESC d n -> feed n lines
+      this.conn.write(feed);
+    }
+
+    // ======================================================
+    // STEP 3: CUT (if selected)
+    // ======================================================
+    if (autoCut) {
+      byte[] cut = new byte[] { 0x1D, 0x56, 0x00 }; // GS V 0 -> full cut
+      this.conn.write(cut);
+    }
+
+    // OPEN CASH DRAWER
+    if (openCashBox) {
+      byte[] kick = new byte[] {
+          0x1B, 0x70, 0x00, // ESC p m t1 t2
+          0x50, 0x50 // 80ms, 80ms pulse
+      };
+      this.conn.write(kick);
+    }
+
+    this.conn.markBand();
+  }
+
+  // ======================================================
+  // STEP 1: CONDITIONAL RASTER FINALIZATION (GSV0 / CHUNKED)
+  // ======================================================
+  private void endImage() throws Exception {
+    if (this.lastJobType == PrintJobType.RASTER_GSV0 ||
+        this.lastJobType == PrintJobType.RASTER_GSV0_CHUNKED ||
+        this.lastJobType == PrintJobType.RASTER_GSV0_STREAMED) {
+
+      // Cheap printers do not support "Exit GS v0 Mode" command. A LF works.
+      // Log.i(TAG, "finishJob: exiting GS v0 mode");
+
+      // ---- Exit GS v0 Mode ----
+      // byte[] exitGsv0 = new byte[] {
+      // 0x1D, 0x28, 0x4C, 0x02, 0x00, 0x30, 0x00
+      // };
+      // this.conn.write(exitGsv0);
+
+      // ---- Flush Raster Data with LF ----
+      this.conn.write(new byte[] { 0x0A });
+
+      // ---- Reset printer state (ESC @) ----
+      this.conn.write(new byte[] { 0x1B, 0x40 });
+    }
+
+    this.lastJobType = PrintJobType.NONE;
+  }
+
+  private void awaitDrain() throws Exception {
+
+    // ======================================================
+    // STEP 5: WAIT FOR THE PRINTER TO PROCESS THE JOB
+    // ======================================================
+    final long drainStart = System.nanoTime();
+
+    if (this.settings.getUseStatusReadBack()
+        // Sized by the bytes sent; the socket timeout only caps it
+        && this.conn.awaitPrinterDrained(this.settings.getTimeoutMs())) {
+
+      // Surface paper out / cover open hit during the job
+      checkStatus(this.settings.getTimeoutMs());
+
+    } else {
+
+      // No status read-back: allow printer time for mechanical operations
+      // (safe delay)
+      try {
+        Thread.sleep(60); // 50–80 ms recommended for BT
+      } catch (InterruptedException ignored) {
+      }
+    }
+
+    this.metrics.recordSince(Stage.DRAIN, drainStart);
+
+    this.lastPacingStats = this.conn.getPacingStats();
+
+    Log.i(TAG, "finishJob: " + this.lastPacingStats);
+  }
+}
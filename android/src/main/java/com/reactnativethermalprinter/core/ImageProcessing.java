@@ -2,23 +2,24 @@ package com.reactnativethermalprinter.core;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Color;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
 import android.util.Base64;
 import android.util.Log;
 
 import com.reactnativethermalprinter.settings.PrinterSettings;
 import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.metrics.MemoryMeter;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.metrics.Stage;
 
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ImageProcessing {
 
   private static final String TAG = "RNTP.ImageProcessing";
 
-  // Reusable working buffers to reduce allocations + GC
-  private static int[] pixelBuffer; // Grayscale buffer
-  private static byte[] rasterLineBuffer; // GS v0 packed row
-
   /**
    * Decode a Base64 image string into a Bitmap.
    *
@@ -27,6 +28,10 @@ public class ImageProcessing {
    * - data URLs ("data:image/png;base64,iVBORw0K…")
    */
   public static Bitmap fromBase64(String base64) {
+    return fromBase64(base64, PrinterMetrics.NONE);
+  }
+
+  public static Bitmap fromBase64(String base64, PrinterMetrics metrics) {
     final long start = System.nanoTime();
     try {
       if (base64 == null || base64.isEmpty()) {
@@ -50,7 +55,7 @@ public class ImageProcessing {
       Log.e(TAG, "Error decoding base64: " + e.getMessage(), e);
       return null;
     } finally {
-      Log.i(TAG, "fromBase64 took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+      metrics.recordSince(Stage.DECODE, start);
     }
   }
 
@@ -61,445 +66,443 @@ public class ImageProcessing {
   // 3. Dither (optional)
   // ----------------------------------------------------------
   public static Bitmap prepare(Bitmap bmp, PrinterSettings settings) {
-    final long start = System.nanoTime();
+    return prepare(bmp, settings, PrinterMetrics.NONE);
+  }
 
-    final int targetWidth = settings.getPrinterWidthPx();
-    final PrinterSettings.DitherMode ditherMode = settings.getDitherMode();
+  public static Bitmap prepare(Bitmap bmp, PrinterSettings settings, PrinterMetrics metrics) {
+    long start = System.nanoTime();
 
-    Log.i(TAG, "srcWidth: " + bmp.getWidth() + "; targetWidth: " + targetWidth);
+    bmp = scaleForPrinter(bmp, settings, PrinterSettings.RasterScale.NORMAL);
 
-    // 1. SCALE (no upscaling)
-    if (bmp.getWidth() > targetWidth) {
-      bmp = scaleToWidth(bmp, targetWidth);
-    }
+    metrics.recordSince(Stage.SCALE, start);
+
+    start = System.nanoTime();
 
     int w = bmp.getWidth();
     int h = bmp.getHeight();
 
-    Log.i(TAG, "scaledWidth: " + w + "; scaledHeight: " + h);
-
-    int size = w * h;
-
-    // Allocate pixel buffer once
-    if (pixelBuffer == null || pixelBuffer.length < size) {
-      pixelBuffer = new int[size];
-    }
-
-    bmp.getPixels(pixelBuffer, 0, w, 0, 0, w, h);
-
-    // 2. GRAYSCALE
-    grayscale(pixelBuffer, size);
-
-    // 3. DITHER (Atkinson)
-    if (ditherMode == PrinterSettings.DitherMode.ATKINSON) {
-      atkinsonDither(pixelBuffer, w, h);
-    } else if (ditherMode == PrinterSettings.DitherMode.THRESHOLD) {
-      thresholdDither(pixelBuffer, size);
-    }
+    int[] pixels = ditherPixels(bmp, settings);
 
     // Convert buffer -> bitmap (monochrome but kept as ARGB_8888)
     Bitmap out = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
 
-    out.setPixels(pixelBuffer, 0, w, 0, 0, w, h);
+    out.setPixels(pixels, 0, w, 0, 0, w, h);
 
-    Log.i(TAG, "prepare took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    metrics.recordSince(Stage.DITHER, start);
 
     return out;
   }
 
-  // Scale a bitmap to a target width while maintaining aspect ratio.
-  private static Bitmap scaleToWidth(Bitmap src, int targetWidth) {
+  // Same as prepare(), packed to 1 bit per dot for the encoders, at the
+  // settings' raster scale
+  public static PackedBitmap preparePacked(Bitmap bmp, PrinterSettings settings, PrinterMetrics metrics) {
+    return preparePacked(bmp, settings, metrics, MemoryMeter.NONE);
+  }
 
-    int w = src.getWidth();
-    if (w == targetWidth) {
-      return src; // already required width
-    }
+  private static PackedBitmap preparePacked(Bitmap bmp, PrinterSettings settings, PrinterMetrics metrics,
+      MemoryMeter meter) {
+    long start = System.nanoTime();
 
-    final long start = System.nanoTime();
+    final PrinterSettings.RasterScale scale = settings.getRasterScale();
 
-    float ratio = (float) targetWidth / (float) w;
-    int targetHeight = Math.round(src.getHeight() * ratio);
+    final Bitmap scaled = scaleForPrinter(bmp, settings, scale);
 
-    Bitmap scaled = Bitmap.createScaledBitmap(src, targetWidth, targetHeight, false);
+    final long scaledBytes = scaled != bmp ? scaled.getByteCount() : 0;
 
-    Log.i(TAG, "scaleToWidth took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    meter.acquire(scaledBytes);
 
-    return scaled;
-  }
+    metrics.recordSince(Stage.SCALE, start);
 
-  // ----------------------------------------------------------
-  // FAST GRAYSCALE (in-place)
-  // ----------------------------------------------------------
-  private static void grayscale(int[] pix, int size) {
+    start = System.nanoTime();
 
-    final long start = System.nanoTime();
+    final int w = scaled.getWidth();
+    final int h = scaled.getHeight();
 
-    for (int i = 0; i < size; i++) {
-      int c = pix[i];
+    meter.acquire(4L * w * h);
 
-      int r = (c >> 16) & 0xFF;
-      int g = (c >> 8) & 0xFF;
-      int b = c & 0xFF;
+    PackedBitmap out = PackedBitmap.fromPixels(ditherPixels(scaled, settings), w, h, scale);
 
-      // Luminance (ITU BT.601)
-      int y = (r * 299 + g * 587 + b * 114) / 1000;
+    meter.acquire(out.bits.length);
+    meter.release(4L * w * h + scaledBytes);
 
-      pix[i] = Color.rgb(y, y, y);
-    }
+    metrics.recordSince(Stage.DITHER, start);
 
-    Log.i(TAG, "grayscale took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    return out;
   }
 
-  // ----------------------------------------------------------
-  // SIMPLE THRESHOLD DITHER (fallback if no Atkinson)
-  // ----------------------------------------------------------
-  private static void thresholdDither(int[] pix, int size) {
+  /**
+   * Decode, scale, dither and pack a base64 image the way MemoryGovernor
+   * plans from its header. Buffers are counted on meter; the packed image
+   * stays counted.
+   */
+  public static PackedBitmap preparePacked(String base64, PrinterSettings settings, PrinterMetrics metrics,
+      MemoryMeter meter) throws Exception {
 
-    final long start = System.nanoTime();
+    long start = System.nanoTime();
+
+    final byte[] encoded = decodeBase64(base64);
 
-    for (int i = 0; i < size; i++) {
-      int c = pix[i] & 0xFF; // grayscale already
-      int bw = (c < 128) ? 0 : 255;
-      pix[i] = Color.rgb(bw, bw, bw);
+    if (encoded == null) {
+      metrics.recordSince(Stage.DECODE, start);
+      throw new Exception("Failed to decode Base64 image");
     }
 
-    Log.i(TAG, "thresholdDither took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
-  }
+    meter.acquire(encoded.length);
 
-  // ----------------------------------------------------------
-  // ATKINSON DITHER (optimized, in-place)
-  // ----------------------------------------------------------
-  private static void atkinsonDither(int[] pix, int w, int h) {
+    BitmapRegionDecoder region = null;
 
-    final long start = System.nanoTime();
+    try {
+      BitmapFactory.Options bounds = new BitmapFactory.Options();
+      bounds.inJustDecodeBounds = true;
 
-    for (int y = 0; y < h; y++) {
+      BitmapFactory.decodeByteArray(encoded, 0, encoded.length, bounds);
 
-      int row = y * w;
+      if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+        metrics.recordSince(Stage.DECODE, start);
+        throw new Exception("Failed to decode Base64 image");
+      }
 
-      for (int x = 0; x < w; x++) {
+      final MemoryGovernor.Decision plan = MemoryGovernor.plan(bounds.outWidth, bounds.outHeight, settings);
 
-        int i = row + x;
+      Log.i(TAG, bounds.outWidth + " x " + bounds.outHeight + ": " + plan);
 
-        int old = pix[i] & 0xFF;
-        int newVal = (old < 128) ? 0 : 255;
-        int err = old - newVal;
+      if (plan.plan == MemoryGovernor.Plan.REGION) {
+        region = BitmapRegionDecoder.newInstance(encoded, 0, encoded.length, false);
 
-        // Set pixel
-        pix[i] = Color.rgb(newVal, newVal, newVal);
+        metrics.recordSince(Stage.DECODE, start);
 
-        // Distribute error to neighbors:
-        // (x+1, y)
-        if (x + 1 < w) {
-          int idx = i + 1;
-          int v = (pix[idx] & 0xFF) + (err >> 3);
-          v = v < 0 ? 0 : (v > 255 ? 255 : v);
-          pix[idx] = Color.rgb(v, v, v);
-        }
-        // (x+2, y)
-        if (x + 2 < w) {
-          int idx = i + 2;
-          int v = (pix[idx] & 0xFF) + (err >> 3);
-          v = v < 0 ? 0 : (v > 255 ? 255 : v);
-          pix[idx] = Color.rgb(v, v, v);
-        }
-        // (x-1, y+1)
-        if (y + 1 < h && x - 1 >= 0) {
-          int idx = i + w - 1;
-          int v = (pix[idx] & 0xFF) + (err >> 3);
-          v = v < 0 ? 0 : (v > 255 ? 255 : v);
-          pix[idx] = Color.rgb(v, v, v);
-        }
-        // (x, y+1)
-        if (y + 1 < h) {
-          int idx = i + w;
-          int v = (pix[idx] & 0xFF) + (err >> 3);
-          v = v < 0 ? 0 : (v > 255 ? 255 : v);
-          pix[idx] = Color.rgb(v, v, v);
-        }
-        // (x+1, y+1)
-        if (y + 1 < h && x + 1 < w) {
-          int idx = i + w + 1;
-          int v = (pix[idx] & 0xFF) + (err >> 3);
-          v = v < 0 ? 0 : (v > 255 ? 255 : v);
-          pix[idx] = Color.rgb(v, v, v);
-        }
-        // (x, y+2)
-        if (y + 2 < h) {
-          int idx = i + (w << 1);
-          int v = (pix[idx] & 0xFF) + (err >> 3);
-          v = v < 0 ? 0 : (v > 255 ? 255 : v);
-          pix[idx] = Color.rgb(v, v, v);
-        }
+        return prepareBanded(new RegionRows(region, bounds.outWidth, bounds.outHeight, plan.sampleSize),
+            settings, metrics, meter);
       }
-    }
 
-    Log.i(TAG, "atkinsonDither took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
-  }
+      BitmapFactory.Options options = new BitmapFactory.Options();
+      options.inSampleSize = plan.sampleSize;
 
-  // ----------------------------------------------------------
-  // GS v0 RASTER BUILDER (Fastest mode for ESC/POS)
-  //
-  // Output format:
-  // GS v 0 m xL xH yL yH [bitmap-bytes]
-  //
-  // 1 bit per pixel, packed MSB->LSB
-  // ----------------------------------------------------------
-  public static byte[] toRasterGSv0(Bitmap bmp) {
+      final Bitmap bmp = BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
 
-    final long start = System.nanoTime();
+      metrics.recordSince(Stage.DECODE, start);
 
-    int w = bmp.getWidth();
-    int h = bmp.getHeight();
+      if (bmp == null) {
+        throw new Exception("Failed to decode Base64 image");
+      }
 
-    // Bytes per row (1 bit per pixel)
-    int bytesPerRow = (w + 7) >> 3;
-    int imageDataSize = bytesPerRow * h;
+      meter.acquire(bmp.getByteCount());
 
-    int commandSize = 8 + imageDataSize;
-    ByteBuffer buffer = ByteBuffer.allocate(commandSize);
+      try {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new InterruptedException("Image preparation cancelled");
+        }
 
-    // Header: GS v 0 m xL xH yL yH
-    buffer.put((byte) 0x1D);
-    buffer.put((byte) 0x76);
-    buffer.put((byte) 0x30);
-    buffer.put((byte) 0x00); // m = 0 -> normal density
+        return plan.plan == MemoryGovernor.Plan.FULL
+            ? preparePacked(bmp, settings, metrics, meter)
+            : prepareBanded(new BitmapRows(bmp), settings, metrics, meter);
+      } finally {
+        meter.release(bmp.getByteCount());
+      }
 
-    // xL, xH
-    buffer.put((byte) (bytesPerRow & 0xFF));
-    buffer.put((byte) ((bytesPerRow >> 8) & 0xFF));
+    } finally {
+      if (region != null) {
+        region.recycle();
+      }
 
-    // yL, yH
-    buffer.put((byte) (h & 0xFF));
-    buffer.put((byte) ((h >> 8) & 0xFF));
+      meter.release(encoded.length);
+    }
+  }
+
+  // Image segments decoded and dithered, the others as they are
+  public static List<Segment> prepareSegments(List<Segment> segments, PrinterSettings settings,
+      PrinterMetrics metrics, MemoryMeter meter) throws Exception {
+
+    List<Segment> out = new ArrayList<>(segments.size());
+
+    for (Segment s : segments) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedException("Segment preparation cancelled");
+      }
 
-    // Reuse line buffer
-    if (rasterLineBuffer == null || rasterLineBuffer.length < bytesPerRow) {
-      rasterLineBuffer = new byte[bytesPerRow];
+      out.add(s.isPrepared() ? s
+          : Segment.prepared(preparePacked(s.getImageSource(), settings, metrics, meter)));
     }
 
-    // Pack bits line-by-line
-    for (int y = 0; y < h; y++) {
+    return out;
+  }
 
-      // Pack into raster bytes
-      int byteIndex = 0;
-      int bitPos = 7;
-      byte current = 0;
+  private static byte[] decodeBase64(String base64) {
+    if (base64 == null || base64.isEmpty()) {
+      return null;
+    }
 
-      for (int x = 0; x < w; x++) {
+    // Strip prefix if present
+    int comma = base64.indexOf(',');
+    if (comma != -1) {
+      base64 = base64.substring(comma + 1);
+    }
 
-        int c = bmp.getPixel(x, y) & 0xFF; // already grayscale from prepare()
+    try {
+      return Base64.decode(base64, Base64.DEFAULT);
+    } catch (IllegalArgumentException e) {
+      Log.e(TAG, "Error decoding base64: " + e.getMessage(), e);
+      return null;
+    }
+  }
 
-        if (c < 128) { // black
-          current |= (1 << bitPos);
-        }
+  // ----------------------------------------------------------
+  // BANDED PREPARE: scale / dither / pack a band of rows at a time
+  // ----------------------------------------------------------
+  // Source rows of an image, sampled down by the decoder
+  private interface SourceRows {
+    int width();
 
-        bitPos--;
+    int height();
 
-        if (bitPos < 0) {
-          rasterLineBuffer[byteIndex++] = current;
-          current = 0;
-          bitPos = 7;
-        }
-      }
+    // Rows y0..y1-1, full width
+    Bitmap rows(int y0, int y1);
+  }
 
-      // Last partial byte
-      if (bitPos != 7) {
-        rasterLineBuffer[byteIndex++] = current;
-      }
+  private static class BitmapRows implements SourceRows {
+    private final Bitmap bmp;
 
-      // Pad remaining bytes
-      // while (byteIndex < bytesPerRow) {
-      // rasterLineBuffer[byteIndex++] = 0;
-      // }
+    BitmapRows(Bitmap bmp) {
+      this.bmp = bmp;
+    }
 
-      buffer.put(rasterLineBuffer, 0, bytesPerRow);
+    public int width() {
+      return this.bmp.getWidth();
     }
 
-    byte[] out = buffer.array();
+    public int height() {
+      return this.bmp.getHeight();
+    }
 
-    Log.i(TAG, "toRasterGSv0 took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    public Bitmap rows(int y0, int y1) {
+      return Bitmap.createBitmap(this.bmp, 0, y0, this.bmp.getWidth(), y1 - y0);
+    }
+  }
 
-    return out;
+  private static class RegionRows implements SourceRows {
+    private final BitmapRegionDecoder decoder;
+    private final int fullWidth;
+    private final int fullHeight;
+    private final int sample;
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+
+    RegionRows(BitmapRegionDecoder decoder, int fullWidth, int fullHeight, int sample) {
+      this.decoder = decoder;
+      this.fullWidth = fullWidth;
+      this.fullHeight = fullHeight;
+      this.sample = sample;
+      this.options.inSampleSize = sample;
+    }
+
+    public int width() {
+      return (this.fullWidth + this.sample - 1) / this.sample;
+    }
+
+    public int height() {
+      return (this.fullHeight + this.sample - 1) / this.sample;
+    }
+
+    public Bitmap rows(int y0, int y1) {
+      return this.decoder.decodeRegion(
+          new Rect(0, y0 * this.sample, this.fullWidth, Math.min(this.fullHeight, y1 * this.sample)),
+          this.options);
+    }
   }
 
-  /**
-   * STREAMING GS v0 RASTER MODE
-   * 
-   * For very long receipts.
-   * 
-   * Write image row-by-row directly to connection.
-   * 
-   * No full bitmap buffer is allocated.
-   */
-  public static void streamRasterGSv0(Bitmap bmp, FastDeviceConnection conn) throws Exception {
+  // Same result as a full pass, except scaling seams between bands: each
+  // band keeps CARRY_ROWS rows below it, which Atkinson diffuses into and
+  // the next band starts from
+  private static PackedBitmap prepareBanded(SourceRows src, PrinterSettings settings, PrinterMetrics metrics,
+      MemoryMeter meter) throws Exception {
 
     final long start = System.nanoTime();
 
-    int w = bmp.getWidth();
-    int h = bmp.getHeight();
+    final PrinterSettings.RasterScale scale = settings.getRasterScale();
 
-    // Bytes per row (1 bit per pixel)
-    int bytesPerRow = (w + 7) >> 3;
+    final int sw = src.width();
+    final int sh = src.height();
 
-    byte[] header = new byte[8];
+    final int[] size = PackedBitmap.printSize(sw, sh, settings, scale);
+    final int w = size[0];
+    final int h = size[1];
 
-    // Header: GS v 0 m xL xH yL yH
-    header[0] = 0x1D;
-    header[1] = 0x76;
-    header[2] = 0x30;
-    header[3] = 0x00; // m = 0 -> normal density
+    final boolean scaled = w != sw || h != sh;
 
-    // xL, xH
-    header[4] = (byte) (bytesPerRow & 0xFF);
-    header[5] = (byte) ((bytesPerRow >> 8) & 0xFF);
+    final int[] tone = ToneCurve.lutFor(settings);
 
-    // yL, yH
-    header[6] = (byte) (h & 0xFF);
-    header[7] = (byte) ((h >> 8) & 0xFF);
+    PackedBitmap out = new PackedBitmap(w, h, scale);
 
-    // Send header first
-    conn.write(header);
+    meter.acquire(out.bits.length);
 
-    // Reusable row buffer (saves hundreds of allocations)
-    byte[] row = new byte[bytesPerRow];
+    final int bufferRows = MemoryGovernor.BAND_ROWS + MemoryGovernor.CARRY_ROWS;
 
-    int[] argbRow = new int[w]; // temp pixel row buffer
+    int[] buffer = new int[w * bufferRows];
 
-    // Pack bits line-by-line
-    for (int y = 0; y < h; y++) {
+    meter.acquire(4L * buffer.length);
 
-      // Extract 1 row of ARGB
-      bmp.getPixels(argbRow, 0, w, 0, y, w, 1);
+    long scaleNanos = 0;
 
-      // Pack into raster bytes
-      int byteIndex = 0;
-      int bitPos = 7;
-      byte current = 0;
+    // Rows at the top of buffer carried over from the previous band
+    int carry = 0;
 
-      for (int x = 0; x < w; x++) {
+    for (int y = 0; y < h; y += MemoryGovernor.BAND_ROWS) {
 
-        int c = argbRow[x] & 0xFF; // already grayscale from prepare()
+      if (Thread.currentThread().isInterrupted()) {
+        meter.release(4L * buffer.length);
+        throw new InterruptedException("Image preparation cancelled");
+      }
 
-        if (c < 128) { // black
-          current |= (1 << bitPos);
-        }
+      final int rows = Math.min(MemoryGovernor.BAND_ROWS, h - y);
+      final int held = Math.min(bufferRows, h - y);
 
-        bitPos--;
+      // Last band of an image 1-2 rows over a band multiple: all carried
+      if (held > carry) {
+        final long scaleStart = System.nanoTime();
 
-        if (bitPos < 0) {
-          row[byteIndex++] = current;
-          current = 0;
-          bitPos = 7;
-        }
+        readRows(src, y + carry, y + held, w, h, scaled, scale != PrinterSettings.RasterScale.NORMAL, buffer,
+            carry * w, meter);
+
+        scaleNanos += System.nanoTime() - scaleStart;
       }
 
-      // Last partial byte
-      if (bitPos != 7) {
-        row[byteIndex++] = current;
+      Dither.grayscale(buffer, carry * w, held * w, tone);
+
+      Dither.dither(buffer, w, held, 0, rows, settings.getDitherMode());
+
+      for (int r = 0; r < rows; r++) {
+        out.packRow(buffer, r * w, y + r);
       }
 
-      // // Pad remaining bytes
-      // while (byteIndex < bytesPerRow) {
-      // row[byteIndex++] = 0;
-      // }
+      carry = held - rows;
 
-      // WRITE ONE ROW TO PRINTER
-      conn.write(row);
-      // Let the queue drain smoothly
-      conn.microDelay();
+      System.arraycopy(buffer, rows * w, buffer, 0, carry * w);
     }
 
-    // Ensure all streaming data was flushed
-    conn.finish();
+    meter.release(4L * buffer.length);
 
-    Log.i(TAG, "streamRasterGSv0 took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    metrics.record(Stage.SCALE, scaleNanos);
+    metrics.record(Stage.DITHER, System.nanoTime() - start - scaleNanos);
+
+    return out;
   }
 
-  // ----------------------------------------------------------
-  // ESC * (m = 33 -> 24-dot mode)
-  //
-  // Format:
-  // 1B 2A 21 nL nH [data …]
-  //
-  // Where data = (width * 24) bitmap bits, column-major.
-  // ----------------------------------------------------------
-  public static byte[] toEscStar24(Bitmap bmp) {
+  // Print rows y0..y1-1 of the w x h output, as ARGB, into out at offset
+  private static void readRows(SourceRows src, int y0, int y1, int w, int h, boolean scaled, boolean filter,
+      int[] out, int offset, MemoryMeter meter) {
 
-    final long start = System.nanoTime();
+    final int sh = src.height();
 
-    int w = bmp.getWidth();
-    int h = bmp.getHeight();
+    // Source rows covering the band (nearest / filtered scaling alike)
+    final int sy0 = scaled ? (int) ((long) y0 * sh / h) : y0;
+    final int sy1 = scaled ? (int) Math.min(sh, ((long) y1 * sh + h - 1) / h) : y1;
+
+    Bitmap part = src.rows(sy0, Math.max(sy0 + 1, sy1));
 
-    // ESC * works in vertical stripes of 24 pixels
-    int bandHeight = 24;
+    meter.acquire(part.getByteCount());
 
-    int bytesPerRow = w * 3; // 24 bits = 3 bytes per column
-    int totalBands = (h + 23) / 24;
+    Bitmap band = scaled ? Bitmap.createScaledBitmap(part, w, y1 - y0, filter) : part;
 
-    // Compute max required size (bands × command size)
-    // Each ESC* band:
-    // 5-byte header + (w * 3) bytes image data
-    int maxSize = totalBands * (5 + bytesPerRow);
+    if (band != part) {
+      meter.acquire(band.getByteCount());
+    }
 
-    ByteBuffer buffer = ByteBuffer.allocate(maxSize);
+    band.getPixels(out, offset, w, 0, 0, w, y1 - y0);
 
-    // For each 24-pixel band
-    for (int band = 0; band < totalBands; band++) {
+    if (band != part) {
+      meter.release(band.getByteCount());
+      band.recycle();
+    }
 
-      int yStart = band * bandHeight;
-      int yEnd = Math.min(yStart + bandHeight, h);
-      int actualRows = yEnd - yStart;
+    meter.release(part.getByteCount());
 
-      // ESC * header
-      buffer.put((byte) 0x1B); // ESC
-      buffer.put((byte) 0x2A); // '*'
-      buffer.put((byte) 0x21); // m = 33 (24-dot double-density)
-      buffer.put((byte) (w & 0xFF)); // nL
-      buffer.put((byte) ((w >> 8) & 0xFF)); // nH
+    if (src instanceof RegionRows) {
+      part.recycle(); // decoded for this band only
+    }
+  }
 
-      // Pack bits
-      for (int x = 0; x < w; x++) {
+  // 1. SCALE (no upscaling); a draft scale shrinks further by the factor
+  // the printer enlarges by, so the print keeps its size
+  private static Bitmap scaleForPrinter(Bitmap bmp, PrinterSettings settings, PrinterSettings.RasterScale scale) {
+    final int[] size = PackedBitmap.printSize(bmp.getWidth(), bmp.getHeight(), settings, scale);
 
-        byte b0 = 0, b1 = 0, b2 = 0;
+    Log.i(TAG, "srcWidth: " + bmp.getWidth() + "; targetWidth: " + settings.getPrinterWidthPx());
 
-        // For each row in band (max 24)
-        for (int bit = 0; bit < 24; bit++) {
+    if (size[0] != bmp.getWidth() || size[1] != bmp.getHeight()) {
+      // Filtered for drafts: dropping every other dot would lose thin strokes
+      bmp = Bitmap.createScaledBitmap(bmp, size[0], size[1], scale != PrinterSettings.RasterScale.NORMAL);
+    }
 
-          int yy = yStart + bit;
+    Log.i(TAG, "scaledWidth: " + bmp.getWidth() + "; scaledHeight: " + bmp.getHeight());
 
-          boolean black = false;
+    return bmp;
+  }
 
-          if (yy < h) {
-            int c = bmp.getPixel(x, yy) & 0xFF;
-            black = (c < 128);
-          }
+  // 2. GRAYSCALE + 3. DITHER, into a fresh buffer (printer lanes prepare
+  // images in parallel)
+  private static int[] ditherPixels(Bitmap bmp, PrinterSettings settings) {
+    int w = bmp.getWidth();
+    int h = bmp.getHeight();
 
-          if (black) {
-            if (bit < 8) {
-              b0 |= (1 << (7 - bit));
-            } else if (bit < 16) {
-              b1 |= (1 << (15 - bit));
-            } else {
-              b2 |= (1 << (23 - bit));
-            }
-          }
-        }
+    int[] pixelBuffer = new int[w * h];
 
-        buffer.put(b0);
-        buffer.put(b1);
-        buffer.put(b2);
-      }
+    bmp.getPixels(pixelBuffer, 0, w, 0, 0, w, h);
+
+    Dither.apply(pixelBuffer, w, h, settings);
+
+    return pixelBuffer;
+  }
+
+  // Prepared Bitmap (see prepare), one row at a time
+  private static PackedBitmap pack(Bitmap bmp) {
+    final int w = bmp.getWidth();
+    final int h = bmp.getHeight();
+
+    PackedBitmap packed = new PackedBitmap(w, h);
+
+    int[] row = new int[w];
+
+    for (int y = 0; y < h; y++) {
+      bmp.getPixels(row, 0, w, 0, y, w, 1);
+      packed.packRow(row, 0, y);
     }
 
-    // Trim buffer to actual used size
-    byte[] finalOut = new byte[buffer.position()];
-    buffer.flip();
-    buffer.get(finalOut);
+    return packed;
+  }
 
-    Log.i(TAG, "toEscStar24 took " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+  // ----------------------------------------------------------
+  // ENCODE A PREPARED BITMAP (see RasterEncoder)
+  // ----------------------------------------------------------
+  public static byte[] toRasterGSv0(Bitmap bmp) {
+    PackedBitmap img = pack(bmp);
+
+    byte[] out = new byte[RasterEncoder.rasterGSv0Size(img.width, img.height)];
+
+    RasterEncoder.encodeRasterGSv0(img, 0, img.height, out);
+
+    return out;
+  }
 
-    return finalOut;
+  public static void streamRasterGSv0(Bitmap bmp, FastDeviceConnection conn) throws Exception {
+    RasterEncoder.streamRasterGSv0(pack(bmp), conn);
   }
 
+  public static byte[] toEscStar24(Bitmap bmp) {
+    PackedBitmap img = pack(bmp);
+
+    final int height = RasterEncoder.escStarHeight(img);
+    final int bandH = RasterEncoder.ESC_STAR_BAND_HEIGHT;
+
+    int totalBands = (height + bandH - 1) / bandH;
+
+    byte[] out = new byte[totalBands * RasterEncoder.escStar24Size(img.width)];
+
+    int pos = 0;
+
+    // For each 24-pixel band
+    for (int y = 0; y < height; y += bandH) {
+      pos += RasterEncoder.encodeEscStar24(img, y, out, pos);
+    }
+
+    return out;
+  }
 }
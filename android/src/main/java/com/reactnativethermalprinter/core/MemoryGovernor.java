@@ -0,0 +1,143 @@
+package com.reactnativethermalprinter.core;
+
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+/**
+ * Picks how an image is prepared so that its peak footprint fits the
+ * memory budget (PrinterSettings.getMemoryBudgetBytes), from the image
+ * header alone.
+ *
+ * FULL holds the decoded ARGB bitmap, the scaled one and an int per dot at
+ * once: 8-12 bytes per dot, which long reports cannot afford on small
+ * devices. BANDED decodes subsampled to about the printer width and
+ * scales / dithers BAND_ROWS rows at a time. REGION also decodes band by
+ * band (BitmapRegionDecoder), so only the packed 1-bit image grows with
+ * the image height.
+ */
+public class MemoryGovernor {
+
+  public enum Plan {
+    FULL,
+    BANDED,
+    REGION
+  }
+
+  // Rows scaled / dithered together; a multiple of the AUTO dither band and
+  // of the Bayer matrix, so banded output lines up with a full pass
+  static final int BAND_ROWS = 256;
+
+  // Atkinson diffuses two rows down
+  static final int CARRY_ROWS = 2;
+
+  // Budget when none is configured: share of the Java heap limit
+  private static final int DEFAULT_BUDGET_DIVISOR = 4;
+
+  public static class Decision {
+    public final Plan plan;
+    public final int sampleSize; // BitmapFactory inSampleSize
+    public final long estimatedPeakBytes;
+
+    Decision(Plan plan, int sampleSize, long estimatedPeakBytes) {
+      this.plan = plan;
+      this.sampleSize = sampleSize;
+      this.estimatedPeakBytes = estimatedPeakBytes;
+    }
+
+    @Override
+    public String toString() {
+      return this.plan + " (sample " + this.sampleSize + ", ~" + (this.estimatedPeakBytes >> 10) + " KiB)";
+    }
+  }
+
+  public static long budgetOf(PrinterSettings settings) {
+    final long configured = settings.getMemoryBudgetBytes();
+    return configured > 0 ? configured : Runtime.getRuntime().maxMemory() / DEFAULT_BUDGET_DIVISOR;
+  }
+
+  // srcWidth x srcHeight: the encoded image's size (inJustDecodeBounds)
+  public static Decision plan(int srcWidth, int srcHeight, PrinterSettings settings) {
+    final long budget = budgetOf(settings);
+
+    final long full = estimateFull(srcWidth, srcHeight, settings);
+
+    if (full <= budget) {
+      return new Decision(Plan.FULL, 1, full);
+    }
+
+    final int sample = sampleSize(srcWidth, settings);
+
+    final long banded = estimateBanded(srcWidth, srcHeight, sample, settings);
+
+    if (banded <= budget) {
+      return new Decision(Plan.BANDED, sample, banded);
+    }
+
+    // Smallest there is; over budget only for absurdly wide images
+    return new Decision(Plan.REGION, sample, estimateRegion(srcWidth, srcHeight, sample, settings));
+  }
+
+  // GS v0 in one command keeps a second copy of the packed image
+  static boolean fitsFullRaster(PackedBitmap img, PrinterSettings settings) {
+    return img.bits.length + (long) RasterEncoder.rasterGSv0Size(img.width, img.height) <= budgetOf(settings);
+  }
+
+  // Largest power of two that keeps the decoded width at or above the
+  // width the image is scaled to anyway
+  static int sampleSize(int srcWidth, PrinterSettings settings) {
+    final int[] size = PackedBitmap.printSize(srcWidth, 1, settings, settings.getRasterScale());
+
+    int sample = 1;
+
+    while (srcWidth / (sample * 2) >= size[0]) {
+      sample *= 2;
+    }
+
+    return sample;
+  }
+
+  // ----------------------------------------------------------
+  // ESTIMATES (bytes; bitmaps are ARGB_8888)
+  // ----------------------------------------------------------
+  private static long estimateFull(int w, int h, PrinterSettings settings) {
+    final int[] out = PackedBitmap.printSize(w, h, settings, settings.getRasterScale());
+
+    final long dots = (long) out[0] * out[1];
+
+    long bytes = 4L * w * h; // decoded
+
+    if (out[0] != w || out[1] != h) {
+      bytes += 4 * dots; // scaled
+    }
+
+    return bytes + 4 * dots + packedBytes(out); // pixel buffer, packed
+  }
+
+  private static long estimateBanded(int w, int h, int sample, PrinterSettings settings) {
+    final int sw = ceilDiv(w, sample);
+    final int sh = ceilDiv(h, sample);
+
+    return 4L * sw * sh + bandBytes(sw, sh, settings);
+  }
+
+  private static long estimateRegion(int w, int h, int sample, PrinterSettings settings) {
+    return bandBytes(ceilDiv(w, sample), ceilDiv(h, sample), settings);
+  }
+
+  // Per band: source rows, scaled rows, pixel buffer; plus the packed image
+  private static long bandBytes(int sw, int sh, PrinterSettings settings) {
+    final int[] out = PackedBitmap.printSize(sw, sh, settings, settings.getRasterScale());
+
+    final long rows = BAND_ROWS + CARRY_ROWS;
+    final long sourceRows = ceilDiv((int) (rows * sh), Math.max(1, out[1])) + 1;
+
+    return 4L * sw * sourceRows + 8L * out[0] * rows + packedBytes(out);
+  }
+
+  private static long packedBytes(int[] size) {
+    return (long) ((size[0] + 7) >> 3) * size[1];
+  }
+
+  private static int ceilDiv(int a, int b) {
+    return (a + b - 1) / b;
+  }
+}
@@ -0,0 +1,100 @@
+package com.reactnativethermalprinter.core;
+
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+/**
+ * 1 bit per dot image, rows packed MSB = leftmost dot (1 = black), which is
+ * the GS v0 raster layout. Padding bits at the end of a row are 0.
+ *
+ * Encoders read bands straight out of it, no per-band Bitmap slices.
+ */
+public class PackedBitmap {
+
+  public final int width;
+  public final int height;
+  public final int bytesPerRow;
+  public final byte[] bits;
+
+  // How the printer enlarges the dots (draft images are prepared smaller)
+  public final PrinterSettings.RasterScale scale;
+
+  public PackedBitmap(int width, int height) {
+    this(width, height, PrinterSettings.RasterScale.NORMAL);
+  }
+
+  public PackedBitmap(int width, int height, PrinterSettings.RasterScale scale) {
+    this.width = width;
+    this.height = height;
+    this.bytesPerRow = (width + 7) >> 3;
+    this.bits = new byte[this.bytesPerRow * height];
+    this.scale = scale;
+  }
+
+  // Grayscale / dithered pixels (row-major); low byte < 128 is black
+  public static PackedBitmap fromPixels(int[] pixels, int width, int height) {
+    return fromPixels(pixels, width, height, PrinterSettings.RasterScale.NORMAL);
+  }
+
+  public static PackedBitmap fromPixels(int[] pixels, int width, int height, PrinterSettings.RasterScale scale) {
+    PackedBitmap packed = new PackedBitmap(width, height, scale);
+
+    for (int y = 0; y < height; y++) {
+      packed.packRow(pixels, y * width, y);
+    }
+
+    return packed;
+  }
+
+  // Size a w x h source is prepared to: the printer width at most (no
+  // upscaling); a draft scale shrinks further by the factor the printer
+  // enlarges by, so the print keeps its size
+  public static int[] printSize(int w, int h, PrinterSettings settings, PrinterSettings.RasterScale scale) {
+    final int targetWidth = settings.getPrinterWidthPx();
+
+    if (scale != PrinterSettings.RasterScale.NORMAL) {
+      final int sw = Math.min(w, targetWidth);
+      final int sh = Math.round(h * ((float) sw / w));
+
+      return new int[] {
+          Math.max(1, (sw + scale.scaleX - 1) / scale.scaleX),
+          Math.max(1, (sh + scale.scaleY - 1) / scale.scaleY)
+      };
+    }
+
+    if (w > targetWidth) {
+      return new int[] { targetWidth, Math.round(h * ((float) targetWidth / (float) w)) };
+    }
+
+    return new int[] { w, h };
+  }
+
+  void packRow(int[] pixels, int offset, int y) {
+    int pos = y * this.bytesPerRow;
+
+    int x = 0;
+
+    // Whole bytes
+    for (; x + 8 <= this.width; x += 8) {
+      int b = 0;
+
+      for (int bit = 0; bit < 8; bit++) {
+        b = (b << 1) | (((pixels[offset + x + bit] & 0xFF) - 128) >>> 31); // 1 if < 128
+      }
+
+      this.bits[pos++] = (byte) b;
+    }
+
+    // Last partial byte, padded with white
+    if (x < this.width) {
+      int b = 0;
+
+      for (int bit = 0; x + bit < this.width; bit++) {
+        if ((pixels[offset + x + bit] & 0xFF) < 128) {
+          b |= 0x80 >>> bit;
+        }
+      }
+
+      this.bits[pos] = (byte) b;
+    }
+  }
+}
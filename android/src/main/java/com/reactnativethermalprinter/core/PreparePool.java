@@ -0,0 +1,48 @@
+package com.reactnativethermalprinter.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared thread pool for CPU-bound image preparation (decode, scale,
+ * dither) that runs ahead of the transmitting job, e.g. the items of a
+ * batch. One core is left to the writers and the UI.
+ */
+public final class PreparePool {
+
+  public static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+  private static final int KEEP_ALIVE_SECONDS = 60;
+
+  private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+      THREADS,
+      THREADS,
+      KEEP_ALIVE_SECONDS,
+      TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "RNTP-prepare-" + this.count.getAndIncrement());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+
+  static {
+    EXECUTOR.allowCoreThreadTimeOut(true);
+  }
+
+  private PreparePool() {
+  }
+
+  public static ExecutorService get() {
+    return EXECUTOR;
+  }
+}
@@ -0,0 +1,190 @@
+package com.reactnativethermalprinter.core;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+
+/**
+ * ESC/POS bit image commands from a PackedBitmap: GS v 0 raster, whole or
+ * in row slices, and ESC * 24-dot bands. Plain Java, so the print server
+ * module shares it with the Android library.
+ */
+public class RasterEncoder {
+
+  // GS v 0 / ESC * command header sizes
+  public static final int GSV0_HEADER_SIZE = 8;
+  public static final int ESC_STAR_HEADER_SIZE = 5;
+
+  // ESC * 24-dot band height
+  public static final int ESC_STAR_BAND_HEIGHT = 24;
+
+  // ----------------------------------------------------------
+  // GS v0 RASTER BUILDER (Fastest mode for ESC/POS)
+  //
+  // Output format:
+  // GS v 0 m xL xH yL yH [bitmap-bytes]
+  //
+  // 1 bit per pixel, packed MSB->LSB
+  // ----------------------------------------------------------
+  // Size of a GS v0 command for a w x h image
+  public static int rasterGSv0Size(int w, int h) {
+    return GSV0_HEADER_SIZE + ((w + 7) >> 3) * h;
+  }
+
+  /**
+   * Encode rows [y, y + h) of img as one GS v0 command into out, which must
+   * hold rasterGSv0Size(width, h) bytes. Returns the command length.
+   */
+  public static int encodeRasterGSv0(PackedBitmap img, int y, int h, byte[] out) {
+
+    writeRasterGSv0Header(out, img.bytesPerRow, h, img.scale.m);
+
+    // Packed rows already are the GS v0 layout
+    final int length = img.bytesPerRow * h;
+
+    System.arraycopy(img.bits, y * img.bytesPerRow, out, GSV0_HEADER_SIZE, length);
+
+    return GSV0_HEADER_SIZE + length;
+  }
+
+  // Header: GS v 0 m xL xH yL yH
+  // m: 0 normal, 1 double width, 2 double height, 3 quadruple
+  private static void writeRasterGSv0Header(byte[] out, int bytesPerRow, int h, int m) {
+    out[0] = 0x1D;
+    out[1] = 0x76;
+    out[2] = 0x30;
+    out[3] = (byte) m;
+
+    // xL, xH
+    out[4] = (byte) (bytesPerRow & 0xFF);
+    out[5] = (byte) ((bytesPerRow >> 8) & 0xFF);
+
+    // yL, yH
+    out[6] = (byte) (h & 0xFF);
+    out[7] = (byte) ((h >> 8) & 0xFF);
+  }
+
+  /**
+   * STREAMING GS v0 RASTER MODE
+   *
+   * For very long receipts.
+   *
+   * Write image row-by-row directly to connection.
+   */
+  public static void streamRasterGSv0(PackedBitmap img, FastDeviceConnection conn) throws Exception {
+
+    byte[] header = new byte[GSV0_HEADER_SIZE];
+
+    writeRasterGSv0Header(header, img.bytesPerRow, img.height, img.scale.m);
+
+    // Send header first
+    conn.write(header);
+
+    // The rows are not modified during the job, so the writer thread can send
+    // them straight out of img (pacing is handled by the connection)
+    for (int y = 0; y < img.height; y++) {
+      conn.write(img.bits, y * img.bytesPerRow, img.bytesPerRow);
+    }
+
+    // Ensure all streaming data was flushed
+    conn.finish();
+  }
+
+  // ----------------------------------------------------------
+  // ESC * (m = 33 -> 24-dot mode)
+  //
+  // Format:
+  // 1B 2A 21 nL nH [data …]
+  //
+  // Where data = (width * 24) bitmap bits, column-major.
+  // ----------------------------------------------------------
+  // Size of one ESC * 24-dot band command for a w dots wide image
+  public static int escStar24Size(int w) {
+    return ESC_STAR_HEADER_SIZE + w * 3; // 24 bits = 3 bytes per column
+  }
+
+  // Printed rows of img in ESC * mode: there is no double height, so rows
+  // of a double-height image are repeated instead
+  public static int escStarHeight(PackedBitmap img) {
+    return img.height * img.scale.scaleY;
+  }
+
+  /**
+   * Encode the 24-dot band starting at printed row y of img (see
+   * escStarHeight) as one ESC * command at out[offset]. Rows past the image
+   * print white; double-width images use single density. Returns the
+   * command length.
+   *
+   * ESC * is column-major (3 bytes per column, MSB = top dot) while img is
+   * row-major, so each 8 x 8 block of dots is transposed as one 64-bit word.
+   */
+  public static int encodeEscStar24(PackedBitmap img, int y, byte[] out, int offset) {
+
+    final int w = img.width;
+    final int bpr = img.bytesPerRow;
+    final byte[] bits = img.bits;
+
+    final int scaleY = img.scale.scaleY;
+
+    final int rows = Math.min(ESC_STAR_BAND_HEIGHT, escStarHeight(img) - y);
+
+    int pos = offset;
+
+    // ESC * header
+    out[pos++] = 0x1B; // ESC
+    out[pos++] = 0x2A; // '*'
+    out[pos++] = (byte) (img.scale.scaleX == 2 ? 0x20 : 0x21); // m = 32 / 33 (24-dot single / double density)
+    out[pos++] = (byte) (w & 0xFF); // nL
+    out[pos++] = (byte) ((w >> 8) & 0xFF); // nH
+
+    final int data = pos;
+
+    for (int xb = 0; xb < bpr; xb++) {
+
+      // Columns of this byte (the last one may be partial)
+      final int columns = Math.min(8, w - (xb << 3));
+
+      final int column0 = data + xb * 24; // 8 columns x 3 bytes
+
+      // Three 8-row groups: top, middle, bottom byte of each column
+      for (int group = 0; group < 3; group++) {
+
+        long block = 0;
+
+        for (int r = 0; r < 8; r++) {
+          final int row = (group << 3) + r;
+
+          block <<= 8;
+
+          if (row < rows) {
+            block |= bits[((y + row) / scaleY) * bpr + xb] & 0xFF;
+          }
+        }
+
+        block = transpose8x8(block);
+
+        // Byte j (MSB first) is now column j, MSB = top row of the group
+        for (int j = 0; j < columns; j++) {
+          out[column0 + j * 3 + group] = (byte) (block >>> (56 - (j << 3)));
+        }
+      }
+    }
+
+    return ESC_STAR_HEADER_SIZE + w * 3;
+  }
+
+  // Transpose an 8 x 8 bit matrix: byte i (MSB first) = row i, bit 7 - j =
+  // column j (Hacker's Delight 7-3)
+  static long transpose8x8(long x) {
+    long t;
+
+    t = (x ^ (x >>> 7)) & 0x00AA00AA00AA00AAL;
+    x = x ^ t ^ (t << 7);
+
+    t = (x ^ (x >>> 14)) & 0x0000CCCC0000CCCCL;
+    x = x ^ t ^ (t << 14);
+
+    t = (x ^ (x >>> 28)) & 0x00000000F0F0F0F0L;
+    x = x ^ t ^ (t << 28);
+
+    return x;
+  }
+}
@@ -0,0 +1,329 @@
+package com.reactnativethermalprinter.core;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One part of a mixed job (EscPosImagePrinter.printSegments): an image, or
+ * native commands the printer renders itself. A QR code or barcode costs a
+ * few dozen bytes this way instead of kilobytes of dithered raster.
+ *
+ * Native segments are encoded when created, so bad data fails the job up
+ * front. Image segments hold their base64 source until prepared
+ * (ImageProcessing.prepareSegments).
+ */
+public class Segment {
+
+  public enum Type {
+    IMAGE,
+    QR, // GS ( k, model 2
+    BARCODE, // GS k, function B
+    TEXT,
+    FEED,
+    CUT
+  }
+
+  public enum Align {
+    LEFT,
+    CENTER,
+    RIGHT
+  }
+
+  // GS ( k error correction: n = 48 + ordinal
+  // maxBytes: store limit of a model 2 QR code in byte mode (version 40)
+  public enum QrErrorCorrection {
+    L(2953),
+    M(2331),
+    Q(1663),
+    H(1273);
+
+    final int maxBytes;
+
+    QrErrorCorrection(int maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+  }
+
+  // GS k function B symbologies
+  public enum Symbology {
+    UPC_A(65),
+    EAN13(67),
+    EAN8(68),
+    CODE39(69),
+    ITF(70),
+    CODABAR(71),
+    CODE93(72),
+    CODE128(73);
+
+    final int m;
+
+    Symbology(int m) {
+      this.m = m;
+    }
+  }
+
+  private static final int BARCODE_MAX_BYTES = 255;
+
+  // Text: ESC t 16 selects WPC1252, the legacy text printer's default
+  private static final Charset TEXT_CHARSET = Charset.forName("windows-1252");
+  private static final byte[] SELECT_CODE_PAGE = new byte[] { 0x1B, 0x74, 16 };
+
+  public final Type type;
+
+  // Native segments: the command bytes
+  private final byte[] commands;
+
+  // Image segments: the source, then the prepared image
+  private final String imageBase64;
+  private final PackedBitmap image;
+
+  private Segment(Type type, byte[] commands, String imageBase64, PackedBitmap image) {
+    this.type = type;
+    this.commands = commands;
+    this.imageBase64 = imageBase64;
+    this.image = image;
+  }
+
+  // ----------------------------------------------------------
+  // FACTORIES
+  // ----------------------------------------------------------
+  public static Segment image(String base64) {
+    return new Segment(Type.IMAGE, null, base64, null);
+  }
+
+  // moduleSize: dots per QR module, 1-16
+  public static Segment qr(String data, int moduleSize, QrErrorCorrection errorCorrection, Align align) {
+    final byte[] d = data.getBytes(StandardCharsets.UTF_8);
+
+    if (d.length == 0 || d.length > errorCorrection.maxBytes) {
+      throw new IllegalArgumentException(
+          "QR data must be 1-" + errorCorrection.maxBytes + " bytes at error correction " + errorCorrection);
+    }
+
+    if (moduleSize < 1 || moduleSize > 16) {
+      throw new IllegalArgumentException("QR module size must be 1-16");
+    }
+
+    final int store = d.length + 3;
+
+    Commands out = new Commands(d.length + 40);
+
+    out.align(align);
+    out.put(0x1D, 0x28, 0x6B, 0x04, 0x00, 0x31, 0x41, 0x32, 0x00); // model 2
+    out.put(0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x43, moduleSize);
+    out.put(0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, 48 + errorCorrection.ordinal());
+    out.put(0x1D, 0x28, 0x6B, store & 0xFF, store >> 8, 0x31, 0x50, 0x30); // store
+    out.put(d);
+    out.put(0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x51, 0x30); // print
+    out.put(0x0A);
+    out.align(Align.LEFT);
+
+    return new Segment(Type.QR, out.toArray(), null, null);
+  }
+
+  /**
+   * height: dots, 1-255; moduleWidth: dots per narrow bar, 2-6; hri prints
+   * the human readable digits below. CODE128 data without a code set
+   * prefix ("{A" / "{B" / "{C") is sent as code set B, with its "{"
+   * escaped as "{{".
+   */
+  public static Segment barcode(Symbology symbology, String data, int height, int moduleWidth, boolean hri,
+      Align align) {
+
+    if (symbology == Symbology.CODE128 && !hasCodeSet(data)) {
+      data = "{B" + data.replace("{", "{{");
+    }
+
+    validateBarcode(symbology, data);
+
+    if (height < 1 || height > 255) {
+      throw new IllegalArgumentException("Barcode height must be 1-255");
+    }
+
+    if (moduleWidth < 2 || moduleWidth > 6) {
+      throw new IllegalArgumentException("Barcode module width must be 2-6");
+    }
+
+    final byte[] d = data.getBytes(StandardCharsets.US_ASCII);
+
+    Commands out = new Commands(d.length + 24);
+
+    out.align(align);
+    out.put(0x1D, 0x68, height); // GS h
+    out.put(0x1D, 0x77, moduleWidth); // GS w
+    out.put(0x1D, 0x48, hri ? 2 : 0); // GS H: HRI below / none
+    out.put(0x1D, 0x66, 0x00); // GS f: HRI font A
+    out.put(0x1D, 0x6B, symbology.m, d.length);
+    out.put(d);
+    out.put(0x0A);
+    out.align(Align.LEFT);
+
+    return new Segment(Type.BARCODE, out.toArray(), null, null);
+  }
+
+  // size: character magnification, 1-8 (width and height)
+  public static Segment text(String text, Align align, boolean bold, int size) {
+    if (size < 1 || size > 8) {
+      throw new IllegalArgumentException("Text size must be 1-8");
+    }
+
+    final byte[] body = encodeText(text);
+
+    Commands out = new Commands(body.length + 16);
+
+    out.align(align);
+    out.put(0x1B, 0x45, bold ? 1 : 0); // ESC E
+    out.put(0x1D, 0x21, ((size - 1) << 4) | (size - 1)); // GS !
+    out.put(body);
+    out.put(0x1B, 0x45, 0x00);
+    out.put(0x1D, 0x21, 0x00);
+    out.align(Align.LEFT);
+
+    return new Segment(Type.TEXT, out.toArray(), null, null);
+  }
+
+  public static Segment feed(int lines) {
+    if (lines < 0 || lines > 255) {
+      throw new IllegalArgumentException("Feed must be 0-255 lines");
+    }
+
+    return new Segment(Type.FEED, new byte[] { 0x1B, 0x64, (byte) lines }, null, null); // ESC d n
+  }
+
+  public static Segment cut(boolean partial) {
+    return new Segment(Type.CUT, new byte[] { 0x1D, 0x56, (byte) (partial ? 1 : 0) }, null, null); // GS V
+  }
+
+  // Also used by batch text items
+  static byte[] encodeText(String text) {
+    String body = text == null ? "" : text.replace("\r\n", "\n");
+
+    // The printer prints a line once it gets its LF
+    if (!body.endsWith("\n")) {
+      body += "\n";
+    }
+
+    final byte[] encoded = body.getBytes(TEXT_CHARSET);
+
+    byte[] out = new byte[SELECT_CODE_PAGE.length + encoded.length];
+
+    System.arraycopy(SELECT_CODE_PAGE, 0, out, 0, SELECT_CODE_PAGE.length);
+    System.arraycopy(encoded, 0, out, SELECT_CODE_PAGE.length, encoded.length);
+
+    return out;
+  }
+
+  // ----------------------------------------------------------
+  // PREPARED IMAGES (ImageProcessing.prepareSegments)
+  // ----------------------------------------------------------
+  public boolean isPrepared() {
+    return this.type != Type.IMAGE || this.image != null;
+  }
+
+  static Segment prepared(PackedBitmap image) {
+    return new Segment(Type.IMAGE, null, null, image);
+  }
+
+  String getImageSource() {
+    return this.imageBase64;
+  }
+
+  byte[] getCommands() {
+    return this.commands;
+  }
+
+  PackedBitmap getImage() {
+    return this.image;
+  }
+
+  // ----------------------------------------------------------
+  // VALIDATION: printers print garbage or nothing for bad data
+  // ----------------------------------------------------------
+  private static void validateBarcode(Symbology symbology, String data) {
+    final int n = data.length();
+
+    switch (symbology) {
+      case UPC_A:
+        requireDigits(data, n == 11 || n == 12, "UPC-A needs 11-12 digits");
+        break;
+
+      case EAN13:
+        requireDigits(data, n == 12 || n == 13, "EAN-13 needs 12-13 digits");
+        break;
+
+      case EAN8:
+        requireDigits(data, n == 7 || n == 8, "EAN-8 needs 7-8 digits");
+        break;
+
+      case ITF:
+        requireDigits(data, n >= 2 && n % 2 == 0, "ITF needs an even number of digits");
+        break;
+
+      default:
+        if (n < 1 || n > BARCODE_MAX_BYTES) {
+          throw new IllegalArgumentException(symbology + " data must be 1-" + BARCODE_MAX_BYTES + " characters");
+        }
+
+        for (int i = 0; i < n; i++) {
+          if (data.charAt(i) < 0x20 || data.charAt(i) > 0x7E) {
+            throw new IllegalArgumentException(symbology + " data must be printable ASCII");
+          }
+        }
+    }
+  }
+
+  // "{A" / "{B" / "{C": CODE128 data that selects its own code set
+  private static boolean hasCodeSet(String data) {
+    return data.length() >= 2 && data.charAt(0) == '{' && "ABC".indexOf(data.charAt(1)) >= 0;
+  }
+
+  private static void requireDigits(String data, boolean lengthOk, String message) {
+    if (!lengthOk) {
+      throw new IllegalArgumentException(message);
+    }
+
+    for (int i = 0; i < data.length(); i++) {
+      if (data.charAt(i) < '0' || data.charAt(i) > '9') {
+        throw new IllegalArgumentException(message);
+      }
+    }
+  }
+
+  // Growable command buffer
+  private static class Commands {
+    private byte[] buf;
+    private int size = 0;
+
+    Commands(int capacity) {
+      this.buf = new byte[capacity];
+    }
+
+    void put(int... bytes) {
+      this.ensure(bytes.length);
+      for (int b : bytes) {
+        this.buf[this.size++] = (byte) b;
+      }
+    }
+
+    void put(byte[] bytes) {
+      this.ensure(bytes.length);
+      System.arraycopy(bytes, 0, this.buf, this.size, bytes.length);
+      this.size += bytes.length;
+    }
+
+    void align(Align align) {
+      this.put(0x1B, 0x61, align.ordinal()); // ESC a
+    }
+
+    byte[] toArray() {
+      return this.size == this.buf.length ? this.buf : Arrays.copyOf(this.buf, this.size);
+    }
+
+    private void ensure(int extra) {
+      if (this.size + extra > this.buf.length) {
+        this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.size + extra));
+      }
+    }
+  }
+}
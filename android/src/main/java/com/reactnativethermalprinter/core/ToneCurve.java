@@ -0,0 +1,127 @@
+package com.reactnativethermalprinter.core;
+
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tone settings (PrinterSettings) compiled to a 256-entry luma lookup
+ * table, applied while converting to grayscale. Steps, on luma in [0, 1]:
+ *
+ * 1. Levels: blackPoint and below -> 0, whitePoint and above -> 1
+ * 2. Gamma: v^(1 / gamma); above 1 lightens the midtones
+ * 3. Contrast: scaled around mid gray; 1 = unchanged
+ * 4. Brightness: added; -1 .. 1
+ *
+ * Tables are cached by their settings, so building one is a one-off per
+ * distinct tone.
+ */
+class ToneCurve {
+
+  // Distinct tones in use are few; a runaway caller just rebuilds
+  private static final int MAX_CACHED = 64;
+
+  private static final ConcurrentHashMap<ToneCurve, int[]> LUTS = new ConcurrentHashMap<>();
+
+  // No tone settings: luma passes through
+  static final int[] IDENTITY = new ToneCurve(0f, 1f, 1f, 0, 255).build();
+
+  private final float brightness;
+  private final float contrast;
+  private final float gamma;
+  private final int blackPoint;
+  private final int whitePoint;
+
+  private ToneCurve(float brightness, float contrast, float gamma, int blackPoint, int whitePoint) {
+    this.brightness = brightness;
+    this.contrast = contrast;
+    this.gamma = gamma;
+    this.blackPoint = blackPoint;
+    this.whitePoint = whitePoint;
+  }
+
+  // The table for settings' tone (shared: do not modify)
+  static int[] lutFor(PrinterSettings settings) {
+    ToneCurve key = new ToneCurve(
+        settings.getBrightness(),
+        settings.getContrast(),
+        settings.getGamma(),
+        settings.getBlackPoint(),
+        settings.getWhitePoint());
+
+    if (key.isIdentity()) {
+      return IDENTITY;
+    }
+
+    int[] lut = LUTS.get(key);
+
+    if (lut == null) {
+      if (LUTS.size() >= MAX_CACHED) {
+        LUTS.clear();
+      }
+
+      lut = key.build();
+
+      LUTS.put(key, lut);
+    }
+
+    return lut;
+  }
+
+  private boolean isIdentity() {
+    return this.brightness == 0f && this.contrast == 1f && this.gamma == 1f
+        && this.blackPoint == 0 && this.whitePoint == 255;
+  }
+
+  private int[] build() {
+    final int[] lut = new int[256];
+
+    final int black = Math.max(0, Math.min(254, this.blackPoint));
+    final int white = Math.max(black + 1, Math.min(255, this.whitePoint));
+
+    final double invGamma = this.gamma > 0f ? 1.0 / this.gamma : 1.0;
+
+    for (int i = 0; i < 256; i++) {
+      double v = (i - black) / (double) (white - black);
+
+      v = v < 0 ? 0 : (v > 1 ? 1 : v);
+
+      v = Math.pow(v, invGamma);
+
+      v = (v - 0.5) * this.contrast + 0.5;
+
+      v += this.brightness;
+
+      final long out = Math.round(v * 255);
+
+      lut[i] = (int) (out < 0 ? 0 : (out > 255 ? 255 : out));
+    }
+
+    return lut;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof ToneCurve)) {
+      return false;
+    }
+
+    ToneCurve t = (ToneCurve) o;
+
+    return Float.compare(this.brightness, t.brightness) == 0
+        && Float.compare(this.contrast, t.contrast) == 0
+        && Float.compare(this.gamma, t.gamma) == 0
+        && this.blackPoint == t.blackPoint
+        && this.whitePoint == t.whitePoint;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = Float.floatToIntBits(this.brightness);
+    h = 31 * h + Float.floatToIntBits(this.contrast);
+    h = 31 * h + Float.floatToIntBits(this.gamma);
+    h = 31 * h + this.blackPoint;
+    h = 31 * h + this.whitePoint;
+    return h;
+  }
+}
@@ -0,0 +1,170 @@
+package com.reactnativethermalprinter.emulator;
+
+/**
+ * Configuration of the local printer emulator.
+ *
+ * The throttling knobs mimic slow links: bytesPerSecond caps the drain rate
+ * (cheap Bluetooth SPP modules manage 10-20 KB/s), and every stallEveryBytes
+ * the emulator stops reading for stallMs, like a print head catching up or a
+ * serial bridge with a full buffer. Both push back on the sender through the
+ * TCP window, which is kept small with receiveBufferBytes.
+ */
+public class EmulatorSettings {
+
+  private static final int DEFAULT_DOTS_PER_LINE = 576; // 80mm @ 203dpi
+
+  private static final int DEFAULT_RECEIVE_BUFFER_BYTES = 4096;
+
+  // 0 = ephemeral port (see PrinterEmulator.getPort())
+  private int port = 0;
+
+  private int dotsPerLine = DEFAULT_DOTS_PER_LINE;
+
+  private int receiveBufferBytes = DEFAULT_RECEIVE_BUFFER_BYTES;
+
+  // 0 = unlimited
+  private int bytesPerSecond = 0;
+
+  // 0 = no stalls
+  private int stallEveryBytes = 0;
+  private int stallMs = 0;
+
+  // Reported through DLE EOT / GS r
+  private boolean paperNearEnd = false;
+  private boolean paperEnd = false;
+  private boolean coverOpen = false;
+
+  // Whether the printer answers status queries at all
+  private boolean answerStatus = true;
+
+  // Reported through GS I (maker / model); null = GS I is not answered
+  private String maker = null;
+  private String model = null;
+
+  // PNG output directory; null = do not render
+  private String outputDir = null;
+
+  public int getPort() {
+    return this.port;
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  public int getDotsPerLine() {
+    return this.dotsPerLine;
+  }
+
+  public void setDotsPerLine(int dots) {
+    this.dotsPerLine = dots;
+  }
+
+  public int getReceiveBufferBytes() {
+    return this.receiveBufferBytes;
+  }
+
+  public void setReceiveBufferBytes(int bytes) {
+    this.receiveBufferBytes = bytes;
+  }
+
+  public int getBytesPerSecond() {
+    return this.bytesPerSecond;
+  }
+
+  public void setBytesPerSecond(int bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  public int getStallEveryBytes() {
+    return this.stallEveryBytes;
+  }
+
+  public void setStallEveryBytes(int bytes) {
+    this.stallEveryBytes = bytes;
+  }
+
+  public int getStallMs() {
+    return this.stallMs;
+  }
+
+  public void setStallMs(int ms) {
+    this.stallMs = ms;
+  }
+
+  public boolean getPaperNearEnd() {
+    return this.paperNearEnd;
+  }
+
+  public void setPaperNearEnd(boolean paperNearEnd) {
+    this.paperNearEnd = paperNearEnd;
+  }
+
+  public boolean getPaperEnd() {
+    return this.paperEnd;
+  }
+
+  public void setPaperEnd(boolean paperEnd) {
+    this.paperEnd = paperEnd;
+  }
+
+  public boolean getCoverOpen() {
+    return this.coverOpen;
+  }
+
+  public void setCoverOpen(boolean coverOpen) {
+    this.coverOpen = coverOpen;
+  }
+
+  public boolean getAnswerStatus() {
+    return this.answerStatus;
+  }
+
+  public void setAnswerStatus(boolean answerStatus) {
+    this.answerStatus = answerStatus;
+  }
+
+  public String getMaker() {
+    return this.maker;
+  }
+
+  public void setMaker(String maker) {
+    this.maker = maker;
+  }
+
+  public String getModel() {
+    return this.model;
+  }
+
+  public void setModel(String model) {
+    this.model = model;
+  }
+
+  public String getOutputDir() {
+    return this.outputDir;
+  }
+
+  public void setOutputDir(String dir) {
+    this.outputDir = dir;
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "EmulatorSettings {" +
+        "\n\tport: " + this.port +
+        "\n\tdotsPerLine: " + this.dotsPerLine +
+        "\n\treceiveBufferBytes: " + this.receiveBufferBytes +
+        "\n\tbytesPerSecond: " + this.bytesPerSecond +
+        "\n\tstallEveryBytes: " + this.stallEveryBytes +
+        "\n\tstallMs: " + this.stallMs +
+        "\n\tpaperNearEnd: " + this.paperNearEnd +
+        "\n\tpaperEnd: " + this.paperEnd +
+        "\n\tcoverOpen: " + this.coverOpen +
+        "\n\tanswerStatus: " + this.answerStatus +
+        "\n\tmaker: " + this.maker +
+        "\n\tmodel: " + this.model +
+        "\n\toutputDir: " + this.outputDir +
+        "\n}";
+  }
+}
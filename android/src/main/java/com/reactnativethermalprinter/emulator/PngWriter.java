@@ -0,0 +1,87 @@
+package com.reactnativethermalprinter.emulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal 1-bit grayscale PNG encoder for RasterCanvas. Plain Java, so the
+ * emulator output is the same on a device and on a CI JVM.
+ */
+class PngWriter {
+
+  private static final byte[] SIGNATURE = new byte[] {
+      (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A
+  };
+
+  private PngWriter() {
+  }
+
+  static void write(RasterCanvas canvas, String path) throws IOException {
+    try (OutputStream out = new FileOutputStream(path)) {
+      write(canvas, out);
+    }
+  }
+
+  static void write(RasterCanvas canvas, OutputStream out) throws IOException {
+    final int w = canvas.getWidth();
+    final int h = Math.max(1, canvas.getHeight());
+    final int bpr = canvas.getBytesPerRow();
+
+    DataOutputStream png = new DataOutputStream(out);
+
+    png.write(SIGNATURE);
+
+    // IHDR: width, height, bit depth 1, color type 0 (grayscale)
+    ByteArrayOutputStream ihdr = new ByteArrayOutputStream();
+    DataOutputStream hdr = new DataOutputStream(ihdr);
+    hdr.writeInt(w);
+    hdr.writeInt(h);
+    hdr.write(new byte[] { 1, 0, 0, 0, 0 });
+    writeChunk(png, "IHDR", ihdr.toByteArray());
+
+    // IDAT: filter byte 0 + row; PNG grayscale has 0 = black, so invert
+    ByteArrayOutputStream idat = new ByteArrayOutputStream();
+    try (DeflaterOutputStream z = new DeflaterOutputStream(idat)) {
+      byte[] row = new byte[bpr];
+
+      for (int y = 0; y < h; y++) {
+        z.write(0);
+
+        if (y < canvas.getHeight()) {
+          byte[] src = canvas.getRow(y);
+          for (int i = 0; i < bpr; i++) {
+            row[i] = (byte) ~src[i];
+          }
+        } else {
+          Arrays.fill(row, (byte) 0xFF);
+        }
+
+        z.write(row);
+      }
+    }
+    writeChunk(png, "IDAT", idat.toByteArray());
+
+    writeChunk(png, "IEND", new byte[0]);
+
+    png.flush();
+  }
+
+  private static void writeChunk(DataOutputStream png, String type, byte[] data) throws IOException {
+    byte[] t = type.getBytes("US-ASCII");
+
+    CRC32 crc = new CRC32();
+    crc.update(t);
+    crc.update(data);
+
+    png.writeInt(data.length);
+    png.write(t);
+    png.write(data);
+    png.writeInt((int) crc.getValue());
+  }
+}
@@ -0,0 +1,599 @@
+package com.reactnativethermalprinter.emulator;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local ESC/POS printer on a loopback TCP port, for end-to-end tests and
+ * throughput tuning without hardware.
+ *
+ * Understands the commands this library sends (ESC @, GS v 0, ESC *, ESC d,
+ * ESC J, LF, GS V, ESC p, DLE EOT, GS r, GS I, line spacing) and skips common
+ * single-argument ones. Paper is rendered to a PNG per cut (or per
+ * connection when nothing cut it); every command is logged with the time
+ * it took to arrive, so slow links show up per band.
+ *
+ * One client at a time, like a real printer; the next connection waits in
+ * the accept backlog.
+ */
+public class PrinterEmulator {
+
+  private static final String TAG = "RNTP.PrinterEmulator";
+
+  private static final int ESC = 0x1B;
+  private static final int GS = 0x1D;
+  private static final int DLE = 0x10;
+  private static final int EOT = 0x04;
+  private static final int LF = 0x0A;
+
+  // Per-command counters
+  public static class CommandStats {
+    public long count = 0;
+    public long bytes = 0;
+    public long nanos = 0;
+
+    // For debugging
+    @Override
+    public String toString() {
+      return "{ count: " + this.count + ", bytes: " + this.bytes + ", ms: " + (this.nanos / 1_000_000) + " }";
+    }
+  }
+
+  private final EmulatorSettings settings;
+
+  private ServerSocket server;
+  private Thread acceptThread;
+
+  private volatile Socket client;
+  private volatile boolean running = false;
+
+  // ---- Statistics (guarded by this) ----
+  private final LinkedHashMap<String, CommandStats> commandStats = new LinkedHashMap<>();
+  private final ArrayList<String> pages = new ArrayList<>();
+  private long bytesReceived = 0;
+  private long connections = 0;
+  private long stalledNanos = 0;
+
+  // ---- Parser state (accept thread only) ----
+  private InputStream in;
+  private OutputStream out;
+  private RasterCanvas canvas;
+  private long commandBytes;
+
+  public PrinterEmulator(EmulatorSettings settings) {
+    this.settings = settings;
+  }
+
+  // ----------------------------------------------------------
+  // LIFECYCLE
+  // ----------------------------------------------------------
+  public synchronized void start() throws IOException {
+    if (this.running) {
+      return;
+    }
+
+    this.server = new ServerSocket();
+    this.server.setReuseAddress(true);
+
+    // Applies to accepted sockets: a small window makes the sender feel
+    // the emulated printer's buffer
+    if (this.settings.getReceiveBufferBytes() > 0) {
+      this.server.setReceiveBufferSize(this.settings.getReceiveBufferBytes());
+    }
+
+    this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.settings.getPort()), 1);
+
+    this.running = true;
+
+    this.acceptThread = new Thread(this::acceptLoop, "RNTP-emulator");
+    this.acceptThread.setDaemon(true);
+    this.acceptThread.start();
+
+    Log.i(TAG, "Listening on port " + getPort() + "; " + this.settings);
+  }
+
+  public void stop() {
+    synchronized (this) {
+      if (!this.running) {
+        return;
+      }
+      this.running = false;
+    }
+
+    closeQuietly(this.server);
+    closeQuietly(this.client);
+
+    try {
+      this.acceptThread.join(2_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    Log.i(TAG, "Stopped; " + getBytesReceived() + " bytes in " + getConnectionCount() + " connections");
+  }
+
+  public int getPort() {
+    return this.server == null ? -1 : this.server.getLocalPort();
+  }
+
+  public boolean isRunning() {
+    return this.running;
+  }
+
+  // ----------------------------------------------------------
+  // RESULTS
+  // ----------------------------------------------------------
+  public synchronized List<String> getPages() {
+    return new ArrayList<>(this.pages);
+  }
+
+  public synchronized long getBytesReceived() {
+    return this.bytesReceived;
+  }
+
+  public synchronized long getConnectionCount() {
+    return this.connections;
+  }
+
+  // Time the emulator deliberately stopped reading (stall injection)
+  public synchronized long getStalledNanos() {
+    return this.stalledNanos;
+  }
+
+  // Snapshot, keyed by command name ("GS v 0", "ESC *", ...)
+  public synchronized Map<String, CommandStats> getCommandStats() {
+    LinkedHashMap<String, CommandStats> copy = new LinkedHashMap<>();
+
+    for (Map.Entry<String, CommandStats> e : this.commandStats.entrySet()) {
+      CommandStats s = new CommandStats();
+      s.count = e.getValue().count;
+      s.bytes = e.getValue().bytes;
+      s.nanos = e.getValue().nanos;
+      copy.put(e.getKey(), s);
+    }
+
+    return copy;
+  }
+
+  public synchronized void resetStats() {
+    this.commandStats.clear();
+    this.pages.clear();
+    this.bytesReceived = 0;
+    this.connections = 0;
+    this.stalledNanos = 0;
+  }
+
+  // ----------------------------------------------------------
+  // SERVER
+  // ----------------------------------------------------------
+  private void acceptLoop() {
+    while (this.running) {
+      try (Socket socket = this.server.accept()) {
+
+        this.client = socket;
+
+        synchronized (this) {
+          this.connections++;
+        }
+
+        serve(socket);
+
+      } catch (SocketException e) {
+        // stop() closed the server socket
+      } catch (Exception e) {
+        Log.e(TAG, "Emulator connection failed: " + e.getMessage(), e);
+      } finally {
+        this.client = null;
+      }
+    }
+  }
+
+  private void serve(Socket socket) throws IOException {
+    final long start = System.nanoTime();
+
+    socket.setTcpNoDelay(true);
+
+    ThrottledInputStream throttled = new ThrottledInputStream(
+        socket.getInputStream(),
+        this.settings.getBytesPerSecond(),
+        this.settings.getStallEveryBytes(),
+        this.settings.getStallMs());
+
+    this.in = new BufferedInputStream(throttled, Math.max(1, this.settings.getReceiveBufferBytes()));
+    this.out = socket.getOutputStream();
+    this.canvas = new RasterCanvas(this.settings.getDotsPerLine());
+
+    try {
+      while (true) {
+        parseCommand();
+      }
+    } catch (EOFException | SocketException e) {
+      // Client closed the connection (or stop())
+    } finally {
+      if (!this.canvas.isEmpty()) {
+        endPage();
+      }
+
+      synchronized (this) {
+        this.stalledNanos += throttled.getStalledNanos();
+      }
+
+      Log.i(TAG, "Connection done in " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+    }
+  }
+
+  // ----------------------------------------------------------
+  // PARSER: one command per call
+  // ----------------------------------------------------------
+  private void parseCommand() throws IOException {
+    this.commandBytes = 0;
+
+    int b = readU8();
+
+    // Time from the first byte to the last byte of the command
+    final long start = System.nanoTime();
+
+    String name;
+
+    switch (b) {
+      case ESC:
+        name = parseEsc();
+        break;
+
+      case GS:
+        name = parseGs();
+        break;
+
+      case DLE:
+        name = parseDle();
+        break;
+
+      case LF:
+        this.canvas.printLine();
+        name = "LF";
+        break;
+
+      default:
+        // Text is counted, not rendered
+        name = b >= 0x20 ? "text" : "unknown";
+        break;
+    }
+
+    record(name, System.nanoTime() - start);
+  }
+
+  private String parseEsc() throws IOException {
+    int c = readU8();
+
+    switch (c) {
+      case '@':
+        this.canvas.reset();
+        return "ESC @";
+
+      case '*': {
+        int m = readU8();
+        int n = readU16();
+
+        // m 0/1: 8-dot (each dot ~3 rows tall); m 32/33: 24-dot.
+        // Even m is single density (each column 2 dots wide).
+        boolean is24 = m == 32 || m == 33;
+        int bytesPerColumn = is24 ? 3 : 1;
+
+        byte[] data = readBytes(n * bytesPerColumn);
+
+        this.canvas.drawBitImage(data, n, bytesPerColumn, (m & 1) == 0 ? 2 : 1, is24 ? 1 : 3);
+
+        return "ESC *";
+      }
+
+      case 'd':
+        this.canvas.feed(readU8() * RasterCanvas.DEFAULT_LINE_SPACING);
+        return "ESC d";
+
+      case 'J':
+        this.canvas.feed(readU8());
+        return "ESC J";
+
+      case '2':
+        this.canvas.setLineSpacing(RasterCanvas.DEFAULT_LINE_SPACING);
+        return "ESC 2";
+
+      case '3':
+        this.canvas.setLineSpacing(readU8());
+        return "ESC 3";
+
+      case 'p':
+        readBytes(3); // m t1 t2
+        return "ESC p";
+
+      // Single-argument commands (style, alignment, code page, ...)
+      case '!':
+      case '-':
+      case 'E':
+      case 'G':
+      case 'M':
+      case 'R':
+      case 'a':
+      case 't':
+      case '{':
+        readU8();
+        return "ESC " + (char) c;
+
+      default:
+        Log.w(TAG, "Unknown command ESC 0x" + Integer.toHexString(c));
+        return "unknown";
+    }
+  }
+
+  private String parseGs() throws IOException {
+    int c = readU8();
+
+    switch (c) {
+      case 'v': {
+        int zero = readU8();
+        int m = readU8();
+        int xBytes = readU16();
+        int h = readU16();
+
+        if (zero != '0') {
+          Log.w(TAG, "Unknown command GS v 0x" + Integer.toHexString(zero));
+        }
+
+        byte[] data = readBytes(xBytes * h);
+
+        // m bit 0: double width, bit 1: double height
+        this.canvas.drawRaster(data, xBytes, h, (m & 1) != 0 ? 2 : 1, (m & 2) != 0 ? 2 : 1);
+
+        return "GS v 0";
+      }
+
+      case 'V': {
+        int m = readU8();
+
+        // Function B (65/66) has a feed argument
+        if (m == 65 || m == 66) {
+          this.canvas.feed(readU8());
+        }
+
+        endPage();
+        return "GS V";
+      }
+
+      case 'r':
+        readU8();
+        respondStatus(paperSensorStatus());
+        return "GS r";
+
+      case 'I':
+        respondId(readU8());
+        return "GS I";
+
+      case '(': {
+        readU8(); // function group ('L', 'k', ...)
+        readBytes(readU16());
+        return "GS (";
+      }
+
+      case 'k': {
+        int m = readU8();
+
+        if (m <= 6) {
+          while (readU8() != 0) {
+            // NUL-terminated barcode data
+          }
+        } else {
+          readBytes(readU8());
+        }
+        return "GS k";
+      }
+
+      // Single-argument commands (size, HRI, barcode geometry, ...)
+      case '!':
+      case 'B':
+      case 'H':
+      case 'a':
+      case 'f':
+      case 'h':
+      case 'w':
+        readU8();
+        return "GS " + (char) c;
+
+      default:
+        Log.w(TAG, "Unknown command GS 0x" + Integer.toHexString(c));
+        return "unknown";
+    }
+  }
+
+  private String parseDle() throws IOException {
+    int c = readU8();
+
+    if (c != EOT) {
+      Log.w(TAG, "Unknown command DLE 0x" + Integer.toHexString(c));
+      return "unknown";
+    }
+
+    int n = readU8();
+
+    // Fixed bits: bit 1 and bit 4 set
+    int status = 0x12;
+
+    if (n == 1 && (this.settings.getPaperEnd() || this.settings.getCoverOpen())) {
+      status |= 0x08; // offline
+    } else if (n == 2) {
+      status |= (this.settings.getCoverOpen() ? 0x04 : 0) | (this.settings.getPaperEnd() ? 0x20 : 0);
+    } else if (n == 4) {
+      status |= (this.settings.getPaperNearEnd() ? 0x0C : 0) | (this.settings.getPaperEnd() ? 0x60 : 0);
+    }
+
+    respondStatus(status);
+
+    return "DLE EOT";
+  }
+
+  // GS r 1: bits 0,1 near end; bits 2,3 paper end
+  private int paperSensorStatus() {
+    return (this.settings.getPaperNearEnd() ? 0x03 : 0) | (this.settings.getPaperEnd() ? 0x0C : 0);
+  }
+
+  // GS I: type ID (auto-cutter) and firmware / maker / model strings, only
+  // when a model is configured
+  private void respondId(int n) throws IOException {
+    if (!this.settings.getAnswerStatus() || this.settings.getModel() == null) {
+      return;
+    }
+
+    String value;
+
+    switch (n) {
+      case 2:
+        this.out.write(0x02);
+        this.out.flush();
+        return;
+      case 65:
+        value = "1.00";
+        break;
+      case 66:
+        value = this.settings.getMaker() != null ? this.settings.getMaker() : "RNTP";
+        break;
+      case 67:
+        value = this.settings.getModel();
+        break;
+      default:
+        return;
+    }
+
+    this.out.write(0x5F);
+    this.out.write(value.getBytes(StandardCharsets.US_ASCII));
+    this.out.write(0);
+    this.out.flush();
+  }
+
+  private void respondStatus(int status) throws IOException {
+    if (!this.settings.getAnswerStatus()) {
+      return;
+    }
+
+    this.out.write(status);
+    this.out.flush();
+  }
+
+  // Cut: render what is on the paper and start a new page
+  private void endPage() {
+    this.canvas.flush();
+
+    if (this.settings.getOutputDir() != null && this.canvas.getHeight() > 0) {
+      final long start = System.nanoTime();
+
+      String path;
+
+      synchronized (this) {
+        path = new File(this.settings.getOutputDir(), "page-" + (this.pages.size() + 1) + ".png").getPath();
+      }
+
+      try {
+        new File(this.settings.getOutputDir()).mkdirs();
+
+        PngWriter.write(this.canvas, path);
+
+        synchronized (this) {
+          this.pages.add(path);
+        }
+
+        Log.i(TAG, "Rendered " + this.canvas.getWidth() + "x" + this.canvas.getHeight() + " page to " + path
+            + " in " + ((System.nanoTime() - start) / 1_000_000) + " ms");
+
+      } catch (IOException e) {
+        Log.e(TAG, "Failed to render page: " + e.getMessage(), e);
+      }
+    }
+
+    this.canvas = new RasterCanvas(this.settings.getDotsPerLine());
+  }
+
+  private synchronized void record(String name, long nanos) {
+    CommandStats s = this.commandStats.get(name);
+
+    if (s == null) {
+      s = new CommandStats();
+      this.commandStats.put(name, s);
+    }
+
+    s.count++;
+    s.bytes += this.commandBytes;
+    s.nanos += nanos;
+
+    this.bytesReceived += this.commandBytes;
+
+    // Text arrives byte by byte; only its totals are interesting
+    if (!"text".equals(name)) {
+      Log.i(TAG, name + " (" + this.commandBytes + " bytes) took " + (nanos / 1_000_000) + " ms");
+    }
+  }
+
+  // ----------------------------------------------------------
+  // INPUT
+  // ----------------------------------------------------------
+  private int readU8() throws IOException {
+    int b = this.in.read();
+
+    if (b < 0) {
+      throw new EOFException();
+    }
+
+    this.commandBytes++;
+
+    return b;
+  }
+
+  private int readU16() throws IOException {
+    int lo = readU8();
+    return lo | (readU8() << 8);
+  }
+
+  private byte[] readBytes(int n) throws IOException {
+    byte[] data = new byte[n];
+    int pos = 0;
+
+    while (pos < n) {
+      int r = this.in.read(data, pos, n - pos);
+
+      if (r < 0) {
+        throw new EOFException();
+      }
+
+      pos += r;
+    }
+
+    this.commandBytes += n;
+
+    return data;
+  }
+
+  private static void closeQuietly(Closeable c) {
+    if (c == null) {
+      return;
+    }
+
+    try {
+      c.close();
+    } catch (IOException ignored) {
+    }
+  }
+}
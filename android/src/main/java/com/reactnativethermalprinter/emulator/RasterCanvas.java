@@ -0,0 +1,167 @@
+package com.reactnativethermalprinter.emulator;
+
+import java.util.ArrayList;
+
+/**
+ * The emulated paper: 1 bit per dot (1 = black), packed MSB first, growing
+ * downwards as the printer feeds.
+ *
+ * Raster images (GS v 0) print immediately at the current position. Bit
+ * images (ESC *) go into a line buffer, like on a real printer, and are
+ * printed on LF / ESC d / ESC J or when the next image does not fit the line.
+ */
+class RasterCanvas {
+
+  // ESC 2 default line spacing (~1/6 inch)
+  static final int DEFAULT_LINE_SPACING = 30;
+
+  private final int width;
+  private final int bytesPerRow;
+
+  private final ArrayList<byte[]> rows = new ArrayList<>();
+
+  // Print position (dots from the top of the page)
+  private int y = 0;
+
+  private int lineSpacing = DEFAULT_LINE_SPACING;
+
+  // ESC * line buffer
+  private final ArrayList<byte[]> line = new ArrayList<>();
+  private int lineX = 0;
+
+  RasterCanvas(int width) {
+    this.width = width;
+    this.bytesPerRow = (width + 7) >> 3;
+  }
+
+  int getWidth() {
+    return this.width;
+  }
+
+  int getHeight() {
+    return this.rows.size();
+  }
+
+  int getBytesPerRow() {
+    return this.bytesPerRow;
+  }
+
+  byte[] getRow(int y) {
+    return this.rows.get(y);
+  }
+
+  boolean isEmpty() {
+    return this.rows.isEmpty() && this.lineX == 0;
+  }
+
+  void setLineSpacing(int dots) {
+    this.lineSpacing = dots;
+  }
+
+  // ESC @: clears the line buffer without printing it
+  void reset() {
+    this.line.clear();
+    this.lineX = 0;
+    this.lineSpacing = DEFAULT_LINE_SPACING;
+  }
+
+  // ----------------------------------------------------------
+  // GS v 0: srcBytesPerRow x height raster, scaled by sx / sy
+  // ----------------------------------------------------------
+  void drawRaster(byte[] data, int srcBytesPerRow, int height, int sx, int sy) {
+    for (int r = 0; r < height; r++) {
+      for (int rep = 0; rep < sy; rep++) {
+        byte[] dst = rowAt(this.y + r * sy + rep);
+
+        for (int x = 0; x < srcBytesPerRow * 8; x++) {
+          if ((data[r * srcBytesPerRow + (x >> 3)] & (0x80 >> (x & 7))) != 0) {
+            for (int k = 0; k < sx; k++) {
+              setDot(dst, x * sx + k);
+            }
+          }
+        }
+      }
+    }
+
+    this.y += height * sy;
+  }
+
+  // ----------------------------------------------------------
+  // ESC *: column-major bit image into the line buffer
+  // ----------------------------------------------------------
+  void drawBitImage(byte[] data, int columns, int bytesPerColumn, int sx, int sy) {
+    if (this.lineX > 0 && this.lineX + columns * sx > this.width) {
+      printLine(); // no room left on this line
+    }
+
+    for (int c = 0; c < columns; c++) {
+      for (int bit = 0; bit < bytesPerColumn * 8; bit++) {
+        if ((data[c * bytesPerColumn + (bit >> 3)] & (0x80 >> (bit & 7))) == 0) {
+          continue;
+        }
+
+        for (int rep = 0; rep < sy; rep++) {
+          byte[] dst = lineRow(bit * sy + rep);
+
+          for (int k = 0; k < sx; k++) {
+            setDot(dst, this.lineX + c * sx + k);
+          }
+        }
+      }
+    }
+
+    this.lineX += columns * sx;
+  }
+
+  // LF: print the line buffer and feed one line
+  void printLine() {
+    feed(this.lineSpacing);
+  }
+
+  // ESC J / ESC d: print the line buffer and feed the given dots
+  void feed(int dots) {
+    for (int r = 0; r < this.line.size(); r++) {
+      byte[] src = this.line.get(r);
+      byte[] dst = rowAt(this.y + r);
+
+      for (int i = 0; i < this.bytesPerRow; i++) {
+        dst[i] |= src[i];
+      }
+    }
+
+    this.line.clear();
+    this.lineX = 0;
+
+    this.y += dots;
+
+    rowAt(this.y - 1); // paper is fed even when nothing was printed
+  }
+
+  // Bottom of the page (cut / end of job)
+  void flush() {
+    if (this.lineX > 0) {
+      printLine();
+    }
+  }
+
+  private byte[] rowAt(int y) {
+    while (this.rows.size() <= y) {
+      this.rows.add(new byte[this.bytesPerRow]);
+    }
+    return this.rows.get(y);
+  }
+
+  private byte[] lineRow(int r) {
+    while (this.line.size() <= r) {
+      this.line.add(new byte[this.bytesPerRow]);
+    }
+    return this.line.get(r);
+  }
+
+  // Dots beyond the paper width are lost, as on paper
+  private void setDot(byte[] row, int x) {
+    if (x >= 0 && x < this.width) {
+      row[x >> 3] |= (byte) (0x80 >> (x & 7));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.reactnativethermalprinter.emulator;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Input side of an emulated slow printer: caps the read rate and injects
+ * periodic stalls. While it is not reading, the socket's receive buffer
+ * fills up and the sender blocks, exactly like on a real slow link.
+ */
+class ThrottledInputStream extends FilterInputStream {
+
+  // Granularity of the rate limiter
+  private static final int SLICE_MS = 10;
+
+  private final int bytesPerSecond;
+  private final int stallEveryBytes;
+  private final int stallMs;
+
+  private final long startNanos = System.nanoTime();
+
+  private long bytesRead = 0;
+  private long nextStallAt;
+
+  private long stalledNanos = 0;
+
+  ThrottledInputStream(InputStream in, int bytesPerSecond, int stallEveryBytes, int stallMs) {
+    super(in);
+    this.bytesPerSecond = bytesPerSecond;
+    this.stallEveryBytes = stallEveryBytes;
+    this.stallMs = stallMs;
+    this.nextStallAt = stallEveryBytes > 0 ? stallEveryBytes : Long.MAX_VALUE;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] one = new byte[1];
+    int n = read(one, 0, 1);
+    return n < 0 ? -1 : one[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    // Never read past the next stall point
+    long untilStall = this.nextStallAt - this.bytesRead;
+    int max = (int) Math.min(len, Math.max(1, untilStall));
+
+    if (this.bytesPerSecond > 0) {
+      max = Math.min(max, Math.max(1, this.bytesPerSecond * SLICE_MS / 1000));
+      throttle();
+    }
+
+    int n = super.read(b, off, max);
+
+    if (n > 0) {
+      this.bytesRead += n;
+
+      if (this.bytesRead >= this.nextStallAt) {
+        stall();
+      }
+    }
+
+    return n;
+  }
+
+  public long getStalledNanos() {
+    return this.stalledNanos;
+  }
+
+  // Sleep until the bytes read so far fit the configured rate
+  private void throttle() {
+    long due = this.startNanos + this.stalledNanos + this.bytesRead * 1_000_000_000L / this.bytesPerSecond;
+    long wait = due - System.nanoTime();
+
+    if (wait > 0) {
+      LockSupport.parkNanos(wait);
+    }
+  }
+
+  private void stall() {
+    this.nextStallAt += this.stallEveryBytes;
+
+    final long start = System.nanoTime();
+
+    try {
+      Thread.sleep(this.stallMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    this.stalledNanos += System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,12 @@
+package com.reactnativethermalprinter.jobs;
+
+/**
+ * The job's input (an image, a segment) could not be prepared for printing.
+ * Nothing was sent, so the connection is still usable.
+ */
+public class PrintInputException extends Exception {
+
+  public PrintInputException(String reason, Throwable cause) {
+    super(reason, cause);
+  }
+}
@@ -0,0 +1,228 @@
+package com.reactnativethermalprinter.jobs;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.PacingStats;
+import com.reactnativethermalprinter.metrics.MemoryMeter;
+
+/**
+ * One unit of work on a printer lane, and its per-job context: cancellation
+ * state, deadline and the hook that force-aborts a stuck transfer.
+ *
+ * Cancellation is cooperative: the task calls checkpoint() at safe points
+ * (band boundaries) and gets a PrintJobCancelledException once the job was
+ * cancelled or its deadline passed.
+ */
+public class PrintJob {
+
+  private static final String TAG = "RNTP.PrintJob";
+
+  public enum State {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED
+  }
+
+  // The work itself; runs on a scheduler worker
+  public interface Task {
+    void run(PrintJob job) throws Exception;
+  }
+
+  // Completion callback (success: error == null); runs on the worker
+  public interface Listener {
+    void onJobFinished(PrintJob job, Throwable error);
+  }
+
+  private final String id;
+  private final String printerKey;
+  private final Task task;
+  private final Listener listener;
+
+  private final long submittedNanos = System.nanoTime();
+
+  // 0 = no deadline
+  private final long deadlineNanos;
+
+  private volatile State state = State.QUEUED;
+
+  private volatile String cancelReason = null;
+
+  // Set by the task while it holds a connection; closes it to unblock a
+  // stuck write when cooperative cancellation does not get through
+  private volatile Runnable abortHandler = null;
+
+  // Job bytes accepted / handed to the transport, over all connections the
+  // job used (reconnects included)
+  private volatile long bytesQueued = 0;
+  private volatile long bytesDelivered = 0;
+
+  private volatile int reconnects = 0;
+
+  // Pacer counters, over all connections the job used
+  private volatile long pacedBytes = 0;
+  private volatile long pacedNanos = 0;
+  private volatile long pacingSleepNanos = 0;
+
+  // Image buffers held by the job (prepare threads and the worker)
+  private final MemoryMeter memory = new MemoryMeter();
+
+  PrintJob(String id, String printerKey, long deadlineMs, Task task, Listener listener) {
+    this.id = id;
+    this.printerKey = printerKey;
+    this.deadlineNanos = deadlineMs > 0 ? this.submittedNanos + deadlineMs * 1_000_000L : 0;
+    this.task = task;
+    this.listener = listener;
+  }
+
+  public String getId() {
+    return this.id;
+  }
+
+  public String getPrinterKey() {
+    return this.printerKey;
+  }
+
+  public State getState() {
+    return this.state;
+  }
+
+  // Time spent waiting in the lane before running
+  public long getSubmittedNanos() {
+    return this.submittedNanos;
+  }
+
+  public long getDeadlineNanos() {
+    return this.deadlineNanos;
+  }
+
+  // ----------------------------------------------------------
+  // DELIVERY: updated by the task (one thread)
+  // ----------------------------------------------------------
+  public void addBytes(long queued, long delivered) {
+    this.bytesQueued += queued;
+    this.bytesDelivered += delivered;
+  }
+
+  public void addPacing(PacingStats stats) {
+    if (stats == null) {
+      return;
+    }
+
+    this.pacedBytes += stats.bytes;
+    this.pacedNanos += stats.elapsedNanos;
+    this.pacingSleepNanos += stats.sleepNanos;
+  }
+
+  public void addReconnect() {
+    this.reconnects++;
+  }
+
+  public long getBytesQueued() {
+    return this.bytesQueued;
+  }
+
+  public long getBytesDelivered() {
+    return this.bytesDelivered;
+  }
+
+  public int getReconnects() {
+    return this.reconnects;
+  }
+
+  // Achieved throughput while the job was writing
+  public long getBytesPerSecond() {
+    return this.pacedNanos > 0 ? this.pacedBytes * 1_000_000_000L / this.pacedNanos : 0;
+  }
+
+  public long getPacingSleepNanos() {
+    return this.pacingSleepNanos;
+  }
+
+  public MemoryMeter getMemoryMeter() {
+    return this.memory;
+  }
+
+  // ----------------------------------------------------------
+  // CANCELLATION
+  // ----------------------------------------------------------
+
+  // Request cancellation; the first reason wins
+  public void cancel(String reason) {
+    synchronized (this) {
+      if (this.cancelReason == null) {
+        this.cancelReason = reason;
+      }
+    }
+  }
+
+  public boolean isCancelled() {
+    return this.cancelReason != null;
+  }
+
+  // Safe point: throws once the job was cancelled or is past its deadline
+  public void checkpoint() throws PrintJobCancelledException {
+    if (this.deadlineNanos != 0 && System.nanoTime() > this.deadlineNanos) {
+      cancel("Deadline exceeded");
+    }
+
+    if (this.cancelReason != null) {
+      throw new PrintJobCancelledException(this.cancelReason);
+    }
+  }
+
+  public void setAbortHandler(Runnable handler) {
+    this.abortHandler = handler;
+  }
+
+  // Hard abort of a running job (stuck write)
+  void abort() {
+    Runnable handler = this.abortHandler;
+
+    if (handler != null && this.state == State.RUNNING) {
+      Log.w(TAG, "Force-aborting " + this.id + ": " + this.cancelReason);
+      handler.run();
+    }
+  }
+
+  void execute() {
+    Throwable error = null;
+
+    if (this.cancelReason != null) {
+
+      // Cancelled while queued
+      error = new PrintJobCancelledException(this.cancelReason);
+
+    } else {
+
+      this.state = State.RUNNING;
+
+      try {
+        this.task.run(this);
+      } catch (Throwable t) {
+        error = t;
+      }
+
+      this.abortHandler = null;
+    }
+
+    if (error == null) {
+      this.state = State.SUCCEEDED;
+    } else if (this.cancelReason != null) {
+      // Failures caused by a forced abort are reported as the cancellation
+      error = error instanceof PrintJobCancelledException ? error : new PrintJobCancelledException(this.cancelReason);
+      this.state = State.CANCELLED;
+    } else {
+      this.state = State.FAILED;
+    }
+
+    if (this.listener != null) {
+      try {
+        this.listener.onJobFinished(this, error);
+      } catch (Exception e) {
+        Log.e(TAG, "Job listener failed: " + e.getMessage(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.reactnativethermalprinter.jobs;
+
+/**
+ * The job was cancelled from JS or ran past its deadline.
+ */
+public class PrintJobCancelledException extends Exception {
+
+  public PrintJobCancelledException(String reason) {
+    super(reason);
+  }
+}
@@ -0,0 +1,324 @@
+package com.reactnativethermalprinter.jobs;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs print jobs off the React native-modules thread.
+ *
+ * Every physical printer (PrinterSettings.getPrinterKey()) gets its own
+ * serial lane: jobs for one printer run one at a time, in submission order.
+ * Lanes share a worker pool that keeps `workers` threads and grows to one
+ * thread per busy lane, so different printers print in parallel and a slow
+ * Bluetooth printer (or a job waiting to reconnect) only delays its own
+ * lane. The work is I/O bound: a thread per printer costs little.
+ *
+ * A lane runs one job per worker turn and then requeues itself.
+ *
+ * Queued jobs that get cancelled leave their lane immediately. Running jobs
+ * are cancelled cooperatively (PrintJob.checkpoint()); if a running job has
+ * not stopped ABORT_GRACE_MS later it is force-aborted.
+ */
+public class PrintJobScheduler {
+
+  private static final String TAG = "RNTP.PrintJobScheduler";
+
+  public static final int DEFAULT_WORKERS = 3;
+  public static final int DEFAULT_LANE_DEPTH = 32;
+
+  // Time a cancelled job gets to reach its next checkpoint
+  private static final long ABORT_GRACE_MS = 2_000;
+
+  private static class Lane {
+    final String key;
+    final ArrayDeque<PrintJob> pending = new ArrayDeque<>();
+    boolean scheduled = false; // a worker turn is queued or running
+
+    Lane(String key) {
+      this.key = key;
+    }
+  }
+
+  private final HashMap<String, Lane> lanes = new HashMap<>();
+
+  // Queued + running jobs by ID
+  private final HashMap<String, PrintJob> jobs = new HashMap<>();
+
+  private final AtomicLong nextJobId = new AtomicLong(1);
+
+  private final ThreadPoolExecutor workers;
+
+  // Deadlines and abort grace timers
+  private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "RNTP-print-timers");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private int laneDepth;
+
+  // Threads kept without busy lanes / lanes with a worker turn queued or
+  // running; the pool is sized to the larger
+  private int minWorkers;
+  private int scheduledLanes = 0;
+
+  public PrintJobScheduler(int workers, int laneDepth) {
+    final int n = Math.max(1, workers);
+
+    this.workers = new ThreadPoolExecutor(n, n, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger(1);
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "RNTP-print-" + this.count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+
+    this.workers.allowCoreThreadTimeOut(true);
+
+    this.minWorkers = n;
+    this.laneDepth = Math.max(1, laneDepth);
+  }
+
+  public synchronized void configure(int workers, int laneDepth) {
+    this.minWorkers = Math.max(1, workers);
+    this.laneDepth = Math.max(1, laneDepth);
+
+    resizeWorkers();
+  }
+
+  // ----------------------------------------------------------
+  // SUBMIT: returns immediately; the job runs on its printer lane
+  // ----------------------------------------------------------
+  public PrintJob submit(String printerKey, long deadlineMs, PrintJob.Task task, PrintJob.Listener listener) {
+    final PrintJob job = new PrintJob("job-" + this.nextJobId.getAndIncrement(), printerKey, deadlineMs, task,
+        listener);
+
+    synchronized (this) {
+      if (this.workers.isShutdown()) {
+        throw new RejectedExecutionException("Print scheduler is shut down");
+      }
+
+      Lane lane = this.lanes.get(printerKey);
+
+      if (lane == null) {
+        lane = new Lane(printerKey);
+        this.lanes.put(printerKey, lane);
+      }
+
+      if (lane.pending.size() >= this.laneDepth) {
+        throw new RejectedExecutionException(
+            "Print queue for " + printerKey + " is full (" + this.laneDepth + " jobs)");
+      }
+
+      lane.pending.add(job);
+
+      this.jobs.put(job.getId(), job);
+
+      scheduleLane(lane);
+    }
+
+    if (deadlineMs > 0) {
+      try {
+        this.timers.schedule(() -> cancel(job.getId(), "Deadline exceeded"), deadlineMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // Shut down since the job was queued: it is cancelled already
+      }
+    }
+
+    return job;
+  }
+
+  // ----------------------------------------------------------
+  // CANCEL: false if the job is unknown or already finished
+  // ----------------------------------------------------------
+  public boolean cancel(String jobId, String reason) {
+    final PrintJob job;
+    boolean dequeued = false;
+
+    synchronized (this) {
+      job = this.jobs.get(jobId);
+
+      if (job == null) {
+        return false;
+      }
+
+      job.cancel(reason);
+
+      Lane lane = this.lanes.get(job.getPrinterKey());
+
+      if (lane != null && lane.pending.remove(job)) {
+        this.jobs.remove(jobId);
+        dequeued = true;
+      }
+    }
+
+    if (dequeued) {
+      // Never started: settle it right away instead of at its lane turn
+      job.execute();
+      return true;
+    }
+
+    // Running: give it until the next band boundary, then pull the plug
+    scheduleAbort(job);
+
+    return true;
+  }
+
+  public synchronized int getQueuedJobCount(String printerKey) {
+    Lane lane = this.lanes.get(printerKey);
+    return lane == null ? 0 : lane.pending.size();
+  }
+
+  /**
+   * Stops taking jobs. Queued jobs settle as cancelled through their
+   * listeners; running ones are cancelled and force-aborted after the usual
+   * grace time.
+   */
+  public void shutdown() {
+    final String reason = "Print scheduler shut down";
+
+    final List<PrintJob> queued = new ArrayList<>();
+    final List<PrintJob> running = new ArrayList<>();
+
+    synchronized (this) {
+      if (this.workers.isShutdown()) {
+        return;
+      }
+
+      // Under the lock: submit() and runNext() see it before touching lanes
+      this.workers.shutdown();
+
+      for (Lane lane : this.lanes.values()) {
+        queued.addAll(lane.pending);
+        lane.pending.clear();
+      }
+
+      this.lanes.clear();
+
+      for (PrintJob job : queued) {
+        this.jobs.remove(job.getId());
+      }
+
+      running.addAll(this.jobs.values());
+    }
+
+    for (PrintJob job : queued) {
+      job.cancel(reason);
+      job.execute();
+    }
+
+    for (PrintJob job : running) {
+      job.cancel(reason);
+      scheduleAbort(job);
+    }
+
+    // Runs after the aborts above (same delay, later submission); pending
+    // deadlines only cancel jobs that are cancelled already
+    scheduleTimer(this.timers::shutdownNow);
+  }
+
+  private void scheduleAbort(PrintJob job) {
+    if (!scheduleTimer(job::abort)) {
+      job.abort(); // timers gone: no grace left
+    }
+  }
+
+  private boolean scheduleTimer(Runnable r) {
+    try {
+      this.timers.schedule(r, ABORT_GRACE_MS, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  // Called with the lock held
+  private void scheduleLane(final Lane lane) {
+    if (lane.scheduled || this.workers.isShutdown()) {
+      return;
+    }
+
+    lane.scheduled = true;
+    this.scheduledLanes++;
+
+    // Before execute(): the turn must find a thread of its own
+    resizeWorkers();
+
+    this.workers.execute(() -> runNext(lane));
+  }
+
+  // One worker turn: run the lane's head job, then requeue the lane
+  private void runNext(Lane lane) {
+    PrintJob job;
+
+    synchronized (this) {
+      job = lane.pending.poll();
+
+      if (job == null) {
+        laneIdle(lane);
+        this.lanes.remove(lane.key);
+        return;
+      }
+    }
+
+    Log.i(TAG, "Running " + job.getId() + " on " + lane.key + " after "
+        + ((System.nanoTime() - job.getSubmittedNanos()) / 1_000_000) + " ms in queue");
+
+    job.execute();
+
+    synchronized (this) {
+      this.jobs.remove(job.getId());
+
+      laneIdle(lane);
+
+      if (lane.pending.isEmpty()) {
+        this.lanes.remove(lane.key);
+      } else {
+        scheduleLane(lane);
+      }
+    }
+  }
+
+  // Called with the lock held
+  private void laneIdle(Lane lane) {
+    lane.scheduled = false;
+    this.scheduledLanes--;
+
+    resizeWorkers();
+  }
+
+  // Called with the lock held. Shrinking only stops idle threads.
+  private void resizeWorkers() {
+    if (this.workers.isShutdown()) {
+      return;
+    }
+
+    final int n = Math.max(this.minWorkers, this.scheduledLanes);
+
+    // Order matters: core size may never exceed max size
+    if (n > this.workers.getMaximumPoolSize()) {
+      this.workers.setMaximumPoolSize(n);
+      this.workers.setCorePoolSize(n);
+    } else if (n != this.workers.getCorePoolSize()) {
+      this.workers.setCorePoolSize(n);
+      this.workers.setMaximumPoolSize(n);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.reactnativethermalprinter.metrics;
+
+/**
+ * Point-in-time summary of a LatencyHistogram, in microseconds.
+ */
+public class HistogramSnapshot {
+
+  public final long count;
+  public final long meanMicros;
+  public final long p50Micros;
+  public final long p90Micros;
+  public final long p99Micros;
+  public final long maxMicros;
+
+  public HistogramSnapshot(long count, long meanMicros, long p50Micros, long p90Micros, long p99Micros,
+      long maxMicros) {
+    this.count = count;
+    this.meanMicros = meanMicros;
+    this.p50Micros = p50Micros;
+    this.p90Micros = p90Micros;
+    this.p99Micros = p99Micros;
+    this.maxMicros = maxMicros;
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "{ count: " + this.count +
+        ", p50Ms: " + (this.p50Micros / 1_000.0) +
+        ", p99Ms: " + (this.p99Micros / 1_000.0) +
+        ", maxMs: " + (this.maxMicros / 1_000.0) +
+        " }";
+  }
+}
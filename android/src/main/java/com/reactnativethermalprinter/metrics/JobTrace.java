@@ -0,0 +1,181 @@
+package com.reactnativethermalprinter.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Always-on, fixed-size ring buffer of timed job events (stages, packet
+ * writes, pacing sleeps, flushes, closes), exportable as Chrome / Perfetto
+ * trace JSON.
+ *
+ * Recording claims a slot with one atomic increment and never locks or
+ * allocates; names must be constants. Each slot carries a sequence number so
+ * the exporter skips slots that are being overwritten.
+ */
+public final class JobTrace {
+
+  // Power of two; ~20 jobs worth of packet writes
+  private static final int CAPACITY = 1 << 14;
+  private static final int MASK = CAPACITY - 1;
+
+  // Trace timestamps are relative to class load
+  private static final long EPOCH_NANOS = System.nanoTime();
+
+  private static final AtomicLong next = new AtomicLong();
+
+  // Slot -> sequence of the event it holds (-1 while being written)
+  private static final AtomicLongArray seqs = new AtomicLongArray(CAPACITY);
+
+  private static final AtomicLongArray starts = new AtomicLongArray(CAPACITY);
+  private static final AtomicLongArray durations = new AtomicLongArray(CAPACITY);
+  private static final AtomicLongArray values = new AtomicLongArray(CAPACITY);
+  private static final AtomicLongArray threadIds = new AtomicLongArray(CAPACITY);
+  private static final AtomicReferenceArray<String> names = new AtomicReferenceArray<>(CAPACITY);
+  private static final AtomicReferenceArray<String> labels = new AtomicReferenceArray<>(CAPACITY);
+  private static final AtomicReferenceArray<String> threadNames = new AtomicReferenceArray<>(CAPACITY);
+
+  static {
+    for (int i = 0; i < CAPACITY; i++) {
+      seqs.set(i, -1);
+    }
+  }
+
+  private JobTrace() {
+  }
+
+  /**
+   * Records a span [startNanos, endNanos] (System.nanoTime()) on the calling
+   * thread. label (printer key / job id) and value (e.g. bytes) are optional.
+   */
+  public static void complete(String name, long startNanos, long endNanos, String label, long value) {
+    final long seq = next.getAndIncrement();
+    final int slot = (int) (seq & MASK);
+
+    final Thread t = Thread.currentThread();
+
+    seqs.set(slot, -1);
+
+    starts.lazySet(slot, startNanos);
+    durations.lazySet(slot, endNanos - startNanos);
+    values.lazySet(slot, value);
+    threadIds.lazySet(slot, t.getId());
+    names.lazySet(slot, name);
+    labels.lazySet(slot, label);
+    threadNames.lazySet(slot, t.getName());
+
+    seqs.lazySet(slot, seq);
+  }
+
+  // Zero-length marker
+  public static void instant(String name, String label) {
+    final long now = System.nanoTime();
+    complete(name, now, now, label, 0);
+  }
+
+  public static void clear() {
+    for (int i = 0; i < CAPACITY; i++) {
+      seqs.set(i, -1);
+    }
+  }
+
+  /**
+   * Writes the buffered events, oldest first, as Chrome trace JSON
+   * (chrome://tracing, ui.perfetto.dev). Safe to call while recording.
+   */
+  public static void writeChromeJson(Writer out) throws IOException {
+    final long end = next.get();
+    final long begin = Math.max(0, end - CAPACITY);
+
+    Map<Long, String> threads = new HashMap<>();
+
+    out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+    boolean first = true;
+
+    for (long seq = begin; seq < end; seq++) {
+      final int slot = (int) (seq & MASK);
+
+      if (seqs.get(slot) != seq) {
+        continue; // overwritten or still being written
+      }
+
+      final long start = starts.get(slot);
+      final long duration = durations.get(slot);
+      final long value = values.get(slot);
+      final long tid = threadIds.get(slot);
+      final String name = names.get(slot);
+      final String label = labels.get(slot);
+      final String threadName = threadNames.get(slot);
+
+      if (seqs.get(slot) != seq) {
+        continue; // torn
+      }
+
+      threads.put(tid, threadName);
+
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+
+      out.write("{\"name\":");
+      writeString(out, name);
+      out.write(",\"ph\":\"X\",\"pid\":1,\"tid\":");
+      out.write(Long.toString(tid));
+      out.write(",\"ts\":");
+      out.write(Double.toString((start - EPOCH_NANOS) / 1_000.0));
+      out.write(",\"dur\":");
+      out.write(Double.toString(duration / 1_000.0));
+      out.write(",\"args\":{\"label\":");
+      writeString(out, label);
+      out.write(",\"value\":");
+      out.write(Long.toString(value));
+      out.write("}}");
+    }
+
+    // Thread names for the track headers
+    for (Map.Entry<Long, String> e : threads.entrySet()) {
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+
+      out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+      out.write(Long.toString(e.getKey()));
+      out.write(",\"args\":{\"name\":");
+      writeString(out, e.getValue());
+      out.write("}}");
+    }
+
+    out.write("]}");
+  }
+
+  private static void writeString(Writer out, String s) throws IOException {
+    if (s == null) {
+      out.write("null");
+      return;
+    }
+
+    out.write('"');
+
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+        out.write(c);
+      } else if (c < 0x20) {
+        out.write(String.format("\\u%04x", (int) c));
+      } else {
+        out.write(c);
+      }
+    }
+
+    out.write('"');
+  }
+}
@@ -0,0 +1,117 @@
+package com.reactnativethermalprinter.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free latency histogram.
+ *
+ * Log-linear buckets over microseconds: exact below 8 us, then 8 buckets
+ * per power of two (<= 12.5% relative error) up to ~2^40 us. record() is a
+ * handful of atomic adds, cheap enough for per-packet use.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sumMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    final long us = Math.max(0, nanos / 1_000);
+
+    this.counts.incrementAndGet(bucketOf(us));
+    this.count.incrementAndGet();
+    this.sumMicros.addAndGet(us);
+
+    long max;
+    while (us > (max = this.maxMicros.get())) {
+      if (this.maxMicros.compareAndSet(max, us)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return this.count.get();
+  }
+
+  // Not atomic across buckets; good enough for telemetry
+  public HistogramSnapshot snapshot() {
+    long[] c = new long[BUCKETS];
+    long total = 0;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      c[i] = this.counts.get(i);
+      total += c[i];
+    }
+
+    // Bucket midpoints can overshoot the largest sample
+    final long max = this.maxMicros.get();
+
+    return new HistogramSnapshot(
+        total,
+        total == 0 ? 0 : this.sumMicros.get() / total,
+        Math.min(max, percentile(c, total, 0.50)),
+        Math.min(max, percentile(c, total, 0.90)),
+        Math.min(max, percentile(c, total, 0.99)),
+        max);
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.counts.set(i, 0);
+    }
+    this.count.set(0);
+    this.sumMicros.set(0);
+    this.maxMicros.set(0);
+  }
+
+  static int bucketOf(long us) {
+    if (us < SUB_BUCKETS) {
+      return (int) us;
+    }
+
+    final int msb = 63 - Long.numberOfLeadingZeros(us);
+    final int shift = msb - SUB_BITS;
+    final int sub = (int) (us >>> shift) & (SUB_BUCKETS - 1);
+
+    return Math.min(BUCKETS - 1, (shift + 1) * SUB_BUCKETS + sub);
+  }
+
+  // Midpoint of a bucket, in microseconds
+  static long valueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+
+    final int shift = bucket / SUB_BUCKETS - 1;
+    final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+    return lower + ((1L << shift) >> 1);
+  }
+
+  private static long percentile(long[] counts, long total, double p) {
+    if (total == 0) {
+      return 0;
+    }
+
+    final long rank = (long) Math.ceil(p * total);
+    long seen = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return valueOf(i);
+      }
+    }
+
+    return valueOf(counts.length - 1);
+  }
+}
@@ -0,0 +1,32 @@
+package com.reactnativethermalprinter.metrics;
+
+/**
+ * Bytes of image buffers (decoded bitmaps, pixel buffers, packed images,
+ * encoded commands) one job holds at once, and the peak of that. Buffers
+ * are counted from their actual sizes while the pipeline references them,
+ * so the figure is per job even when lanes prepare images in parallel.
+ */
+public class MemoryMeter {
+
+  // Sink for code paths that run without a job
+  public static final MemoryMeter NONE = new MemoryMeter();
+
+  private long liveBytes = 0;
+  private long peakBytes = 0;
+
+  public synchronized void acquire(long bytes) {
+    this.liveBytes += bytes;
+
+    if (this.liveBytes > this.peakBytes) {
+      this.peakBytes = this.liveBytes;
+    }
+  }
+
+  public synchronized void release(long bytes) {
+    this.liveBytes -= bytes;
+  }
+
+  public synchronized long getPeakBytes() {
+    return this.peakBytes;
+  }
+}
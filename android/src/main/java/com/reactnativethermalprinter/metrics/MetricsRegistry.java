@@ -0,0 +1,37 @@
+package com.reactnativethermalprinter.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-printer metrics, keyed by PrinterSettings.getPrinterKey().
+ */
+public class MetricsRegistry {
+
+  private final ConcurrentHashMap<String, PrinterMetrics> printers = new ConcurrentHashMap<>();
+
+  public PrinterMetrics forPrinter(String printerKey) {
+    PrinterMetrics m = this.printers.get(printerKey);
+
+    if (m == null) {
+      PrinterMetrics created = new PrinterMetrics(printerKey);
+      m = this.printers.putIfAbsent(printerKey, created);
+      if (m == null) {
+        m = created;
+      }
+    }
+
+    return m;
+  }
+
+  public List<PrinterMetrics> getAll() {
+    return new ArrayList<>(this.printers.values());
+  }
+
+  public void reset() {
+    for (PrinterMetrics m : this.printers.values()) {
+      m.reset();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.reactnativethermalprinter.metrics;
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms and counters of one printer. Recording never locks or
+ * allocates.
+ */
+public class PrinterMetrics {
+
+  // Sink for code paths that run without a registry (e.g. benchmarks)
+  public static final PrinterMetrics NONE = new PrinterMetrics("none");
+
+  private final String printerKey;
+
+  private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong jobs = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+
+  public PrinterMetrics(String printerKey) {
+    this.printerKey = printerKey;
+
+    for (int i = 0; i < this.stages.length; i++) {
+      this.stages[i] = new LatencyHistogram();
+    }
+  }
+
+  public String getPrinterKey() {
+    return this.printerKey;
+  }
+
+  public void record(Stage stage, long nanos) {
+    this.stages[stage.ordinal()].record(nanos);
+  }
+
+  // Record the time since startNanos (System.nanoTime()), also as a trace span
+  public void recordSince(Stage stage, long startNanos) {
+    final long now = System.nanoTime();
+
+    this.stages[stage.ordinal()].record(now - startNanos);
+
+    JobTrace.complete(stage.key, startNanos, now, this.printerKey, 0);
+  }
+
+  public void addBytesSent(long bytes) {
+    this.bytesSent.addAndGet(bytes);
+  }
+
+  public void incrementRetries() {
+    this.retries.incrementAndGet();
+  }
+
+  public void recordJob(boolean success) {
+    this.jobs.incrementAndGet();
+    if (!success) {
+      this.failures.incrementAndGet();
+    }
+  }
+
+  public long getBytesSent() {
+    return this.bytesSent.get();
+  }
+
+  public long getRetries() {
+    return this.retries.get();
+  }
+
+  public long getJobs() {
+    return this.jobs.get();
+  }
+
+  public long getFailures() {
+    return this.failures.get();
+  }
+
+  // Stages without samples are left out
+  public EnumMap<Stage, HistogramSnapshot> snapshotStages() {
+    EnumMap<Stage, HistogramSnapshot> map = new EnumMap<>(Stage.class);
+
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram h = this.stages[stage.ordinal()];
+      if (h.getCount() > 0) {
+        map.put(stage, h.snapshot());
+      }
+    }
+
+    return map;
+  }
+
+  public void reset() {
+    for (LatencyHistogram h : this.stages) {
+      h.reset();
+    }
+    this.bytesSent.set(0);
+    this.retries.set(0);
+    this.jobs.set(0);
+    this.failures.set(0);
+  }
+}
@@ -0,0 +1,23 @@
+package com.reactnativethermalprinter.metrics;
+
+/**
+ * Timed stages of a print job.
+ */
+public enum Stage {
+  DECODE("decode"), // base64 -> Bitmap
+  SCALE("scale"), // resize to the printer width
+  DITHER("dither"), // grayscale + dithering
+  ENCODE("encode"), // Bitmap -> ESC/POS bytes (per job)
+  CONNECT("connect"), // pool acquire (warm reuse or new connection)
+  WRITE("write"), // one packet blocked in the transport
+  DRAIN("drain"), // wait for the printer to finish the job
+  CLOSE("close"), // transport close
+  JOB("job"); // whole job, submit to done
+
+  // Metrics key and trace event name
+  public final String key;
+
+  Stage(String key) {
+    this.key = key;
+  }
+}
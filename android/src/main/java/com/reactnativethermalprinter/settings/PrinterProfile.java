@@ -0,0 +1,108 @@
+package com.reactnativethermalprinter.settings;
+
+/**
+ * The transport / encoding knobs that worked best for one printer, as found
+ * by PrinterCalibrator. Applied on top of the defaults for every job sent
+ * to that printer.
+ */
+public class PrinterProfile {
+
+  // Bumped when the encoded layout changes; older lines are dropped on load
+  private static final String FORMAT = "1";
+
+  public final PrinterSettings.PrintMode printMode;
+  public final PrinterSettings.PacingMode pacingMode;
+  public final int chunkHeight;
+  public final int packetSize;
+  public final int packetMicroDelayMs;
+  public final boolean useQueueForWrites;
+
+  public final long bytesPerSecond; // measured with these settings
+  public final long calibratedAtMillis;
+
+  public PrinterProfile(PrinterSettings.PrintMode printMode, PrinterSettings.PacingMode pacingMode, int chunkHeight,
+      int packetSize, int packetMicroDelayMs, boolean useQueueForWrites, long bytesPerSecond,
+      long calibratedAtMillis) {
+    this.printMode = printMode;
+    this.pacingMode = pacingMode;
+    this.chunkHeight = chunkHeight;
+    this.packetSize = packetSize;
+    this.packetMicroDelayMs = packetMicroDelayMs;
+    this.useQueueForWrites = useQueueForWrites;
+    this.bytesPerSecond = bytesPerSecond;
+    this.calibratedAtMillis = calibratedAtMillis;
+  }
+
+  public static PrinterProfile of(PrinterSettings settings, long bytesPerSecond) {
+    return new PrinterProfile(
+        settings.getPrintMode(),
+        settings.getPacingMode(),
+        settings.getChunkHeight(),
+        settings.getPacketSize(),
+        settings.getPacketMicroDelayMs(),
+        settings.getUseQueueForWrites(),
+        bytesPerSecond,
+        System.currentTimeMillis());
+  }
+
+  public void applyTo(PrinterSettings settings) {
+    settings.setPrintMode(this.printMode);
+    settings.setPacingMode(this.pacingMode);
+    settings.setChunkHeight(this.chunkHeight);
+    settings.setPacketSize(this.packetSize);
+    settings.setPacketMicroDelayMs(this.packetMicroDelayMs);
+    settings.setUseQueueForWrites(this.useQueueForWrites);
+  }
+
+  // ----------------------------------------------------------
+  // ENCODING: one comma-separated line (see ProfileStore)
+  // ----------------------------------------------------------
+  public String encode() {
+    return FORMAT
+        + ',' + this.printMode.name()
+        + ',' + this.pacingMode.name()
+        + ',' + this.chunkHeight
+        + ',' + this.packetSize
+        + ',' + this.packetMicroDelayMs
+        + ',' + (this.useQueueForWrites ? 1 : 0)
+        + ',' + this.bytesPerSecond
+        + ',' + this.calibratedAtMillis;
+  }
+
+  // null if the line is malformed or from another format version
+  public static PrinterProfile decode(String line) {
+    String[] f = line.split(",");
+
+    if (f.length != 9 || !FORMAT.equals(f[0])) {
+      return null;
+    }
+
+    try {
+      return new PrinterProfile(
+          PrinterSettings.PrintMode.valueOf(f[1]),
+          PrinterSettings.PacingMode.valueOf(f[2]),
+          Integer.parseInt(f[3]),
+          Integer.parseInt(f[4]),
+          Integer.parseInt(f[5]),
+          "1".equals(f[6]),
+          Long.parseLong(f[7]),
+          Long.parseLong(f[8]));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // For debugging
+  @Override
+  public String toString() {
+    return "PrinterProfile {" +
+        " printMode: " + this.printMode +
+        ", pacingMode: " + this.pacingMode +
+        ", chunkHeight: " + this.chunkHeight +
+        ", packetSize: " + this.packetSize +
+        ", packetMicroDelayMs: " + this.packetMicroDelayMs +
+        ", useQueueForWrites: " + this.useQueueForWrites +
+        ", bytesPerSecond: " + this.bytesPerSecond +
+        " }";
+  }
+}
@@ -2,6 +2,7 @@ package com.reactnativethermalprinter.settings;
 
 public class PrinterSettings {
 
+  // Declared fastest first (PrinterCapabilities relies on the order)
   public enum PrintMode {
     RASTER_GSV0, // GS v 0 full-image raster (fastest)
     RASTER_GSV0_STREAMED, // GS v 0 full-image raster (fastest) streamed (for very long receipts)
@@ -10,13 +11,39 @@ public class PrinterSettings {
   }
 
   public enum DitherMode {
-    ATKINSON, // Default, fast FLOYD_STEINBERG variant, best for thermal printers
+    AUTO, // per band: THRESHOLD / BAYER / ATKINSON by content
+    ATKINSON, // fast FLOYD_STEINBERG variant, best for photos on thermal printers
     FLOYD_STEINBERG, // highest quality, slowest
     BAYER, // 8x8, very fast, clean, best for QR/text
     THRESHOLD, // fastest, sharpest, not great for photos
     NONE
   }
 
+  // GS v 0 m: the printer enlarges each dot scaleX by scaleY, so the image
+  // is prepared at that fraction of the resolution (draft: less data and
+  // dithering for slips where legibility is all that matters)
+  public enum RasterScale {
+    NORMAL(0, 1, 1),
+    DOUBLE_WIDTH(1, 2, 1), // half the data
+    DOUBLE_HEIGHT(2, 1, 2), // half the data
+    QUADRUPLE(3, 2, 2); // quarter of the data
+
+    public final int m;
+    public final int scaleX;
+    public final int scaleY;
+
+    RasterScale(int m, int scaleX, int scaleY) {
+      this.m = m;
+      this.scaleX = scaleX;
+      this.scaleY = scaleY;
+    }
+  }
+
+  public enum PacingMode {
+    ADAPTIVE, // AIMD: ramp up until the link stalls, then back off (default)
+    FIXED // constant packetMicroDelayMs gap between packets
+  }
+
   private static final int DEFAULT_PRINTER_DPI = 203;
 
   private static final int DEFAULT_PRINTER_WIDTH_MM = 80;
@@ -45,7 +72,22 @@ public class PrinterSettings {
 
   private PrintMode printMode = PrintMode.RASTER_GSV0;
 
-  private DitherMode ditherMode = DitherMode.ATKINSON;
+  private DitherMode ditherMode = DitherMode.AUTO;
+
+  // Per job, not part of calibrated profiles
+  private RasterScale rasterScale = RasterScale.NORMAL;
+
+  // Tone applied to luma before dithering (see core.ToneCurve); the
+  // defaults leave it unchanged
+  private float brightness = 0f; // -1 .. 1
+  private float contrast = 1f; // multiplier around mid gray
+  private float gamma = 1f; // > 1 lightens midtones
+  private int blackPoint = 0; // luma at or below -> black
+  private int whitePoint = 255; // luma at or above -> white
+
+  // Peak bytes an image may take while prepared (see core.MemoryGovernor);
+  // 0 = a share of the heap limit
+  private long memoryBudgetBytes = 0;
 
   private int chunkHeight = DEFAULT_CHUNK_HEIGHT;
 
@@ -57,6 +99,11 @@ public class PrinterSettings {
   // (true = queued writer thread; false = direct writes)
   private boolean useQueueForWrites = true;
 
+  private PacingMode pacingMode = PacingMode.ADAPTIVE;
+
+  // Query printer status (DLE EOT / GS r) instead of blind drain delays
+  private boolean useStatusReadBack = true;
+
   public String getIpAddress() {
     return this.ipAddress;
   }
@@ -81,6 +128,14 @@ public class PrinterSettings {
     this.macAddress = mac;
   }
 
+  // Identity of the physical printer (pool / registry key)
+  public String getPrinterKey() {
+    if (this.macAddress != null) {
+      return "bt:" + this.macAddress.toUpperCase();
+    }
+    return "tcp:" + this.ipAddress + ":" + this.ipPort;
+  }
+
   public int getTimeoutMs() {
     return this.timeoutMs;
   }
@@ -133,6 +188,62 @@ public class PrinterSettings {
     this.ditherMode = mode;
   }
 
+  public RasterScale getRasterScale() {
+    return this.rasterScale;
+  }
+
+  public void setRasterScale(RasterScale scale) {
+    this.rasterScale = scale;
+  }
+
+  public float getBrightness() {
+    return this.brightness;
+  }
+
+  public void setBrightness(float brightness) {
+    this.brightness = brightness;
+  }
+
+  public float getContrast() {
+    return this.contrast;
+  }
+
+  public void setContrast(float contrast) {
+    this.contrast = contrast;
+  }
+
+  public float getGamma() {
+    return this.gamma;
+  }
+
+  public void setGamma(float gamma) {
+    this.gamma = gamma;
+  }
+
+  public int getBlackPoint() {
+    return this.blackPoint;
+  }
+
+  public void setBlackPoint(int blackPoint) {
+    this.blackPoint = blackPoint;
+  }
+
+  public int getWhitePoint() {
+    return this.whitePoint;
+  }
+
+  public void setWhitePoint(int whitePoint) {
+    this.whitePoint = whitePoint;
+  }
+
+  public long getMemoryBudgetBytes() {
+    return this.memoryBudgetBytes;
+  }
+
+  public void setMemoryBudgetBytes(long bytes) {
+    this.memoryBudgetBytes = Math.max(0, bytes);
+  }
+
   public int getChunkHeight() {
     return this.chunkHeight;
   }
@@ -165,6 +276,22 @@ public class PrinterSettings {
     this.useQueueForWrites = useQueue;
   }
 
+  public PacingMode getPacingMode() {
+    return this.pacingMode;
+  }
+
+  public void setPacingMode(PacingMode mode) {
+    this.pacingMode = mode;
+  }
+
+  public boolean getUseStatusReadBack() {
+    return this.useStatusReadBack;
+  }
+
+  public void setUseStatusReadBack(boolean useStatusReadBack) {
+    this.useStatusReadBack = useStatusReadBack;
+  }
+
   public PrinterSettings(
       String ipAddress,
       int ipPort,
@@ -217,10 +344,19 @@ public class PrinterSettings {
         "\n\tprinterCharPerLine: " + this.printerCharPerLine +
         "\n\tprintMode: " + this.printMode +
         "\n\tditherMode: " + this.ditherMode +
+        "\n\trasterScale: " + this.rasterScale +
+        "\n\tbrightness: " + this.brightness +
+        "\n\tcontrast: " + this.contrast +
+        "\n\tgamma: " + this.gamma +
+        "\n\tblackPoint: " + this.blackPoint +
+        "\n\twhitePoint: " + this.whitePoint +
+        "\n\tmemoryBudgetBytes: " + this.memoryBudgetBytes +
         "\n\tchunkHeight: " + this.chunkHeight +
         "\n\tpacketSize: " + this.packetSize +
         "\n\tpacketMicroDelayMs: " + this.packetMicroDelayMs +
         "\n\tuseQueueForWrites: " + this.useQueueForWrites +
+        "\n\tpacingMode: " + this.pacingMode +
+        "\n\tuseStatusReadBack: " + this.useStatusReadBack +
         "\n}";
   }
 
@@ -0,0 +1,125 @@
+package com.reactnativethermalprinter.settings;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calibrated profiles by printer key (PrinterSettings.getPrinterKey()),
+ * kept in memory for lock-free lookups and persisted to one small text
+ * file, one "key=profile" line per printer.
+ *
+ * Saves rewrite the whole file through a temp file + rename, so a crash
+ * mid-write leaves the previous version intact.
+ */
+public class ProfileStore {
+
+  private static final String TAG = "RNTP.ProfileStore";
+
+  private final File file;
+
+  private final ConcurrentHashMap<String, PrinterProfile> profiles = new ConcurrentHashMap<>();
+
+  public ProfileStore(File file) {
+    this.file = file;
+  }
+
+  // Reads the file (missing = empty); unreadable lines are skipped
+  public synchronized void load() {
+    this.profiles.clear();
+
+    if (!this.file.exists()) {
+      return;
+    }
+
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(new FileInputStream(this.file), StandardCharsets.UTF_8))) {
+
+      String line;
+
+      while ((line = in.readLine()) != null) {
+        final int eq = line.lastIndexOf('=');
+
+        if (eq <= 0) {
+          continue;
+        }
+
+        PrinterProfile profile = PrinterProfile.decode(line.substring(eq + 1));
+
+        if (profile != null) {
+          this.profiles.put(line.substring(0, eq), profile);
+        }
+      }
+
+      Log.i(TAG, "Loaded " + this.profiles.size() + " printer profiles");
+
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to load printer profiles: " + e.getMessage(), e);
+    }
+  }
+
+  public PrinterProfile get(String printerKey) {
+    return this.profiles.get(printerKey);
+  }
+
+  public Map<String, PrinterProfile> getAll() {
+    return new HashMap<>(this.profiles);
+  }
+
+  public synchronized void put(String printerKey, PrinterProfile profile) throws IOException {
+    this.profiles.put(printerKey, profile);
+    this.save();
+  }
+
+  // Returns false if there was no profile for the printer
+  public synchronized boolean remove(String printerKey) throws IOException {
+    if (this.profiles.remove(printerKey) == null) {
+      return false;
+    }
+    this.save();
+    return true;
+  }
+
+  private void save() throws IOException {
+    final File dir = this.file.getParentFile();
+
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Cannot create " + dir);
+    }
+
+    final File tmp = new File(this.file.getPath() + ".tmp");
+
+    try (FileOutputStream stream = new FileOutputStream(tmp)) {
+      Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+
+      for (Map.Entry<String, PrinterProfile> e : this.profiles.entrySet()) {
+        out.write(e.getKey());
+        out.write('=');
+        out.write(e.getValue().encode());
+        out.write('\n');
+      }
+
+      out.flush();
+
+      // On disk before the rename, or a crash can leave an empty profile file
+      stream.getFD().sync();
+    }
+
+    if (!tmp.renameTo(this.file)) {
+      tmp.delete();
+      throw new IOException("Cannot replace " + this.file);
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.reactnativethermalprinter.spool;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * On-disk spool of encoded jobs, one append-only file per job:
+ *
+ * 0 magic "RNSP"
+ * 4 version (u8), state (u8): 0 = not confirmed printed, 1 = printed
+ * 6 key length (u16)
+ * 8 acknowledged bands (s32): bands the transport accepted
+ * 12 created (s64, epoch ms)
+ * 20 printer key (UTF-8)
+ * .. bands: length (s32) + bytes, each a run of complete ESC/POS commands
+ *
+ * A band's length is written when the band ends, so a file cut off by a
+ * crash ends at its last complete band. Files are read memory-mapped, so
+ * a reprint is pure I/O. Printed jobs beyond maxJobs are deleted, oldest
+ * first; unprinted ones are kept until replayed or deleted.
+ */
+public class JobSpool {
+
+  private static final String TAG = "RNTP.JobSpool";
+
+  private static final int MAGIC = 0x524E5350; // "RNSP"
+  private static final int VERSION = 1;
+
+  private static final int STATE_OFFSET = 5;
+  private static final int KEY_LENGTH_OFFSET = 6;
+  private static final int ACKED_OFFSET = 8;
+  private static final int CREATED_OFFSET = 12;
+  private static final int KEY_OFFSET = 20;
+
+  private static final int MAX_KEY_BYTES = 255;
+
+  static final int STATE_UNCONFIRMED = 0;
+  static final int STATE_PRINTED = 1;
+
+  private static final String SUFFIX = ".spool";
+
+  public static final int DEFAULT_MAX_JOBS = 32;
+
+  private final File dir;
+
+  private volatile int maxJobs;
+
+  public JobSpool(File dir, int maxJobs) {
+    this.dir = dir;
+    this.maxJobs = maxJobs;
+  }
+
+  // 0 = spooling off (existing files stay until deleted)
+  public void setMaxJobs(int maxJobs) {
+    this.maxJobs = Math.max(0, maxJobs);
+  }
+
+  public boolean isEnabled() {
+    return this.maxJobs > 0;
+  }
+
+  /**
+   * Starts the spool file of a job printed over conn. Returns null when
+   * spooling is off or the file cannot be created; the job prints anyway.
+   */
+  public SpoolRecorder begin(String jobId, String printerKey, FastDeviceConnection conn) {
+    if (!this.isEnabled()) {
+      return null;
+    }
+
+    final long created = System.currentTimeMillis();
+    final String spoolId = jobId + "-" + created;
+
+    try {
+      if (!this.dir.isDirectory() && !this.dir.mkdirs()) {
+        throw new IOException("Cannot create " + this.dir);
+      }
+
+      this.prune(this.maxJobs - 1);
+
+      byte[] key = printerKey.getBytes(StandardCharsets.UTF_8);
+
+      if (key.length > MAX_KEY_BYTES) {
+        throw new IOException("Printer key too long");
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(KEY_OFFSET + key.length);
+
+      header.putInt(MAGIC);
+      header.put((byte) VERSION);
+      header.put((byte) STATE_UNCONFIRMED);
+      header.putShort((short) key.length);
+      header.putInt(0);
+      header.putLong(created);
+      header.put(key);
+      header.flip();
+
+      FileChannel channel = FileChannel.open(this.fileOf(spoolId).toPath(),
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+      try {
+        while (header.hasRemaining()) {
+          channel.write(header);
+        }
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+
+      return new SpoolRecorder(spoolId, channel, header.limit(), conn);
+
+    } catch (IOException e) {
+      Log.e(TAG, "Cannot spool " + jobId + ": " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  // Oldest first
+  public List<SpooledJob> list() {
+    File[] files = this.dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+
+    ArrayList<SpooledJob> jobs = new ArrayList<>();
+
+    if (files == null) {
+      return jobs;
+    }
+
+    for (File f : files) {
+      try {
+        jobs.add(this.read(f));
+      } catch (IOException e) {
+        Log.w(TAG, "Skipping unreadable spool file " + f.getName() + ": " + e.getMessage());
+      }
+    }
+
+    Collections.sort(jobs, (a, b) -> Long.compare(a.createdMillis, b.createdMillis));
+
+    return jobs;
+  }
+
+  // null if there is no such job
+  public SpooledJob open(String spoolId) throws IOException {
+    final File f = this.fileOf(spoolId);
+    return f.isFile() ? this.read(f) : null;
+  }
+
+  public boolean delete(String spoolId) {
+    return this.fileOf(spoolId).delete();
+  }
+
+  // After a successful replay of an unconfirmed job
+  public void markPrinted(SpooledJob job) throws IOException {
+    try (FileChannel channel = FileChannel.open(this.fileOf(job.spoolId).toPath(), StandardOpenOption.WRITE)) {
+      writeAcked(channel, job.getBandCount());
+      writeState(channel, STATE_PRINTED);
+    }
+  }
+
+  // Keep at most keep printed jobs
+  private void prune(int keep) {
+    List<SpooledJob> jobs = this.list();
+
+    int printed = 0;
+    for (SpooledJob job : jobs) {
+      if (job.isPrinted()) {
+        printed++;
+      }
+    }
+
+    for (SpooledJob job : jobs) {
+      if (printed <= keep) {
+        break;
+      }
+      if (job.isPrinted()) {
+        this.delete(job.spoolId);
+        printed--;
+      }
+    }
+  }
+
+  private File fileOf(String spoolId) {
+    return new File(this.dir, spoolId + SUFFIX);
+  }
+
+  // Maps the file and indexes its complete bands
+  private SpooledJob read(File f) throws IOException {
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+
+      ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (data.limit() < KEY_OFFSET || data.getInt(0) != MAGIC || data.get(4) != VERSION) {
+        throw new IOException("Not a spool file");
+      }
+
+      final int keyLength = data.getShort(KEY_LENGTH_OFFSET) & 0xFFFF;
+
+      if (KEY_OFFSET + keyLength > data.limit()) {
+        throw new IOException("Truncated header");
+      }
+
+      byte[] key = new byte[keyLength];
+      for (int i = 0; i < keyLength; i++) {
+        key[i] = data.get(KEY_OFFSET + i);
+      }
+
+      int[] offsets = new int[16];
+      int bands = 0;
+
+      int pos = KEY_OFFSET + keyLength;
+
+      while (pos + 4 <= data.limit()) {
+        final int length = data.getInt(pos);
+
+        if (length <= 0 || length > data.limit() - pos - 4) {
+          break; // band cut off by a crash
+        }
+
+        if (bands == offsets.length) {
+          offsets = Arrays.copyOf(offsets, bands * 2);
+        }
+        offsets[bands++] = pos;
+
+        pos += 4 + length;
+      }
+
+      final String name = f.getName();
+
+      return new SpooledJob(
+          name.substring(0, name.length() - SUFFIX.length()),
+          new String(key, StandardCharsets.UTF_8),
+          data.getLong(CREATED_OFFSET),
+          data.get(STATE_OFFSET) == STATE_PRINTED,
+          Math.min(data.getInt(ACKED_OFFSET), bands),
+          Arrays.copyOf(offsets, bands),
+          data);
+    }
+  }
+
+  static void writeAcked(FileChannel channel, int ackedBands) throws IOException {
+    ByteBuffer b = ByteBuffer.allocate(4);
+    b.putInt(0, ackedBands);
+    channel.write(b, ACKED_OFFSET);
+  }
+
+  static void writeState(FileChannel channel, int state) throws IOException {
+    ByteBuffer b = ByteBuffer.allocate(1);
+    b.put(0, (byte) state);
+    channel.write(b, STATE_OFFSET);
+  }
+}
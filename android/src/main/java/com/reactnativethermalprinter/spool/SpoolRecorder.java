@@ -0,0 +1,190 @@
+package com.reactnativethermalprinter.spool;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.connection.WriteRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Writes one job's bytes to its spool file as they go to the printer.
+ *
+ * Bytes are staged and appended in large writes; when a band ends, its
+ * length is filled into the record header and the acknowledged band count
+ * in the file header moves up to the last band the printer confirmed it
+ * processed (FastDeviceConnection drain markers). Bands the transport took
+ * but the printer did not confirm may have died in the send buffers, so a
+ * resume sends them again. A disk error stops recording, never the print.
+ */
+public class SpoolRecorder implements WriteRecorder {
+
+  private static final String TAG = "RNTP.SpoolRecorder";
+
+  private static final int STAGING_BYTES = 16 * 1024;
+
+  // Placeholder for a band's length until the band ends
+  private static final byte[] OPEN_BAND = new byte[4];
+
+  private final String spoolId;
+  private final FileChannel channel;
+  private final FastDeviceConnection conn;
+
+  private final ByteBuffer staging = ByteBuffer.allocate(STAGING_BYTES);
+  private final ByteBuffer header = ByteBuffer.allocate(4);
+
+  // File position of the first staged byte
+  private long position;
+
+  // Position of the open band's length field; -1 = no band open
+  private long bandStart = -1;
+
+  // Last write ticket of each band
+  private long[] bandTickets = new long[64];
+  private int bands = 0;
+  private int ackedBands = 0;
+
+  private long lastTicket = 0;
+
+  private boolean failed = false;
+
+  SpoolRecorder(String spoolId, FileChannel channel, long position, FastDeviceConnection conn) {
+    this.spoolId = spoolId;
+    this.channel = channel;
+    this.position = position;
+    this.conn = conn;
+  }
+
+  public String getSpoolId() {
+    return this.spoolId;
+  }
+
+  @Override
+  public void record(byte[] data, int offset, int length, long ticket) {
+    if (this.failed) {
+      return;
+    }
+
+    try {
+      if (this.bandStart < 0) {
+        this.bandStart = this.position + this.staging.position();
+        this.stage(OPEN_BAND, 0, 4); // length, filled in by endBand()
+      }
+
+      this.stage(data, offset, length);
+
+      this.lastTicket = ticket;
+
+    } catch (IOException e) {
+      this.fail(e);
+    }
+  }
+
+  @Override
+  public void endBand() {
+    if (this.failed || this.bandStart < 0) {
+      return;
+    }
+
+    try {
+      this.flush();
+
+      this.header.clear();
+      this.header.putInt(0, (int) (this.position - this.bandStart - 4));
+      this.channel.write(this.header, this.bandStart);
+
+      if (this.bands == this.bandTickets.length) {
+        this.bandTickets = Arrays.copyOf(this.bandTickets, this.bands * 2);
+      }
+      this.bandTickets[this.bands++] = this.lastTicket;
+
+      this.bandStart = -1;
+
+      this.advanceAcks();
+
+    } catch (IOException e) {
+      this.fail(e);
+    }
+  }
+
+  /**
+   * Ends recording. printed = the printer confirmed the whole job; otherwise
+   * the file keeps the acknowledged band count for a resume.
+   */
+  public void close(boolean printed) {
+    try {
+      if (!this.failed) {
+
+        if (printed) {
+          this.endBand();
+          this.ackedBands = this.bands;
+          JobSpool.writeAcked(this.channel, this.ackedBands);
+          JobSpool.writeState(this.channel, JobSpool.STATE_PRINTED);
+        } else {
+          // A band left open was cut off mid-command: its length stays 0,
+          // so readers stop before it
+          this.advanceAcks();
+        }
+      }
+    } catch (IOException e) {
+      this.fail(e);
+    } finally {
+      try {
+        this.channel.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  private void stage(byte[] data, int offset, int length) throws IOException {
+    if (length > this.staging.remaining()) {
+      this.flush();
+
+      if (length > this.staging.capacity()) {
+        this.writeFully(ByteBuffer.wrap(data, offset, length));
+        return;
+      }
+    }
+
+    this.staging.put(data, offset, length);
+  }
+
+  private void flush() throws IOException {
+    if (this.staging.position() == 0) {
+      return;
+    }
+
+    this.staging.flip();
+    this.writeFully(this.staging);
+    this.staging.clear();
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      this.position += this.channel.write(buffer, this.position);
+    }
+  }
+
+  // Bands the printer confirmed, whose last chunk the writer handed to the
+  // transport
+  private void advanceAcks() throws IOException {
+    final int before = this.ackedBands;
+    final int confirmed = Math.min(this.bands, this.conn.getBandsConfirmed());
+
+    while (this.ackedBands < confirmed && this.conn.isWritten(this.bandTickets[this.ackedBands])) {
+      this.ackedBands++;
+    }
+
+    if (this.ackedBands != before) {
+      JobSpool.writeAcked(this.channel, this.ackedBands);
+    }
+  }
+
+  private void fail(IOException e) {
+    Log.e(TAG, "Spooling " + this.spoolId + " stopped: " + e.getMessage(), e);
+    this.failed = true;
+  }
+}
@@ -0,0 +1,67 @@
+package com.reactnativethermalprinter.spool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A spooled job, memory-mapped: its complete bands and how far the last
+ * transfer got.
+ */
+public class SpooledJob {
+
+  public final String spoolId;
+  public final String printerKey;
+  public final long createdMillis;
+
+  private final boolean printed;
+  private final int ackedBands;
+
+  private final int[] offsets; // of each band's length field
+  private final ByteBuffer data;
+
+  SpooledJob(String spoolId, String printerKey, long createdMillis, boolean printed, int ackedBands, int[] offsets,
+      ByteBuffer data) {
+    this.spoolId = spoolId;
+    this.printerKey = printerKey;
+    this.createdMillis = createdMillis;
+    this.printed = printed;
+    this.ackedBands = ackedBands;
+    this.offsets = offsets;
+    this.data = data;
+  }
+
+  // The printer confirmed the whole job
+  public boolean isPrinted() {
+    return this.printed;
+  }
+
+  // Bands the transport accepted during the last transfer
+  public int getAckedBands() {
+    return this.ackedBands;
+  }
+
+  public int getBandCount() {
+    return this.offsets.length;
+  }
+
+  public long getByteCount() {
+    long total = 0;
+    for (int i = 0; i < this.offsets.length; i++) {
+      total += this.data.getInt(this.offsets[i]);
+    }
+    return total;
+  }
+
+  // Copy of band i: the connection's writer keeps a reference until it is
+  // sent, so each band gets its own array
+  public byte[] getBand(int i) {
+    final int pos = this.offsets[i];
+
+    byte[] band = new byte[this.data.getInt(pos)];
+
+    ByteBuffer view = this.data.duplicate();
+    view.position(pos + 4);
+    view.get(band);
+
+    return band;
+  }
+}
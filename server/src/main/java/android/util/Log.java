@@ -0,0 +1,44 @@
+package android.util;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The part of android.util.Log the shared printing core uses, on
+ * java.util.logging (one logger per tag), so those sources compile
+ * unchanged on a plain JVM.
+ */
+public final class Log {
+
+  private Log() {
+  }
+
+  public static int d(String tag, String msg) {
+    return log(Level.FINE, tag, msg, null);
+  }
+
+  public static int i(String tag, String msg) {
+    return log(Level.INFO, tag, msg, null);
+  }
+
+  public static int w(String tag, String msg) {
+    return log(Level.WARNING, tag, msg, null);
+  }
+
+  public static int w(String tag, String msg, Throwable tr) {
+    return log(Level.WARNING, tag, msg, tr);
+  }
+
+  public static int e(String tag, String msg) {
+    return log(Level.SEVERE, tag, msg, null);
+  }
+
+  public static int e(String tag, String msg, Throwable tr) {
+    return log(Level.SEVERE, tag, msg, tr);
+  }
+
+  private static int log(Level level, String tag, String msg, Throwable tr) {
+    Logger.getLogger(tag).log(level, msg, tr);
+    return 0;
+  }
+}
@@ -0,0 +1,152 @@
+package com.reactnativethermalprinter.server;
+
+import com.reactnativethermalprinter.core.Dither;
+import com.reactnativethermalprinter.core.MemoryGovernor;
+import com.reactnativethermalprinter.core.PackedBitmap;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Request bodies to packed 1-bit images: PNG (or any format ImageIO reads)
+ * is scaled, toned and dithered like ImageProcessing does on Android;
+ * packed raster is taken as it is. Images are sized from their header
+ * first: one that would not be prepared in full within the settings'
+ * memory budget (MemoryGovernor) is refused rather than decoded, and the
+ * rest wait for their estimated peak in a shared memory allowance.
+ */
+class JobDecoder {
+
+  enum Format {
+    PNG,
+    RASTER // rows packed MSB = leftmost dot, 1 = black (GS v0 layout)
+  }
+
+  private JobDecoder() {
+  }
+
+  static PackedBitmap decode(Format format, byte[] body, int rasterWidth, PrinterSettings settings,
+      Semaphore memoryKiB) throws IOException, InterruptedException {
+    return format == Format.PNG
+        ? fromImage(body, settings, memoryKiB)
+        : fromRaster(body, rasterWidth, settings);
+  }
+
+  static PackedBitmap fromImage(byte[] encoded, PrinterSettings settings) throws IOException, InterruptedException {
+    return fromImage(encoded, settings, null);
+  }
+
+  // memoryKiB: shared by the requests preparing images at once; null = none
+  static PackedBitmap fromImage(byte[] encoded, PrinterSettings settings, Semaphore memoryKiB)
+      throws IOException, InterruptedException {
+
+    try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+      final Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+
+      if (readers == null || !readers.hasNext()) {
+        throw new IllegalArgumentException("Unreadable image");
+      }
+
+      final ImageReader reader = readers.next();
+
+      try {
+        reader.setInput(in, true, true);
+
+        final int w = reader.getWidth(0);
+        final int h = reader.getHeight(0);
+
+        final MemoryGovernor.Decision plan = MemoryGovernor.plan(w, h, settings);
+
+        // The server has no banded path: FULL or nothing
+        if (plan.plan != MemoryGovernor.Plan.FULL) {
+          throw new PayloadTooLargeException("Image " + w + " x " + h + " is too large to prepare within "
+              + (MemoryGovernor.budgetOf(settings) >> 20) + " MiB");
+        }
+
+        final int kib = (int) Math.min(Integer.MAX_VALUE, (plan.estimatedPeakBytes + 1023) >> 10);
+
+        if (memoryKiB != null) {
+          memoryKiB.acquire(kib);
+        }
+
+        try {
+          return prepare(reader.read(0), settings);
+        } finally {
+          if (memoryKiB != null) {
+            memoryKiB.release(kib);
+          }
+        }
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static PackedBitmap prepare(BufferedImage src, PrinterSettings settings) {
+    final PrinterSettings.RasterScale scale = settings.getRasterScale();
+
+    final int[] size = PackedBitmap.printSize(src.getWidth(), src.getHeight(), settings, scale);
+    final int w = size[0];
+    final int h = size[1];
+
+    // Scaled onto white: transparent areas are paper, not ink
+    BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+    Graphics2D g = img.createGraphics();
+
+    try {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+          scale != PrinterSettings.RasterScale.NORMAL
+              ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+              : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+      g.setColor(java.awt.Color.WHITE);
+      g.fillRect(0, 0, w, h);
+      g.drawImage(src, 0, 0, w, h, null);
+    } finally {
+      g.dispose();
+    }
+
+    int[] pixels = img.getRGB(0, 0, w, h, null, 0, w);
+
+    Dither.apply(pixels, w, h, settings);
+
+    return PackedBitmap.fromPixels(pixels, w, h, scale);
+  }
+
+  static PackedBitmap fromRaster(byte[] bits, int width, PrinterSettings settings) {
+    if (width <= 0 || width > settings.getPrinterWidthPx()) {
+      throw new IllegalArgumentException("Raster width must be 1-" + settings.getPrinterWidthPx() + " dots");
+    }
+
+    final int bytesPerRow = (width + 7) >> 3;
+
+    if (bits.length == 0 || bits.length % bytesPerRow != 0) {
+      throw new IllegalArgumentException("Raster size is not a multiple of " + bytesPerRow + " bytes per row");
+    }
+
+    PackedBitmap out = new PackedBitmap(width, bits.length / bytesPerRow);
+
+    System.arraycopy(bits, 0, out.bits, 0, bits.length);
+
+    // Padding bits must stay white
+    if ((width & 7) != 0) {
+      final byte mask = (byte) (0xFF00 >>> (width & 7));
+
+      for (int i = bytesPerRow - 1; i < out.bits.length; i += bytesPerRow) {
+        out.bits[i] &= mask;
+      }
+    }
+
+    return out;
+  }
+}
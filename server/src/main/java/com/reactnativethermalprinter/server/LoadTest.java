@@ -0,0 +1,299 @@
+package com.reactnativethermalprinter.server;
+
+import com.reactnativethermalprinter.core.PackedBitmap;
+import com.reactnativethermalprinter.emulator.EmulatorSettings;
+import com.reactnativethermalprinter.emulator.PrinterEmulator;
+import com.reactnativethermalprinter.metrics.HistogramSnapshot;
+import com.reactnativethermalprinter.metrics.LatencyHistogram;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Sustained jobs/sec of the print server against local PrinterEmulators:
+ * clients post one receipt round-robin over the printers and wait for each
+ * job, for a fixed time after a warm-up. Server and printers run in this
+ * process, on loopback.
+ *
+ * Options: --printers 4 --clients 8 --seconds 15 --warmup 3 --format png
+ * --height 1200 --mode RASTER_GSV0_CHUNKED --workers (printers)
+ * --bytes-per-second 0 (emulated link speed per printer, 0 = unlimited)
+ */
+public class LoadTest {
+
+  private int printers = 4;
+  private int clients = 8;
+  private int seconds = 15;
+  private int warmupSeconds = 3;
+  private String format = "png";
+  private int receiptHeight = 1200;
+  private String mode = PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED.name();
+  private int workers = 0;
+  private int bytesPerSecond = 0;
+
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+
+  private volatile boolean measuring = false;
+  private volatile boolean running = true;
+
+  public static void main(String[] args) throws Exception {
+    LoadTest test = new LoadTest();
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--printers":
+          test.printers = Integer.parseInt(args[++i]);
+          break;
+        case "--clients":
+          test.clients = Integer.parseInt(args[++i]);
+          break;
+        case "--seconds":
+          test.seconds = Integer.parseInt(args[++i]);
+          break;
+        case "--warmup":
+          test.warmupSeconds = Integer.parseInt(args[++i]);
+          break;
+        case "--format":
+          test.format = args[++i];
+          break;
+        case "--height":
+          test.receiptHeight = Integer.parseInt(args[++i]);
+          break;
+        case "--mode":
+          test.mode = args[++i].toUpperCase();
+          break;
+        case "--workers":
+          test.workers = Integer.parseInt(args[++i]);
+          break;
+        case "--bytes-per-second":
+          test.bytesPerSecond = Integer.parseInt(args[++i]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    PrintServer.quietLogging(false);
+
+    test.run();
+  }
+
+  private void run() throws Exception {
+    List<PrinterEmulator> emulators = new ArrayList<>();
+
+    for (int i = 0; i < this.printers; i++) {
+      EmulatorSettings es = new EmulatorSettings();
+      es.setBytesPerSecond(this.bytesPerSecond);
+
+      PrinterEmulator emulator = new PrinterEmulator(es);
+      emulator.start();
+      emulators.add(emulator);
+    }
+
+    PrintServer.Options options = new PrintServer.Options();
+    options.port = 0;
+    options.workers = this.workers > 0 ? this.workers : this.printers;
+    options.httpThreads = Math.max(this.clients + 2, 4);
+    options.printMode = PrinterSettings.PrintMode.valueOf(this.mode);
+
+    PrintServer server = new PrintServer(options);
+    server.start();
+
+    final String base = "http://127.0.0.1:" + server.getPort();
+
+    final byte[] body = this.receipt();
+
+    final String query = "format=" + this.format + "&wait=1"
+        + (this.format.equals("raster") ? "&width=" + settings().getPrinterWidthPx() : "");
+
+    System.out.printf(Locale.ROOT, "%d printers, %d clients, %d workers, %s %s, %d byte body%n", this.printers,
+        this.clients, options.workers, this.format, this.mode, body.length);
+
+    List<Thread> threads = new ArrayList<>();
+
+    for (int c = 0; c < this.clients; c++) {
+      final int client = c;
+
+      Thread t = new Thread(() -> this.clientLoop(client, base, query, body, emulators), "load-" + c);
+      t.start();
+      threads.add(t);
+    }
+
+    Thread.sleep(this.warmupSeconds * 1_000L);
+
+    get(base + "/stats?reset=1");
+
+    long bytesBefore = 0;
+    for (PrinterEmulator e : emulators) {
+      bytesBefore += e.getBytesReceived();
+    }
+
+    final long start = System.nanoTime();
+    this.measuring = true;
+
+    Thread.sleep(this.seconds * 1_000L);
+
+    this.measuring = false;
+    final double elapsed = (System.nanoTime() - start) / 1e9;
+
+    long bytesAfter = 0;
+    for (PrinterEmulator e : emulators) {
+      bytesAfter += e.getBytesReceived();
+    }
+
+    final String stats = get(base + "/stats");
+
+    this.running = false;
+
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    server.stop();
+
+    for (PrinterEmulator e : emulators) {
+      e.stop();
+    }
+
+    final HistogramSnapshot h = this.latency.snapshot();
+
+    System.out.printf(Locale.ROOT, "jobs: %d in %.1f s = %.1f jobs/s (%d errors)%n", this.completed.get(), elapsed,
+        this.completed.get() / elapsed, this.errors.get());
+    System.out.printf(Locale.ROOT, "latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n", h.p50Micros / 1e3,
+        h.p90Micros / 1e3, h.p99Micros / 1e3, h.maxMicros / 1e3);
+    System.out.printf(Locale.ROOT, "printers took %.1f MB/s%n", (bytesAfter - bytesBefore) / elapsed / 1e6);
+    System.out.println("server: " + stats);
+  }
+
+  private void clientLoop(int client, String base, String query, byte[] body, List<PrinterEmulator> emulators) {
+    int next = client;
+
+    while (this.running) {
+      final PrinterEmulator target = emulators.get(next++ % emulators.size());
+
+      final long start = System.nanoTime();
+
+      boolean ok;
+
+      try {
+        ok = post(base + "/print?printer=127.0.0.1:" + target.getPort() + "&" + query, body) == 200;
+      } catch (Exception e) {
+        ok = false;
+      }
+
+      if (this.measuring) {
+        if (ok) {
+          this.latency.record(System.nanoTime() - start);
+          this.completed.incrementAndGet();
+        } else {
+          this.errors.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  // Text lines, a gradient and bars: AUTO dithers each band differently
+  private byte[] receipt() throws Exception {
+    final int width = settings().getPrinterWidthPx();
+
+    BufferedImage img = new BufferedImage(width, this.receiptHeight, BufferedImage.TYPE_INT_RGB);
+
+    Graphics2D g = img.createGraphics();
+
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, width, this.receiptHeight);
+    g.setColor(Color.BLACK);
+    g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 22));
+
+    int y = 30;
+
+    for (; y < this.receiptHeight / 2; y += 28) {
+      g.drawString(String.format(Locale.ROOT, "ITEM %03d  ..........  %6.2f", y / 28, y * 0.37), 10, y);
+    }
+
+    g.setPaint(new GradientPaint(0, y, Color.BLACK, width, y + 200, Color.WHITE));
+    g.fillRect(0, y, width, 200);
+
+    g.setColor(Color.BLACK);
+
+    for (int x = 20; x < width - 20; x += 7) {
+      g.fillRect(x, y + 240, (x / 7) % 3 + 1, 120);
+    }
+
+    g.dispose();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(img, "png", out);
+
+    if (!this.format.equals("raster")) {
+      return out.toByteArray();
+    }
+
+    // Same receipt, dithered and packed client side
+    PackedBitmap packed = JobDecoder.fromImage(out.toByteArray(), settings());
+
+    return packed.bits;
+  }
+
+  private static PrinterSettings settings() {
+    return new PrinterSettings("127.0.0.1", 9100);
+  }
+
+  private static int post(String url, byte[] body) throws Exception {
+    HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+
+    c.setRequestMethod("POST");
+    c.setDoOutput(true);
+    c.setFixedLengthStreamingMode(body.length);
+
+    try (OutputStream out = c.getOutputStream()) {
+      out.write(body);
+    }
+
+    final int status = c.getResponseCode();
+
+    // Drain so the keep-alive connection is reused
+    try (InputStream in = status < 400 ? c.getInputStream() : c.getErrorStream()) {
+      if (in != null) {
+        while (in.read() >= 0) {
+        }
+      }
+    }
+
+    return status;
+  }
+
+  private static String get(String url) throws Exception {
+    HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+
+    try (InputStream in = c.getInputStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      byte[] buf = new byte[4096];
+      int n;
+
+      while ((n = in.read(buf)) > 0) {
+        out.write(buf, 0, n);
+      }
+
+      return out.toString("UTF-8");
+    }
+  }
+}
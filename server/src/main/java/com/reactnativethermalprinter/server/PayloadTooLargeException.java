@@ -0,0 +1,12 @@
+package com.reactnativethermalprinter.server;
+
+/**
+ * A request body, or the image in it, is over the server's limits
+ * (answered with 413).
+ */
+class PayloadTooLargeException extends IllegalArgumentException {
+
+  PayloadTooLargeException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,626 @@
+package com.reactnativethermalprinter.server;
+
+import android.util.Log;
+
+import com.reactnativethermalprinter.connection.FastDeviceConnection;
+import com.reactnativethermalprinter.connection.FastTcpConnection;
+import com.reactnativethermalprinter.connection.FixedPacer;
+import com.reactnativethermalprinter.connection.WriterPool;
+import com.reactnativethermalprinter.core.EscPosPrinter;
+import com.reactnativethermalprinter.core.PackedBitmap;
+import com.reactnativethermalprinter.jobs.PrintJob;
+import com.reactnativethermalprinter.jobs.PrintJobScheduler;
+import com.reactnativethermalprinter.metrics.HistogramSnapshot;
+import com.reactnativethermalprinter.metrics.MetricsRegistry;
+import com.reactnativethermalprinter.metrics.PrinterMetrics;
+import com.reactnativethermalprinter.metrics.Stage;
+import com.reactnativethermalprinter.settings.PrinterSettings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless print server: network ESC/POS printers driven by the library's
+ * core (PrintJobScheduler lanes, EscPosPrinter, FastTcpConnection) from
+ * jobs posted over HTTP.
+ *
+ * POST /print?printer=host[:port] takes a PNG body (format=png, default) or
+ * packed rows (format=raster&width=dots). Optional: cut, drawer, feed,
+ * mode (PrintMode), dither (DitherMode), deadlineMs, and wait=1 to answer
+ * once the job is printed instead of when it is queued.
+ *
+ * GET /stats: job counters and per-printer stage latencies (reset=1 clears
+ * them).
+ *
+ * Images are decoded and dithered on the HTTP threads, so printer lanes
+ * only encode and send. Each printer keeps one open connection.
+ *
+ * Listens on loopback unless told otherwise (--bind): anyone who can reach
+ * the port can print to any printer the server can reach. Bodies over
+ * maxBodyBytes and images that would not fit the image memory budget are
+ * refused with 413 before they are decoded.
+ */
+public class PrintServer {
+
+  private static final String TAG = "RNTP.PrintServer";
+
+  private static final int DEFAULT_HTTP_PORT = 8631;
+  private static final int DEFAULT_HTTP_THREADS = 32;
+  private static final int DEFAULT_MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+  public static class Options {
+    public String bindAddress = "127.0.0.1"; // "0.0.0.0" = every interface
+    public int port = DEFAULT_HTTP_PORT; // 0 = ephemeral (see getPort())
+    public int httpThreads = DEFAULT_HTTP_THREADS; // also bounds wait=1 requests in flight
+    public int workers = PrintJobScheduler.DEFAULT_WORKERS;
+    public int laneDepth = PrintJobScheduler.DEFAULT_LANE_DEPTH;
+
+    public int maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+    // Peak memory one image may take to prepare (MemoryGovernor estimate);
+    // 0 = MemoryGovernor's default, a quarter of the heap
+    public long imageBudgetBytes = 0;
+
+    // Defaults of jobs that do not say otherwise
+    public int printerDpi = 203;
+    public int printerWidthMm = 80;
+    public int timeoutMs = 4000;
+    public PrinterSettings.PrintMode printMode = PrinterSettings.PrintMode.RASTER_GSV0_CHUNKED;
+    public PrinterSettings.DitherMode ditherMode = PrinterSettings.DitherMode.AUTO;
+    public boolean useStatusReadBack = true;
+  }
+
+  private final Options options;
+
+  // Images being prepared at once share half the heap (or one image
+  // budget, if larger); KiB, so a permit count fits an int
+  private final Semaphore decodeMemoryKiB;
+
+  private final PrintJobScheduler scheduler;
+  private final MetricsRegistry metrics = new MetricsRegistry();
+
+  // One connection per printer key; a lane runs one job at a time, so no
+  // two workers share one
+  private final Map<String, FastDeviceConnection> connections = new HashMap<>();
+
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong succeeded = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  private volatile long statsSinceNanos = System.nanoTime();
+
+  private HttpServer http;
+  private ExecutorService httpExecutor;
+
+  public PrintServer(Options options) {
+    this.options = options;
+    this.scheduler = new PrintJobScheduler(options.workers, options.laneDepth);
+
+    final long decodeBytes = Math.max(Runtime.getRuntime().maxMemory() / 2, options.imageBudgetBytes);
+
+    this.decodeMemoryKiB = new Semaphore((int) Math.min(Integer.MAX_VALUE, decodeBytes >> 10));
+  }
+
+  // ----------------------------------------------------------
+  // LIFECYCLE
+  // ----------------------------------------------------------
+  public synchronized void start() throws IOException {
+    // A writer per connection a worker may be printing on
+    WriterPool.setMaxThreads(Math.max(WriterPool.DEFAULT_THREADS, this.options.workers));
+
+    this.http = HttpServer.create(new InetSocketAddress(this.options.bindAddress, this.options.port), 0);
+
+    this.httpExecutor = Executors.newFixedThreadPool(Math.max(1, this.options.httpThreads));
+
+    this.http.setExecutor(this.httpExecutor);
+    this.http.createContext("/print", this::handlePrint);
+    this.http.createContext("/stats", this::handleStats);
+    this.http.start();
+
+    Log.i(TAG, "Listening on " + this.options.bindAddress + ":" + getPort() + "; " + this.options.workers
+        + " workers");
+  }
+
+  public synchronized void stop() {
+    if (this.http != null) {
+      this.http.stop(0);
+      this.httpExecutor.shutdownNow();
+      this.http = null;
+    }
+
+    this.scheduler.shutdown();
+
+    synchronized (this.connections) {
+      for (FastDeviceConnection conn : this.connections.values()) {
+        conn.close();
+      }
+      this.connections.clear();
+    }
+  }
+
+  public int getPort() {
+    return this.http == null ? -1 : this.http.getAddress().getPort();
+  }
+
+  // ----------------------------------------------------------
+  // POST /print
+  // ----------------------------------------------------------
+  private void handlePrint(HttpExchange ex) throws IOException {
+    try {
+      if (!"POST".equals(ex.getRequestMethod())) {
+        respond(ex, 405, "{\"error\":\"POST only\"}");
+        return;
+      }
+
+      final Map<String, String> q = query(ex);
+
+      final PrinterSettings settings;
+      final PackedBitmap image;
+
+      try {
+        settings = settingsFor(q);
+
+        final JobDecoder.Format format = JobDecoder.Format.valueOf(q.getOrDefault("format", "png").toUpperCase());
+
+        image = JobDecoder.decode(format, readBody(ex, this.options.maxBodyBytes), intParam(q, "width", 0),
+            settings, this.decodeMemoryKiB);
+
+      } catch (PayloadTooLargeException e) {
+        respond(ex, 413, "{\"error\":" + json(e.getMessage()) + "}");
+        return;
+      } catch (IllegalArgumentException | IOException e) {
+        respond(ex, 400, "{\"error\":" + json(e.getMessage()) + "}");
+        return;
+      }
+
+      final boolean cut = boolParam(q, "cut", true);
+      final boolean drawer = boolParam(q, "drawer", false);
+      final int feed = intParam(q, "feed", 3);
+
+      final CompletableFuture<Throwable> done = new CompletableFuture<>();
+
+      final PrintJob job;
+
+      try {
+        job = this.scheduler.submit(settings.getPrinterKey(), intParam(q, "deadlineMs", 0),
+            j -> this.print(j, settings, image, cut, drawer, feed),
+            (j, error) -> {
+              (error == null ? this.succeeded : this.failed).incrementAndGet();
+              done.complete(error);
+            });
+      } catch (RejectedExecutionException e) {
+        this.rejected.incrementAndGet();
+        respond(ex, 429, "{\"error\":" + json(e.getMessage()) + "}");
+        return;
+      }
+
+      this.submitted.incrementAndGet();
+
+      if (!boolParam(q, "wait", false)) {
+        respond(ex, 202, "{\"jobId\":" + json(job.getId()) + "}");
+        return;
+      }
+
+      final Throwable error = done.get();
+
+      if (error == null) {
+        respond(ex, 200, "{\"jobId\":" + json(job.getId()) + ",\"success\":true}");
+      } else {
+        respond(ex, 500, "{\"jobId\":" + json(job.getId()) + ",\"success\":false,\"error\":"
+            + json(String.valueOf(error.getMessage())) + "}");
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      respond(ex, 503, "{\"error\":\"Server stopping\"}");
+    } catch (ExecutionException | RuntimeException e) {
+      Log.e(TAG, "Print request failed: " + e.getMessage(), e);
+      respond(ex, 500, "{\"error\":" + json(String.valueOf(e.getMessage())) + "}");
+    }
+  }
+
+  // Runs on the printer's lane
+  private void print(PrintJob job, PrinterSettings settings, PackedBitmap image, boolean cut, boolean drawer,
+      int feed) throws Exception {
+
+    final PrinterMetrics m = this.metrics.forPrinter(settings.getPrinterKey());
+
+    boolean ok = false;
+
+    FastDeviceConnection conn = null;
+
+    try {
+      final long connectStart = System.nanoTime();
+
+      conn = this.connectionFor(settings, m);
+
+      m.recordSince(Stage.CONNECT, connectStart);
+
+      conn.resetDelivery();
+      conn.setMetrics(m);
+
+      // Cancel / deadline on a stuck write: close the socket under it
+      job.setAbortHandler(conn::abort);
+
+      EscPosPrinter printer = new EscPosPrinter(settings, conn);
+      printer.setJob(job);
+      printer.setMetrics(m);
+
+      if (!printer.printPrepared(image, cut, drawer, feed)) {
+        throw new Exception("Printing failed");
+      }
+
+      ok = true;
+
+    } finally {
+
+      job.setAbortHandler(null);
+
+      if (conn != null) {
+        job.addBytes(conn.getBytesQueued(), conn.getBytesDelivered());
+
+        // Reconnect for the next job rather than trust this one
+        if (!ok) {
+          this.discard(settings.getPrinterKey(), conn);
+        }
+      }
+
+      m.record(Stage.JOB, System.nanoTime() - job.getSubmittedNanos());
+      m.recordJob(ok);
+    }
+  }
+
+  // ----------------------------------------------------------
+  // CONNECTIONS
+  // ----------------------------------------------------------
+  // Cached per printer; a socket the printer closed (restart, idle drop)
+  // still looks connected, so it is probed before each job
+  private FastDeviceConnection connectionFor(PrinterSettings settings, PrinterMetrics m) throws Exception {
+    final String key = settings.getPrinterKey();
+
+    FastDeviceConnection conn;
+
+    synchronized (this.connections) {
+      conn = this.connections.get(key);
+    }
+
+    if (conn != null && conn.checkAlive(conn.getLivenessTimeoutMs())) {
+      return conn;
+    }
+
+    if (conn != null) {
+      Log.i(TAG, "Connection to " + key + " is stale; reconnecting");
+
+      m.incrementRetries();
+
+      this.discard(key, conn);
+    }
+
+    conn = new FastTcpConnection(
+        settings.getIpAddress(),
+        settings.getIpPort(),
+        settings.getTimeoutMs(),
+        settings.getPacketSize(),
+        settings.getUseQueueForWrites(),
+        settings.getPacketMicroDelayMs());
+
+    if (settings.getPacingMode() == PrinterSettings.PacingMode.FIXED) {
+      conn.setPacer(new FixedPacer(settings.getPacketMicroDelayMs() * 1_000_000L));
+    }
+
+    conn.connect();
+
+    synchronized (this.connections) {
+      this.connections.put(key, conn);
+    }
+
+    return conn;
+  }
+
+  private void discard(String key, FastDeviceConnection conn) {
+    synchronized (this.connections) {
+      if (this.connections.get(key) == conn) {
+        this.connections.remove(key);
+      }
+    }
+
+    conn.close();
+  }
+
+  // host[:port] plus per-job overrides of the server defaults
+  private PrinterSettings settingsFor(Map<String, String> q) {
+    final String printer = q.get("printer");
+
+    if (printer == null || printer.isEmpty()) {
+      throw new IllegalArgumentException("Missing printer=host[:port]");
+    }
+
+    final int colon = printer.lastIndexOf(':');
+
+    PrinterSettings settings = colon < 0
+        ? new PrinterSettings(printer, 9100)
+        : new PrinterSettings(printer.substring(0, colon), Integer.parseInt(printer.substring(colon + 1)));
+
+    settings.setPrinterDpi(intParam(q, "dpi", this.options.printerDpi));
+    settings.setPrinterWidthMm(intParam(q, "widthMm", this.options.printerWidthMm));
+    settings.setTimeoutMs(this.options.timeoutMs);
+    settings.setUseStatusReadBack(this.options.useStatusReadBack);
+    settings.setMemoryBudgetBytes(this.options.imageBudgetBytes);
+
+    settings.setPrintMode(q.containsKey("mode")
+        ? PrinterSettings.PrintMode.valueOf(q.get("mode").toUpperCase())
+        : this.options.printMode);
+
+    settings.setDitherMode(q.containsKey("dither")
+        ? PrinterSettings.DitherMode.valueOf(q.get("dither").toUpperCase())
+        : this.options.ditherMode);
+
+    return settings;
+  }
+
+  // ----------------------------------------------------------
+  // GET /stats
+  // ----------------------------------------------------------
+  private void handleStats(HttpExchange ex) throws IOException {
+    final boolean reset = boolParam(query(ex), "reset", false);
+
+    final double seconds = (System.nanoTime() - this.statsSinceNanos) / 1e9;
+
+    StringBuilder out = new StringBuilder(512);
+
+    out.append("{\"seconds\":").append(String.format(Locale.ROOT, "%.3f", seconds));
+    out.append(",\"submitted\":").append(this.submitted.get());
+    out.append(",\"succeeded\":").append(this.succeeded.get());
+    out.append(",\"failed\":").append(this.failed.get());
+    out.append(",\"rejected\":").append(this.rejected.get());
+    out.append(",\"jobsPerSecond\":")
+        .append(String.format(Locale.ROOT, "%.2f", this.succeeded.get() / Math.max(seconds, 1e-3)));
+    out.append(",\"printers\":{");
+
+    boolean first = true;
+
+    for (PrinterMetrics m : this.metrics.getAll()) {
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+
+      out.append(json(m.getPrinterKey())).append(":{");
+      out.append("\"jobs\":").append(m.getJobs());
+      out.append(",\"failures\":").append(m.getFailures());
+      out.append(",\"bytesSent\":").append(m.getBytesSent());
+      out.append(",\"queued\":").append(this.scheduler.getQueuedJobCount(m.getPrinterKey()));
+      out.append(",\"stages\":{");
+
+      boolean firstStage = true;
+
+      for (Map.Entry<Stage, HistogramSnapshot> e : m.snapshotStages().entrySet()) {
+        if (!firstStage) {
+          out.append(',');
+        }
+        firstStage = false;
+
+        HistogramSnapshot h = e.getValue();
+
+        out.append(json(e.getKey().key)).append(":{");
+        out.append("\"count\":").append(h.count);
+        out.append(",\"p50Ms\":").append(h.p50Micros / 1_000.0);
+        out.append(",\"p99Ms\":").append(h.p99Micros / 1_000.0);
+        out.append(",\"maxMs\":").append(h.maxMicros / 1_000.0);
+        out.append('}');
+      }
+
+      out.append("}}");
+    }
+
+    out.append("}}");
+
+    if (reset) {
+      this.metrics.reset();
+      this.submitted.set(0);
+      this.succeeded.set(0);
+      this.failed.set(0);
+      this.rejected.set(0);
+      this.statsSinceNanos = System.nanoTime();
+    }
+
+    respond(ex, 200, out.toString());
+  }
+
+  // ----------------------------------------------------------
+  // HTTP HELPERS
+  // ----------------------------------------------------------
+  private static Map<String, String> query(HttpExchange ex) throws UnsupportedEncodingException {
+    Map<String, String> out = new HashMap<>();
+
+    final String raw = ex.getRequestURI().getRawQuery();
+
+    if (raw == null) {
+      return out;
+    }
+
+    for (String pair : raw.split("&")) {
+      final int eq = pair.indexOf('=');
+
+      if (eq > 0) {
+        out.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+            URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+      } else if (!pair.isEmpty()) {
+        out.put(URLDecoder.decode(pair, "UTF-8"), "1");
+      }
+    }
+
+    return out;
+  }
+
+  private static int intParam(Map<String, String> q, String name, int fallback) {
+    final String v = q.get(name);
+
+    try {
+      return v == null ? fallback : Integer.parseInt(v);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be a number");
+    }
+  }
+
+  private static boolean boolParam(Map<String, String> q, String name, boolean fallback) {
+    final String v = q.get(name);
+    return v == null ? fallback : v.equals("1") || v.equalsIgnoreCase("true");
+  }
+
+  // Content-Length is checked up front; chunked bodies as they arrive
+  private static byte[] readBody(HttpExchange ex, int maxBytes) throws IOException {
+    final String length = ex.getRequestHeaders().getFirst("Content-Length");
+
+    if (length != null) {
+      try {
+        if (Long.parseLong(length.trim()) > maxBytes) {
+          throw new PayloadTooLargeException("Body is over " + maxBytes + " bytes");
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Bad Content-Length");
+      }
+    }
+
+    try (InputStream in = ex.getRequestBody()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+
+      byte[] buf = new byte[16 * 1024];
+      int n;
+
+      while ((n = in.read(buf)) > 0) {
+        if (out.size() + n > maxBytes) {
+          throw new PayloadTooLargeException("Body is over " + maxBytes + " bytes");
+        }
+        out.write(buf, 0, n);
+      }
+
+      return out.toByteArray();
+    }
+  }
+
+  private static void respond(HttpExchange ex, int status, String body) throws IOException {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+    ex.getResponseHeaders().set("Content-Type", "application/json");
+    ex.sendResponseHeaders(status, bytes.length);
+
+    try (OutputStream out = ex.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  static String json(String s) {
+    if (s == null) {
+      return "null";
+    }
+
+    StringBuilder out = new StringBuilder(s.length() + 2).append('"');
+
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append(String.format("\\u%04x", (int) c));
+      } else {
+        out.append(c);
+      }
+    }
+
+    return out.append('"').toString();
+  }
+
+  // ----------------------------------------------------------
+  // MAIN: --bind --port --workers --lane-depth --http-threads --dpi
+  // --width-mm --mode --dither --max-body-mb --image-budget-mb --no-status
+  // --verbose
+  // ----------------------------------------------------------
+  public static void main(String[] args) throws Exception {
+    Options options = new Options();
+
+    boolean verbose = false;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--bind":
+          options.bindAddress = args[++i];
+          break;
+        case "--port":
+          options.port = Integer.parseInt(args[++i]);
+          break;
+        case "--workers":
+          options.workers = Integer.parseInt(args[++i]);
+          break;
+        case "--lane-depth":
+          options.laneDepth = Integer.parseInt(args[++i]);
+          break;
+        case "--http-threads":
+          options.httpThreads = Integer.parseInt(args[++i]);
+          break;
+        case "--dpi":
+          options.printerDpi = Integer.parseInt(args[++i]);
+          break;
+        case "--width-mm":
+          options.printerWidthMm = Integer.parseInt(args[++i]);
+          break;
+        case "--mode":
+          options.printMode = PrinterSettings.PrintMode.valueOf(args[++i].toUpperCase());
+          break;
+        case "--dither":
+          options.ditherMode = PrinterSettings.DitherMode.valueOf(args[++i].toUpperCase());
+          break;
+        case "--max-body-mb":
+          options.maxBodyBytes = Integer.parseInt(args[++i]) * 1024 * 1024;
+          break;
+        case "--image-budget-mb":
+          options.imageBudgetBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+          break;
+        case "--no-status":
+          options.useStatusReadBack = false;
+          break;
+        case "--verbose":
+          verbose = true;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    quietLogging(verbose);
+
+    final PrintServer server = new PrintServer(options);
+
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+
+    server.start();
+
+    System.out.println("Print server on http://" + options.bindAddress + ":" + server.getPort() + "/print");
+  }
+
+  // The core logs every job at INFO
+  static void quietLogging(boolean verbose) {
+    Logger.getLogger("").setLevel(verbose ? Level.INFO : Level.WARNING);
+  }
+}
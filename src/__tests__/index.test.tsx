@@ -15,6 +15,27 @@ jest.mock('react-native', () => {
   RN.NativeModules.ThermalPrinterModule = {
     printTcp: jest.fn(),
     printBluetooth: jest.fn(),
+    configureConnectionPool: jest.fn(),
+    configureScheduler: jest.fn(),
+    enqueueBase64Image: jest.fn(),
+    enqueueSegments: jest.fn(),
+    cancelJob: jest.fn(),
+    printBatch: jest.fn(),
+    startEmulator: jest.fn(),
+    stopEmulator: jest.fn(),
+    runBenchmark: jest.fn(),
+    getMetrics: jest.fn(),
+    setMetricsEventInterval: jest.fn(),
+    exportTrace: jest.fn(),
+    calibratePrinter: jest.fn(),
+    getPrinterProfiles: jest.fn(),
+    clearPrinterProfile: jest.fn(),
+    getPrinterCapabilities: jest.fn(),
+    configureMemoryBudget: jest.fn(),
+    configureSpool: jest.fn(),
+    getSpooledJobs: jest.fn(),
+    replaySpooledJob: jest.fn(),
+    deleteSpooledJob: jest.fn(),
   };
 
   return RN;
@@ -207,4 +228,358 @@ describe('React Native Thermal Printer Module', () => {
       );
     });
   });
+
+  describe('configureConnectionPool', () => {
+    it('should use the default pool config when no args are passed', async () => {
+      await ReactNativeThermalPrinter.configureConnectionPool();
+
+      expect(
+        NativeModules.ThermalPrinterModule.configureConnectionPool
+      ).toBeCalledWith(30000, 4);
+    });
+
+    it('should pass args to the native module', async () => {
+      await ReactNativeThermalPrinter.configureConnectionPool({
+        idleTimeoutMs: 5000,
+        maxConnections: 2,
+      });
+
+      expect(
+        NativeModules.ThermalPrinterModule.configureConnectionPool
+      ).toBeCalledWith(5000, 2);
+    });
+  });
+
+  describe('enqueueImage', () => {
+    it('should enqueue over TCP when no mac address is passed', async () => {
+      const defaultConfig = ReactNativeThermalPrinter.defaultConfig;
+
+      await ReactNativeThermalPrinter.enqueueImage({
+        payload: 'abc',
+        ip: '1.1.1.1',
+      });
+
+      expect(
+        NativeModules.ThermalPrinterModule.enqueueBase64Image
+      ).toBeCalledWith(
+        'TCP',
+        '1.1.1.1',
+        defaultConfig.port,
+        null,
+        defaultConfig.timeout,
+        'abc',
+        defaultConfig.autoCut,
+        defaultConfig.openCashbox,
+        defaultConfig.mmFeedPaper,
+        defaultConfig.printerDpi,
+        defaultConfig.printerWidthMM,
+        defaultConfig.printerNbrCharactersPerLine,
+        0,
+        'NORMAL',
+        null
+      );
+    });
+
+    it('should pass the job deadline', async () => {
+      await ReactNativeThermalPrinter.enqueueImage({
+        payload: 'abc',
+        deadlineMs: 15000,
+      });
+
+      const calls =
+        NativeModules.ThermalPrinterModule.enqueueBase64Image.mock.calls;
+
+      expect(calls[calls.length - 1][12]).toBe(15000);
+    });
+
+    it('should pass the raster scale', async () => {
+      await ReactNativeThermalPrinter.enqueueImage({
+        payload: 'abc',
+        rasterScale: 'QUADRUPLE',
+      });
+
+      const calls =
+        NativeModules.ThermalPrinterModule.enqueueBase64Image.mock.calls;
+
+      expect(calls[calls.length - 1][13]).toBe('QUADRUPLE');
+    });
+
+    it('should pass the tone', async () => {
+      const tone = { gamma: 1.4, whitePoint: 230 };
+
+      await ReactNativeThermalPrinter.enqueueImage({ payload: 'abc', tone });
+
+      const calls =
+        NativeModules.ThermalPrinterModule.enqueueBase64Image.mock.calls;
+
+      expect(calls[calls.length - 1][14]).toEqual(tone);
+    });
+
+    it('should enqueue over bluetooth when a mac address is passed', async () => {
+      await ReactNativeThermalPrinter.enqueueImage({
+        payload: 'abc',
+        macAddress: '00:11:22:33:44:55',
+      });
+
+      expect(
+        NativeModules.ThermalPrinterModule.enqueueBase64Image
+      ).toHaveBeenLastCalledWith(
+        'BLUETOOTH',
+        null,
+        expect.any(Number),
+        '00:11:22:33:44:55',
+        expect.any(Number),
+        'abc',
+        expect.any(Boolean),
+        expect.any(Boolean),
+        expect.any(Number),
+        expect.any(Number),
+        expect.any(Number),
+        expect.any(Number),
+        0,
+        'NORMAL',
+        null
+      );
+    });
+  });
+
+  describe('enqueueSegments', () => {
+    it('should pass the segments through to the native module', async () => {
+      const defaultConfig = ReactNativeThermalPrinter.defaultConfig;
+      const segments = [
+        { type: 'image' as const, payload: 'abc' },
+        {
+          type: 'qr' as const,
+          payload: 'https://example.com',
+          align: 'center' as const,
+        },
+        {
+          type: 'barcode' as const,
+          payload: '4006381333931',
+          symbology: 'EAN13' as const,
+        },
+        { type: 'cut' as const },
+      ];
+
+      await ReactNativeThermalPrinter.enqueueSegments({
+        segments,
+        macAddress: 'AA:BB:CC:DD:EE:FF',
+      });
+
+      expect(
+        NativeModules.ThermalPrinterModule.enqueueSegments
+      ).toBeCalledWith(
+        'BLUETOOTH',
+        null,
+        defaultConfig.port,
+        'AA:BB:CC:DD:EE:FF',
+        defaultConfig.timeout,
+        segments,
+        defaultConfig.openCashbox,
+        defaultConfig.printerDpi,
+        defaultConfig.printerWidthMM,
+        defaultConfig.printerNbrCharactersPerLine,
+        0,
+        null
+      );
+    });
+  });
+
+  describe('cancelJob', () => {
+    it('should cancel the job by id', async () => {
+      await ReactNativeThermalPrinter.cancelJob('job-1');
+
+      expect(NativeModules.ThermalPrinterModule.cancelJob).toBeCalledWith(
+        'job-1'
+      );
+    });
+  });
+
+  describe('printBatch', () => {
+    it('should pass the items through to the native module', async () => {
+      const defaultConfig = ReactNativeThermalPrinter.defaultConfig;
+      const items = [
+        { type: 'image' as const, payload: 'abc', autoCut: true },
+        { type: 'text' as const, payload: 'Total: 12.00' },
+      ];
+
+      await ReactNativeThermalPrinter.printBatch({ items });
+
+      expect(NativeModules.ThermalPrinterModule.printBatch).toBeCalledWith(
+        'TCP',
+        defaultConfig.ip,
+        defaultConfig.port,
+        null,
+        defaultConfig.timeout,
+        items,
+        defaultConfig.printerDpi,
+        defaultConfig.printerWidthMM,
+        defaultConfig.printerNbrCharactersPerLine,
+        null
+      );
+    });
+  });
+
+  describe('startEmulator', () => {
+    it('should use the default emulator config when no args are passed', async () => {
+      await ReactNativeThermalPrinter.startEmulator();
+
+      expect(NativeModules.ThermalPrinterModule.startEmulator).toBeCalledWith(
+        0,
+        576,
+        4096,
+        0,
+        0,
+        0,
+        false,
+        true
+      );
+    });
+
+    it('should pass throttling args to the native module', async () => {
+      await ReactNativeThermalPrinter.startEmulator({
+        bytesPerSecond: 16000,
+        stallEveryBytes: 8192,
+        stallMs: 100,
+      });
+
+      expect(
+        NativeModules.ThermalPrinterModule.startEmulator
+      ).toHaveBeenLastCalledWith(0, 576, 4096, 16000, 8192, 100, false, true);
+    });
+  });
+
+  describe('runBenchmark', () => {
+    it('should benchmark against the emulator', async () => {
+      const defaultConfig = ReactNativeThermalPrinter.defaultConfig;
+
+      await ReactNativeThermalPrinter.runBenchmark({
+        payload: 'abc',
+        useEmulator: true,
+        packetSizes: [512, 4096],
+        emulatorBytesPerSecond: 16000,
+      });
+
+      expect(NativeModules.ThermalPrinterModule.runBenchmark).toBeCalledWith(
+        'EMULATOR',
+        defaultConfig.ip,
+        defaultConfig.port,
+        null,
+        'abc',
+        defaultConfig.printerDpi,
+        defaultConfig.printerWidthMM,
+        [],
+        [],
+        [],
+        [512, 4096],
+        [],
+        [],
+        3,
+        16000
+      );
+    });
+  });
+
+  describe('getMetrics', () => {
+    it('should not reset by default', async () => {
+      await ReactNativeThermalPrinter.getMetrics();
+
+      expect(NativeModules.ThermalPrinterModule.getMetrics).toBeCalledWith(
+        false
+      );
+    });
+
+    it('should set the metrics event interval', async () => {
+      await ReactNativeThermalPrinter.setMetricsEventInterval(5000);
+
+      expect(
+        NativeModules.ThermalPrinterModule.setMetricsEventInterval
+      ).toBeCalledWith(5000);
+    });
+  });
+
+  describe('exportTrace', () => {
+    it('should keep the trace by default', async () => {
+      await ReactNativeThermalPrinter.exportTrace();
+
+      expect(NativeModules.ThermalPrinterModule.exportTrace).toBeCalledWith(
+        false
+      );
+    });
+  });
+
+  describe('printer profiles', () => {
+    it('should calibrate with a generated pattern by default', async () => {
+      const defaultConfig = ReactNativeThermalPrinter.defaultConfig;
+
+      await ReactNativeThermalPrinter.calibratePrinter({ ip: '3.3.3.3' });
+
+      expect(
+        NativeModules.ThermalPrinterModule.calibratePrinter
+      ).toBeCalledWith(
+        'TCP',
+        '3.3.3.3',
+        defaultConfig.port,
+        null,
+        defaultConfig.timeout,
+        '',
+        defaultConfig.printerDpi,
+        defaultConfig.printerWidthMM
+      );
+    });
+
+    it('should clear a printer profile', async () => {
+      await ReactNativeThermalPrinter.clearPrinterProfile('tcp:3.3.3.3:9100');
+
+      expect(
+        NativeModules.ThermalPrinterModule.clearPrinterProfile
+      ).toBeCalledWith('tcp:3.3.3.3:9100');
+    });
+  });
+
+  describe('getPrinterCapabilities', () => {
+    it('should read the probed capabilities', async () => {
+      await ReactNativeThermalPrinter.getPrinterCapabilities();
+
+      expect(
+        NativeModules.ThermalPrinterModule.getPrinterCapabilities
+      ).toBeCalled();
+    });
+  });
+
+  describe('configureMemoryBudget', () => {
+    it('should use the default budget when no bytes are passed', async () => {
+      await ReactNativeThermalPrinter.configureMemoryBudget();
+
+      expect(
+        NativeModules.ThermalPrinterModule.configureMemoryBudget
+      ).toBeCalledWith(0);
+    });
+
+    it('should pass the budget through', async () => {
+      await ReactNativeThermalPrinter.configureMemoryBudget(32 * 1024 * 1024);
+
+      expect(
+        NativeModules.ThermalPrinterModule.configureMemoryBudget
+      ).toBeCalledWith(33554432);
+    });
+  });
+
+  describe('spool', () => {
+    it('should keep 32 printed jobs by default', async () => {
+      await ReactNativeThermalPrinter.configureSpool();
+
+      expect(NativeModules.ThermalPrinterModule.configureSpool).toBeCalledWith(
+        32
+      );
+    });
+
+    it('should reprint a whole job by default', async () => {
+      await ReactNativeThermalPrinter.replaySpooledJob('job-1-1700000000000');
+
+      expect(
+        NativeModules.ThermalPrinterModule.replaySpooledJob
+      ).toBeCalledWith('job-1-1700000000000', false);
+    });
+  });
 });
@@ -1,10 +1,228 @@
-import { NativeModules } from 'react-native';
+import { NativeEventEmitter, NativeModules } from 'react-native';
 
 type BluetoothPrinter = {
   deviceName: string;
   macAddress: string;
+  // Learned from earlier print jobs, 0 = unknown
+  lastConnectedAt: number;
+  bytesPerSecond: number;
 };
 
+type ConnectionMode = 'TCP' | 'BLUETOOTH';
+
+type JobFinishedEvent = {
+  jobId: string;
+  printerKey: string;
+  success: boolean;
+  cancelled: boolean;
+  // Bytes the job wrote / the transport took, over all reconnects
+  bytesQueued: number;
+  bytesDelivered: number;
+  // Dropped links the job was resumed after (from the last band the printer
+  // confirmed; from the start without status read-back)
+  reconnects: number;
+  // Most image buffer bytes the job held at once
+  peakMemoryBytes: number;
+  // Achieved write throughput, and time the pacer held writes back
+  bytesPerSecond: number;
+  pacingSleepMs: number;
+  error?: string;
+};
+
+type EmulatorCommandStats = {
+  count: number;
+  bytes: number;
+  ms: number;
+};
+
+type EmulatorResult = {
+  bytesReceived: number;
+  connections: number;
+  stalledMs: number;
+  pages: string[];
+  commands: { [command: string]: EmulatorCommandStats };
+};
+
+type PrintMode =
+  | 'RASTER_GSV0'
+  | 'RASTER_GSV0_STREAMED'
+  | 'RASTER_GSV0_CHUNKED'
+  | 'LEGACY_ESC';
+
+type PacingMode = 'ADAPTIVE' | 'FIXED';
+
+// GS v 0 draft resolutions: the image is prepared at 1/2 or 1/4 of the
+// dots and the printer enlarges them
+type RasterScale = 'NORMAL' | 'DOUBLE_WIDTH' | 'DOUBLE_HEIGHT' | 'QUADRUPLE';
+
+// Applied natively to luma before dithering, in this order: levels
+// (blackPoint / whitePoint, 0-255), gamma (> 1 lightens midtones),
+// contrast (multiplier around mid gray), brightness (-1 to 1)
+type Tone = {
+  brightness?: number;
+  contrast?: number;
+  gamma?: number;
+  blackPoint?: number;
+  whitePoint?: number;
+};
+
+type BenchmarkResult = {
+  printMode: PrintMode;
+  pacingMode: PacingMode;
+  chunkHeight: number;
+  packetSize: number;
+  packetMicroDelayMs: number;
+  useQueueForWrites: boolean;
+  runs: number;
+  connectMs: number;
+  ttfbMs: number;
+  totalMs: number;
+  closeMs: number;
+  bytes: number;
+  bytesPerSecond: number;
+  stalls: number;
+  threadCpuMs: number;
+  processCpuMs: number;
+  error?: string;
+};
+
+type PrinterProfile = {
+  printMode: PrintMode;
+  pacingMode: PacingMode;
+  chunkHeight: number;
+  packetSize: number;
+  packetMicroDelayMs: number;
+  useQueueForWrites: boolean;
+  bytesPerSecond: number;
+  // epoch ms
+  calibratedAt: number;
+};
+
+type PrinterCapabilities = {
+  // answers DLE EOT status queries
+  statusBack: boolean;
+  // missed a GS r drain marker: jobs end with drain delays instead
+  drainMarkerMissed: boolean;
+  // answered GS I
+  identified: boolean;
+  maker: string | null;
+  model: string | null;
+  firmware: string | null;
+  autoCutter: boolean;
+  graphics: boolean;
+  nvGraphics: boolean;
+  // safest mode the model needs; null = configured mode is used
+  printMode: PrintMode | null;
+  // 0 = no limit
+  maxChunkHeight: number;
+};
+
+type SpooledJob = {
+  spoolId: string;
+  printerKey: string;
+  // epoch ms
+  createdAt: number;
+  // false: cut off by an error or app death, can be resumed
+  printed: boolean;
+  bands: number;
+  // bands the last transfer got through
+  ackedBands: number;
+  bytes: number;
+};
+
+type BatchItem = {
+  type: 'image' | 'text';
+  // base64 image, or plain text with \n line breaks
+  payload: string;
+  autoCut?: boolean;
+  openCashbox?: boolean;
+  feedLines?: number;
+};
+
+type Align = 'left' | 'center' | 'right';
+
+type BarcodeSymbology =
+  | 'UPC_A'
+  | 'EAN13'
+  | 'EAN8'
+  | 'CODE39'
+  | 'ITF'
+  | 'CODABAR'
+  | 'CODE93'
+  | 'CODE128';
+
+// QR codes and barcodes are rendered by the printer from their data
+type Segment =
+  | { type: 'image'; payload: string }
+  | {
+      type: 'qr';
+      // up to 2953 UTF-8 bytes at L, 2331 at M, 1663 at Q, 1273 at H
+      payload: string;
+      // dots per module, 1-16
+      moduleSize?: number;
+      errorCorrection?: 'L' | 'M' | 'Q' | 'H';
+      align?: Align;
+    }
+  | {
+      type: 'barcode';
+      // CODE128 without a "{A" / "{B" / "{C" prefix is sent as code set B
+      payload: string;
+      symbology: BarcodeSymbology;
+      // dots, 1-255
+      height?: number;
+      // dots per narrow bar, 2-6
+      moduleWidth?: number;
+      // print the human readable text below
+      hri?: boolean;
+      align?: Align;
+    }
+  | {
+      type: 'text';
+      payload: string;
+      align?: Align;
+      bold?: boolean;
+      // magnification, 1-8
+      size?: number;
+    }
+  | { type: 'feed'; lines?: number }
+  | { type: 'cut'; partial?: boolean };
+
+type BatchItemResult = {
+  success: boolean;
+  error?: string;
+};
+
+type Stage =
+  | 'decode'
+  | 'scale'
+  | 'dither'
+  | 'encode'
+  | 'connect'
+  | 'write'
+  | 'drain'
+  | 'close'
+  | 'job';
+
+type StageLatency = {
+  count: number;
+  meanMs: number;
+  p50Ms: number;
+  p90Ms: number;
+  p99Ms: number;
+  maxMs: number;
+};
+
+type PrinterMetrics = {
+  jobs: number;
+  failures: number;
+  bytesSent: number;
+  retries: number;
+  stages: { [stage in Stage]?: StageLatency };
+};
+
+// Keyed by printer (tcp:ip:port or bt:MAC)
+type MetricsSnapshot = { [printerKey: string]: PrinterMetrics };
+
 type NativeModuleType = typeof NativeModules & {
   ThermalPrinterModule: {
     printTcp(
@@ -36,6 +254,104 @@ type NativeModuleType = typeof NativeModules & {
       useEscAsteriskCommand: boolean
     ): Promise<void>;
     getBluetoothDeviceList(): Promise<BluetoothPrinter[]>;
+    configureConnectionPool(
+      idleTimeoutMs: number,
+      maxConnections: number
+    ): Promise<boolean>;
+    enqueueBase64Image(
+      connectionMode: ConnectionMode,
+      ip: string | null,
+      port: number,
+      macAddress: string | null,
+      timeout: number,
+      base64Image: string,
+      autoCut: boolean,
+      openCashbox: boolean,
+      mmFeedPaper: number,
+      printerDpi: number,
+      printerWidthMM: number,
+      printerNbrCharactersPerLine: number,
+      deadlineMs: number,
+      rasterScale: RasterScale,
+      tone: Tone | null
+    ): Promise<string>;
+    enqueueSegments(
+      connectionMode: ConnectionMode,
+      ip: string | null,
+      port: number,
+      macAddress: string | null,
+      timeout: number,
+      segments: Segment[],
+      openCashbox: boolean,
+      printerDpi: number,
+      printerWidthMM: number,
+      printerNbrCharactersPerLine: number,
+      deadlineMs: number,
+      tone: Tone | null
+    ): Promise<string>;
+    cancelJob(jobId: string): Promise<boolean>;
+    printBatch(
+      connectionMode: ConnectionMode,
+      ip: string | null,
+      port: number,
+      macAddress: string | null,
+      timeout: number,
+      items: BatchItem[],
+      printerDpi: number,
+      printerWidthMM: number,
+      printerNbrCharactersPerLine: number,
+      tone: Tone | null
+    ): Promise<BatchItemResult[]>;
+    configureScheduler(workers: number, laneDepth: number): Promise<boolean>;
+    startEmulator(
+      port: number,
+      dotsPerLine: number,
+      receiveBufferBytes: number,
+      bytesPerSecond: number,
+      stallEveryBytes: number,
+      stallMs: number,
+      paperEnd: boolean,
+      answerStatus: boolean
+    ): Promise<number>;
+    stopEmulator(): Promise<EmulatorResult>;
+    runBenchmark(
+      connectionMode: ConnectionMode | 'EMULATOR',
+      ip: string | null,
+      port: number,
+      macAddress: string | null,
+      base64Image: string,
+      printerDpi: number,
+      printerWidthMM: number,
+      printModes: PrintMode[],
+      pacingModes: PacingMode[],
+      chunkHeights: number[],
+      packetSizes: number[],
+      packetMicroDelaysMs: number[],
+      useQueueForWrites: boolean[],
+      iterations: number,
+      emulatorBytesPerSecond: number
+    ): Promise<BenchmarkResult[]>;
+    getMetrics(reset: boolean): Promise<MetricsSnapshot>;
+    setMetricsEventInterval(intervalMs: number): Promise<boolean>;
+    exportTrace(clear: boolean): Promise<string>;
+    calibratePrinter(
+      connectionMode: ConnectionMode,
+      ip: string | null,
+      port: number,
+      macAddress: string | null,
+      timeout: number,
+      base64Image: string,
+      printerDpi: number,
+      printerWidthMM: number
+    ): Promise<PrinterProfile & { probes: number }>;
+    getPrinterProfiles(): Promise<Record<string, PrinterProfile>>;
+    clearPrinterProfile(printerKey: string): Promise<boolean>;
+    getPrinterCapabilities(): Promise<Record<string, PrinterCapabilities>>;
+    configureMemoryBudget(bytes: number): Promise<boolean>;
+    configureSpool(maxJobs: number): Promise<boolean>;
+    getSpooledJobs(): Promise<SpooledJob[]>;
+    replaySpooledJob(spoolId: string, resume: boolean): Promise<boolean>;
+    deleteSpooledJob(spoolId: string): Promise<boolean>;
   };
 };
 
@@ -160,9 +476,431 @@ const getBluetoothDeviceList = (): Promise<BluetoothPrinter[]> => {
   return ThermalPrinterModule.getBluetoothDeviceList();
 };
 
+interface ConnectionPoolInterface {
+  idleTimeoutMs: number;
+  maxConnections: number;
+}
+
+const defaultConnectionPoolConfig: ConnectionPoolInterface = {
+  idleTimeoutMs: 30000,
+  maxConnections: 4,
+};
+
+const configureConnectionPool = (
+  args: Partial<ConnectionPoolInterface> = {}
+): Promise<boolean> => {
+  const { idleTimeoutMs, maxConnections } = Object.assign(
+    {},
+    defaultConnectionPoolConfig,
+    args
+  );
+
+  return ThermalPrinterModule.configureConnectionPool(
+    idleTimeoutMs,
+    maxConnections
+  );
+};
+
+interface SchedulerInterface {
+  // threads kept warm; the pool grows to one per printer with jobs
+  workers: number;
+  laneDepth: number;
+}
+
+const defaultSchedulerConfig: SchedulerInterface = {
+  workers: 3,
+  laneDepth: 32,
+};
+
+const configureScheduler = (
+  args: Partial<SchedulerInterface> = {}
+): Promise<boolean> => {
+  const { workers, laneDepth } = Object.assign(
+    {},
+    defaultSchedulerConfig,
+    args
+  );
+
+  return ThermalPrinterModule.configureScheduler(workers, laneDepth);
+};
+
+// Queues a base64 image on the printer's lane and resolves with the job id
+// right away; completion is reported through onJobFinished.
+// Bluetooth is used when a macAddress is given, TCP otherwise.
+// deadlineMs (0 = none) cancels the job if it has not finished in time.
+// rasterScale trades resolution for speed on slips such as kitchen tickets.
+// tone fixes too dark / washed out images without JS-side image work.
+const enqueueImage = (
+  args: Partial<PrintTcpInterface & PrintBluetoothInterface> &
+    Pick<PrinterInterface, 'payload'> & {
+      deadlineMs?: number;
+      rasterScale?: RasterScale;
+      tone?: Tone;
+    }
+): Promise<string> => {
+  const {
+    macAddress,
+    ip,
+    port,
+    timeout,
+    payload,
+    autoCut,
+    openCashbox,
+    mmFeedPaper,
+    printerDpi,
+    printerWidthMM,
+    printerNbrCharactersPerLine,
+  } = getConfig(args);
+
+  const useBluetooth = !!args.macAddress;
+
+  return ThermalPrinterModule.enqueueBase64Image(
+    useBluetooth ? 'BLUETOOTH' : 'TCP',
+    useBluetooth ? null : ip,
+    port,
+    useBluetooth ? macAddress : null,
+    timeout,
+    payload,
+    autoCut,
+    openCashbox,
+    mmFeedPaper,
+    printerDpi,
+    printerWidthMM,
+    printerNbrCharactersPerLine,
+    args.deadlineMs ?? 0,
+    args.rasterScale ?? 'NORMAL',
+    args.tone ?? null
+  );
+};
+
+// Like enqueueImage, for a receipt made of segments printed top to bottom.
+// Only the image segments are sent as raster. Nothing is cut unless a
+// 'cut' segment says so.
+const enqueueSegments = (
+  args: Partial<PrintTcpInterface & PrintBluetoothInterface> & {
+    segments: Segment[];
+    deadlineMs?: number;
+    tone?: Tone;
+  }
+): Promise<string> => {
+  const {
+    macAddress,
+    ip,
+    port,
+    timeout,
+    openCashbox,
+    printerDpi,
+    printerWidthMM,
+    printerNbrCharactersPerLine,
+  } = getConfig(args);
+
+  const useBluetooth = !!args.macAddress;
+
+  return ThermalPrinterModule.enqueueSegments(
+    useBluetooth ? 'BLUETOOTH' : 'TCP',
+    useBluetooth ? null : ip,
+    port,
+    useBluetooth ? macAddress : null,
+    timeout,
+    args.segments,
+    openCashbox,
+    printerDpi,
+    printerWidthMM,
+    printerNbrCharactersPerLine,
+    args.deadlineMs ?? 0,
+    args.tone ?? null
+  );
+};
+
+// Prints items in order over one connection, with one printer init and one
+// drain for the whole batch. Resolves with one result per item.
+const printBatch = (
+  args: Partial<PrintTcpInterface & PrintBluetoothInterface> & {
+    items: BatchItem[];
+    tone?: Tone;
+  }
+): Promise<BatchItemResult[]> => {
+  const {
+    macAddress,
+    ip,
+    port,
+    timeout,
+    printerDpi,
+    printerWidthMM,
+    printerNbrCharactersPerLine,
+  } = getConfig(args);
+
+  const useBluetooth = !!args.macAddress;
+
+  return ThermalPrinterModule.printBatch(
+    useBluetooth ? 'BLUETOOTH' : 'TCP',
+    useBluetooth ? null : ip,
+    port,
+    useBluetooth ? macAddress : null,
+    timeout,
+    args.items,
+    printerDpi,
+    printerWidthMM,
+    printerNbrCharactersPerLine,
+    args.tone ?? null
+  );
+};
+
+// Resolves false when the job already finished
+const cancelJob = (jobId: string): Promise<boolean> => {
+  return ThermalPrinterModule.cancelJob(jobId);
+};
+
+const onJobFinished = (listener: (event: JobFinishedEvent) => void) => {
+  const emitter = new NativeEventEmitter(NativeModules.ThermalPrinterModule);
+
+  return emitter.addListener('ThermalPrinterJobFinished', listener);
+};
+
+interface EmulatorInterface {
+  port: number;
+  dotsPerLine: number;
+  receiveBufferBytes: number;
+  bytesPerSecond: number;
+  stallEveryBytes: number;
+  stallMs: number;
+  paperEnd: boolean;
+  answerStatus: boolean;
+}
+
+const defaultEmulatorConfig: EmulatorInterface = {
+  port: 0,
+  dotsPerLine: 576,
+  receiveBufferBytes: 4096,
+  bytesPerSecond: 0,
+  stallEveryBytes: 0,
+  stallMs: 0,
+  paperEnd: false,
+  answerStatus: true,
+};
+
+// Starts a local ESC/POS printer on 127.0.0.1 and resolves with its port.
+// bytesPerSecond / stallEveryBytes / stallMs mimic slow printers (0 = off).
+const startEmulator = (
+  args: Partial<EmulatorInterface> = {}
+): Promise<number> => {
+  const {
+    port,
+    dotsPerLine,
+    receiveBufferBytes,
+    bytesPerSecond,
+    stallEveryBytes,
+    stallMs,
+    paperEnd,
+    answerStatus,
+  } = Object.assign({}, defaultEmulatorConfig, args);
+
+  return ThermalPrinterModule.startEmulator(
+    port,
+    dotsPerLine,
+    receiveBufferBytes,
+    bytesPerSecond,
+    stallEveryBytes,
+    stallMs,
+    paperEnd,
+    answerStatus
+  );
+};
+
+// Resolves with the bytes, per-command timings and rendered PNG pages
+const stopEmulator = (): Promise<EmulatorResult> => {
+  return ThermalPrinterModule.stopEmulator();
+};
+
+interface BenchmarkInterface {
+  printModes: PrintMode[];
+  pacingModes: PacingMode[];
+  chunkHeights: number[];
+  packetSizes: number[];
+  packetMicroDelaysMs: number[];
+  useQueueForWrites: boolean[];
+  iterations: number;
+  useEmulator: boolean;
+  emulatorBytesPerSecond: number;
+}
+
+// Empty arrays sweep the native defaults
+const defaultBenchmarkConfig: BenchmarkInterface = {
+  printModes: [],
+  pacingModes: [],
+  chunkHeights: [],
+  packetSizes: [],
+  packetMicroDelaysMs: [],
+  useQueueForWrites: [],
+  iterations: 3,
+  useEmulator: false,
+  emulatorBytesPerSecond: 0,
+};
+
+// Prints payload (base64 image) with every combination of the swept
+// settings and resolves with the measurements, fastest first.
+// Targets the emulator, the printer at macAddress, or the one at ip.
+const runBenchmark = (
+  args: Partial<PrintTcpInterface & PrintBluetoothInterface> &
+    Pick<PrinterInterface, 'payload'> &
+    Partial<BenchmarkInterface>
+): Promise<BenchmarkResult[]> => {
+  const { macAddress, ip, port, payload, printerDpi, printerWidthMM } =
+    getConfig(args);
+
+  const {
+    printModes,
+    pacingModes,
+    chunkHeights,
+    packetSizes,
+    packetMicroDelaysMs,
+    useQueueForWrites,
+    iterations,
+    useEmulator,
+    emulatorBytesPerSecond,
+  } = Object.assign({}, defaultBenchmarkConfig, args);
+
+  const useBluetooth = !useEmulator && !!args.macAddress;
+
+  return ThermalPrinterModule.runBenchmark(
+    useEmulator ? 'EMULATOR' : useBluetooth ? 'BLUETOOTH' : 'TCP',
+    useBluetooth ? null : ip,
+    port,
+    useBluetooth ? macAddress : null,
+    payload,
+    printerDpi,
+    printerWidthMM,
+    printModes,
+    pacingModes,
+    chunkHeights,
+    packetSizes,
+    packetMicroDelaysMs,
+    useQueueForWrites,
+    iterations,
+    emulatorBytesPerSecond
+  );
+};
+
+// Per-printer stage latencies and counters since the last reset
+const getMetrics = (reset: boolean = false): Promise<MetricsSnapshot> => {
+  return ThermalPrinterModule.getMetrics(reset);
+};
+
+// Emits onMetrics every intervalMs (0 = stop); each event covers one interval
+const setMetricsEventInterval = (intervalMs: number): Promise<boolean> => {
+  return ThermalPrinterModule.setMetricsEventInterval(intervalMs);
+};
+
+const onMetrics = (listener: (event: MetricsSnapshot) => void) => {
+  const emitter = new NativeEventEmitter(NativeModules.ThermalPrinterModule);
+
+  return emitter.addListener('ThermalPrinterMetrics', listener);
+};
+
+// Writes the recent job events (stages, packet writes, pacing sleeps,
+// flushes) as Chrome trace JSON and resolves with the file path.
+// Open it in chrome://tracing or ui.perfetto.dev.
+const exportTrace = (clear: boolean = false): Promise<string> => {
+  return ThermalPrinterModule.exportTrace(clear);
+};
+
+// Prints test payloads (payload, or a generated pattern) with increasing
+// packet sizes and decreasing delays until the printer errors or stalls,
+// then saves the fastest safe settings for it. Later jobs use them.
+const calibratePrinter = (
+  args: Partial<PrintTcpInterface & PrintBluetoothInterface>
+): Promise<PrinterProfile & { probes: number }> => {
+  const { macAddress, ip, port, timeout, printerDpi, printerWidthMM } =
+    getConfig(args);
+
+  const useBluetooth = !!args.macAddress;
+
+  return ThermalPrinterModule.calibratePrinter(
+    useBluetooth ? 'BLUETOOTH' : 'TCP',
+    useBluetooth ? null : ip,
+    port,
+    useBluetooth ? macAddress : null,
+    timeout,
+    args.payload ?? '',
+    printerDpi,
+    printerWidthMM
+  );
+};
+
+// Saved profiles by printer key ("tcp:ip:port" / "bt:MAC")
+const getPrinterProfiles = (): Promise<Record<string, PrinterProfile>> => {
+  return ThermalPrinterModule.getPrinterProfiles();
+};
+
+// Resolves false when the printer had no profile
+const clearPrinterProfile = (printerKey: string): Promise<boolean> => {
+  return ThermalPrinterModule.clearPrinterProfile(printerKey);
+};
+
+// What each printer printed to so far reported about itself (GS I), and
+// the print mode its model falls back to
+const getPrinterCapabilities = (): Promise<
+  Record<string, PrinterCapabilities>
+> => {
+  return ThermalPrinterModule.getPrinterCapabilities();
+};
+
+// Peak bytes an image may take while it is prepared. Larger images are
+// decoded and dithered in bands instead (0 = a quarter of the heap limit)
+const configureMemoryBudget = (bytes: number = 0): Promise<boolean> => {
+  return ThermalPrinterModule.configureMemoryBudget(bytes);
+};
+
+// Printed image jobs kept on disk for reprints (0 = stop spooling)
+const configureSpool = (maxJobs: number = 32): Promise<boolean> => {
+  return ThermalPrinterModule.configureSpool(maxJobs);
+};
+
+// Oldest first, including jobs cut off by an error or app death
+const getSpooledJobs = (): Promise<SpooledJob[]> => {
+  return ThermalPrinterModule.getSpooledJobs();
+};
+
+// Sends the encoded job again without re-encoding. With resume, only the
+// bands the printer did not confirm (status read-back) during its last
+// transfer are sent; without read-back that is the whole job.
+const replaySpooledJob = (
+  spoolId: string,
+  resume: boolean = false
+): Promise<boolean> => {
+  return ThermalPrinterModule.replaySpooledJob(spoolId, resume);
+};
+
+const deleteSpooledJob = (spoolId: string): Promise<boolean> => {
+  return ThermalPrinterModule.deleteSpooledJob(spoolId);
+};
+
 export default {
   printTcp,
   printBluetooth,
   defaultConfig,
   getBluetoothDeviceList,
+  configureConnectionPool,
+  configureScheduler,
+  enqueueImage,
+  enqueueSegments,
+  cancelJob,
+  onJobFinished,
+  printBatch,
+  startEmulator,
+  stopEmulator,
+  runBenchmark,
+  getMetrics,
+  setMetricsEventInterval,
+  onMetrics,
+  exportTrace,
+  calibratePrinter,
+  getPrinterProfiles,
+  clearPrinterProfile,
+  getPrinterCapabilities,
+  configureMemoryBudget,
+  configureSpool,
+  getSpooledJobs,
+  replaySpooledJob,
+  deleteSpooledJob,
 };